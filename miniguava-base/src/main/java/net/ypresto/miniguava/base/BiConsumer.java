@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) 2016 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ypresto.miniguava.base;
+
+import net.ypresto.miniguava.annotations.Beta;
+import net.ypresto.miniguava.annotations.MiniGuavaSpecific;
+
+import javax.annotation.Nullable;
+
+/**
+ * An operation that accepts two inputs and returns no result, used for internal iteration over
+ * maps such as {@code ImmutableMap.forEachEntry}. The key and value are passed directly, so no
+ * entry object is needed for each mapping.
+ */
+@Beta
+@MiniGuavaSpecific
+public interface BiConsumer<T, U> {
+  /**
+   * Performs this operation on {@code first} and {@code second}.
+   */
+  void accept(@Nullable T first, @Nullable U second);
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) 2016 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ypresto.miniguava.base;
+
+import net.ypresto.miniguava.annotations.Beta;
+import net.ypresto.miniguava.annotations.MiniGuavaSpecific;
+
+import javax.annotation.Nullable;
+
+/**
+ * An operation that accepts a single input and returns no result, used for internal iteration
+ * such as {@code ImmutableCollection.forEachElement}. Unlike iterating with an {@code Iterator},
+ * the collection drives the loop, so it can walk its backing arrays directly.
+ */
+@Beta
+@MiniGuavaSpecific
+public interface Consumer<T> {
+  /**
+   * Performs this operation on {@code input}.
+   */
+  void accept(@Nullable T input);
+}
@@ -33,6 +33,8 @@
  * <ul>
  * <li>{@link net.ypresto.miniguava.base.Function},
  * <li>{@link net.ypresto.miniguava.base.Predicate},
+ * <li>{@link net.ypresto.miniguava.base.Consumer},
+ * <li>{@link net.ypresto.miniguava.base.BiConsumer},
  * </ul>
  *
  * <h3>Other</h3>
@@ -0,0 +1,247 @@
+/*
+ * Copyright (C) 2016 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ypresto.miniguava.collect.immutables;
+
+import static net.ypresto.miniguava.base.Preconditions.checkArgument;
+import static net.ypresto.miniguava.base.Preconditions.checkElementIndex;
+import static net.ypresto.miniguava.base.Preconditions.checkNotNull;
+
+import net.ypresto.miniguava.annotations.Beta;
+import net.ypresto.miniguava.annotations.MiniGuavaSpecific;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collection;
+
+import javax.annotation.Nullable;
+
+/**
+ * An immutable table whose row keys and column keys are fixed when it is created, storing the
+ * value of every possible cell in a single array of {@code rowKeyList().size() *
+ * columnKeyList().size()} elements. A cell without a value takes one array slot, and a cell with
+ * one takes no other memory, so this is the most compact table when most cells are present, and
+ * {@link #at} reads a value with no hashing at all.
+ *
+ * <p>Row keys and column keys iterate in the order they were given, and cells in row-major order.
+ */
+// miniguava: Immutable, unlike Guava's ArrayTable.
+@Beta
+@MiniGuavaSpecific
+@SuppressWarnings("serial") // uses writeReplace(), not default serialization
+public final class ArrayTable<R, C, V> extends ImmutableTable<R, C, V> {
+  private final transient int columnCount;
+  // the value of the cell in row i and column j is at i * columnCount + j, null if absent
+  private final transient Object[] values;
+  private final transient int size;
+
+  ArrayTable(ImmutableMap<R, Integer> rowKeyToIndex, ImmutableMap<C, Integer> columnKeyToIndex,
+      Object[] values) {
+    super(rowKeyToIndex, columnKeyToIndex);
+    this.columnCount = columnKeyToIndex.size();
+    this.values = values;
+    int size = 0;
+    for (Object value : values) {
+      if (value != null) {
+        size++;
+      }
+    }
+    this.size = size;
+  }
+
+  /**
+   * Returns an {@code ArrayTable} containing the cells of {@code table}, with its row keys and
+   * column keys. If {@code table} already is an {@code ArrayTable}, it is returned without
+   * copying.
+   *
+   * @throws IllegalArgumentException if the number of possible cells exceeds
+   *     {@link Integer#MAX_VALUE}
+   */
+  public static <R, C, V> ArrayTable<R, C, V> copyOf(
+      ImmutableTable<? extends R, ? extends C, ? extends V> table) {
+    if (table instanceof ArrayTable) {
+      @SuppressWarnings("unchecked") // safe since table is not writable
+      ArrayTable<R, C, V> rcvTable = (ArrayTable<R, C, V>) table;
+      return rcvTable;
+    }
+    @SuppressWarnings("unchecked") // safe since the index maps are not writable
+    ImmutableTable<R, C, V> rcvTable = (ImmutableTable<R, C, V>) table;
+    Object[] values = new Object[cellSpace(rcvTable.rowKeyToIndex, rcvTable.columnKeyToIndex)];
+    int columnCount = rcvTable.columnKeyToIndex.size();
+    for (Cell<R, C, V> cell : rcvTable.cellSet()) {
+      values[rcvTable.rowKeyToIndex.get(cell.getRowKey()) * columnCount
+          + rcvTable.columnKeyToIndex.get(cell.getColumnKey())] = cell.getValue();
+    }
+    return new ArrayTable<R, C, V>(rcvTable.rowKeyToIndex, rcvTable.columnKeyToIndex, values);
+  }
+
+  private static int cellSpace(ImmutableMap<?, Integer> rowKeyToIndex,
+      ImmutableMap<?, Integer> columnKeyToIndex) {
+    long cellSpace = (long) rowKeyToIndex.size() * columnKeyToIndex.size();
+    checkArgument(cellSpace <= Integer.MAX_VALUE, "too many cells: %s", cellSpace);
+    return (int) cellSpace;
+  }
+
+  /**
+   * Returns a new builder of a table with the given row keys and column keys, in order.
+   *
+   * @throws IllegalArgumentException if {@code rowKeys} or {@code columnKeys} contains duplicates,
+   *     or the number of possible cells exceeds {@link Integer#MAX_VALUE}
+   * @throws NullPointerException if any key is null
+   */
+  public static <R, C, V> Builder<R, C, V> builder(
+      Collection<? extends R> rowKeys, Collection<? extends C> columnKeys) {
+    return new Builder<R, C, V>(
+        InternalUtils.indexMap(ImmutableList.<R>copyOf(rowKeys)),
+        InternalUtils.indexMap(ImmutableList.<C>copyOf(columnKeys)));
+  }
+
+  /**
+   * A builder for {@link ArrayTable} instances with fixed row keys and column keys. Unlike
+   * {@link ImmutableTable.Builder}, putting a value into a cell that already has one replaces it.
+   * Builder instances can be reused; each built table contains the values put before it was
+   * built.
+   */
+  public static final class Builder<R, C, V> {
+    private final ImmutableMap<R, Integer> rowKeyToIndex;
+    private final ImmutableMap<C, Integer> columnKeyToIndex;
+    private final Object[] values;
+
+    Builder(ImmutableMap<R, Integer> rowKeyToIndex, ImmutableMap<C, Integer> columnKeyToIndex) {
+      this.rowKeyToIndex = rowKeyToIndex;
+      this.columnKeyToIndex = columnKeyToIndex;
+      this.values = new Object[cellSpace(rowKeyToIndex, columnKeyToIndex)];
+    }
+
+    /**
+     * Associates the ({@code rowKey}, {@code columnKey}) pair with {@code value}, replacing any
+     * value put before.
+     *
+     * @throws IllegalArgumentException if {@code rowKey} is not a row key or {@code columnKey} is
+     *     not a column key of the table
+     */
+    public Builder<R, C, V> put(R rowKey, C columnKey, V value) {
+      Integer rowIndex = rowKeyToIndex.get(checkNotNull(rowKey));
+      Integer columnIndex = columnKeyToIndex.get(checkNotNull(columnKey));
+      checkArgument(rowIndex != null, "Row %s not in %s", rowKey, rowKeyToIndex.keySet());
+      checkArgument(
+          columnIndex != null, "Column %s not in %s", columnKey, columnKeyToIndex.keySet());
+      return set(rowIndex, columnIndex, value);
+    }
+
+    /**
+     * Associates the cell at the given row and column index with {@code value}, replacing any
+     * value put before.
+     *
+     * @throws IndexOutOfBoundsException if either index is negative or not less than the number
+     *     of row or column keys
+     */
+    public Builder<R, C, V> set(int rowIndex, int columnIndex, V value) {
+      checkElementIndex(rowIndex, rowKeyToIndex.size());
+      checkElementIndex(columnIndex, columnKeyToIndex.size());
+      values[rowIndex * columnKeyToIndex.size() + columnIndex] = checkNotNull(value);
+      return this;
+    }
+
+    /** Returns a newly-created array table. */
+    public ArrayTable<R, C, V> build() {
+      return new ArrayTable<R, C, V>(
+          rowKeyToIndex, columnKeyToIndex, values.clone());
+    }
+  }
+
+  /** Returns the row keys of this table, in order; the index of a key is its row index. */
+  public ImmutableList<R> rowKeyList() {
+    return rowKeyToIndex.keySet().asList();
+  }
+
+  /** Returns the column keys of this table, in order; the index of a key is its column index. */
+  public ImmutableList<C> columnKeyList() {
+    return columnKeyToIndex.keySet().asList();
+  }
+
+  /**
+   * Returns the value of the cell at the given row and column index, or {@code null} if the cell
+   * has no value. This is equivalent to {@code get(rowKeyList().get(rowIndex),
+   * columnKeyList().get(columnIndex))}, without any hashing.
+   *
+   * @throws IndexOutOfBoundsException if either index is negative or not less than the number of
+   *     row or column keys
+   */
+  @Nullable
+  public V at(int rowIndex, int columnIndex) {
+    checkElementIndex(rowIndex, rowKeyToIndex.size());
+    checkElementIndex(columnIndex, columnCount);
+    return getByIndex(rowIndex, columnIndex);
+  }
+
+  @SuppressWarnings("unchecked") // only Vs are stored
+  @Override
+  @Nullable
+  V getByIndex(int rowIndex, int columnIndex) {
+    return (V) values[rowIndex * columnCount + columnIndex];
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @SuppressWarnings("unchecked") // only Vs are stored
+  @Override
+  ImmutableList<Cell<R, C, V>> createCellList() {
+    Object[] cells = new Object[size];
+    int i = 0;
+    for (int position = 0; position < values.length; position++) {
+      Object value = values[position];
+      if (value != null) {
+        cells[i++] = cellOf(
+            rowKeyAt(position / columnCount), columnKeyAt(position % columnCount), (V) value);
+      }
+    }
+    return ImmutableList.asImmutableList(cells);
+  }
+
+  @Override
+  Object writeReplace() {
+    return new SerializedForm(this);
+  }
+
+  /*
+   * Serializes the row keys, the column keys and the value array, keeping the key spaces of the
+   * table even where they have no cells.
+   */
+  private static class SerializedForm implements Serializable {
+    private final Object[] rowKeys;
+    private final Object[] columnKeys;
+    private final Object[] values;
+
+    SerializedForm(ArrayTable<?, ?, ?> table) {
+      this.rowKeys = table.rowKeyList().toArray();
+      this.columnKeys = table.columnKeyList().toArray();
+      this.values = table.values;
+    }
+
+    Object readResolve() {
+      return new ArrayTable<Object, Object, Object>(
+          InternalUtils.indexMap(Arrays.asList(rowKeys)),
+          InternalUtils.indexMap(Arrays.asList(columnKeys)),
+          values);
+    }
+
+    private static final long serialVersionUID = 0;
+  }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2016 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ypresto.miniguava.collect.immutables;
+
+import net.ypresto.miniguava.annotations.Beta;
+import net.ypresto.miniguava.annotations.MiniGuavaSpecific;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Converts values of type {@code T} to and from a binary representation stored in a
+ * {@link ByteBuffer}. Standard implementations are available from {@link BinaryCodecs}.
+ *
+ * <p>Codecs used for keys must be <i>canonical</i>: two values are {@linkplain Object#equals equal}
+ * if and only if their encoded forms are byte-for-byte equal. Lookups in binary formats compare
+ * encoded keys without decoding them.
+ */
+@Beta
+@MiniGuavaSpecific
+public interface BinaryCodec<T> {
+  /**
+   * Returns the number of bytes {@link #encode} writes for {@code value}.
+   */
+  int encodedLength(T value);
+
+  /**
+   * Writes exactly {@link #encodedLength}{@code (value)} bytes representing {@code value} to
+   * {@code dst}, starting at its current position and advancing it.
+   */
+  void encode(T value, ByteBuffer dst);
+
+  /**
+   * Reads a value from the bytes between the position and the limit of {@code src}. The returned
+   * value must not be null.
+   */
+  T decode(ByteBuffer src);
+}
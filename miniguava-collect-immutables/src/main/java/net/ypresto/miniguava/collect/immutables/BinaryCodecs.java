@@ -0,0 +1,348 @@
+/*
+ * Copyright (C) 2016 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ypresto.miniguava.collect.immutables;
+
+import static net.ypresto.miniguava.base.Preconditions.checkNotNull;
+
+import net.ypresto.miniguava.annotations.Beta;
+import net.ypresto.miniguava.annotations.MiniGuavaSpecific;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Map.Entry;
+
+/**
+ * Static factories for standard {@link BinaryCodec} implementations.
+ */
+@Beta
+@MiniGuavaSpecific
+public final class BinaryCodecs {
+  private BinaryCodecs() {}
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  /**
+   * Returns a codec which stores strings as UTF-8 bytes without a length prefix.
+   */
+  public static BinaryCodec<String> stringCodec() {
+    return StringCodec.INSTANCE;
+  }
+
+  /**
+   * Returns a codec which stores integers as 4 big-endian bytes.
+   */
+  public static BinaryCodec<Integer> integerCodec() {
+    return IntegerCodec.INSTANCE;
+  }
+
+  /**
+   * Returns a codec which stores longs as 8 big-endian bytes.
+   */
+  public static BinaryCodec<Long> longCodec() {
+    return LongCodec.INSTANCE;
+  }
+
+  /**
+   * Returns a codec which stores an {@link ImmutableList} as its size followed by each element,
+   * prefixed with its encoded length, in order. Decoding allocates the backing array once and does
+   * not copy it.
+   */
+  public static <E> BinaryCodec<ImmutableList<E>> listCodec(BinaryCodec<E> elementCodec) {
+    return new ListCodec<E>(checkNotNull(elementCodec));
+  }
+
+  /**
+   * Returns a codec which stores an {@link ImmutableSet} in the same format as
+   * {@link #listCodec}, in iteration order. The hash table is rebuilt when decoding, since
+   * {@link Object#hashCode} is not guaranteed to be stable across processes.
+   *
+   * <p>The encoded form depends on iteration order, so equal sets may have different encoded forms.
+   * This codec is therefore not canonical and must not be used for the keys of a
+   * {@link MappedImmutableMaps mapped map}.
+   */
+  public static <E> BinaryCodec<ImmutableSet<E>> setCodec(BinaryCodec<E> elementCodec) {
+    return new SetCodec<E>(checkNotNull(elementCodec));
+  }
+
+  /**
+   * Returns a codec which stores an {@link ImmutableMap} as its size followed by each key and value,
+   * prefixed with their encoded lengths, in iteration order. The hash table is rebuilt when
+   * decoding, since {@link Object#hashCode} is not guaranteed to be stable across processes.
+   *
+   * <p>The encoded form depends on iteration order, so equal maps may have different encoded forms.
+   * This codec is therefore not canonical and must not be used for the keys of a
+   * {@link MappedImmutableMaps mapped map}.
+   */
+  public static <K, V> BinaryCodec<ImmutableMap<K, V>> mapCodec(
+      BinaryCodec<K> keyCodec, BinaryCodec<V> valueCodec) {
+    return new MapCodec<K, V>(checkNotNull(keyCodec), checkNotNull(valueCodec));
+  }
+
+  private static final class ListCodec<E> implements BinaryCodec<ImmutableList<E>> {
+    private final BinaryCodec<E> elementCodec;
+
+    ListCodec(BinaryCodec<E> elementCodec) {
+      this.elementCodec = elementCodec;
+    }
+
+    @Override
+    public int encodedLength(ImmutableList<E> value) {
+      return elementsLength(elementCodec, value);
+    }
+
+    @Override
+    public void encode(ImmutableList<E> value, ByteBuffer dst) {
+      encodeElements(elementCodec, value, dst);
+    }
+
+    @Override
+    public ImmutableList<E> decode(ByteBuffer src) {
+      int size = readSize(src);
+      Object[] elements = new Object[size];
+      for (int i = 0; i < size; i++) {
+        elements[i] = decodeLengthPrefixed(elementCodec, src);
+      }
+      checkFullyRead(src);
+      return ImmutableList.asImmutableList(elements);
+    }
+  }
+
+  private static final class SetCodec<E> implements BinaryCodec<ImmutableSet<E>> {
+    private final BinaryCodec<E> elementCodec;
+
+    SetCodec(BinaryCodec<E> elementCodec) {
+      this.elementCodec = elementCodec;
+    }
+
+    @Override
+    public int encodedLength(ImmutableSet<E> value) {
+      return elementsLength(elementCodec, value);
+    }
+
+    @Override
+    public void encode(ImmutableSet<E> value, ByteBuffer dst) {
+      encodeElements(elementCodec, value, dst);
+    }
+
+    @Override
+    public ImmutableSet<E> decode(ByteBuffer src) {
+      int size = readSize(src);
+      ImmutableSet.Builder<E> builder = new ImmutableSet.Builder<E>(size);
+      for (int i = 0; i < size; i++) {
+        builder.add(decodeLengthPrefixed(elementCodec, src));
+      }
+      checkFullyRead(src);
+      return builder.build();
+    }
+  }
+
+  private static final class MapCodec<K, V> implements BinaryCodec<ImmutableMap<K, V>> {
+    private final BinaryCodec<K> keyCodec;
+    private final BinaryCodec<V> valueCodec;
+
+    MapCodec(BinaryCodec<K> keyCodec, BinaryCodec<V> valueCodec) {
+      this.keyCodec = keyCodec;
+      this.valueCodec = valueCodec;
+    }
+
+    @Override
+    public int encodedLength(ImmutableMap<K, V> value) {
+      long length = 4;
+      for (Entry<K, V> entry : value.entrySet()) {
+        length += 8L
+            + keyCodec.encodedLength(entry.getKey())
+            + valueCodec.encodedLength(entry.getValue());
+      }
+      return checkLength(length);
+    }
+
+    @Override
+    public void encode(ImmutableMap<K, V> value, ByteBuffer dst) {
+      dst.putInt(value.size());
+      for (Entry<K, V> entry : value.entrySet()) {
+        encodeLengthPrefixed(keyCodec, entry.getKey(), dst);
+        encodeLengthPrefixed(valueCodec, entry.getValue(), dst);
+      }
+    }
+
+    @Override
+    public ImmutableMap<K, V> decode(ByteBuffer src) {
+      int size = readSize(src);
+      ImmutableMap.Builder<K, V> builder = new ImmutableMap.Builder<K, V>(size);
+      for (int i = 0; i < size; i++) {
+        K key = decodeLengthPrefixed(keyCodec, src);
+        builder.put(key, decodeLengthPrefixed(valueCodec, src));
+      }
+      checkFullyRead(src);
+      return builder.build();
+    }
+  }
+
+  private static <E> int elementsLength(BinaryCodec<E> elementCodec, ImmutableCollection<E> value) {
+    long length = 4;
+    for (E element : value) {
+      length += 4L + elementCodec.encodedLength(element);
+    }
+    return checkLength(length);
+  }
+
+  private static <E> void encodeElements(
+      BinaryCodec<E> elementCodec, ImmutableCollection<E> value, ByteBuffer dst) {
+    dst.putInt(value.size());
+    for (E element : value) {
+      encodeLengthPrefixed(elementCodec, element, dst);
+    }
+  }
+
+  private static <T> void encodeLengthPrefixed(BinaryCodec<T> codec, T value, ByteBuffer dst) {
+    int lengthPosition = dst.position();
+    dst.putInt(0);
+    codec.encode(value, dst);
+    dst.putInt(lengthPosition, dst.position() - lengthPosition - 4);
+  }
+
+  private static <T> T decodeLengthPrefixed(BinaryCodec<T> codec, ByteBuffer src) {
+    int length = src.getInt();
+    if (length < 0 || length > src.remaining()) {
+      throw new IllegalArgumentException("corrupt element length: " + length);
+    }
+    int end = src.position() + length;
+    ByteBuffer element = src.duplicate();
+    element.limit(end);
+    T value = codec.decode(element);
+    src.position(end);
+    return value;
+  }
+
+  private static int readSize(ByteBuffer src) {
+    int size = src.getInt();
+    // every element takes at least its 4-byte length prefix
+    if (size < 0 || size > src.remaining() / 4) {
+      throw new IllegalArgumentException("corrupt collection size: " + size);
+    }
+    return size;
+  }
+
+  private static void checkFullyRead(ByteBuffer src) {
+    if (src.hasRemaining()) {
+      throw new IllegalArgumentException(src.remaining() + " trailing bytes after collection");
+    }
+  }
+
+  private static int checkLength(long length) {
+    if (length > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("encoded length does not fit in int: " + length);
+    }
+    return (int) length;
+  }
+
+  private enum StringCodec implements BinaryCodec<String> {
+    INSTANCE;
+
+    @Override
+    public int encodedLength(String value) {
+      return utf8Length(value);
+    }
+
+    @Override
+    public void encode(String value, ByteBuffer dst) {
+      dst.put(value.getBytes(UTF_8));
+    }
+
+    @Override
+    public String decode(ByteBuffer src) {
+      if (src.hasArray()) {
+        return new String(
+            src.array(), src.arrayOffset() + src.position(), src.remaining(), UTF_8);
+      }
+      byte[] bytes = new byte[src.remaining()];
+      src.get(bytes);
+      return new String(bytes, UTF_8);
+    }
+  }
+
+  private enum IntegerCodec implements BinaryCodec<Integer> {
+    INSTANCE;
+
+    @Override
+    public int encodedLength(Integer value) {
+      return 4;
+    }
+
+    @Override
+    public void encode(Integer value, ByteBuffer dst) {
+      dst.putInt(value);
+    }
+
+    @Override
+    public Integer decode(ByteBuffer src) {
+      return src.getInt();
+    }
+  }
+
+  private enum LongCodec implements BinaryCodec<Long> {
+    INSTANCE;
+
+    @Override
+    public int encodedLength(Long value) {
+      return 8;
+    }
+
+    @Override
+    public void encode(Long value, ByteBuffer dst) {
+      dst.putLong(value);
+    }
+
+    @Override
+    public Long decode(ByteBuffer src) {
+      return src.getLong();
+    }
+  }
+
+  /**
+   * Returns the number of bytes in the UTF-8-encoded form of {@code sequence}. Unpaired
+   * surrogates are counted as the single replacement byte {@link String#getBytes} emits for them.
+   */
+  @MiniGuavaSpecific(value = MiniGuavaSpecific.Reason.COPIED, from = "base.Utf8#encodedLength")
+  static int utf8Length(CharSequence sequence) {
+    int length = sequence.length();
+    long utf8Length = length;
+    for (int i = 0; i < length; i++) {
+      char c = sequence.charAt(i);
+      if (c < 0x80) {
+        continue;
+      } else if (c < 0x800) {
+        utf8Length += 1;
+      } else if (Character.isHighSurrogate(c)
+          && i + 1 < length
+          && Character.isLowSurrogate(sequence.charAt(i + 1))) {
+        // a valid surrogate pair takes 4 bytes for 2 chars
+        utf8Length += 2;
+        i++;
+      } else if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+        // replaced by '?'
+        continue;
+      } else {
+        utf8Length += 2;
+      }
+    }
+    if (utf8Length > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("UTF-8 length does not fit in int: " + utf8Length);
+    }
+    return (int) utf8Length;
+  }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2016 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ypresto.miniguava.collect.immutables;
+
+import net.ypresto.miniguava.annotations.MiniGuavaSpecific;
+import net.ypresto.miniguava.annotations.VisibleForTesting;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.SortedMap;
+import java.util.SortedSet;
+
+/**
+ * A concurrent pool of weakly referenced immutable collections and maps, used by
+ * {@link Immutables#canonicalize}. Instances are only shared when they are interchangeable: same
+ * class, same contents in the same iteration order, and for sorted collections the same
+ * comparator. {@code equals} alone is not enough, as equal sets may iterate in different orders.
+ *
+ * <p>The table is split into segments, each a chained hash table guarded by its own lock, like
+ * the segments of {@code MapMaker} maps. Entries whose instance was garbage collected are
+ * removed on the next call that locks their segment.
+ */
+@MiniGuavaSpecific
+final class CanonicalPool {
+  private static final int SEGMENT_SHIFT = 28;
+  private static final int SEGMENT_COUNT = 1 << (Integer.SIZE - SEGMENT_SHIFT);
+  private static final int INITIAL_SEGMENT_CAPACITY = 16;
+
+  private final Segment[] segments;
+
+  CanonicalPool() {
+    segments = new Segment[SEGMENT_COUNT];
+    for (int i = 0; i < SEGMENT_COUNT; i++) {
+      segments[i] = new Segment();
+    }
+  }
+
+  /** Returns the pooled instance interchangeable with {@code value}, adding it if there is none. */
+  @SuppressWarnings("unchecked") // pooled instances are only returned for values of their class
+  <T> T canonicalize(T value) {
+    int hash = Hashing.smear(value.hashCode());
+    return (T) segments[hash >>> SEGMENT_SHIFT].canonicalize(value, hash);
+  }
+
+  /** Returns the number of live and not yet removed instances in the pool. */
+  @VisibleForTesting
+  int size() {
+    int size = 0;
+    for (Segment segment : segments) {
+      size += segment.size();
+    }
+    return size;
+  }
+
+  static boolean interchangeable(Object a, Object b) {
+    if (a.getClass() != b.getClass()) {
+      return false;
+    }
+    if (a instanceof SortedSet
+        && !((SortedSet<?>) a).comparator().equals(((SortedSet<?>) b).comparator())) {
+      return false;
+    }
+    if (a instanceof SortedMap
+        && !((SortedMap<?, ?>) a).comparator().equals(((SortedMap<?, ?>) b).comparator())) {
+      return false;
+    }
+    if (a instanceof ImmutableSet) {
+      return ((ImmutableSet<?>) a).asList().equals(((ImmutableSet<?>) b).asList());
+    }
+    if (a instanceof ImmutableMap) {
+      return ((ImmutableMap<?, ?>) a).entrySet().asList()
+          .equals(((ImmutableMap<?, ?>) b).entrySet().asList());
+    }
+    return a.equals(b);
+  }
+
+  private static final class Entry extends WeakReference<Object> {
+    final int hash;
+    Entry next;
+
+    Entry(Object referent, int hash, Entry next, ReferenceQueue<Object> queue) {
+      super(referent, queue);
+      this.hash = hash;
+      this.next = next;
+    }
+  }
+
+  private static final class Segment {
+    private final ReferenceQueue<Object> queue = new ReferenceQueue<Object>();
+    private Entry[] table = new Entry[INITIAL_SEGMENT_CAPACITY];
+    private int count;
+
+    synchronized Object canonicalize(Object value, int hash) {
+      removeCollected();
+      int index = hash & (table.length - 1);
+      for (Entry e = table[index]; e != null; e = e.next) {
+        if (e.hash == hash) {
+          Object pooled = e.get();
+          if (pooled != null && interchangeable(pooled, value)) {
+            return pooled;
+          }
+        }
+      }
+      table[index] = new Entry(value, hash, table[index], queue);
+      if (++count > table.length - (table.length >>> 2)) {
+        expand();
+      }
+      return value;
+    }
+
+    synchronized int size() {
+      removeCollected();
+      return count;
+    }
+
+    private void removeCollected() {
+      Reference<?> ref;
+      while ((ref = queue.poll()) != null) {
+        Entry entry = (Entry) ref;
+        int index = entry.hash & (table.length - 1);
+        Entry prev = null;
+        for (Entry e = table[index]; e != null; prev = e, e = e.next) {
+          if (e == entry) {
+            if (prev == null) {
+              table[index] = e.next;
+            } else {
+              prev.next = e.next;
+            }
+            count--;
+            break;
+          }
+        }
+      }
+    }
+
+    private void expand() {
+      Entry[] oldTable = table;
+      Entry[] newTable = new Entry[oldTable.length * 2];
+      int mask = newTable.length - 1;
+      for (Entry head : oldTable) {
+        Entry e = head;
+        while (e != null) {
+          Entry next = e.next;
+          int index = e.hash & mask;
+          e.next = newTable[index];
+          newTable[index] = e;
+          e = next;
+        }
+      }
+      table = newTable;
+    }
+  }
+}
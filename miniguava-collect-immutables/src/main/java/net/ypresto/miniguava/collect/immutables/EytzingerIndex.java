@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2016 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ypresto.miniguava.collect.immutables;
+
+import net.ypresto.miniguava.annotations.MiniGuavaSpecific;
+
+import java.util.Comparator;
+
+/**
+ * A search index over a sorted array, storing the elements in Eytzinger (breadth-first) order:
+ * the root of the implicit binary search tree at index 1, and the children of node {@code k} at
+ * {@code 2k} and {@code 2k + 1}. A search walks down the tree, so its first few steps touch the
+ * same few cache lines every time, and each step only decides which child to go to next.
+ * Binary search over the sorted array instead jumps across the whole array on its first steps.
+ */
+@MiniGuavaSpecific
+final class EytzingerIndex {
+  private final Object[] tree;
+  // index in the sorted array of each tree node
+  private final int[] ranks;
+
+  private EytzingerIndex(Object[] tree, int[] ranks) {
+    this.tree = tree;
+    this.ranks = ranks;
+  }
+
+  /** Creates an index over the first {@code n} elements of {@code sorted}. */
+  static EytzingerIndex create(Object[] sorted, int n) {
+    Object[] tree = new Object[n + 1];
+    int[] ranks = new int[n + 1];
+    fill(sorted, tree, ranks, 0, 1);
+    return new EytzingerIndex(tree, ranks);
+  }
+
+  /**
+   * Fills the subtree rooted at node {@code k} with the sorted elements starting at {@code i},
+   * by in-order traversal, and returns the index of the next element. Recurses at most
+   * log2(n) deep.
+   */
+  private static int fill(Object[] sorted, Object[] tree, int[] ranks, int i, int k) {
+    if (k < tree.length) {
+      i = fill(sorted, tree, ranks, i, 2 * k);
+      tree[k] = sorted[i];
+      ranks[k] = i;
+      i = fill(sorted, tree, ranks, i + 1, 2 * k + 1);
+    }
+    return i;
+  }
+
+  /**
+   * Removes the trailing right turns and the last left turn from the path to node {@code k},
+   * returning the node where the search last went left, or 0 if it never did.
+   */
+  private static int ascend(int k) {
+    return k >>> (Integer.numberOfTrailingZeros(~k) + 1);
+  }
+
+  /**
+   * Returns the index in the sorted array of the first element that is greater than or equal to
+   * {@code key} if {@code inclusive}, or greater than {@code key} otherwise. Returns the size of
+   * the array if there is no such element.
+   */
+  @SuppressWarnings("unchecked")
+  int ceilingIndex(Object key, Comparator<?> comparator, boolean inclusive) {
+    Comparator<Object> unsafeComparator = (Comparator<Object>) comparator;
+    Object[] tree = this.tree;
+    int n = tree.length - 1;
+    int threshold = inclusive ? 0 : 1;
+    int k = 1;
+    while (k <= n) {
+      // go right while the node is before the key; no other branch in the loop
+      int goRight = (unsafeComparator.compare(tree[k], key) < threshold) ? 1 : 0;
+      k = 2 * k + goRight;
+    }
+    k = ascend(k);
+    return (k == 0) ? n : ranks[k];
+  }
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright (C) 2016 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ypresto.miniguava.collect.immutables;
+
+import static net.ypresto.miniguava.base.Preconditions.checkArgument;
+
+import net.ypresto.miniguava.annotations.Beta;
+import net.ypresto.miniguava.annotations.MiniGuavaSpecific;
+import net.ypresto.miniguava.base.Consumer;
+import net.ypresto.miniguava.base.MoreObjects;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.Nullable;
+
+/**
+ * The distribution of keys over the hash table of an immutable map or set, as returned by {@link
+ * Immutables#hashStatistics(ImmutableMap)}. Long probes mean that many keys hash to the same
+ * buckets, usually because of a poor {@code hashCode} implementation of the key type.
+ *
+ * <p>The probe length of a key is the number of table entries a successful lookup of it
+ * examines. In a map, whose buckets are chains of entries, it is the position of the key in its
+ * bucket's chain; in a set, whose table uses linear probing, it is the number of slots from the
+ * key's hashed position to the slot it is stored in, plus one. A key without collisions has a
+ * probe length of one.
+ */
+@Beta
+@MiniGuavaSpecific
+public final class HashStatistics {
+  private static final Logger logger = Logger.getLogger(HashStatistics.class.getName());
+
+  private static volatile Sampling sampling;
+  // set on a thread while it runs the listener, so that the tables it builds are not sampled
+  private static final ThreadLocal<Boolean> inListener = new ThreadLocal<Boolean>();
+
+  private final int size;
+  private final int tableSize;
+  // histogram[i] is the number of keys with a probe length of i + 1
+  private final int[] histogram;
+  private final long totalProbeLength;
+  @Nullable private final Class<?> worstKeyClass;
+
+  private HashStatistics(
+      int size, int tableSize, int[] histogram, long totalProbeLength, Class<?> worstKeyClass) {
+    this.size = size;
+    this.tableSize = tableSize;
+    this.histogram = histogram;
+    this.totalProbeLength = totalProbeLength;
+    this.worstKeyClass = worstKeyClass;
+  }
+
+  /** Returns the number of keys in the table. */
+  public int size() {
+    return size;
+  }
+
+  /** Returns the number of buckets or slots in the table. */
+  public int tableSize() {
+    return tableSize;
+  }
+
+  /** Returns the number of keys per bucket or slot. */
+  public double loadFactor() {
+    return (tableSize == 0) ? 0 : (double) size / tableSize;
+  }
+
+  /** Returns the longest probe length of any key, or 0 if the table is empty. */
+  public int maxProbeLength() {
+    return histogram.length;
+  }
+
+  /** Returns the mean probe length of the keys, or 0 if the table is empty. */
+  public double meanProbeLength() {
+    return (size == 0) ? 0 : (double) totalProbeLength / size;
+  }
+
+  /**
+   * Returns the number of keys by probe length: the element at index {@code i} is the number of
+   * keys with a probe length of {@code i + 1}.
+   */
+  public ImmutableIntArray probeLengthHistogram() {
+    return ImmutableIntArray.copyOf(histogram);
+  }
+
+  /**
+   * Returns the class of a key with the longest probe length, or {@code null} if the table is
+   * empty. This tells which key type to look at when the probes are long.
+   */
+  @Nullable
+  public Class<?> worstKeyClass() {
+    return worstKeyClass;
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("size", size)
+        .add("tableSize", tableSize)
+        .add("maxProbeLength", maxProbeLength())
+        .add("meanProbeLength", meanProbeLength())
+        .add("histogram", Arrays.toString(histogram))
+        .add("worstKeyClass", worstKeyClass)
+        .toString();
+  }
+
+  /** Returns the statistics of a table of entries chained through their key buckets. */
+  static HashStatistics ofChains(ImmutableMapEntry<?, ?>[] table) {
+    Accumulator accumulator = new Accumulator();
+    for (ImmutableMapEntry<?, ?> head : table) {
+      int probeLength = 1;
+      for (ImmutableMapEntry<?, ?> entry = head;
+          entry != null;
+          entry = entry.getNextInKeyBucket()) {
+        accumulator.add(entry.getKey(), probeLength++);
+      }
+    }
+    return accumulator.toStatistics(table.length);
+  }
+
+  /** Returns the statistics of a linear probing table, where null marks an empty slot. */
+  static HashStatistics ofLinearProbing(Object[] table, int mask) {
+    Accumulator accumulator = new Accumulator();
+    for (int slot = 0; slot < table.length; slot++) {
+      Object key = table[slot];
+      if (key != null) {
+        accumulator.add(key, ((slot - Hashing.smearedHash(key)) & mask) + 1);
+      }
+    }
+    return accumulator.toStatistics(table.length);
+  }
+
+  private static final class Accumulator {
+    int size;
+    int[] histogram = new int[4];
+    int maxProbeLength;
+    long totalProbeLength;
+    Class<?> worstKeyClass;
+
+    void add(Object key, int probeLength) {
+      size++;
+      totalProbeLength += probeLength;
+      if (probeLength > histogram.length) {
+        histogram = Arrays.copyOf(histogram, Math.max(probeLength, histogram.length * 2));
+      }
+      histogram[probeLength - 1]++;
+      if (probeLength > maxProbeLength) {
+        maxProbeLength = probeLength;
+        worstKeyClass = key.getClass();
+      }
+    }
+
+    HashStatistics toStatistics(int tableSize) {
+      return new HashStatistics(size, tableSize, Arrays.copyOf(histogram, maxProbeLength),
+          totalProbeLength, worstKeyClass);
+    }
+  }
+
+  /**
+   * Starts passing the statistics of every {@code interval}th hash table built to {@code
+   * listener}, replacing any listener set before, or stops sampling if {@code listener} is null.
+   *
+   * @throws IllegalArgumentException if {@code interval} is not positive
+   */
+  static void setSampling(int interval, @Nullable Consumer<? super HashStatistics> listener) {
+    checkArgument(interval > 0, "interval must be positive: %s", interval);
+    sampling = (listener == null) ? null : new Sampling(interval, listener);
+  }
+
+  /** Passes the statistics of a newly built chained table to the listener, if sampled. */
+  static void sampleChains(ImmutableMapEntry<?, ?>[] table) {
+    Sampling sampling = HashStatistics.sampling;
+    if (sampling != null && inListener.get() == null && sampling.next()) {
+      sampling.notifyListener(ofChains(table));
+    }
+  }
+
+  /** Passes the statistics of a newly built linear probing table to the listener, if sampled. */
+  static void sampleLinearProbing(Object[] table, int mask) {
+    Sampling sampling = HashStatistics.sampling;
+    if (sampling != null && inListener.get() == null && sampling.next()) {
+      sampling.notifyListener(ofLinearProbing(table, mask));
+    }
+  }
+
+  private static final class Sampling {
+    final int interval;
+    final Consumer<? super HashStatistics> listener;
+    final AtomicInteger builds = new AtomicInteger();
+
+    Sampling(int interval, Consumer<? super HashStatistics> listener) {
+      this.interval = interval;
+      this.listener = listener;
+    }
+
+    /** Returns whether the table being built is to be sampled. */
+    boolean next() {
+      return (builds.getAndIncrement() & Integer.MAX_VALUE) % interval == 0;
+    }
+
+    /**
+     * Passes {@code statistics} to the listener, logging instead of propagating its exceptions,
+     * which would otherwise escape from building an unrelated collection.
+     */
+    void notifyListener(HashStatistics statistics) {
+      inListener.set(Boolean.TRUE);
+      try {
+        listener.accept(statistics);
+      } catch (RuntimeException e) {
+        logger.log(Level.SEVERE, "Exception thrown by hash statistics listener " + listener, e);
+      } finally {
+        inListener.remove();
+      }
+    }
+  }
+}
@@ -56,9 +56,12 @@ final class Hashing {
     expectedEntries = Math.max(expectedEntries, 2);
     int tableSize = Integer.highestOneBit(expectedEntries);
     // Check to make sure that we will not exceed the maximum load factor.
-    if (expectedEntries > (int) (loadFactor * tableSize)) {
+    // miniguava: Loops, since a load factor below 1 may need more than one doubling.
+    while (expectedEntries > (int) (loadFactor * tableSize)) {
       tableSize <<= 1;
-      return (tableSize > 0) ? tableSize : MAX_TABLE_SIZE;
+      if (tableSize <= 0) {
+        return MAX_TABLE_SIZE;
+      }
     }
     return tableSize;
   }
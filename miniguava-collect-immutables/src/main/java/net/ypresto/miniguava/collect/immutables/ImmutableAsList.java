@@ -53,6 +53,12 @@ abstract class ImmutableAsList<E> extends ImmutableList<E> {
     return delegateCollection().isPartialView();
   }
 
+  // miniguava: Copies in bulk from the delegate, which iterates in the same order.
+  @Override
+  int copyIntoArray(Object[] dst, int offset) {
+    return delegateCollection().copyIntoArray(dst, offset);
+  }
+
   /**
    * Serialized form that leads to the same performance as the original list.
    */
@@ -18,6 +18,9 @@ package net.ypresto.miniguava.collect.immutables;
 
 import static net.ypresto.miniguava.base.Preconditions.checkNotNull;
 
+import net.ypresto.miniguava.annotations.Beta;
+import net.ypresto.miniguava.annotations.MiniGuavaSpecific;
+import net.ypresto.miniguava.base.Consumer;
 import net.ypresto.miniguava.collect.UnmodifiableIterator;
 
 import java.io.Serializable;
@@ -26,6 +29,8 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.annotation.Nullable;
 
@@ -158,6 +163,22 @@ public abstract class ImmutableCollection<E> extends AbstractCollection<E> imple
   @Override
   public abstract UnmodifiableIterator<E> iterator();
 
+  /**
+   * Performs {@code action} for each element of this collection, in iteration order. The
+   * collection drives the loop itself, so implementations backed by arrays go through them
+   * directly, without allocating an iterator.
+   *
+   * <p>Named so as not to be confused with {@code Iterable.forEach} of Java 8.
+   */
+  @Beta
+  @MiniGuavaSpecific
+  public void forEachElement(Consumer<? super E> action) {
+    checkNotNull(action);
+    for (E element : this) {
+      action.accept(element);
+    }
+  }
+
   @Override
   public final Object[] toArray() {
     int size = size();
@@ -297,6 +318,15 @@ public abstract class ImmutableCollection<E> extends AbstractCollection<E> imple
    */
   abstract boolean isPartialView();
 
+  /**
+   * Returns the statistics of this collection's hash table, or null if it does not have one.
+   */
+  @MiniGuavaSpecific
+  @Nullable
+  HashStatistics hashStatistics() {
+    return null;
+  }
+
   /**
    * Copies the contents of this immutable collection into the specified array at the specified
    * offset.  Returns {@code offset + size()}.
@@ -401,10 +431,25 @@ public abstract class ImmutableCollection<E> extends AbstractCollection<E> imple
     public abstract ImmutableCollection<E> build();
   }
 
-  // miniguava: Added addAll(Collection) and removed addAll(Iterable).
+  // miniguava: Added addAll(Collection) and removed addAll(Iterable). Grows in chunks once large.
   abstract static class ArrayBasedBuilder<E> extends ImmutableCollection.Builder<E> {
+    /**
+     * The largest capacity that the builder reaches by copying its array into a bigger one. Past
+     * it, full arrays are kept as chunks and further elements go into a new array of this size,
+     * so that a large builder copies each element once more in {@link #consolidate}, rather than
+     * on every growth, and never needs two large arrays at once while growing.
+     */
+    @MiniGuavaSpecific
+    static final int MAX_GROWN_CAPACITY = 1 << 14;
+
+    // Holds the elements after those in chunks. Subclasses call consolidate() before using it.
     Object[] contents;
+    // Total number of elements, including those in chunks.
     int size;
+    // Full arrays holding the first chunkedSize elements, in order; null if there are none.
+    private Object[][] chunks;
+    private int chunkCount;
+    private int chunkedSize;
 
     ArrayBasedBuilder(int initialCapacity) {
       InternalUtils.checkNonnegative(initialCapacity, "initialCapacity");
@@ -414,21 +459,66 @@ public abstract class ImmutableCollection<E> extends AbstractCollection<E> imple
 
     /**
      * Expand the absolute capacity of the builder so it can accept at least
-     * the specified number of elements without being resized.
+     * the specified number of elements without being resized. Does not grow the array past
+     * {@link #MAX_GROWN_CAPACITY}; elements beyond it are added to new chunks.
      */
     private void ensureCapacity(int minCapacity) {
-      if (contents.length < minCapacity) {
+      if (chunks == null && contents.length < minCapacity
+          && contents.length < MAX_GROWN_CAPACITY) {
         this.contents =
             ObjectArrays.arraysCopyOf(
-                this.contents, expandedCapacity(contents.length, minCapacity));
+                this.contents,
+                Math.min(MAX_GROWN_CAPACITY, expandedCapacity(contents.length, minCapacity)));
+      }
+    }
+
+    /** Makes room for at least one more element in {@code contents}, which must be full. */
+    private void makeRoom(int needed) {
+      if (chunks == null && contents.length < MAX_GROWN_CAPACITY) {
+        ensureCapacity(size + needed);
+        return;
+      }
+      if (chunks == null) {
+        chunks = new Object[DEFAULT_INITIAL_CAPACITY][];
+      } else if (chunkCount == chunks.length) {
+        chunks = ObjectArrays.arraysCopyOf(chunks, expandedCapacity(chunks.length, chunkCount + 1));
+      }
+      chunks[chunkCount++] = contents;
+      chunkedSize += contents.length;
+      contents = new Object[MAX_GROWN_CAPACITY];
+    }
+
+    /**
+     * Moves all elements into {@code contents}, so that it holds exactly {@code size} elements
+     * from index 0. If the builder has chunks, this copies every element once into an array of
+     * the exact size. Otherwise it does nothing.
+     */
+    @MiniGuavaSpecific
+    final void consolidate() {
+      if (chunks != null) {
+        Object[] all = new Object[size];
+        int position = 0;
+        for (int i = 0; i < chunkCount; i++) {
+          Object[] chunk = chunks[i];
+          System.arraycopy(chunk, 0, all, position, chunk.length);
+          position += chunk.length;
+        }
+        System.arraycopy(contents, 0, all, position, size - position);
+        contents = all;
+        chunks = null;
+        chunkCount = 0;
+        chunkedSize = 0;
       }
     }
 
     @Override
     public ArrayBasedBuilder<E> add(E element) {
       checkNotNull(element);
-      ensureCapacity(size + 1);
-      contents[size++] = element;
+      if (size - chunkedSize == contents.length) {
+        makeRoom(1);
+      }
+      contents[size - chunkedSize] = element;
+      size++;
       return this;
     }
 
@@ -436,8 +526,17 @@ public abstract class ImmutableCollection<E> extends AbstractCollection<E> imple
     public Builder<E> add(E... elements) {
       ObjectArrays.checkElementsNotNull(elements);
       ensureCapacity(size + elements.length);
-      System.arraycopy(elements, 0, contents, size, elements.length);
-      size += elements.length;
+      int copied = 0;
+      while (copied < elements.length) {
+        int remaining = elements.length - copied;
+        if (size - chunkedSize == contents.length) {
+          makeRoom(remaining);
+        }
+        int count = Math.min(remaining, contents.length - (size - chunkedSize));
+        System.arraycopy(elements, copied, contents, size - chunkedSize, count);
+        size += count;
+        copied += count;
+      }
       return this;
     }
 
@@ -448,4 +547,109 @@ public abstract class ImmutableCollection<E> extends AbstractCollection<E> imple
       return this;
     }
   }
+
+  /**
+   * Base class for builders that many threads can add to at once. Each thread adds to a buffer of
+   * its own, found in a concurrent map keyed by the thread, so adding takes no lock; only a
+   * thread's first {@code add} locks, to register its buffer. {@link #build} concatenates the
+   * buffers, in the order in which their threads first added an element.
+   *
+   * <p>The buffers are referenced only by the builder, not by the threads, so they become
+   * unreachable together with the builder even if the threads live on, as in a thread pool.
+   */
+  // miniguava: Not a ThreadLocal, whose values stay reachable from the thread after the builder
+  // is dropped, until the thread happens to clean up its stale entries.
+  @MiniGuavaSpecific
+  abstract static class ConcurrentArrayBasedBuilder<E> extends ImmutableCollection.Builder<E> {
+    private final ConcurrentMap<Thread, Buffer> threadBuffers =
+        new ConcurrentHashMap<Thread, Buffer>();
+    // Guarded by itself. Holds the buffers of threadBuffers, in the order they were added.
+    private final List<Buffer> buffers = new ArrayList<Buffer>();
+
+    ConcurrentArrayBasedBuilder() {}
+
+    /** Returns the buffer of the current thread, registering a new one on its first call. */
+    private Buffer localBuffer() {
+      Thread thread = Thread.currentThread();
+      Buffer buffer = threadBuffers.get(thread);
+      if (buffer == null) {
+        // only this thread adds its own key, so there is no race
+        buffer = new Buffer();
+        threadBuffers.put(thread, buffer);
+        synchronized (buffers) {
+          buffers.add(buffer);
+        }
+      }
+      return buffer;
+    }
+
+    @Override
+    public ConcurrentArrayBasedBuilder<E> add(E element) {
+      checkNotNull(element);
+      localBuffer().append(element);
+      return this;
+    }
+
+    @Override
+    public ConcurrentArrayBasedBuilder<E> add(E... elements) {
+      ObjectArrays.checkElementsNotNull(elements);
+      localBuffer().append(elements);
+      return this;
+    }
+
+    @Override
+    public ConcurrentArrayBasedBuilder<E> addAll(Collection<? extends E> elements) {
+      // toArray() takes a consistent snapshot of concurrent collections, and checks once
+      localBuffer().append(ObjectArrays.checkElementsNotNull(elements.toArray()));
+      return this;
+    }
+
+    /**
+     * Returns a new array holding the elements of every thread's buffer. The elements of each
+     * thread are in the order that thread added them.
+     */
+    final Object[] mergeBuffers() {
+      Buffer[] snapshot;
+      synchronized (buffers) {
+        snapshot = buffers.toArray(new Buffer[buffers.size()]);
+      }
+      int size = 0;
+      for (Buffer buffer : snapshot) {
+        size += buffer.size;
+        if (size < 0) {
+          throw new AssertionError("cannot store more than MAX_VALUE elements");
+        }
+      }
+      Object[] elements = new Object[size];
+      int position = 0;
+      for (Buffer buffer : snapshot) {
+        System.arraycopy(buffer.contents, 0, elements, position, buffer.size);
+        position += buffer.size;
+      }
+      return elements;
+    }
+
+    /** The elements added by one thread. Only that thread writes to it. */
+    private static final class Buffer {
+      Object[] contents = new Object[DEFAULT_INITIAL_CAPACITY];
+      int size;
+
+      void append(Object element) {
+        if (size == contents.length) {
+          contents = ObjectArrays.arraysCopyOf(contents, expandedCapacity(size, size + 1));
+        }
+        contents[size++] = element;
+      }
+
+      void append(Object[] elements) {
+        int newSize = size + elements.length;
+        if (newSize > contents.length) {
+          contents =
+              ObjectArrays.arraysCopyOf(contents, expandedCapacity(contents.length, newSize));
+        }
+        System.arraycopy(elements, 0, contents, size, elements.length);
+        size = newSize;
+      }
+    }
+  }
 }
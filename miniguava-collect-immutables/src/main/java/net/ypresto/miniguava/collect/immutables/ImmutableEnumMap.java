@@ -16,22 +16,25 @@
 package net.ypresto.miniguava.collect.immutables;
 
 import static net.ypresto.miniguava.base.Preconditions.checkArgument;
+import static net.ypresto.miniguava.base.Preconditions.checkNotNull;
 
-import net.ypresto.miniguava.collect.Iterators;
+import net.ypresto.miniguava.base.BiConsumer;
 import net.ypresto.miniguava.collect.UnmodifiableIterator;
 import net.ypresto.miniguava.collect.immutables.ImmutableMap.IteratorBasedImmutableMap;
 
 import java.io.Serializable;
+import java.util.Arrays;
 import java.util.EnumMap;
+import java.util.NoSuchElementException;
 
 import javax.annotation.Nullable;
 
 /**
- * Implementation of {@link ImmutableMap} backed by a non-empty {@link
- * java.util.EnumMap}.
+ * Implementation of {@link ImmutableMap} for a non-empty map with enum keys.
  *
  * @author Louis Wasserman
  */
+// miniguava: Stores values in an ordinal-indexed array instead of delegating to an EnumMap.
 @SuppressWarnings("serial") // we're overriding default serialization
 final class ImmutableEnumMap<K extends Enum<K>, V> extends IteratorBasedImmutableMap<K, V> {
   static <K extends Enum<K>, V> ImmutableMap<K, V> asImmutable(EnumMap<K, V> map) {
@@ -46,31 +49,141 @@ final class ImmutableEnumMap<K extends Enum<K>, V> extends IteratorBasedImmutabl
     }
   }
 
-  private transient final EnumMap<K, V> delegate;
+  /** All constants of the key type, indexed by ordinal. */
+  private final transient K[] universe;
+  /** Values indexed by key ordinal; null where the key is absent. */
+  private final transient Object[] values;
+  /** Bit {@code ordinal} is set iff the key with that ordinal is present. */
+  private final transient long[] present;
+  private final transient int size;
+
+  private ImmutableEnumMap(EnumMap<K, V> map) {
+    checkArgument(!map.isEmpty());
+    K anyKey = map.keySet().iterator().next();
+    this.universe = anyKey.getDeclaringClass().getEnumConstants();
+    this.values = new Object[universe.length];
+    this.present = new long[ImmutableEnumSet.wordCount(universe.length)];
+    for (Entry<K, V> entry : map.entrySet()) {
+      int ordinal = entry.getKey().ordinal();
+      values[ordinal] = entry.getValue();
+      present[ordinal >>> 6] |= 1L << ordinal;
+    }
+    this.size = map.size();
+  }
 
-  private ImmutableEnumMap(EnumMap<K, V> delegate) {
-    this.delegate = delegate;
-    checkArgument(!delegate.isEmpty());
+  @Override
+  public int size() {
+    return size;
   }
 
   @Override
-  UnmodifiableIterator<K> keyIterator() {
-    return Iterators.unmodifiableIterator(delegate.keySet().iterator());
+  public boolean containsKey(@Nullable Object key) {
+    return get(key) != null;
   }
 
   @Override
-  public int size() {
-    return delegate.size();
+  public V get(@Nullable Object key) {
+    if (!(key instanceof Enum)) {
+      return null;
+    }
+    int ordinal = ((Enum<?>) key).ordinal();
+    // identity check rejects constants of other enum types with the same ordinal
+    if (ordinal >= universe.length || universe[ordinal] != key) {
+      return null;
+    }
+    @SuppressWarnings("unchecked") // only Vs are stored
+    V value = (V) values[ordinal];
+    return value;
   }
 
   @Override
-  public boolean containsKey(@Nullable Object key) {
-    return delegate.containsKey(key);
+  public void forEachEntry(BiConsumer<? super K, ? super V> action) {
+    checkNotNull(action);
+    for (int wordIndex = 0; wordIndex < present.length; wordIndex++) {
+      for (long word = present[wordIndex]; word != 0; word &= word - 1) {
+        int ordinal = (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+        @SuppressWarnings("unchecked") // only Vs are stored
+        V value = (V) values[ordinal];
+        action.accept(universe[ordinal], value);
+      }
+    }
   }
 
   @Override
-  public V get(Object key) {
-    return delegate.get(key);
+  int copyValuesIntoArray(Object[] dst, int offset) {
+    for (int wordIndex = 0; wordIndex < present.length; wordIndex++) {
+      for (long word = present[wordIndex]; word != 0; word &= word - 1) {
+        dst[offset++] = values[(wordIndex << 6) + Long.numberOfTrailingZeros(word)];
+      }
+    }
+    return offset;
+  }
+
+  @Override
+  ImmutableSet<K> createKeySet() {
+    // shares the bitmask; neither side ever modifies it
+    return new ImmutableEnumSet<K>(universe, present, size);
+  }
+
+  @Override
+  UnmodifiableIterator<K> keyIterator() {
+    return new Itr<K>() {
+      @Override
+      K output(int ordinal) {
+        return universe[ordinal];
+      }
+    };
+  }
+
+  @Override
+  UnmodifiableIterator<V> valueIterator() {
+    return new Itr<V>() {
+      @SuppressWarnings("unchecked") // only Vs are stored
+      @Override
+      V output(int ordinal) {
+        return (V) values[ordinal];
+      }
+    };
+  }
+
+  @Override
+  UnmodifiableIterator<Entry<K, V>> entryIterator() {
+    return new Itr<Entry<K, V>>() {
+      @SuppressWarnings("unchecked") // only Vs are stored
+      @Override
+      Entry<K, V> output(int ordinal) {
+        return entryOf(universe[ordinal], (V) values[ordinal]);
+      }
+    };
+  }
+
+  /** Iterates over the ordinals of the present keys, in ordinal order. */
+  private abstract class Itr<T> extends UnmodifiableIterator<T> {
+    private int wordIndex = 0;
+    private long word = present[0];
+
+    abstract T output(int ordinal);
+
+    @Override
+    public boolean hasNext() {
+      while (word == 0) {
+        if (wordIndex + 1 == present.length) {
+          return false;
+        }
+        word = present[++wordIndex];
+      }
+      return true;
+    }
+
+    @Override
+    public T next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      int ordinal = (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+      word &= word - 1;
+      return output(ordinal);
+    }
   }
 
   @Override
@@ -79,14 +192,23 @@ final class ImmutableEnumMap<K extends Enum<K>, V> extends IteratorBasedImmutabl
       return true;
     }
     if (object instanceof ImmutableEnumMap) {
-      object = ((ImmutableEnumMap<?, ?>) object).delegate;
+      ImmutableEnumMap<?, ?> that = (ImmutableEnumMap<?, ?>) object;
+      return universe.getClass() == that.universe.getClass()
+          && Arrays.equals(values, that.values);
     }
-    return delegate.equals(object);
+    return super.equals(object);
   }
 
   @Override
-  UnmodifiableIterator<Entry<K, V>> entryIterator() {
-    return InternalUtils.unmodifiableEntryIterator(delegate.entrySet().iterator());
+  public int hashCode() {
+    int hashCode = 0;
+    for (int i = 0; i < values.length; i++) {
+      Object value = values[i];
+      if (value != null) {
+        hashCode += universe[i].hashCode() ^ value.hashCode();
+      }
+    }
+    return hashCode;
   }
 
   @Override
@@ -97,7 +219,15 @@ final class ImmutableEnumMap<K extends Enum<K>, V> extends IteratorBasedImmutabl
   // All callers of the constructor are restricted to <K extends Enum<K>>.
   @Override
   Object writeReplace() {
-    return new EnumSerializedForm<K, V>(delegate);
+    EnumMap<K, V> map = new EnumMap<K, V>(universe[0].getDeclaringClass());
+    for (int i = 0; i < values.length; i++) {
+      @SuppressWarnings("unchecked") // only Vs are stored
+      V value = (V) values[i];
+      if (value != null) {
+        map.put(universe[i], value);
+      }
+    }
+    return new EnumSerializedForm<K, V>(map);
   }
 
   /*
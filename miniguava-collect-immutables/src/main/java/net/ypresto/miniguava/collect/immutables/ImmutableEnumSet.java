@@ -16,19 +16,25 @@
 
 package net.ypresto.miniguava.collect.immutables;
 
-import net.ypresto.miniguava.collect.Iterators;
+import static net.ypresto.miniguava.base.Preconditions.checkNotNull;
+
+import net.ypresto.miniguava.base.Consumer;
 import net.ypresto.miniguava.collect.UnmodifiableIterator;
 
 import java.io.Serializable;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.EnumSet;
+import java.util.NoSuchElementException;
+
+import javax.annotation.Nullable;
 
 /**
- * Implementation of {@link ImmutableSet} backed by a non-empty {@link
- * java.util.EnumSet}.
+ * Implementation of {@link ImmutableSet} for a non-empty set of enum constants.
  *
  * @author Jared Levy
  */
+// miniguava: Stores elements as a bitmask indexed by ordinal instead of delegating to an EnumSet.
 @SuppressWarnings("serial") // we're overriding default serialization
 final class ImmutableEnumSet<E extends Enum<E>> extends ImmutableSet<E> {
   // miniguava: Fixed rawtypes usage.
@@ -39,22 +45,54 @@ final class ImmutableEnumSet<E extends Enum<E>> extends ImmutableSet<E> {
       case 1:
         return ImmutableSet.of(InternalUtils.getOnlyElement(set));
       default:
-        return new ImmutableEnumSet<E>(set);
+        E anyElement = set.iterator().next();
+        E[] universe = anyElement.getDeclaringClass().getEnumConstants();
+        long[] bits = new long[wordCount(universe.length)];
+        for (E element : set) {
+          bits[element.ordinal() >>> 6] |= 1L << element.ordinal();
+        }
+        return new ImmutableEnumSet<E>(universe, bits, set.size());
     }
   }
 
-  /*
-   * Notes on EnumSet and <E extends Enum<E>>:
-   *
-   * This class isn't an arbitrary ForwardingImmutableSet because we need to
-   * know that calling {@code clone()} during deserialization will return an
-   * object that no one else has a reference to, allowing us to guarantee
-   * immutability. Hence, we support only {@link EnumSet}.
+  /**
+   * Returns the set of constants in {@code universe} whose bits are set in {@code bits}, which
+   * must not be modified afterwards.
    */
-  private final transient EnumSet<E> delegate;
+  static <E extends Enum<E>> ImmutableSet<E> fromBits(E[] universe, long[] bits) {
+    int size = 0;
+    for (long word : bits) {
+      size += Long.bitCount(word);
+    }
+    switch (size) {
+      case 0:
+        return ImmutableSet.of();
+      case 1:
+        for (int i = 0; i < bits.length; i++) {
+          if (bits[i] != 0) {
+            return ImmutableSet.of(universe[(i << 6) + Long.numberOfTrailingZeros(bits[i])]);
+          }
+        }
+        throw new AssertionError();
+      default:
+        return new ImmutableEnumSet<E>(universe, bits, size);
+    }
+  }
 
-  private ImmutableEnumSet(EnumSet<E> delegate) {
-    this.delegate = delegate;
+  static int wordCount(int universeSize) {
+    return (universeSize + 63) >>> 6;
+  }
+
+  /** All constants of the element type, indexed by ordinal. */
+  private final transient E[] universe;
+  /** Bit {@code ordinal} is set iff the constant with that ordinal is an element. */
+  private final transient long[] bits;
+  private final transient int size;
+
+  ImmutableEnumSet(E[] universe, long[] bits, int size) {
+    this.universe = universe;
+    this.bits = bits;
+    this.size = size;
   }
 
   @Override
@@ -64,30 +102,90 @@ final class ImmutableEnumSet<E extends Enum<E>> extends ImmutableSet<E> {
 
   @Override
   public UnmodifiableIterator<E> iterator() {
-    return Iterators.unmodifiableIterator(delegate.iterator());
+    return new UnmodifiableIterator<E>() {
+      private int wordIndex = 0;
+      private long word = bits[0];
+
+      @Override
+      public boolean hasNext() {
+        while (word == 0) {
+          if (wordIndex + 1 == bits.length) {
+            return false;
+          }
+          word = bits[++wordIndex];
+        }
+        return true;
+      }
+
+      @Override
+      public E next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        int ordinal = (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+        word &= word - 1;
+        return universe[ordinal];
+      }
+    };
+  }
+
+  @Override
+  public void forEachElement(Consumer<? super E> action) {
+    checkNotNull(action);
+    for (int wordIndex = 0; wordIndex < bits.length; wordIndex++) {
+      for (long word = bits[wordIndex]; word != 0; word &= word - 1) {
+        action.accept(universe[(wordIndex << 6) + Long.numberOfTrailingZeros(word)]);
+      }
+    }
+  }
+
+  @Override
+  int copyIntoArray(Object[] dst, int offset) {
+    for (int wordIndex = 0; wordIndex < bits.length; wordIndex++) {
+      for (long word = bits[wordIndex]; word != 0; word &= word - 1) {
+        dst[offset++] = universe[(wordIndex << 6) + Long.numberOfTrailingZeros(word)];
+      }
+    }
+    return offset;
   }
 
   @Override
   public int size() {
-    return delegate.size();
+    return size;
   }
 
   @Override
-  public boolean contains(Object object) {
-    return delegate.contains(object);
+  public boolean contains(@Nullable Object object) {
+    if (!(object instanceof Enum)) {
+      return false;
+    }
+    int ordinal = ((Enum<?>) object).ordinal();
+    // identity check rejects constants of other enum types with the same ordinal
+    return ordinal < universe.length
+        && universe[ordinal] == object
+        && (bits[ordinal >>> 6] & (1L << ordinal)) != 0;
   }
 
   @Override
   public boolean containsAll(Collection<?> collection) {
     if (collection instanceof ImmutableEnumSet<?>) {
-      collection = ((ImmutableEnumSet<?>) collection).delegate;
+      ImmutableEnumSet<?> that = (ImmutableEnumSet<?>) collection;
+      if (!sameType(that)) {
+        return false;
+      }
+      for (int i = 0; i < bits.length; i++) {
+        if ((that.bits[i] & ~bits[i]) != 0) {
+          return false;
+        }
+      }
+      return true;
     }
-    return delegate.containsAll(collection);
+    return super.containsAll(collection);
   }
 
   @Override
   public boolean isEmpty() {
-    return delegate.isEmpty();
+    return false;
   }
 
   @Override
@@ -96,9 +194,15 @@ final class ImmutableEnumSet<E extends Enum<E>> extends ImmutableSet<E> {
       return true;
     }
     if (object instanceof ImmutableEnumSet) {
-      object = ((ImmutableEnumSet<?>) object).delegate;
+      ImmutableEnumSet<?> that = (ImmutableEnumSet<?>) object;
+      return sameType(that) && Arrays.equals(bits, that.bits);
     }
-    return delegate.equals(object);
+    return super.equals(object);
+  }
+
+  /** Returns whether {@code that} holds constants of the same enum type as this set. */
+  boolean sameType(ImmutableEnumSet<?> that) {
+    return universe.getClass() == that.universe.getClass();
   }
 
   @Override
@@ -111,18 +215,56 @@ final class ImmutableEnumSet<E extends Enum<E>> extends ImmutableSet<E> {
   @Override
   public int hashCode() {
     int result = hashCode;
-    return (result == 0) ? hashCode = delegate.hashCode() : result;
+    if (result == 0) {
+      for (E element : this) {
+        result += element.hashCode();
+      }
+      hashCode = result;
+    }
+    return result;
   }
 
-  @Override
-  public String toString() {
-    return delegate.toString();
+  /**
+   * Returns the union of two sets of the same enum type.
+   */
+  ImmutableSet<E> union(ImmutableEnumSet<E> that) {
+    long[] result = new long[bits.length];
+    for (int i = 0; i < bits.length; i++) {
+      result[i] = bits[i] | that.bits[i];
+    }
+    return fromBits(universe, result);
+  }
+
+  /**
+   * Returns the intersection of two sets of the same enum type.
+   */
+  ImmutableSet<E> intersection(ImmutableEnumSet<E> that) {
+    long[] result = new long[bits.length];
+    for (int i = 0; i < bits.length; i++) {
+      result[i] = bits[i] & that.bits[i];
+    }
+    return fromBits(universe, result);
+  }
+
+  /**
+   * Returns the elements of this set which are not in {@code that}, of the same enum type.
+   */
+  ImmutableSet<E> difference(ImmutableEnumSet<E> that) {
+    long[] result = new long[bits.length];
+    for (int i = 0; i < bits.length; i++) {
+      result[i] = bits[i] & ~that.bits[i];
+    }
+    return fromBits(universe, result);
   }
 
   // All callers of the constructor are restricted to <E extends Enum<E>>.
   @Override
   Object writeReplace() {
-    return new EnumSerializedForm<E>(delegate);
+    EnumSet<E> set = EnumSet.noneOf(universe[0].getDeclaringClass());
+    for (E element : this) {
+      set.add(element);
+    }
+    return new EnumSerializedForm<E>(set);
   }
 
   /*
@@ -137,7 +279,7 @@ final class ImmutableEnumSet<E extends Enum<E>> extends ImmutableSet<E> {
 
     Object readResolve() {
       // EJ2 #76: Write readObject() methods defensively.
-      return new ImmutableEnumSet<E>(delegate.clone());
+      return asImmutable(delegate);
     }
 
     private static final long serialVersionUID = 0;
@@ -17,11 +17,15 @@
 package net.ypresto.miniguava.collect.immutables;
 
 import static net.ypresto.miniguava.base.Preconditions.checkElementIndex;
+import static net.ypresto.miniguava.base.Preconditions.checkNotNull;
 import static net.ypresto.miniguava.base.Preconditions.checkPositionIndexes;
 import static net.ypresto.miniguava.collect.immutables.ObjectArrays.arraysCopyOf;
 import static net.ypresto.miniguava.collect.immutables.ObjectArrays.checkElementsNotNull;
 import static net.ypresto.miniguava.collect.immutables.RegularImmutableList.EMPTY;
 
+import net.ypresto.miniguava.annotations.Beta;
+import net.ypresto.miniguava.annotations.MiniGuavaSpecific;
+import net.ypresto.miniguava.base.Consumer;
 import net.ypresto.miniguava.collect.UnmodifiableIterator;
 import net.ypresto.miniguava.collect.UnmodifiableListIterator;
 import net.ypresto.miniguava.collect.internal.AbstractIndexedListIterator;
@@ -248,6 +252,43 @@ public abstract class ImmutableList<E> extends ImmutableCollection<E>
     return asImmutableList(checkElementsNotNull(elements));
   }
 
+  /**
+   * Returns an immutable list backed by {@code elements}, without copying it. Unlike {@link
+   * #copyOf(Object[])}, this takes ownership of the array: it is for code that has just filled
+   * the array itself, and will neither modify it nor let it escape afterwards. Any later change
+   * to the array shows through the returned list.
+   *
+   * @throws NullPointerException if any of {@code elements} is null
+   */
+  @Beta
+  @MiniGuavaSpecific
+  public static <E> ImmutableList<E> unsafeWrap(E[] elements) {
+    return asImmutableList(checkElementsNotNull(elements));
+  }
+
+  /**
+   * Returns an immutable list containing the elements of each of {@code lists}, in order.
+   *
+   * <p><b>Performance note:</b> the returned list is a balanced tree of the given lists, which are
+   * not copied, so concatenating {@code k} lists takes {@code O(k log k)} time regardless of their
+   * sizes, and concatenating the result with one more list takes {@code O(log k)}. Its {@link
+   * #get} takes {@code O(log k)} time, while iteration visits each list in turn. {@link
+   * #copyOf(Collection)} flattens it into a single array.
+   *
+   * @throws NullPointerException if {@code lists} or any of its lists is null
+   */
+  @Beta
+  @MiniGuavaSpecific
+  public static <E> ImmutableList<E> concat(ImmutableList<? extends E>... lists) {
+    ImmutableList<E> result = of();
+    for (ImmutableList<? extends E> list : lists) {
+      @SuppressWarnings("unchecked") // all supported methods are covariant
+      ImmutableList<E> elist = (ImmutableList<E>) checkNotNull(list);
+      result = RopeImmutableList.concat(result, elist);
+    }
+    return result;
+  }
+
   /**
    * Views the array as an immutable list.  Does not check for nulls; does not copy.
    *
@@ -286,6 +327,14 @@ public abstract class ImmutableList<E> extends ImmutableCollection<E>
     return listIterator();
   }
 
+  @Override
+  public void forEachElement(Consumer<? super E> action) {
+    checkNotNull(action);
+    for (int i = 0, n = size(); i < n; i++) {
+      action.accept(get(i));
+    }
+  }
+
   @Override
   public UnmodifiableListIterator<E> listIterator() {
     return listIterator(0);
@@ -462,6 +511,42 @@ public abstract class ImmutableList<E> extends ImmutableCollection<E>
     return (size() <= 1) ? this : new ReverseImmutableList<E>(this);
   }
 
+  /**
+   * Returns an immutable list containing the elements of this list followed by {@code element}.
+   * This list is not modified.
+   *
+   * <p><b>Performance note:</b> the returned list is a persistent vector which shares structure
+   * with the lists it was derived from. The first call on a list not obtained from this method or
+   * {@link #with} copies its elements once; after that, each call runs in {@code O(log32 n)} time
+   * and copies at most a few small arrays.
+   *
+   * @throws NullPointerException if {@code element} is null
+   */
+  @Beta
+  @MiniGuavaSpecific
+  public ImmutableList<E> plus(E element) {
+    checkNotNull(element);
+    return isEmpty() ? ImmutableList.of(element) : PersistentImmutableList.copyOf(this).plus(element);
+  }
+
+  /**
+   * Returns an immutable list which is equal to this list except that {@code element} is at
+   * position {@code index}. This list is not modified.
+   *
+   * <p><b>Performance note:</b> see {@link #plus}.
+   *
+   * @throws IndexOutOfBoundsException if {@code index} is negative or is not less than
+   *     {@link #size}
+   * @throws NullPointerException if {@code element} is null
+   */
+  @Beta
+  @MiniGuavaSpecific
+  public ImmutableList<E> with(int index, E element) {
+    checkNotNull(element);
+    checkElementIndex(index, size());
+    return PersistentImmutableList.copyOf(this).with(index, element);
+  }
+
   private static class ReverseImmutableList<E> extends ImmutableList<E> {
     private final transient ImmutableList<E> forwardList;
 
@@ -522,20 +607,37 @@ public abstract class ImmutableList<E> extends ImmutableCollection<E>
     }
   }
 
+  // miniguava: Cached hash code; 0 until computed.
+  private transient int cachedHashCode;
+
   @Override
   public boolean equals(@Nullable Object obj) {
+    // miniguava: Rejects lists with different sizes or already computed hash codes first.
+    if (obj instanceof ImmutableList && obj != this) {
+      ImmutableList<?> that = (ImmutableList<?>) obj;
+      int thisHash = this.cachedHashCode;
+      int thatHash = that.cachedHashCode;
+      if (size() != that.size() || (thisHash != 0 && thatHash != 0 && thisHash != thatHash)) {
+        return false;
+      }
+    }
     return InternalLists.equalsImpl(this, obj);
   }
 
   @Override
   public int hashCode() {
-    int hashCode = 1;
-    int n = size();
-    for (int i = 0; i < n; i++) {
-      hashCode = 31 * hashCode + get(i).hashCode();
-
-      hashCode = ~~hashCode;
-      // needed to deal with GWT integer overflow
+    // miniguava: Racy single-check, as the list never changes.
+    int hashCode = cachedHashCode;
+    if (hashCode == 0) {
+      hashCode = 1;
+      int n = size();
+      for (int i = 0; i < n; i++) {
+        hashCode = 31 * hashCode + get(i).hashCode();
+
+        hashCode = ~~hashCode;
+        // needed to deal with GWT integer overflow
+      }
+      cachedHashCode = hashCode;
     }
     return hashCode;
   }
@@ -575,6 +677,32 @@ public abstract class ImmutableList<E> extends ImmutableCollection<E>
     return new Builder<E>();
   }
 
+  /**
+   * Returns a new builder, expecting the specified number of elements to be added. The builder
+   * allocates room for {@code expectedSize} elements up front, so if exactly that many elements
+   * are added before {@link Builder#build} is called, it never copies them while growing.
+   *
+   * @throws IllegalArgumentException if {@code expectedSize} is negative
+   */
+  // miniguava: Backported from Guava 23.1.
+  @Beta
+  @MiniGuavaSpecific
+  public static <E> Builder<E> builderWithExpectedSize(int expectedSize) {
+    InternalUtils.checkNonnegative(expectedSize, "expectedSize");
+    return new Builder<E>(expectedSize);
+  }
+
+  /**
+   * Returns a new builder that many threads can add elements to at the same time, for example to
+   * collect the results of tasks running on an {@link java.util.concurrent.ExecutorService}. See
+   * {@link ConcurrentBuilder}.
+   */
+  @Beta
+  @MiniGuavaSpecific
+  public static <E> ConcurrentBuilder<E> concurrentBuilder() {
+    return new ConcurrentBuilder<E>();
+  }
+
   /**
    * A builder for creating immutable list instances, especially {@code public
    * static final} lists ("constant lists"). Example: <pre>   {@code
@@ -601,7 +729,6 @@ public abstract class ImmutableList<E> extends ImmutableCollection<E>
       this(DEFAULT_INITIAL_CAPACITY);
     }
 
-    // TODO(lowasser): consider exposing this
     Builder(int capacity) {
       super(capacity);
     }
@@ -650,10 +777,77 @@ public abstract class ImmutableList<E> extends ImmutableCollection<E>
     /**
      * Returns a newly-created {@code ImmutableList} based on the contents of
      * the {@code Builder}.
+     *
+     * <p>If exactly as many elements were added as the builder has room for, for example with
+     * {@link ImmutableList#builderWithExpectedSize}, the list takes over the builder's array
+     * instead of copying it. Elements added afterwards go into a new array.
      */
     @Override
     public ImmutableList<E> build() {
+      consolidate();
       return asImmutableList(contents, size);
     }
   }
+
+  /**
+   * A builder for creating immutable lists from many threads. Each thread adds to a buffer of its
+   * own, so threads adding at the same time never wait for each other, and {@link #build} copies
+   * every buffer once into the list. The elements added by one thread appear in the order that
+   * thread added them, after those of the threads that added an element before it.
+   *
+   * <p>{@link #build} must not run at the same time as any {@code add}, and only includes the
+   * elements whose adding <i>happens-before</i> it, for example because their thread was joined
+   * or their task's {@link java.util.concurrent.Future} was waited for. Builder instances can be
+   * reused; each new list contains all the elements of the ones created before it.
+   *
+   * <p>The buffers are referenced only by the builder, so they can be garbage collected as soon as
+   * the builder can, even if the threads that added to it keep running.
+   */
+  @Beta
+  @MiniGuavaSpecific
+  public static final class ConcurrentBuilder<E>
+      extends ImmutableCollection.ConcurrentArrayBasedBuilder<E> {
+    ConcurrentBuilder() {}
+
+    /**
+     * Adds {@code element} to the {@code ImmutableList}.
+     *
+     * @throws NullPointerException if {@code element} is null
+     */
+    @Override
+    public ConcurrentBuilder<E> add(E element) {
+      super.add(element);
+      return this;
+    }
+
+    /**
+     * Adds each element of {@code elements} to the {@code ImmutableList}.
+     *
+     * @throws NullPointerException if {@code elements} is null or contains a null element
+     */
+    @Override
+    public ConcurrentBuilder<E> add(E... elements) {
+      super.add(elements);
+      return this;
+    }
+
+    /**
+     * Adds each element of {@code elements} to the {@code ImmutableList}.
+     *
+     * @throws NullPointerException if {@code elements} is null or contains a null element
+     */
+    @Override
+    public ConcurrentBuilder<E> addAll(Collection<? extends E> elements) {
+      super.addAll(elements);
+      return this;
+    }
+
+    /**
+     * Returns a newly-created {@code ImmutableList} holding the elements added by every thread.
+     */
+    @Override
+    public ImmutableList<E> build() {
+      return asImmutableList(mergeBuffers());
+    }
+  }
 }
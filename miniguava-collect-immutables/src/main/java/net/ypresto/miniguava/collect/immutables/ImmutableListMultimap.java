@@ -0,0 +1,216 @@
+/*
+ * Copyright (C) 2016 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ypresto.miniguava.collect.immutables;
+
+import net.ypresto.miniguava.annotations.Beta;
+import net.ypresto.miniguava.annotations.MiniGuavaSpecific;
+
+import java.util.Map;
+import java.util.Map.Entry;
+
+import javax.annotation.Nullable;
+
+/**
+ * An immutable multimap that keeps every value added for a key, including duplicates, in the
+ * order they were added. {@link #get} returns an {@link ImmutableList} view of the key's range of
+ * the value array, so an {@code ImmutableListMultimap<K, V>} takes much less memory than an
+ * {@code ImmutableMap<K, ImmutableList<V>>}, which needs a list and an array for every key.
+ */
+// miniguava: Reimplemented on flat arrays; Guava's multimaps were removed earlier.
+@Beta
+@MiniGuavaSpecific
+public final class ImmutableListMultimap<K, V> extends ImmutableMultimap<K, V> {
+  private static final ImmutableListMultimap<Object, Object> EMPTY =
+      new ImmutableListMultimap<Object, Object>(
+          0, ObjectArrays.EMPTY_ARRAY, ObjectArrays.EMPTY_ARRAY);
+
+  /** Returns the empty multimap. */
+  @SuppressWarnings("unchecked") // fully variant implementation (never actually produces any Vs)
+  public static <K, V> ImmutableListMultimap<K, V> of() {
+    return (ImmutableListMultimap<K, V>) EMPTY;
+  }
+
+  /** Returns an immutable multimap containing a single entry. */
+  public static <K, V> ImmutableListMultimap<K, V> of(K k1, V v1) {
+    return new Builder<K, V>(1).put(k1, v1).build();
+  }
+
+  /** Returns an immutable multimap containing the given entries, in order. */
+  public static <K, V> ImmutableListMultimap<K, V> of(K k1, V v1, K k2, V v2) {
+    return new Builder<K, V>(2).put(k1, v1).put(k2, v2).build();
+  }
+
+  /** Returns an immutable multimap containing the given entries, in order. */
+  public static <K, V> ImmutableListMultimap<K, V> of(K k1, V v1, K k2, V v2, K k3, V v3) {
+    return new Builder<K, V>(3).put(k1, v1).put(k2, v2).put(k3, v3).build();
+  }
+
+  /**
+   * Returns an immutable multimap containing the same entries as {@code multimap}. If it already
+   * is an {@code ImmutableListMultimap}, it is returned without copying.
+   */
+  public static <K, V> ImmutableListMultimap<K, V> copyOf(
+      ImmutableMultimap<? extends K, ? extends V> multimap) {
+    if (multimap instanceof ImmutableListMultimap) {
+      @SuppressWarnings("unchecked") // safe since multimap is not writable
+      ImmutableListMultimap<K, V> kvMultimap = (ImmutableListMultimap<K, V>) multimap;
+      return kvMultimap;
+    }
+    return new Builder<K, V>(multimap.size()).putAll(multimap).build();
+  }
+
+  /**
+   * Returns an immutable multimap associating each key of {@code map} with the values it is
+   * mapped to, for example to convert an {@code ImmutableMap<K, ImmutableList<V>>}. Keys mapped to
+   * empty collections are left out.
+   *
+   * @throws NullPointerException if any key, collection or value in {@code map} is null
+   */
+  public static <K, V> ImmutableListMultimap<K, V> copyOf(
+      Map<? extends K, ? extends Iterable<? extends V>> map) {
+    return new Builder<K, V>().putAll(map).build();
+  }
+
+  /** Returns a new builder. */
+  public static <K, V> Builder<K, V> builder() {
+    return new Builder<K, V>();
+  }
+
+  /**
+   * Returns a new builder, expecting the specified number of key-value pairs to be added.
+   *
+   * @throws IllegalArgumentException if {@code expectedSize} is negative
+   */
+  public static <K, V> Builder<K, V> builderWithExpectedSize(int expectedSize) {
+    InternalUtils.checkNonnegative(expectedSize, "expectedSize");
+    return new Builder<K, V>(expectedSize);
+  }
+
+  /**
+   * A builder for {@link ImmutableListMultimap} instances. Builder instances can be reused; each
+   * built multimap contains the pairs added before it was built.
+   */
+  public static final class Builder<K, V> extends ImmutableMultimap.Builder<K, V> {
+    /** Creates a new builder, equivalent to {@link ImmutableListMultimap#builder}. */
+    public Builder() {
+      this(ImmutableCollection.Builder.DEFAULT_INITIAL_CAPACITY);
+    }
+
+    Builder(int initialCapacity) {
+      super(initialCapacity);
+    }
+
+    @Override
+    public Builder<K, V> put(K key, V value) {
+      super.put(key, value);
+      return this;
+    }
+
+    @Override
+    public Builder<K, V> put(Entry<? extends K, ? extends V> entry) {
+      super.put(entry);
+      return this;
+    }
+
+    @Override
+    public Builder<K, V> putAll(K key, Iterable<? extends V> values) {
+      super.putAll(key, values);
+      return this;
+    }
+
+    @Override
+    public Builder<K, V> putAll(K key, V... values) {
+      super.putAll(key, values);
+      return this;
+    }
+
+    @Override
+    public Builder<K, V> putAll(ImmutableMultimap<? extends K, ? extends V> multimap) {
+      super.putAll(multimap);
+      return this;
+    }
+
+    @Override
+    public Builder<K, V> putAll(Map<? extends K, ? extends Iterable<? extends V>> map) {
+      super.putAll(map);
+      return this;
+    }
+
+    /** Returns a newly-created immutable list multimap. */
+    @Override
+    public ImmutableListMultimap<K, V> build() {
+      return (size == 0) ? ImmutableListMultimap.<K, V>of()
+          : new ImmutableListMultimap<K, V>(size, keys, values);
+    }
+  }
+
+  private ImmutableListMultimap(int n, Object[] entryKeys, Object[] entryValues) {
+    super(n, entryKeys, entryValues, false);
+  }
+
+  @Override
+  ImmutableList<V> valuesOfKeyAt(int keyIndex) {
+    int from = offsets[keyIndex];
+    return new RegularImmutableList<V>(values, from, offsets[keyIndex + 1] - from);
+  }
+
+  /**
+   * Returns the values associated with {@code key} in the order they were added, or an empty
+   * list if there are none. The returned list is a view of this multimap's storage, created in
+   * constant time.
+   */
+  @Override
+  public ImmutableList<V> get(@Nullable K key) {
+    int keyIndex = indexOfKey(key);
+    return (keyIndex < 0) ? ImmutableList.<V>of() : valuesOfKeyAt(keyIndex);
+  }
+
+  /**
+   * Returns all values of this multimap, grouped by key in the order of {@link #keySet}. The
+   * returned list is a view of this multimap's storage.
+   */
+  @Override
+  public ImmutableList<V> values() {
+    return ImmutableList.asImmutableList(values);
+  }
+
+  @Override
+  public ImmutableMap<K, ImmutableList<V>> asMap() {
+    return isEmpty()
+        ? ImmutableMap.<K, ImmutableList<V>>of()
+        : new AsMap<K, ImmutableList<V>>(this);
+  }
+
+  @Override
+  Object writeReplace() {
+    return new SerializedForm(this);
+  }
+
+  private static class SerializedForm extends ImmutableMultimap.SerializedForm {
+    SerializedForm(ImmutableListMultimap<?, ?> multimap) {
+      super(multimap);
+    }
+
+    Object readResolve() {
+      return createMultimap(new Builder<Object, Object>());
+    }
+
+    private static final long serialVersionUID = 0;
+  }
+
+  private static final long serialVersionUID = 0;
+}
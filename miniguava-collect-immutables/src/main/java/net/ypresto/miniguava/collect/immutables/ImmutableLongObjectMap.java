@@ -0,0 +1,457 @@
+/*
+ * Copyright (C) 2016 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ypresto.miniguava.collect.immutables;
+
+import static net.ypresto.miniguava.base.Preconditions.checkElementIndex;
+import static net.ypresto.miniguava.base.Preconditions.checkNotNull;
+import static net.ypresto.miniguava.collect.immutables.InternalUtils.checkEntryNotNull;
+import static net.ypresto.miniguava.collect.immutables.InternalUtils.checkNonnegative;
+
+import net.ypresto.miniguava.annotations.Beta;
+import net.ypresto.miniguava.annotations.MiniGuavaSpecific;
+import net.ypresto.miniguava.base.BiConsumer;
+import net.ypresto.miniguava.collect.UnmodifiableIterator;
+import net.ypresto.miniguava.collect.immutables.ImmutableMap.IteratorBasedImmutableMap;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+
+import javax.annotation.Nullable;
+
+/**
+ * An immutable map from primitive {@code long} keys to non-null values. Compared to an
+ * {@code ImmutableMap<Long, V>}, it stores neither boxed keys nor entry objects, so it needs
+ * about a third of the memory, and {@link #get(long)} does not allocate.
+ *
+ * <p>Entries iterate in the order they were added, like {@link ImmutableMap}. {@link #asMap}
+ * returns an {@code ImmutableMap<Long, V>} view for code that needs a {@link Map}.
+ */
+@Beta
+@MiniGuavaSpecific
+public final class ImmutableLongObjectMap<V> implements Serializable {
+  private static final ImmutableLongObjectMap<Object> EMPTY =
+      new ImmutableLongObjectMap<Object>(new long[0], new Object[0], new int[] {0}, 0);
+
+  private static final double LOAD_FACTOR = 0.7;
+
+  /** Returns the empty map. */
+  @SuppressWarnings("unchecked") // fully variant implementation (never actually produces any Vs)
+  public static <V> ImmutableLongObjectMap<V> of() {
+    return (ImmutableLongObjectMap<V>) EMPTY;
+  }
+
+  /** Returns an immutable map containing a single entry. */
+  public static <V> ImmutableLongObjectMap<V> of(long k1, V v1) {
+    return new Builder<V>(1).put(k1, v1).build();
+  }
+
+  /**
+   * Returns an immutable map containing the given entries, in order.
+   *
+   * @throws IllegalArgumentException if duplicate keys are provided
+   */
+  public static <V> ImmutableLongObjectMap<V> of(long k1, V v1, long k2, V v2) {
+    return new Builder<V>(2).put(k1, v1).put(k2, v2).build();
+  }
+
+  /**
+   * Returns an immutable map containing the given entries, in order.
+   *
+   * @throws IllegalArgumentException if duplicate keys are provided
+   */
+  public static <V> ImmutableLongObjectMap<V> of(long k1, V v1, long k2, V v2, long k3, V v3) {
+    return new Builder<V>(3).put(k1, v1).put(k2, v2).put(k3, v3).build();
+  }
+
+  /**
+   * Returns an immutable map containing the same entries as {@code map}, in its iteration order.
+   *
+   * @throws NullPointerException if any key or value in {@code map} is null
+   */
+  public static <V> ImmutableLongObjectMap<V> copyOf(Map<Long, ? extends V> map) {
+    return new Builder<V>(map.size()).putAll(map).build();
+  }
+
+  /** Returns a new builder. */
+  public static <V> Builder<V> builder() {
+    return new Builder<V>(ImmutableCollection.Builder.DEFAULT_INITIAL_CAPACITY);
+  }
+
+  /**
+   * Returns a new builder, sized to hold {@code expectedSize} entries without resizing.
+   */
+  public static <V> Builder<V> builder(int expectedSize) {
+    checkNonnegative(expectedSize, "expectedSize");
+    return new Builder<V>(expectedSize);
+  }
+
+  /**
+   * A builder for {@link ImmutableLongObjectMap} instances, mirroring {@link ImmutableMap.Builder}.
+   * Entries appear in the built map in the order they were added.
+   */
+  public static final class Builder<V> {
+    private long[] keys;
+    private Object[] values;
+    private int size;
+
+    Builder(int initialCapacity) {
+      this.keys = new long[initialCapacity];
+      this.values = new Object[initialCapacity];
+    }
+
+    private void ensureCapacity(int minCapacity) {
+      if (minCapacity > keys.length) {
+        int newCapacity = ImmutableCollection.Builder.expandedCapacity(keys.length, minCapacity);
+        keys = Arrays.copyOf(keys, newCapacity);
+        values = Arrays.copyOf(values, newCapacity);
+      }
+    }
+
+    /**
+     * Associates {@code key} with {@code value} in the built map. Duplicate keys are not allowed,
+     * and will cause {@link #build} to fail.
+     */
+    public Builder<V> put(long key, V value) {
+      if (value == null) {
+        throw new NullPointerException("null value in entry: " + key + "=null");
+      }
+      ensureCapacity(size + 1);
+      keys[size] = key;
+      values[size] = value;
+      size++;
+      return this;
+    }
+
+    /**
+     * Associates all of the given map's keys and values in the built map. Duplicate keys are not
+     * allowed, and will cause {@link #build} to fail.
+     *
+     * @throws NullPointerException if any key or value in {@code map} is null
+     */
+    public Builder<V> putAll(Map<Long, ? extends V> map) {
+      ensureCapacity(size + map.size());
+      for (Entry<Long, ? extends V> entry : map.entrySet()) {
+        checkEntryNotNull(entry.getKey(), entry.getValue());
+        put(entry.getKey(), entry.getValue());
+      }
+      return this;
+    }
+
+    /**
+     * Associates all of the given map's keys and values in the built map. Duplicate keys are not
+     * allowed, and will cause {@link #build} to fail.
+     */
+    public Builder<V> putAll(ImmutableLongObjectMap<? extends V> map) {
+      ensureCapacity(size + map.size());
+      System.arraycopy(map.keys, 0, keys, size, map.size());
+      System.arraycopy(map.values, 0, values, size, map.size());
+      size += map.size();
+      return this;
+    }
+
+    /**
+     * Returns a newly-created immutable map.
+     *
+     * @throws IllegalArgumentException if duplicate keys were added
+     */
+    public ImmutableLongObjectMap<V> build() {
+      if (size == 0) {
+        return of();
+      }
+      long[] keys = Arrays.copyOf(this.keys, size);
+      Object[] values = Arrays.copyOf(this.values, size);
+      int tableSize = Hashing.closedTableSize(size, LOAD_FACTOR);
+      int mask = tableSize - 1;
+      int[] table = new int[tableSize];
+      for (int i = 0; i < size; i++) {
+        long key = keys[i];
+        for (int j = hash(key); ; j++) {
+          int slot = j & mask;
+          int existing = table[slot] - 1;
+          if (existing < 0) {
+            table[slot] = i + 1;
+            break;
+          } else if (keys[existing] == key) {
+            throw new IllegalArgumentException("Multiple entries with same key: "
+                + key + "=" + values[existing] + " and " + key + "=" + values[i]);
+          }
+        }
+      }
+      return new ImmutableLongObjectMap<V>(keys, values, table, mask);
+    }
+  }
+
+  private static int hash(long key) {
+    return Hashing.smear(keyHashCode(key));
+  }
+
+  // same as Long.hashCode(), so that hashCode() matches asMap()
+  private static int keyHashCode(long key) {
+    return (int) (key ^ (key >>> 32));
+  }
+
+  // keys and values in insertion order
+  private final transient long[] keys;
+  private final transient Object[] values;
+  // index + 1 of the entry in hashed position, 0 for an empty slot
+  private final transient int[] table;
+  private final transient int mask;
+
+  private ImmutableLongObjectMap(long[] keys, Object[] values, int[] table, int mask) {
+    this.keys = keys;
+    this.values = values;
+    this.table = table;
+    this.mask = mask;
+  }
+
+  /** Returns the number of entries in this map. */
+  public int size() {
+    return keys.length;
+  }
+
+  /** Returns {@code true} if this map contains no entries. */
+  public boolean isEmpty() {
+    return keys.length == 0;
+  }
+
+  private int indexOf(long key) {
+    for (int i = hash(key); ; i++) {
+      int index = table[i & mask] - 1;
+      if (index < 0 || keys[index] == key) {
+        return index;
+      }
+    }
+  }
+
+  /** Returns {@code true} if this map contains an entry for {@code key}. */
+  public boolean containsKey(long key) {
+    return indexOf(key) >= 0;
+  }
+
+  /** Returns the value associated with {@code key}, or null if there is none. */
+  @Nullable
+  public V get(long key) {
+    int index = indexOf(key);
+    return (index < 0) ? null : valueAt(index);
+  }
+
+  /**
+   * Returns the value associated with {@code key}, or {@code defaultValue} if there is none.
+   */
+  @Nullable
+  public V getOrDefault(long key, @Nullable V defaultValue) {
+    int index = indexOf(key);
+    return (index < 0) ? defaultValue : valueAt(index);
+  }
+
+  /** Returns the key of the {@code index}th entry, in iteration order. */
+  public long keyAt(int index) {
+    return keys[checkIndex(index)];
+  }
+
+  /** Returns the value of the {@code index}th entry, in iteration order. */
+  public V valueAt(int index) {
+    @SuppressWarnings("unchecked") // only Vs are stored
+    V value = (V) values[checkIndex(index)];
+    return value;
+  }
+
+  private int checkIndex(int index) {
+    return checkElementIndex(index, keys.length);
+  }
+
+  /** Returns the keys of this map, in iteration order. */
+  public ImmutableLongArray keys() {
+    return ImmutableLongArray.copyOf(keys);
+  }
+
+  /** Returns the values of this map, in iteration order. */
+  public ImmutableList<V> values() {
+    return ImmutableList.asImmutableList(values);
+  }
+
+  /**
+   * Returns an {@code ImmutableMap} view of this map. Keys are boxed on access. The returned map
+   * is serialized as an ordinary {@code ImmutableMap}.
+   */
+  public ImmutableMap<Long, V> asMap() {
+    return isEmpty() ? ImmutableMap.<Long, V>of() : new AsMap<V>(this);
+  }
+
+  @SuppressWarnings("serial") // uses writeReplace(), not default serialization
+  private static final class AsMap<V> extends IteratorBasedImmutableMap<Long, V> {
+    private final ImmutableLongObjectMap<V> parent;
+
+    AsMap(ImmutableLongObjectMap<V> parent) {
+      this.parent = parent;
+    }
+
+    @Override
+    public int size() {
+      return parent.size();
+    }
+
+    @Override
+    public V get(@Nullable Object key) {
+      return (key instanceof Long) ? parent.get((Long) key) : null;
+    }
+
+    @Override
+    public boolean containsKey(@Nullable Object key) {
+      return (key instanceof Long) && parent.containsKey((Long) key);
+    }
+
+    @Override
+    public void forEachEntry(BiConsumer<? super Long, ? super V> action) {
+      checkNotNull(action);
+      for (int i = 0, n = parent.size(); i < n; i++) {
+        action.accept(parent.keyAt(i), parent.valueAt(i));
+      }
+    }
+
+    @Override
+    UnmodifiableIterator<Entry<Long, V>> entryIterator() {
+      return new UnmodifiableIterator<Entry<Long, V>>() {
+        private int index;
+
+        @Override
+        public boolean hasNext() {
+          return index < parent.size();
+        }
+
+        @Override
+        public Entry<Long, V> next() {
+          if (!hasNext()) {
+            throw new NoSuchElementException();
+          }
+          Entry<Long, V> entry = entryOf(parent.keyAt(index), parent.valueAt(index));
+          index++;
+          return entry;
+        }
+      };
+    }
+
+    @Override
+    public int hashCode() {
+      return parent.hashCode();
+    }
+
+    @Override
+    boolean isPartialView() {
+      return false;
+    }
+
+    @Override
+    Object writeReplace() {
+      return new AsMapSerializedForm(parent);
+    }
+  }
+
+  private static class AsMapSerializedForm implements Serializable {
+    private final ImmutableLongObjectMap<?> parent;
+
+    AsMapSerializedForm(ImmutableLongObjectMap<?> parent) {
+      this.parent = parent;
+    }
+
+    Object readResolve() {
+      return parent.asMap();
+    }
+
+    private static final long serialVersionUID = 0;
+  }
+
+  /**
+   * Returns {@code true} if {@code object} is an {@code ImmutableLongObjectMap} with the same
+   * entries as this one, in any order.
+   */
+  @Override
+  public boolean equals(@Nullable Object object) {
+    if (object == this) {
+      return true;
+    }
+    if (!(object instanceof ImmutableLongObjectMap)) {
+      return false;
+    }
+    ImmutableLongObjectMap<?> that = (ImmutableLongObjectMap<?>) object;
+    if (size() != that.size()) {
+      return false;
+    }
+    for (int i = 0; i < keys.length; i++) {
+      if (!values[i].equals(that.get(keys[i]))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the hash code of {@link #asMap}.
+   */
+  @Override
+  public int hashCode() {
+    int hashCode = 0;
+    for (int i = 0; i < keys.length; i++) {
+      hashCode += keyHashCode(keys[i]) ^ values[i].hashCode();
+    }
+    return hashCode;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder(size() * 8).append('{');
+    for (int i = 0; i < keys.length; i++) {
+      if (i > 0) {
+        builder.append(", ");
+      }
+      builder.append(keys[i]).append('=').append(values[i]);
+    }
+    return builder.append('}').toString();
+  }
+
+  Object writeReplace() {
+    return new SerializedForm(keys, values);
+  }
+
+  /*
+   * Serializes the entries without the hash table, which is rebuilt on deserialization.
+   */
+  private static class SerializedForm implements Serializable {
+    private final long[] keys;
+    private final Object[] values;
+
+    SerializedForm(long[] keys, Object[] values) {
+      this.keys = keys;
+      this.values = values;
+    }
+
+    Object readResolve() {
+      Builder<Object> builder = new Builder<Object>(keys.length);
+      for (int i = 0; i < keys.length; i++) {
+        builder.put(keys[i], checkNotNull(values[i]));
+      }
+      return builder.build();
+    }
+
+    private static final long serialVersionUID = 0;
+  }
+
+  private static final long serialVersionUID = 0;
+}
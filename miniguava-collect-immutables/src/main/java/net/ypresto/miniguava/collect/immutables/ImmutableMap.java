@@ -22,6 +22,7 @@ import static net.ypresto.miniguava.collect.immutables.InternalUtils.checkEntryN
 
 import net.ypresto.miniguava.annotations.Beta;
 import net.ypresto.miniguava.annotations.MiniGuavaSpecific;
+import net.ypresto.miniguava.base.BiConsumer;
 import net.ypresto.miniguava.collect.UnmodifiableIterator;
 import net.ypresto.miniguava.collect.internal.AbstractMapEntry;
 
@@ -33,6 +34,7 @@ import java.util.Comparator;
 import java.util.EnumMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
 import javax.annotation.Nullable;
 
@@ -133,6 +135,21 @@ public abstract class ImmutableMap<K, V> implements Map<K, V>, Serializable {
     return new Builder<K, V>();
   }
 
+  /**
+   * Returns a new builder, expecting the specified number of entries to be added. The builder
+   * allocates room for {@code expectedSize} entries up front, so if exactly that many entries
+   * are added before {@link Builder#build} is called, it never copies them while growing.
+   *
+   * @throws IllegalArgumentException if {@code expectedSize} is negative
+   */
+  // miniguava: Backported from Guava 23.1.
+  @Beta
+  @MiniGuavaSpecific
+  public static <K, V> Builder<K, V> builderWithExpectedSize(int expectedSize) {
+    InternalUtils.checkNonnegative(expectedSize, "expectedSize");
+    return new Builder<K, V>(expectedSize);
+  }
+
   static void checkNoConflict(
       boolean safe, String conflictDescription, Entry<?, ?> entry1, Entry<?, ?> entry2) {
     if (!safe) {
@@ -166,6 +183,7 @@ public abstract class ImmutableMap<K, V> implements Map<K, V>, Serializable {
     ImmutableMapEntry<K, V>[] entries;
     int size;
     boolean entriesUsed;
+    OptimizationGoal optimizationGoal = OptimizationGoal.BALANCED;
 
     /**
      * Creates a new builder. The returned builder is equivalent to the builder
@@ -260,6 +278,17 @@ public abstract class ImmutableMap<K, V> implements Map<K, V>, Serializable {
       return this;
     }
 
+    /**
+     * Configures this {@code Builder} to size the hash table of the built map for {@code goal}.
+     * The default is {@link OptimizationGoal#BALANCED}.
+     */
+    @Beta
+    @MiniGuavaSpecific
+    public Builder<K, V> optimizeFor(OptimizationGoal goal) {
+      this.optimizationGoal = checkNotNull(goal, "goal");
+      return this;
+    }
+
     /*
      * TODO(kevinb): Should build() and the ImmutableBiMap & ImmutableSortedMap
      * versions throw an IllegalStateException instead?
@@ -285,21 +314,49 @@ public abstract class ImmutableMap<K, V> implements Map<K, V>, Serializable {
            * affect the original array), and future build() calls will always copy any entry
            * objects that cannot be safely reused.
            */
-          if (valueComparator != null) {
-            if (entriesUsed) {
-              entries = ObjectArrays.arraysCopyOf(entries, size);
-            }
-            Arrays.sort(
-                entries,
-                0,
-                size,
-                mapValueComparator(valueComparator));
-          }
-          entriesUsed = size == entries.length;
-          return RegularImmutableMap.fromEntryArray(size, entries);
+          prepareEntries();
+          return RegularImmutableMap.fromEntryArray(
+              size, entries, optimizationGoal.chainedLoadFactor);
       }
     }
 
+    /**
+     * Sorts the entries if requested, and marks the entries array as used if the built map may
+     * take ownership of it.
+     */
+    @MiniGuavaSpecific
+    void prepareEntries() {
+      if (valueComparator != null) {
+        if (entriesUsed) {
+          entries = ObjectArrays.arraysCopyOf(entries, size);
+        }
+        Arrays.sort(
+            entries,
+            0,
+            size,
+            mapValueComparator(valueComparator));
+      }
+      entriesUsed = size == entries.length;
+    }
+
+    /**
+     * Returns the same map as {@link #build()}, hashing the keys and checking them for duplicates
+     * on the threads of {@code executor}. See {@link ImmutableMap#copyOfParallel}.
+     *
+     * @throws IllegalArgumentException if duplicate keys were added
+     */
+    @Beta
+    @MiniGuavaSpecific
+    public ImmutableMap<K, V> buildParallel(ExecutorService executor) {
+      checkNotNull(executor);
+      if (size < ParallelHashing.MIN_PARALLEL_SIZE) {
+        return build();
+      }
+      prepareEntries();
+      return RegularImmutableMap.fromEntryArrayParallel(
+          size, entries, optimizationGoal.chainedLoadFactor, executor);
+    }
+
     @MiniGuavaSpecific
     private Comparator<ImmutableMapEntry<?, V>>mapValueComparator(final Comparator<? super V> valueComparator) {
       return new Comparator<ImmutableMapEntry<?, V>>() {
@@ -323,9 +380,8 @@ public abstract class ImmutableMap<K, V> implements Map<K, V>, Serializable {
    *
    * @throws NullPointerException if any key or value in {@code map} is null
    */
-  // miniguava: Removed ImmutableSortedMap class check.
   public static <K, V> ImmutableMap<K, V> copyOf(Map<? extends K, ? extends V> map) {
-    if (map instanceof ImmutableMap) {
+    if ((map instanceof ImmutableMap) && !(map instanceof ImmutableSortedMap)) {
       // TODO(lowasser): Make ImmutableMap.copyOf(immutableBiMap) call copyOf()
       // on the ImmutableMap delegate(), rather than the bimap itself
 
@@ -371,6 +427,32 @@ public abstract class ImmutableMap<K, V> implements Map<K, V>, Serializable {
     }
   }
 
+  /**
+   * Returns the same map as {@link #copyOf(Map)}, hashing the keys and checking them for
+   * duplicates on the threads of {@code executor}. Only placing the entries in the hash table
+   * happens on the calling thread. The returned map is identical to the one {@code copyOf(map)}
+   * returns, including its iteration order and internal layout.
+   *
+   * <p>This is worthwhile only for very large maps whose keys have expensive {@code hashCode()} or
+   * {@code equals()} methods; small maps are copied on the calling thread. If the calling thread
+   * is interrupted, the copy completes sequentially and the thread stays interrupted.
+   *
+   * @throws NullPointerException if any key or value in {@code map} is null
+   */
+  @Beta
+  @MiniGuavaSpecific
+  public static <K, V> ImmutableMap<K, V> copyOfParallel(
+      Map<? extends K, ? extends V> map, ExecutorService executor) {
+    checkNotNull(executor);
+    if (map instanceof ImmutableMap || map instanceof EnumMap
+        || map.size() < ParallelHashing.MIN_PARALLEL_SIZE) {
+      return copyOf(map);
+    }
+    @SuppressWarnings("unchecked") // we'll only be using getKey and getValue, which are covariant
+    Entry<K, V>[] entryArray = (Entry<K, V>[]) map.entrySet().toArray(EMPTY_ENTRY_ARRAY);
+    return RegularImmutableMap.fromEntryArrayParallel(entryArray.length, entryArray, executor);
+  }
+
   private static <K extends Enum<K>, V> ImmutableMap<K, V> copyOfEnumMap(
       EnumMap<K, ? extends V> original) {
     EnumMap<K, V> copy = new EnumMap<K, V>(original);
@@ -485,6 +567,22 @@ public abstract class ImmutableMap<K, V> implements Map<K, V>, Serializable {
 
   abstract ImmutableSet<Entry<K, V>> createEntrySet();
 
+  /**
+   * Performs {@code action} for each mapping in this map, in iteration order, passing the key
+   * and the value. Implementations go through their backing storage directly, without
+   * allocating an iterator or, where the map does not store them, entry objects.
+   *
+   * <p>Named so as not to be confused with {@code Map.forEach} of Java 8.
+   */
+  @Beta
+  @MiniGuavaSpecific
+  public void forEachEntry(BiConsumer<? super K, ? super V> action) {
+    checkNotNull(action);
+    for (Entry<K, V> entry : entrySet()) {
+      action.accept(entry.getKey(), entry.getValue());
+    }
+  }
+
   private transient ImmutableSet<K> keySet;
 
   /**
@@ -516,6 +614,47 @@ public abstract class ImmutableMap<K, V> implements Map<K, V>, Serializable {
     };
   }
 
+  @MiniGuavaSpecific
+  UnmodifiableIterator<V> valueIterator() {
+    final UnmodifiableIterator<Entry<K, V>> entryIterator = entrySet().iterator();
+    return new UnmodifiableIterator<V>() {
+      @Override
+      public boolean hasNext() {
+        return entryIterator.hasNext();
+      }
+
+      @Override
+      public V next() {
+        return entryIterator.next().getValue();
+      }
+    };
+  }
+
+  /**
+   * Copies the keys of this map into {@code dst}, starting at {@code offset}, in iteration order,
+   * and returns the index after the last key copied. This backs {@code keySet().toArray()}.
+   */
+  @MiniGuavaSpecific
+  int copyKeysIntoArray(Object[] dst, int offset) {
+    for (UnmodifiableIterator<K> iterator = keyIterator(); iterator.hasNext(); ) {
+      dst[offset++] = iterator.next();
+    }
+    return offset;
+  }
+
+  /**
+   * Copies the values of this map into {@code dst}, starting at {@code offset}, in iteration
+   * order, and returns the index after the last value copied. This backs {@code
+   * values().toArray()}.
+   */
+  @MiniGuavaSpecific
+  int copyValuesIntoArray(Object[] dst, int offset) {
+    for (UnmodifiableIterator<V> iterator = valueIterator(); iterator.hasNext(); ) {
+      dst[offset++] = iterator.next();
+    }
+    return offset;
+  }
+
   private transient ImmutableCollection<V> values;
 
   /**
@@ -598,20 +737,45 @@ public abstract class ImmutableMap<K, V> implements Map<K, V>, Serializable {
 
   @Override
   public boolean equals(@Nullable Object object) {
+    // miniguava: Rejects maps with different sizes or already computed hash codes first.
+    if (object instanceof ImmutableMap && object != this) {
+      ImmutableMap<?, ?> that = (ImmutableMap<?, ?>) object;
+      int thisHash = this.isHashCodeFast() ? this.hashCode() : this.cachedHashCode;
+      int thatHash = that.isHashCodeFast() ? that.hashCode() : that.cachedHashCode;
+      if (size() != that.size() || (thisHash != 0 && thatHash != 0 && thisHash != thatHash)) {
+        return false;
+      }
+    }
     return InternalUtils.mapsEqualsImpl(this, object);
   }
 
   abstract boolean isPartialView();
 
+  // miniguava: Cached hash code; 0 until computed.
+  private transient int cachedHashCode;
+
   @Override
   public int hashCode() {
-    return InternalUtils.setsHashCodeImpl(entrySet());
+    // miniguava: Racy single-check, as the map never changes.
+    int hashCode = cachedHashCode;
+    if (hashCode == 0) {
+      hashCode = InternalUtils.setsHashCodeImpl(entrySet());
+      cachedHashCode = hashCode;
+    }
+    return hashCode;
   }
 
   boolean isHashCodeFast() {
     return false;
   }
 
+  /** Returns the statistics of this map's hash table of keys, or null if it does not have one. */
+  @MiniGuavaSpecific
+  @Nullable
+  HashStatistics hashStatistics() {
+    return null;
+  }
+
   @Override
   public String toString() {
     return InternalUtils.mapsToStringImpl(this);
@@ -16,6 +16,9 @@
 
 package net.ypresto.miniguava.collect.immutables;
 
+import static net.ypresto.miniguava.base.Preconditions.checkNotNull;
+
+import net.ypresto.miniguava.base.Consumer;
 import net.ypresto.miniguava.collect.UnmodifiableIterator;
 
 import java.io.Serializable;
@@ -49,6 +52,20 @@ abstract class ImmutableMapEntrySet<K, V> extends ImmutableSet<Entry<K, V>> {
       return asList().iterator();
     }
 
+    @Override
+    public void forEachElement(Consumer<? super Entry<K, V>> action) {
+      checkNotNull(action);
+      for (Entry<K, V> entry : entries) {
+        action.accept(entry);
+      }
+    }
+
+    @Override
+    int copyIntoArray(Object[] dst, int offset) {
+      System.arraycopy(entries, 0, dst, offset, entries.length);
+      return offset + entries.length;
+    }
+
     @Override
     ImmutableList<Entry<K, V>> createAsList() {
       return new RegularImmutableAsList<Entry<K, V>>(this, entries);
@@ -16,6 +16,10 @@
 
 package net.ypresto.miniguava.collect.immutables;
 
+import static net.ypresto.miniguava.base.Preconditions.checkNotNull;
+
+import net.ypresto.miniguava.base.BiConsumer;
+import net.ypresto.miniguava.base.Consumer;
 import net.ypresto.miniguava.collect.UnmodifiableIterator;
 
 import java.io.Serializable;
@@ -45,11 +49,33 @@ final class ImmutableMapKeySet<K, V> extends ImmutableSet.Indexed<K> {
     return map.keyIterator();
   }
 
+  @Override
+  public void forEachElement(final Consumer<? super K> action) {
+    checkNotNull(action);
+    map.forEachEntry(new BiConsumer<K, V>() {
+      @Override
+      public void accept(K key, V value) {
+        action.accept(key);
+      }
+    });
+  }
+
   @Override
   public boolean contains(@Nullable Object object) {
     return map.containsKey(object);
   }
 
+  @Override
+  int copyIntoArray(Object[] dst, int offset) {
+    return map.copyKeysIntoArray(dst, offset);
+  }
+
+  @Override
+  @Nullable
+  HashStatistics hashStatistics() {
+    return map.hashStatistics();
+  }
+
   @Override
   K get(int index) {
     return map.entrySet().asList().get(index).getKey();
@@ -16,6 +16,10 @@
 
 package net.ypresto.miniguava.collect.immutables;
 
+import static net.ypresto.miniguava.base.Preconditions.checkNotNull;
+
+import net.ypresto.miniguava.base.BiConsumer;
+import net.ypresto.miniguava.base.Consumer;
 import net.ypresto.miniguava.collect.UnmodifiableIterator;
 
 import java.io.Serializable;
@@ -43,19 +47,19 @@ final class ImmutableMapValues<K, V> extends ImmutableCollection<V> {
 
   @Override
   public UnmodifiableIterator<V> iterator() {
-    return new UnmodifiableIterator<V>() {
-      final UnmodifiableIterator<Entry<K, V>> entryItr = map.entrySet().iterator();
-
-      @Override
-      public boolean hasNext() {
-        return entryItr.hasNext();
-      }
+    // miniguava: Delegates to map so that implementations can iterate values without entries.
+    return map.valueIterator();
+  }
 
+  @Override
+  public void forEachElement(final Consumer<? super V> action) {
+    checkNotNull(action);
+    map.forEachEntry(new BiConsumer<K, V>() {
       @Override
-      public V next() {
-        return entryItr.next().getValue();
+      public void accept(K key, V value) {
+        action.accept(value);
       }
-    };
+    });
   }
 
   // miniguava: Modified not to use Iterators.contains().
@@ -72,6 +76,11 @@ final class ImmutableMapValues<K, V> extends ImmutableCollection<V> {
     return false;
   }
 
+  @Override
+  int copyIntoArray(Object[] dst, int offset) {
+    return map.copyValuesIntoArray(dst, offset);
+  }
+
   @Override
   boolean isPartialView() {
     return true;
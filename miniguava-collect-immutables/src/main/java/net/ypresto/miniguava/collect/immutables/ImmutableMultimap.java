@@ -0,0 +1,627 @@
+/*
+ * Copyright (C) 2016 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ypresto.miniguava.collect.immutables;
+
+import static net.ypresto.miniguava.base.Preconditions.checkNotNull;
+import static net.ypresto.miniguava.collect.immutables.InternalUtils.checkEntryNotNull;
+
+import net.ypresto.miniguava.annotations.Beta;
+import net.ypresto.miniguava.annotations.MiniGuavaSpecific;
+import net.ypresto.miniguava.base.BiConsumer;
+import net.ypresto.miniguava.collect.UnmodifiableIterator;
+import net.ypresto.miniguava.collect.immutables.ImmutableMap.IteratorBasedImmutableMap;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+
+import javax.annotation.Nullable;
+
+/**
+ * An immutable collection of key-value pairs in which a key may be associated with several
+ * values. All values are stored in one array, grouped by key, and the values of each key are
+ * found through a hash index over the distinct keys. {@link #get} therefore returns a view of a
+ * range of that array, without copying it or allocating a collection per key up front.
+ *
+ * <p>Keys iterate in the order they were first added, and the values of each key in the order
+ * they were added. This class has no public subclasses other than {@link ImmutableListMultimap}
+ * and {@link ImmutableSetMultimap}.
+ */
+// miniguava: Reimplemented on flat arrays; Guava's multimaps were removed earlier.
+@Beta
+@MiniGuavaSpecific
+public abstract class ImmutableMultimap<K, V> implements Serializable {
+  private static final double LOAD_FACTOR = 0.7;
+
+  // distinct keys in the order they were first added
+  final transient Object[] keys;
+  // index + 1 of the key in hashed position, 0 for an empty slot
+  private final transient int[] keyTable;
+  private final transient int keyMask;
+  // the values of keys[i] are values[offsets[i]] to values[offsets[i + 1] - 1]
+  final transient int[] offsets;
+  final transient Object[] values;
+
+  // index + 1 of the value in hashed position of its key and value, if values are distinct
+  @Nullable private final transient int[] entryTable;
+
+  /**
+   * Groups the first {@code n} pairs of {@code entryKeys} and {@code entryValues} by key. If
+   * {@code distinctValues} is set, a pair equal to an earlier pair is dropped, and a hash index
+   * over the kept pairs is built for {@link #indexOfEntry}.
+   */
+  ImmutableMultimap(int n, Object[] entryKeys, Object[] entryValues, boolean distinctValues) {
+    int tableSize = Hashing.closedTableSize(n, LOAD_FACTOR);
+    int mask = tableSize - 1;
+    int[] table = new int[tableSize];
+    Object[] distinctKeys = new Object[n];
+    int[] keyHashes = new int[n];
+    int keyCount = 0;
+    // the key index of each pair, or -1 for a dropped duplicate
+    int[] keyIndices = new int[n];
+    // offsets[i + 1] counts the values of key i first, and becomes its end offset below
+    int[] offsets = new int[n + 1];
+
+    int[] pairTable = null;
+    int[] valueHashes = null;
+    int pairMask = 0;
+    if (distinctValues) {
+      pairTable = new int[tableSize];
+      pairMask = mask;
+      valueHashes = new int[n];
+    }
+
+    for (int i = 0; i < n; i++) {
+      Object key = entryKeys[i];
+      Object value = entryValues[i];
+      checkEntryNotNull(key, value);
+      int keyHash = key.hashCode();
+      int keyIndex;
+      for (int j = Hashing.smear(keyHash); ; j++) {
+        int slot = j & mask;
+        keyIndex = table[slot] - 1;
+        if (keyIndex < 0) {
+          keyIndex = keyCount++;
+          distinctKeys[keyIndex] = key;
+          keyHashes[keyIndex] = keyHash;
+          table[slot] = keyCount;
+          break;
+        } else if (keyHashes[keyIndex] == keyHash && distinctKeys[keyIndex].equals(key)) {
+          break;
+        }
+      }
+      if (pairTable != null) {
+        int valueHash = value.hashCode();
+        valueHashes[i] = valueHash;
+        boolean duplicate = false;
+        for (int j = pairHash(keyIndex, valueHash); ; j++) {
+          int slot = j & pairMask;
+          int existing = pairTable[slot] - 1;
+          if (existing < 0) {
+            pairTable[slot] = i + 1;
+            break;
+          } else if (keyIndices[existing] == keyIndex
+              && valueHashes[existing] == valueHash
+              && entryValues[existing].equals(value)) {
+            duplicate = true;
+            break;
+          }
+        }
+        if (duplicate) {
+          keyIndices[i] = -1;
+          continue;
+        }
+      }
+      keyIndices[i] = keyIndex;
+      offsets[keyIndex + 1]++;
+    }
+
+    for (int i = 0; i < keyCount; i++) {
+      offsets[i + 1] += offsets[i];
+    }
+    int valueCount = offsets[keyCount];
+    Object[] values = new Object[valueCount];
+    int[] cursors = new int[keyCount];
+    System.arraycopy(offsets, 0, cursors, 0, keyCount);
+    int[] placedHashes = (pairTable == null) ? null : new int[valueCount];
+    for (int i = 0; i < n; i++) {
+      int keyIndex = keyIndices[i];
+      if (keyIndex >= 0) {
+        int position = cursors[keyIndex]++;
+        values[position] = entryValues[i];
+        if (placedHashes != null) {
+          placedHashes[position] = valueHashes[i];
+        }
+      }
+    }
+
+    // the key table was sized for n pairs; shrink it when many pairs share keys
+    int keyTableSize = Hashing.closedTableSize(keyCount, LOAD_FACTOR);
+    if (keyTableSize < tableSize) {
+      mask = keyTableSize - 1;
+      table = new int[keyTableSize];
+      for (int i = 0; i < keyCount; i++) {
+        for (int j = Hashing.smear(keyHashes[i]); ; j++) {
+          int slot = j & mask;
+          if (table[slot] == 0) {
+            table[slot] = i + 1;
+            break;
+          }
+        }
+      }
+    }
+    if (pairTable != null) {
+      // reindex the kept pairs by their position in values
+      int pairTableSize = Hashing.closedTableSize(valueCount, LOAD_FACTOR);
+      pairMask = pairTableSize - 1;
+      pairTable = new int[pairTableSize];
+      for (int keyIndex = 0; keyIndex < keyCount; keyIndex++) {
+        for (int position = offsets[keyIndex]; position < offsets[keyIndex + 1]; position++) {
+          for (int j = pairHash(keyIndex, placedHashes[position]); ; j++) {
+            int slot = j & pairMask;
+            if (pairTable[slot] == 0) {
+              pairTable[slot] = position + 1;
+              break;
+            }
+          }
+        }
+      }
+    }
+
+    this.keys = ObjectArrays.arraysCopyOf(distinctKeys, keyCount);
+    this.keyTable = table;
+    this.keyMask = mask;
+    this.offsets = new int[keyCount + 1];
+    System.arraycopy(offsets, 0, this.offsets, 0, keyCount + 1);
+    this.values = values;
+    this.entryTable = pairTable;
+  }
+
+  private static int pairHash(int keyIndex, int valueHash) {
+    return Hashing.smear(31 * keyIndex + valueHash);
+  }
+
+  /** Returns the index of {@code key} in {@link #keys}, or -1 if there is none. */
+  final int indexOfKey(@Nullable Object key) {
+    if (key == null) {
+      return -1;
+    }
+    for (int i = Hashing.smear(key.hashCode()); ; i++) {
+      int index = keyTable[i & keyMask] - 1;
+      if (index < 0 || keys[index].equals(key)) {
+        return index;
+      }
+    }
+  }
+
+  /**
+   * Returns the position in {@link #values} of {@code value} among the values of the key with
+   * index {@code keyIndex}, or -1 if there is none. Only for multimaps with distinct values.
+   */
+  final int indexOfEntry(int keyIndex, @Nullable Object value) {
+    if (value == null) {
+      return -1;
+    }
+    int from = offsets[keyIndex];
+    int to = offsets[keyIndex + 1];
+    int mask = entryTable.length - 1;
+    for (int i = pairHash(keyIndex, value.hashCode()); ; i++) {
+      int position = entryTable[i & mask] - 1;
+      if (position < 0) {
+        return -1;
+      } else if (position >= from && position < to && values[position].equals(value)) {
+        return position;
+      }
+    }
+  }
+
+  /**
+   * Returns the values of the key with index {@code keyIndex} as a view of {@link #values}.
+   */
+  abstract ImmutableCollection<V> valuesOfKeyAt(int keyIndex);
+
+  /**
+   * Returns the values associated with {@code key}, or an empty collection if there are none.
+   * The returned collection is a view of this multimap's storage, created in constant time.
+   */
+  public abstract ImmutableCollection<V> get(@Nullable K key);
+
+  /** Returns the number of key-value pairs in this multimap. */
+  public int size() {
+    return values.length;
+  }
+
+  /** Returns {@code true} if this multimap contains no key-value pairs. */
+  public boolean isEmpty() {
+    return values.length == 0;
+  }
+
+  /** Returns {@code true} if this multimap has at least one value for {@code key}. */
+  public boolean containsKey(@Nullable Object key) {
+    return indexOfKey(key) >= 0;
+  }
+
+  /**
+   * Returns {@code true} if this multimap has {@code value} for at least one key. This scans all
+   * values.
+   */
+  public boolean containsValue(@Nullable Object value) {
+    if (value != null) {
+      for (Object candidate : values) {
+        if (value.equals(candidate)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /** Returns {@code true} if this multimap has the pair of {@code key} and {@code value}. */
+  public boolean containsEntry(@Nullable Object key, @Nullable Object value) {
+    int keyIndex = indexOfKey(key);
+    return keyIndex >= 0 && valuesOfKeyAt(keyIndex).contains(value);
+  }
+
+  /** Returns the distinct keys of this multimap, in the order they were first added. */
+  public ImmutableSet<K> keySet() {
+    return isEmpty() ? ImmutableSet.<K>of() : new KeySet();
+  }
+
+  /**
+   * Returns all values of this multimap, grouped by key in the order of {@link #keySet}. The
+   * returned collection is a view of this multimap's storage.
+   */
+  public ImmutableCollection<V> values() {
+    return ImmutableList.asImmutableList(values);
+  }
+
+  /**
+   * Performs {@code action} for each key-value pair, in iteration order, without allocating an
+   * iterator or entry objects.
+   */
+  public void forEachEntry(BiConsumer<? super K, ? super V> action) {
+    checkNotNull(action);
+    for (int keyIndex = 0; keyIndex < keys.length; keyIndex++) {
+      @SuppressWarnings("unchecked") // only Ks are stored
+      K key = (K) keys[keyIndex];
+      for (int i = offsets[keyIndex], end = offsets[keyIndex + 1]; i < end; i++) {
+        @SuppressWarnings("unchecked") // only Vs are stored
+        V value = (V) values[i];
+        action.accept(key, value);
+      }
+    }
+  }
+
+  @SuppressWarnings("serial") // uses writeReplace(), not default serialization
+  private final class KeySet extends ImmutableSet.Indexed<K> {
+    @Override
+    public int size() {
+      return keys.length;
+    }
+
+    @SuppressWarnings("unchecked") // only Ks are stored
+    @Override
+    K get(int index) {
+      return (K) keys[index];
+    }
+
+    @Override
+    public boolean contains(@Nullable Object object) {
+      return containsKey(object);
+    }
+
+    @Override
+    int copyIntoArray(Object[] dst, int offset) {
+      System.arraycopy(keys, 0, dst, offset, keys.length);
+      return offset + keys.length;
+    }
+
+    @Override
+    boolean isPartialView() {
+      return true;
+    }
+  }
+
+  /**
+   * An {@code ImmutableMap} view of a multimap, mapping each key to the view {@link #get} returns.
+   */
+  @SuppressWarnings("serial") // uses writeReplace(), not default serialization
+  static final class AsMap<K, C extends ImmutableCollection<?>>
+      extends IteratorBasedImmutableMap<K, C> {
+    private final ImmutableMultimap<K, ?> parent;
+
+    AsMap(ImmutableMultimap<K, ?> parent) {
+      this.parent = parent;
+    }
+
+    @SuppressWarnings("unchecked") // C is the collection type of the parent's get()
+    private C valuesOfKeyAt(int keyIndex) {
+      return (C) parent.valuesOfKeyAt(keyIndex);
+    }
+
+    @SuppressWarnings("unchecked") // only Ks are stored
+    private K keyAt(int keyIndex) {
+      return (K) parent.keys[keyIndex];
+    }
+
+    @Override
+    public int size() {
+      return parent.keys.length;
+    }
+
+    @Override
+    public C get(@Nullable Object key) {
+      int keyIndex = parent.indexOfKey(key);
+      return (keyIndex < 0) ? null : valuesOfKeyAt(keyIndex);
+    }
+
+    @Override
+    public boolean containsKey(@Nullable Object key) {
+      return parent.containsKey(key);
+    }
+
+    @Override
+    public ImmutableSet<K> keySet() {
+      return parent.keySet();
+    }
+
+    @Override
+    public void forEachEntry(BiConsumer<? super K, ? super C> action) {
+      checkNotNull(action);
+      for (int i = 0; i < parent.keys.length; i++) {
+        action.accept(keyAt(i), valuesOfKeyAt(i));
+      }
+    }
+
+    @Override
+    UnmodifiableIterator<Entry<K, C>> entryIterator() {
+      return new UnmodifiableIterator<Entry<K, C>>() {
+        private int index;
+
+        @Override
+        public boolean hasNext() {
+          return index < parent.keys.length;
+        }
+
+        @Override
+        public Entry<K, C> next() {
+          if (!hasNext()) {
+            throw new NoSuchElementException();
+          }
+          Entry<K, C> entry = entryOf(keyAt(index), valuesOfKeyAt(index));
+          index++;
+          return entry;
+        }
+      };
+    }
+
+    @Override
+    public int hashCode() {
+      return parent.hashCode();
+    }
+
+    @Override
+    boolean isPartialView() {
+      return false;
+    }
+
+    @Override
+    Object writeReplace() {
+      return new AsMapSerializedForm(parent);
+    }
+  }
+
+  private static class AsMapSerializedForm implements Serializable {
+    private final ImmutableMultimap<?, ?> parent;
+
+    AsMapSerializedForm(ImmutableMultimap<?, ?> parent) {
+      this.parent = parent;
+    }
+
+    Object readResolve() {
+      return parent.asMap();
+    }
+
+    private static final long serialVersionUID = 0;
+  }
+
+  /**
+   * Returns an {@code ImmutableMap} view of this multimap, mapping each key to its values as
+   * returned by {@link #get}. The returned map is serialized by serializing this multimap, and
+   * deserializes as the {@code asMap()} view of the deserialized multimap.
+   */
+  public abstract ImmutableMap<K, ? extends ImmutableCollection<V>> asMap();
+
+  /**
+   * Returns {@code true} if {@code object} is a multimap of the same kind with the same keys,
+   * each associated with equal collections of values. The order of the keys does not matter.
+   */
+  @Override
+  public boolean equals(@Nullable Object object) {
+    if (object == this) {
+      return true;
+    }
+    if (!(object instanceof ImmutableMultimap)) {
+      return false;
+    }
+    ImmutableMultimap<?, ?> that = (ImmutableMultimap<?, ?>) object;
+    if (size() != that.size() || keys.length != that.keys.length) {
+      return false;
+    }
+    for (int i = 0; i < keys.length; i++) {
+      int thatIndex = that.indexOfKey(keys[i]);
+      if (thatIndex < 0 || !valuesOfKeyAt(i).equals(that.valuesOfKeyAt(thatIndex))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the hash code of {@link #asMap}.
+   */
+  @Override
+  public int hashCode() {
+    int hashCode = 0;
+    for (int i = 0; i < keys.length; i++) {
+      hashCode += keys[i].hashCode() ^ valuesOfKeyAt(i).hashCode();
+    }
+    return hashCode;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder(size() * 8).append('{');
+    for (int i = 0; i < keys.length; i++) {
+      if (i > 0) {
+        builder.append(", ");
+      }
+      builder.append(keys[i]).append('=').append(valuesOfKeyAt(i));
+    }
+    return builder.append('}').toString();
+  }
+
+  /**
+   * A builder for immutable multimaps. Pairs are grouped by key when the multimap is built, so
+   * the values of a key need not be added together.
+   */
+  public abstract static class Builder<K, V> {
+    Object[] keys;
+    Object[] values;
+    int size;
+
+    Builder(int initialCapacity) {
+      this.keys = new Object[initialCapacity];
+      this.values = new Object[initialCapacity];
+    }
+
+    private void ensureCapacity(int minCapacity) {
+      if (minCapacity > keys.length) {
+        int newCapacity = ImmutableCollection.Builder.expandedCapacity(keys.length, minCapacity);
+        keys = ObjectArrays.arraysCopyOf(keys, newCapacity);
+        values = ObjectArrays.arraysCopyOf(values, newCapacity);
+      }
+    }
+
+    /** Adds a key-value pair to the built multimap. */
+    public Builder<K, V> put(K key, V value) {
+      checkEntryNotNull(key, value);
+      ensureCapacity(size + 1);
+      keys[size] = key;
+      values[size] = value;
+      size++;
+      return this;
+    }
+
+    /** Adds the key-value pair of {@code entry} to the built multimap. */
+    public Builder<K, V> put(Entry<? extends K, ? extends V> entry) {
+      return put(entry.getKey(), entry.getValue());
+    }
+
+    /**
+     * Adds a pair of {@code key} and each of {@code values} to the built multimap.
+     *
+     * @throws NullPointerException if {@code key} or any of {@code values} is null
+     */
+    public Builder<K, V> putAll(K key, Iterable<? extends V> values) {
+      if (values instanceof Collection) {
+        ensureCapacity(size + ((Collection<?>) values).size());
+      }
+      for (V value : values) {
+        put(key, value);
+      }
+      return this;
+    }
+
+    /**
+     * Adds a pair of {@code key} and each of {@code values} to the built multimap.
+     *
+     * @throws NullPointerException if {@code key} or any of {@code values} is null
+     */
+    public Builder<K, V> putAll(K key, V... values) {
+      ensureCapacity(size + values.length);
+      for (V value : values) {
+        put(key, value);
+      }
+      return this;
+    }
+
+    /**
+     * Adds all key-value pairs of {@code multimap} to the built multimap.
+     */
+    public Builder<K, V> putAll(ImmutableMultimap<? extends K, ? extends V> multimap) {
+      ensureCapacity(size + multimap.size());
+      for (int keyIndex = 0; keyIndex < multimap.keys.length; keyIndex++) {
+        Object key = multimap.keys[keyIndex];
+        for (int i = multimap.offsets[keyIndex]; i < multimap.offsets[keyIndex + 1]; i++) {
+          keys[size] = key;
+          values[size] = multimap.values[i];
+          size++;
+        }
+      }
+      return this;
+    }
+
+    /**
+     * Adds a pair of each key of {@code map} and each of the values it is mapped to.
+     *
+     * @throws NullPointerException if any key, collection or value in {@code map} is null
+     */
+    public Builder<K, V> putAll(Map<? extends K, ? extends Iterable<? extends V>> map) {
+      for (Entry<? extends K, ? extends Iterable<? extends V>> entry : map.entrySet()) {
+        putAll(entry.getKey(), entry.getValue());
+      }
+      return this;
+    }
+
+    /** Returns a newly-created immutable multimap. */
+    public abstract ImmutableMultimap<K, V> build();
+  }
+
+  abstract Object writeReplace();
+
+  /*
+   * Serializes the grouped keys and values without the hash index, which is rebuilt on
+   * deserialization.
+   */
+  static class SerializedForm implements Serializable {
+    private final Object[] keys;
+    private final int[] offsets;
+    private final Object[] values;
+
+    SerializedForm(ImmutableMultimap<?, ?> multimap) {
+      this.keys = multimap.keys;
+      this.offsets = multimap.offsets;
+      this.values = multimap.values;
+    }
+
+    Object createMultimap(Builder<Object, Object> builder) {
+      for (int keyIndex = 0; keyIndex < keys.length; keyIndex++) {
+        for (int i = offsets[keyIndex]; i < offsets[keyIndex + 1]; i++) {
+          builder.put(keys[keyIndex], values[i]);
+        }
+      }
+      return builder.build();
+    }
+
+    private static final long serialVersionUID = 0;
+  }
+
+  private static final long serialVersionUID = 0;
+}
@@ -17,9 +17,13 @@
 package net.ypresto.miniguava.collect.immutables;
 
 import static net.ypresto.miniguava.base.Preconditions.checkArgument;
+import static net.ypresto.miniguava.base.Preconditions.checkNotNull;
 import static net.ypresto.miniguava.collect.immutables.ObjectArrays.checkElementNotNull;
 
+import net.ypresto.miniguava.annotations.Beta;
+import net.ypresto.miniguava.annotations.MiniGuavaSpecific;
 import net.ypresto.miniguava.annotations.VisibleForTesting;
+import net.ypresto.miniguava.base.Consumer;
 import net.ypresto.miniguava.collect.UnmodifiableIterator;
 
 import java.io.Serializable;
@@ -28,6 +32,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
 import javax.annotation.Nullable;
 
@@ -130,6 +135,15 @@ public abstract class ImmutableSet<E> extends ImmutableCollection<E> implements
    *          null
    */
   private static <E> ImmutableSet<E> construct(int n, Object... elements) {
+    return construct(n, DESIRED_LOAD_FACTOR, elements);
+  }
+
+  /**
+   * Like {@link #construct(int, Object...)}, with a hash table of a load factor of up to {@code
+   * loadFactor}.
+   */
+  @MiniGuavaSpecific
+  private static <E> ImmutableSet<E> construct(int n, double loadFactor, Object[] elements) {
     switch (n) {
       case 0:
         return of();
@@ -140,24 +154,31 @@ public abstract class ImmutableSet<E> extends ImmutableCollection<E> implements
       default:
         // continue below to handle the general case
     }
-    int tableSize = chooseTableSize(n);
+    if (n <= SMALL_SET_MAX_SIZE) {
+      return constructSmall(n, elements);
+    }
+    int tableSize = chooseTableSize(n, loadFactor);
     Object[] table = new Object[tableSize];
+    byte[] control = new byte[tableSize];
     int mask = tableSize - 1;
     int hashCode = 0;
     int uniques = 0;
     for (int i = 0; i < n; i++) {
       Object element = checkElementNotNull(elements[i], i);
       int hash = element.hashCode();
-      for (int j = Hashing.smear(hash); ; j++) {
+      int smeared = Hashing.smear(hash);
+      byte fingerprint = RegularImmutableSet.fingerprint(smeared);
+      for (int j = smeared; ; j++) {
         int index = j & mask;
-        Object value = table[index];
-        if (value == null) {
+        byte slotControl = control[index];
+        if (slotControl == 0) {
           // Came to an empty slot. Put the element here.
           elements[uniques++] = element;
           table[index] = element;
+          control[index] = fingerprint;
           hashCode += hash;
           break;
-        } else if (value.equals(element)) {
+        } else if (slotControl == fingerprint && table[index].equals(element)) {
           break;
         }
       }
@@ -168,27 +189,61 @@ public abstract class ImmutableSet<E> extends ImmutableCollection<E> implements
       @SuppressWarnings("unchecked") // we are careful to only pass in E
       E element = (E) elements[0];
       return new SingletonImmutableSet<E>(element, hashCode);
-    } else if (tableSize != chooseTableSize(uniques)) {
+    } else if (uniques <= SMALL_SET_MAX_SIZE || tableSize != chooseTableSize(uniques, loadFactor)) {
       // Resize the table when the array includes too many duplicates.
       // when this happens, we have already made a copy
-      return construct(uniques, elements);
+      return construct(uniques, loadFactor, elements);
     } else {
       Object[] uniqueElements =
           (uniques < elements.length)
               ? ObjectArrays.arraysCopyOf(elements, uniques)
               : elements;
-      return new RegularImmutableSet<E>(uniqueElements, hashCode, table, mask);
+      return new RegularImmutableSet<E>(uniqueElements, hashCode, table, control, mask);
+    }
+  }
+
+  /**
+   * Sets with at most this many elements are stored without a hash table, and are searched
+   * linearly.
+   */
+  @MiniGuavaSpecific
+  static final int SMALL_SET_MAX_SIZE = 8;
+
+  /**
+   * Like {@link #construct}, for {@code 2 <= n <= SMALL_SET_MAX_SIZE}. Duplicates are found by
+   * comparing each element with the unique elements before it.
+   */
+  @MiniGuavaSpecific
+  private static <E> ImmutableSet<E> constructSmall(int n, Object[] elements) {
+    int hashCode = 0;
+    int uniques = 0;
+    outer:
+    for (int i = 0; i < n; i++) {
+      Object element = checkElementNotNull(elements[i], i);
+      for (int j = 0; j < uniques; j++) {
+        if (elements[j].equals(element)) {
+          continue outer;
+        }
+      }
+      elements[uniques++] = element;
+      hashCode += element.hashCode();
     }
+    Arrays.fill(elements, uniques, n, null);
+    if (uniques == 1) {
+      @SuppressWarnings("unchecked") // we are careful to only pass in E
+      E element = (E) elements[0];
+      return new SingletonImmutableSet<E>(element, hashCode);
+    }
+    Object[] uniqueElements =
+        (uniques < elements.length) ? ObjectArrays.arraysCopyOf(elements, uniques) : elements;
+    return new SmallImmutableSet<E>(uniqueElements, hashCode);
   }
 
   // We use power-of-2 tables, and this is the highest int that's a power of 2
   static final int MAX_TABLE_SIZE = InternalUtils.MAX_POWER_OF_TWO;
 
   // Represents how tightly we can pack things, as a maximum.
-  private static final double DESIRED_LOAD_FACTOR = 0.7;
-
-  // If the set has this many elements, it will "max out" the table size
-  private static final int CUTOFF = (int) (MAX_TABLE_SIZE * DESIRED_LOAD_FACTOR);
+  static final double DESIRED_LOAD_FACTOR = 0.7;
 
   /**
    * Returns an array size suitable for the backing array of a hash table that
@@ -200,11 +255,21 @@ public abstract class ImmutableSet<E> extends ImmutableCollection<E> implements
    */
   @VisibleForTesting
   static int chooseTableSize(int setSize) {
+    return chooseTableSize(setSize, DESIRED_LOAD_FACTOR);
+  }
+
+  /**
+   * Like {@link #chooseTableSize(int)}, for a load factor of up to {@code loadFactor}.
+   */
+  @MiniGuavaSpecific
+  static int chooseTableSize(int setSize, double loadFactor) {
+    // If the set has this many elements, it will "max out" the table size
+    int cutoff = (int) (MAX_TABLE_SIZE * loadFactor);
     // Correct the size for open addressing to match desired load factor.
-    if (setSize < CUTOFF) {
+    if (setSize < cutoff) {
       // Round up to the next highest power of 2.
       int tableSize = Integer.highestOneBit(setSize - 1) << 1;
-      while (tableSize * DESIRED_LOAD_FACTOR < setSize) {
+      while (tableSize * loadFactor < setSize) {
         tableSize <<= 1;
       }
       return tableSize;
@@ -215,7 +280,6 @@ public abstract class ImmutableSet<E> extends ImmutableCollection<E> implements
     return MAX_TABLE_SIZE;
   }
 
-  // miniguava: Removed ImmutableSortedSet check.
   /**
    * Returns an immutable set containing each of {@code elements}, minus duplicates, in the order
    * each appears first in the source collection.
@@ -233,7 +297,7 @@ public abstract class ImmutableSet<E> extends ImmutableCollection<E> implements
      * TODO(lowasser): consider checking for ImmutableAsList here
      * TODO(lowasser): consider checking for Multiset here
      */
-    if (elements instanceof ImmutableSet) {
+    if (elements instanceof ImmutableSet && !(elements instanceof ImmutableSortedSet)) {
       @SuppressWarnings("unchecked") // all supported methods are covariant
       ImmutableSet<E> set = (ImmutableSet<E>) elements;
       if (!set.isPartialView()) {
@@ -246,6 +310,85 @@ public abstract class ImmutableSet<E> extends ImmutableCollection<E> implements
     return construct(array.length, array);
   }
 
+  /**
+   * Returns the same set as {@link #copyOf(Collection)}, hashing the elements and removing
+   * duplicates on the threads of {@code executor}. Only placing the distinct elements in the hash
+   * table happens on the calling thread. The returned set is identical to the one
+   * {@code copyOf(elements)} returns, including its iteration order and internal layout.
+   *
+   * <p>This is worthwhile only for very large collections whose elements have expensive
+   * {@code hashCode()} or {@code equals()} methods; small collections are copied on the calling
+   * thread. If the calling thread is interrupted, the copy completes sequentially and the thread
+   * stays interrupted.
+   *
+   * @throws NullPointerException if any of {@code elements} is null
+   */
+  @Beta
+  @MiniGuavaSpecific
+  public static <E> ImmutableSet<E> copyOfParallel(
+      Collection<? extends E> elements, ExecutorService executor) {
+    checkNotNull(executor);
+    if (elements instanceof ImmutableSet || elements instanceof EnumSet) {
+      return copyOf(elements);
+    }
+    Object[] array = elements.toArray();
+    return constructParallel(array.length, array, DESIRED_LOAD_FACTOR, executor);
+  }
+
+  /**
+   * Like {@link #construct}, but calls {@code hashCode()} and {@code equals()} on the threads of
+   * {@code executor} when {@code n} is large.
+   */
+  @MiniGuavaSpecific
+  private static <E> ImmutableSet<E> constructParallel(
+      int n, Object[] elements, double loadFactor, ExecutorService executor) {
+    if (n < ParallelHashing.MIN_PARALLEL_SIZE) {
+      return construct(n, loadFactor, elements);
+    }
+    int[] hashes = ParallelHashing.hashCodes(elements, n, executor);
+    if (hashes == null) {
+      return construct(n, loadFactor, elements);
+    }
+    boolean[] duplicate = new boolean[n];
+    if (ParallelHashing.markDuplicates(elements, n, hashes, duplicate, executor) < 0) {
+      return construct(n, loadFactor, elements);
+    }
+    int hashCode = 0;
+    int uniques = 0;
+    for (int i = 0; i < n; i++) {
+      if (!duplicate[i]) {
+        elements[uniques] = elements[i];
+        hashes[uniques] = hashes[i];
+        hashCode += hashes[i];
+        uniques++;
+      }
+    }
+    Arrays.fill(elements, uniques, n, null);
+    if (uniques <= SMALL_SET_MAX_SIZE) {
+      return construct(uniques, loadFactor, elements);
+    }
+    // The elements are known to be distinct, so they only need to be placed in the first empty
+    // slot of their probe sequence, exactly as construct() places them.
+    int tableSize = chooseTableSize(uniques, loadFactor);
+    Object[] table = new Object[tableSize];
+    byte[] control = new byte[tableSize];
+    int mask = tableSize - 1;
+    for (int i = 0; i < uniques; i++) {
+      int smeared = Hashing.smear(hashes[i]);
+      for (int j = smeared; ; j++) {
+        int index = j & mask;
+        if (control[index] == 0) {
+          table[index] = elements[i];
+          control[index] = RegularImmutableSet.fingerprint(smeared);
+          break;
+        }
+      }
+    }
+    Object[] uniqueElements =
+        (uniques < elements.length) ? ObjectArrays.arraysCopyOf(elements, uniques) : elements;
+    return new RegularImmutableSet<E>(uniqueElements, hashCode, table, control, mask);
+  }
+
   /**
    * Returns an immutable set containing each of {@code elements}, minus duplicates, in the order
    * each appears first in the source array.
@@ -264,6 +407,20 @@ public abstract class ImmutableSet<E> extends ImmutableCollection<E> implements
     }
   }
 
+  /**
+   * Returns an immutable set containing each of {@code elements}, minus duplicates, like {@link
+   * #copyOf(Object[])}, but without copying the array first. This takes ownership of the array:
+   * duplicates are removed in place, and the set keeps the array as its element storage if it
+   * has no duplicates. The caller must neither use nor modify the array afterwards.
+   *
+   * @throws NullPointerException if any of {@code elements} is null
+   */
+  @Beta
+  @MiniGuavaSpecific
+  public static <E> ImmutableSet<E> unsafeWrap(E[] elements) {
+    return construct(elements.length, (Object[]) elements);
+  }
+
   @SuppressWarnings("rawtypes") // necessary to compile against Java 8
   private static ImmutableSet copyOfEnumSet(EnumSet enumSet) {
     return ImmutableEnumSet.asImmutable(EnumSet.copyOf(enumSet));
@@ -307,6 +464,22 @@ public abstract class ImmutableSet<E> extends ImmutableCollection<E> implements
       return asList().iterator();
     }
 
+    @Override
+    public void forEachElement(Consumer<? super E> action) {
+      checkNotNull(action);
+      for (int i = 0, n = size(); i < n; i++) {
+        action.accept(get(i));
+      }
+    }
+
+    @Override
+    int copyIntoArray(Object[] dst, int offset) {
+      for (int i = 0, n = size(); i < n; i++) {
+        dst[offset++] = get(i);
+      }
+      return offset;
+    }
+
     @Override
     ImmutableList<E> createAsList() {
       return new ImmutableAsList<E>() {
@@ -357,6 +530,32 @@ public abstract class ImmutableSet<E> extends ImmutableCollection<E> implements
     return new Builder<E>();
   }
 
+  /**
+   * Returns a new builder, expecting the specified number of elements to be added. The builder
+   * allocates room for {@code expectedSize} elements up front, so if exactly that many elements
+   * are added before {@link Builder#build} is called, it never copies them while growing.
+   *
+   * @throws IllegalArgumentException if {@code expectedSize} is negative
+   */
+  // miniguava: Backported from Guava 23.1.
+  @Beta
+  @MiniGuavaSpecific
+  public static <E> Builder<E> builderWithExpectedSize(int expectedSize) {
+    InternalUtils.checkNonnegative(expectedSize, "expectedSize");
+    return new Builder<E>(expectedSize);
+  }
+
+  /**
+   * Returns a new builder that many threads can add elements to at the same time, for example to
+   * collect the results of tasks running on an {@link ExecutorService}. See {@link
+   * ConcurrentBuilder}.
+   */
+  @Beta
+  @MiniGuavaSpecific
+  public static <E> ConcurrentBuilder<E> concurrentBuilder() {
+    return new ConcurrentBuilder<E>();
+  }
+
   /**
    * A builder for creating {@code ImmutableSet} instances. Example: <pre>   {@code
    *
@@ -373,6 +572,7 @@ public abstract class ImmutableSet<E> extends ImmutableCollection<E> implements
    */
   // miniguava: Added addAll(Collection) and removed addAll(Iterable) and addAll(Iterator).
   public static class Builder<E> extends ImmutableCollection.ArrayBasedBuilder<E> {
+    OptimizationGoal optimizationGoal = OptimizationGoal.BALANCED;
 
     /**
      * Creates a new builder. The returned builder is equivalent to the builder
@@ -431,17 +631,114 @@ public abstract class ImmutableSet<E> extends ImmutableCollection<E> implements
       return this;
     }
 
+    /**
+     * Configures this {@code Builder} to size the hash table of the built set for {@code goal}.
+     * The default is {@link OptimizationGoal#BALANCED}.
+     */
+    @Beta
+    @MiniGuavaSpecific
+    public Builder<E> optimizeFor(OptimizationGoal goal) {
+      this.optimizationGoal = checkNotNull(goal, "goal");
+      return this;
+    }
+
     /**
      * Returns a newly-created {@code ImmutableSet} based on the contents of
      * the {@code Builder}.
+     *
+     * <p>If exactly as many distinct elements were added as the builder has room for, the set
+     * takes over the builder's array instead of copying it. Elements added afterwards go into a
+     * new array.
      */
     @Override
     public ImmutableSet<E> build() {
-      ImmutableSet<E> result = construct(size, contents);
+      consolidate();
+      ImmutableSet<E> result =
+          construct(size, optimizationGoal.openAddressingLoadFactor, contents);
       // construct has the side effect of deduping contents, so we update size
       // accordingly.
       size = result.size();
       return result;
     }
+
+    /**
+     * Returns the same set as {@link #build()}, hashing the elements and removing duplicates on
+     * the threads of {@code executor}. See {@link ImmutableSet#copyOfParallel}.
+     */
+    @Beta
+    @MiniGuavaSpecific
+    public ImmutableSet<E> buildParallel(ExecutorService executor) {
+      checkNotNull(executor);
+      consolidate();
+      ImmutableSet<E> result = constructParallel(
+          size, contents, optimizationGoal.openAddressingLoadFactor, executor);
+      size = result.size();
+      return result;
+    }
+  }
+
+  /**
+   * A builder for creating immutable sets from many threads. Each thread adds to a buffer of its
+   * own, so threads adding at the same time never wait for each other. {@link #build} copies every
+   * buffer once into an array, and removes duplicates while building the hash table, just like
+   * {@link Builder#build}. The set iterates over the elements of one thread in the order that
+   * thread first added them, after those of the threads that added an element before it.
+   *
+   * <p>{@link #build} must not run at the same time as any {@code add}, and only includes the
+   * elements whose adding <i>happens-before</i> it, for example because their thread was joined
+   * or their task's {@link java.util.concurrent.Future} was waited for. Builder instances can be
+   * reused; each new set contains all the elements of the ones created before it.
+   *
+   * <p>The buffers are referenced only by the builder, so they can be garbage collected as soon as
+   * the builder can, even if the threads that added to it keep running.
+   */
+  @Beta
+  @MiniGuavaSpecific
+  public static final class ConcurrentBuilder<E>
+      extends ImmutableCollection.ConcurrentArrayBasedBuilder<E> {
+    ConcurrentBuilder() {}
+
+    /**
+     * Adds {@code element} to the {@code ImmutableSet}. Duplicates are kept until {@link #build}.
+     *
+     * @throws NullPointerException if {@code element} is null
+     */
+    @Override
+    public ConcurrentBuilder<E> add(E element) {
+      super.add(element);
+      return this;
+    }
+
+    /**
+     * Adds each element of {@code elements} to the {@code ImmutableSet}.
+     *
+     * @throws NullPointerException if {@code elements} is null or contains a null element
+     */
+    @Override
+    public ConcurrentBuilder<E> add(E... elements) {
+      super.add(elements);
+      return this;
+    }
+
+    /**
+     * Adds each element of {@code elements} to the {@code ImmutableSet}.
+     *
+     * @throws NullPointerException if {@code elements} is null or contains a null element
+     */
+    @Override
+    public ConcurrentBuilder<E> addAll(Collection<? extends E> elements) {
+      super.addAll(elements);
+      return this;
+    }
+
+    /**
+     * Returns a newly-created {@code ImmutableSet} holding the distinct elements added by every
+     * thread.
+     */
+    @Override
+    public ImmutableSet<E> build() {
+      Object[] elements = mergeBuffers();
+      return construct(elements.length, elements);
+    }
   }
 }
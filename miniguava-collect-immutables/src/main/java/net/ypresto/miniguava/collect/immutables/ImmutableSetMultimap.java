@@ -0,0 +1,256 @@
+/*
+ * Copyright (C) 2016 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ypresto.miniguava.collect.immutables;
+
+import net.ypresto.miniguava.annotations.Beta;
+import net.ypresto.miniguava.annotations.MiniGuavaSpecific;
+
+import java.util.Map;
+import java.util.Map.Entry;
+
+import javax.annotation.Nullable;
+
+/**
+ * An immutable multimap that associates each key with a set of distinct values, in the order they
+ * were first added. Pairs equal to one added earlier are ignored. {@link #get} returns an {@link
+ * ImmutableSet} view of the key's range of the value array; its {@code contains} uses a hash
+ * index over all key-value pairs, so {@link #containsEntry} takes constant time as well.
+ */
+// miniguava: Reimplemented on flat arrays; Guava's multimaps were removed earlier.
+@Beta
+@MiniGuavaSpecific
+public final class ImmutableSetMultimap<K, V> extends ImmutableMultimap<K, V> {
+  private static final ImmutableSetMultimap<Object, Object> EMPTY =
+      new ImmutableSetMultimap<Object, Object>(
+          0, ObjectArrays.EMPTY_ARRAY, ObjectArrays.EMPTY_ARRAY);
+
+  /** Returns the empty multimap. */
+  @SuppressWarnings("unchecked") // fully variant implementation (never actually produces any Vs)
+  public static <K, V> ImmutableSetMultimap<K, V> of() {
+    return (ImmutableSetMultimap<K, V>) EMPTY;
+  }
+
+  /** Returns an immutable multimap containing a single entry. */
+  public static <K, V> ImmutableSetMultimap<K, V> of(K k1, V v1) {
+    return new Builder<K, V>(1).put(k1, v1).build();
+  }
+
+  /**
+   * Returns an immutable multimap containing the given entries, in order. Repeated occurrences of
+   * an entry are ignored.
+   */
+  public static <K, V> ImmutableSetMultimap<K, V> of(K k1, V v1, K k2, V v2) {
+    return new Builder<K, V>(2).put(k1, v1).put(k2, v2).build();
+  }
+
+  /**
+   * Returns an immutable multimap containing the given entries, in order. Repeated occurrences of
+   * an entry are ignored.
+   */
+  public static <K, V> ImmutableSetMultimap<K, V> of(K k1, V v1, K k2, V v2, K k3, V v3) {
+    return new Builder<K, V>(3).put(k1, v1).put(k2, v2).put(k3, v3).build();
+  }
+
+  /**
+   * Returns an immutable multimap containing the same entries as {@code multimap}, without
+   * repeated entries. If it already is an {@code ImmutableSetMultimap}, it is returned without
+   * copying.
+   */
+  public static <K, V> ImmutableSetMultimap<K, V> copyOf(
+      ImmutableMultimap<? extends K, ? extends V> multimap) {
+    if (multimap instanceof ImmutableSetMultimap) {
+      @SuppressWarnings("unchecked") // safe since multimap is not writable
+      ImmutableSetMultimap<K, V> kvMultimap = (ImmutableSetMultimap<K, V>) multimap;
+      return kvMultimap;
+    }
+    return new Builder<K, V>(multimap.size()).putAll(multimap).build();
+  }
+
+  /**
+   * Returns an immutable multimap associating each key of {@code map} with the values it is
+   * mapped to, for example to convert an {@code ImmutableMap<K, ImmutableSet<V>>}. Keys mapped to
+   * empty collections are left out.
+   *
+   * @throws NullPointerException if any key, collection or value in {@code map} is null
+   */
+  public static <K, V> ImmutableSetMultimap<K, V> copyOf(
+      Map<? extends K, ? extends Iterable<? extends V>> map) {
+    return new Builder<K, V>().putAll(map).build();
+  }
+
+  /** Returns a new builder. */
+  public static <K, V> Builder<K, V> builder() {
+    return new Builder<K, V>();
+  }
+
+  /**
+   * Returns a new builder, expecting the specified number of key-value pairs to be added.
+   *
+   * @throws IllegalArgumentException if {@code expectedSize} is negative
+   */
+  public static <K, V> Builder<K, V> builderWithExpectedSize(int expectedSize) {
+    InternalUtils.checkNonnegative(expectedSize, "expectedSize");
+    return new Builder<K, V>(expectedSize);
+  }
+
+  /**
+   * A builder for {@link ImmutableSetMultimap} instances. Builder instances can be reused; each
+   * built multimap contains the pairs added before it was built. Repeated pairs are ignored.
+   */
+  public static final class Builder<K, V> extends ImmutableMultimap.Builder<K, V> {
+    /** Creates a new builder, equivalent to {@link ImmutableSetMultimap#builder}. */
+    public Builder() {
+      this(ImmutableCollection.Builder.DEFAULT_INITIAL_CAPACITY);
+    }
+
+    Builder(int initialCapacity) {
+      super(initialCapacity);
+    }
+
+    @Override
+    public Builder<K, V> put(K key, V value) {
+      super.put(key, value);
+      return this;
+    }
+
+    @Override
+    public Builder<K, V> put(Entry<? extends K, ? extends V> entry) {
+      super.put(entry);
+      return this;
+    }
+
+    @Override
+    public Builder<K, V> putAll(K key, Iterable<? extends V> values) {
+      super.putAll(key, values);
+      return this;
+    }
+
+    @Override
+    public Builder<K, V> putAll(K key, V... values) {
+      super.putAll(key, values);
+      return this;
+    }
+
+    @Override
+    public Builder<K, V> putAll(ImmutableMultimap<? extends K, ? extends V> multimap) {
+      super.putAll(multimap);
+      return this;
+    }
+
+    @Override
+    public Builder<K, V> putAll(Map<? extends K, ? extends Iterable<? extends V>> map) {
+      super.putAll(map);
+      return this;
+    }
+
+    /** Returns a newly-created immutable set multimap. */
+    @Override
+    public ImmutableSetMultimap<K, V> build() {
+      return (size == 0) ? ImmutableSetMultimap.<K, V>of()
+          : new ImmutableSetMultimap<K, V>(size, keys, values);
+    }
+  }
+
+  private ImmutableSetMultimap(int n, Object[] entryKeys, Object[] entryValues) {
+    super(n, entryKeys, entryValues, true);
+  }
+
+  @Override
+  ImmutableSet<V> valuesOfKeyAt(int keyIndex) {
+    return new ValueSet(keyIndex);
+  }
+
+  /**
+   * Returns the values associated with {@code key} in the order they were first added, or an
+   * empty set if there are none. The returned set is a view of this multimap's storage, created
+   * in constant time.
+   */
+  @Override
+  public ImmutableSet<V> get(@Nullable K key) {
+    int keyIndex = indexOfKey(key);
+    return (keyIndex < 0) ? ImmutableSet.<V>of() : valuesOfKeyAt(keyIndex);
+  }
+
+  @Override
+  public boolean containsEntry(@Nullable Object key, @Nullable Object value) {
+    int keyIndex = indexOfKey(key);
+    return keyIndex >= 0 && indexOfEntry(keyIndex, value) >= 0;
+  }
+
+  @Override
+  public ImmutableMap<K, ImmutableSet<V>> asMap() {
+    return isEmpty()
+        ? ImmutableMap.<K, ImmutableSet<V>>of()
+        : new AsMap<K, ImmutableSet<V>>(this);
+  }
+
+  @SuppressWarnings("serial") // uses writeReplace(), not default serialization
+  private final class ValueSet extends ImmutableSet.Indexed<V> {
+    private final int keyIndex;
+
+    ValueSet(int keyIndex) {
+      this.keyIndex = keyIndex;
+    }
+
+    @Override
+    public int size() {
+      return offsets[keyIndex + 1] - offsets[keyIndex];
+    }
+
+    @SuppressWarnings("unchecked") // only Vs are stored
+    @Override
+    V get(int index) {
+      return (V) values[offsets[keyIndex] + index];
+    }
+
+    @Override
+    public boolean contains(@Nullable Object object) {
+      return indexOfEntry(keyIndex, object) >= 0;
+    }
+
+    @Override
+    int copyIntoArray(Object[] dst, int offset) {
+      int size = size();
+      System.arraycopy(values, offsets[keyIndex], dst, offset, size);
+      return offset + size;
+    }
+
+    @Override
+    boolean isPartialView() {
+      return true;
+    }
+  }
+
+  @Override
+  Object writeReplace() {
+    return new SerializedForm(this);
+  }
+
+  private static class SerializedForm extends ImmutableMultimap.SerializedForm {
+    SerializedForm(ImmutableSetMultimap<?, ?> multimap) {
+      super(multimap);
+    }
+
+    Object readResolve() {
+      return createMultimap(new Builder<Object, Object>());
+    }
+
+    private static final long serialVersionUID = 0;
+  }
+
+  private static final long serialVersionUID = 0;
+}
@@ -0,0 +1,778 @@
+/*
+ * Copyright (C) 2016 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ypresto.miniguava.collect.immutables;
+
+import static net.ypresto.miniguava.base.Preconditions.checkArgument;
+import static net.ypresto.miniguava.base.Preconditions.checkNotNull;
+import static net.ypresto.miniguava.collect.immutables.InternalUtils.checkEntryNotNull;
+
+import net.ypresto.miniguava.annotations.Beta;
+import net.ypresto.miniguava.annotations.MiniGuavaSpecific;
+import net.ypresto.miniguava.base.BiConsumer;
+import net.ypresto.miniguava.collect.UnmodifiableIterator;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.SortedMap;
+import java.util.concurrent.ExecutorService;
+
+import javax.annotation.Nullable;
+
+/**
+ * A {@link NavigableMap} whose contents will never change, with many other important properties
+ * detailed at {@link ImmutableCollection}. The keys are stored in an {@link ImmutableSortedSet}
+ * and the values in a parallel array, so lookups and navigation methods are searches of the
+ * sorted keys, and {@link #headMap}, {@link #tailMap} and {@link #subMap} return views sharing
+ * the arrays in constant time.
+ *
+ * <p>For read-heavy maps of millions of entries, {@link #eytzingerIndexed} returns an equal map
+ * whose searches use a cache-friendlier layout.
+ *
+ * <p><b>Warning:</b> as with any sorted collection, you are strongly advised not to use mutable
+ * objects as keys, at least not in any way that affects their ordering.
+ *
+ * <p>Like {@link ImmutableSortedSet}, {@link #descendingMap} makes a reversed copy rather than a
+ * view.
+ */
+// miniguava: Reimplemented on sorted arrays; Guava's ImmutableSortedMap was removed earlier.
+@Beta
+@MiniGuavaSpecific
+@SuppressWarnings("serial") // uses writeReplace(), not default serialization
+public final class ImmutableSortedMap<K, V> extends ImmutableMap<K, V>
+    implements NavigableMap<K, V> {
+  @SuppressWarnings("rawtypes") // the natural ordering comparator
+  private static final ImmutableSortedMap<Comparable, Object> NATURAL_EMPTY_MAP =
+      new ImmutableSortedMap<Comparable, Object>(
+          ImmutableSortedSet.<Comparable>of(), ImmutableList.<Object>of());
+
+  static <K, V> ImmutableSortedMap<K, V> emptyMap(Comparator<? super K> comparator) {
+    if (ImmutableSortedSet.naturalOrdering().equals(comparator)) {
+      return of();
+    }
+    return new ImmutableSortedMap<K, V>(
+        ImmutableSortedSet.emptySet(comparator), ImmutableList.<V>of());
+  }
+
+  /** Returns the empty sorted map, ordered by the keys' natural ordering. */
+  @SuppressWarnings("unchecked")
+  public static <K, V> ImmutableSortedMap<K, V> of() {
+    return (ImmutableSortedMap<K, V>) (ImmutableSortedMap<?, ?>) NATURAL_EMPTY_MAP;
+  }
+
+  /** Returns an immutable map containing a single entry. */
+  public static <K extends Comparable<? super K>, V> ImmutableSortedMap<K, V> of(K k1, V v1) {
+    return new Builder<K, V>(ImmutableSortedSet.<K>naturalOrdering())
+        .put(k1, v1)
+        .build();
+  }
+
+  /**
+   * Returns an immutable sorted map containing the given entries, sorted by the natural ordering
+   * of their keys.
+   *
+   * @throws IllegalArgumentException if the two keys are equal according to their natural
+   *     ordering
+   */
+  public static <K extends Comparable<? super K>, V> ImmutableSortedMap<K, V> of(
+      K k1, V v1, K k2, V v2) {
+    return new Builder<K, V>(ImmutableSortedSet.<K>naturalOrdering())
+        .put(k1, v1)
+        .put(k2, v2)
+        .build();
+  }
+
+  /**
+   * Returns an immutable sorted map containing the given entries, sorted by the natural ordering
+   * of their keys.
+   *
+   * @throws IllegalArgumentException if any two keys are equal according to their natural
+   *     ordering
+   */
+  public static <K extends Comparable<? super K>, V> ImmutableSortedMap<K, V> of(
+      K k1, V v1, K k2, V v2, K k3, V v3) {
+    return new Builder<K, V>(ImmutableSortedSet.<K>naturalOrdering())
+        .put(k1, v1)
+        .put(k2, v2)
+        .put(k3, v3)
+        .build();
+  }
+
+  /**
+   * Returns an immutable sorted map containing the given entries, sorted by the natural ordering
+   * of their keys.
+   *
+   * @throws IllegalArgumentException if any two keys are equal according to their natural
+   *     ordering
+   */
+  public static <K extends Comparable<? super K>, V> ImmutableSortedMap<K, V> of(
+      K k1, V v1, K k2, V v2, K k3, V v3, K k4, V v4) {
+    return new Builder<K, V>(ImmutableSortedSet.<K>naturalOrdering())
+        .put(k1, v1)
+        .put(k2, v2)
+        .put(k3, v3)
+        .put(k4, v4)
+        .build();
+  }
+
+  /**
+   * Returns an immutable sorted map containing the given entries, sorted by the natural ordering
+   * of their keys.
+   *
+   * @throws IllegalArgumentException if any two keys are equal according to their natural
+   *     ordering
+   */
+  public static <K extends Comparable<? super K>, V> ImmutableSortedMap<K, V> of(
+      K k1, V v1, K k2, V v2, K k3, V v3, K k4, V v4, K k5, V v5) {
+    return new Builder<K, V>(ImmutableSortedSet.<K>naturalOrdering())
+        .put(k1, v1)
+        .put(k2, v2)
+        .put(k3, v3)
+        .put(k4, v4)
+        .put(k5, v5)
+        .build();
+  }
+
+  /**
+   * Returns an immutable map containing the same entries as {@code map}, sorted by the natural
+   * ordering of the keys. To keep the comparator of a {@code SortedMap}, call {@link
+   * #copyOfSorted} instead.
+   *
+   * @throws ClassCastException if the keys in {@code map} are not mutually comparable
+   * @throws NullPointerException if any key or value in {@code map} is null
+   * @throws IllegalArgumentException if any two keys are equal according to their natural
+   *     ordering
+   */
+  public static <K, V> ImmutableSortedMap<K, V> copyOf(Map<? extends K, ? extends V> map) {
+    return copyOf(map, ImmutableSortedSet.<K>naturalOrdering());
+  }
+
+  /**
+   * Returns an immutable map containing the same entries as {@code map}, with keys sorted by the
+   * provided comparator.
+   *
+   * @throws NullPointerException if any key or value in {@code map} is null
+   * @throws IllegalArgumentException if any two keys are equal according to the comparator
+   */
+  public static <K, V> ImmutableSortedMap<K, V> copyOf(
+      Map<? extends K, ? extends V> map, Comparator<? super K> comparator) {
+    checkNotNull(comparator);
+    if (map instanceof ImmutableSortedMap
+        && comparator.equals(((ImmutableSortedMap<?, ?>) map).comparator())) {
+      @SuppressWarnings("unchecked") // safe since map is not writable
+      ImmutableSortedMap<K, V> kvMap = (ImmutableSortedMap<K, V>) map;
+      if (!kvMap.isPartialView()) {
+        return kvMap;
+      }
+    }
+    return new Builder<K, V>(comparator, map.size()).putAll(map).build();
+  }
+
+  /**
+   * Returns an immutable map containing the given entries, with keys sorted by their natural
+   * ordering.
+   *
+   * @throws ClassCastException if the keys are not mutually comparable
+   * @throws NullPointerException if any key, value, or entry is null
+   * @throws IllegalArgumentException if any two keys are equal according to their natural
+   *     ordering
+   */
+  public static <K, V> ImmutableSortedMap<K, V> copyOf(
+      Collection<? extends Entry<? extends K, ? extends V>> entries) {
+    return new Builder<K, V>(ImmutableSortedSet.<K>naturalOrdering(), entries.size())
+        .putAll(entries)
+        .build();
+  }
+
+  /**
+   * Returns an immutable map containing the same entries as the provided sorted map, with the
+   * same ordering.
+   *
+   * @throws NullPointerException if any key or value in {@code map} is null
+   */
+  public static <K, V> ImmutableSortedMap<K, V> copyOfSorted(SortedMap<K, ? extends V> map) {
+    Comparator<? super K> comparator = map.comparator();
+    if (comparator == null) {
+      comparator = ImmutableSortedSet.<K>naturalOrdering();
+    }
+    return copyOf(map, comparator);
+  }
+
+  /**
+   * Returns a builder that creates immutable sorted maps whose keys are ordered by their natural
+   * ordering. The sorted maps use {@link Comparable#compareTo} to order keys, not {@link
+   * Object#equals}.
+   */
+  public static <K extends Comparable<?>, V> Builder<K, V> naturalOrder() {
+    return new Builder<K, V>(ImmutableSortedSet.<K>naturalOrdering());
+  }
+
+  /**
+   * Returns a builder that creates immutable sorted maps with an explicit comparator. If the
+   * comparator has a more general type than the map's keys, such as creating a {@code
+   * SortedMap<Integer, String>} with a {@code Comparator<Number>}, use the {@link Builder}
+   * constructor instead.
+   *
+   * @throws NullPointerException if {@code comparator} is null
+   */
+  public static <K, V> Builder<K, V> orderedBy(Comparator<K> comparator) {
+    return new Builder<K, V>(comparator);
+  }
+
+  /**
+   * Not supported. Use {@link #naturalOrder}, which offers better type-safety, or
+   * {@link #orderedBy}, instead. This method exists only to hide {@link ImmutableMap#builder}
+   * from consumers of {@code ImmutableSortedMap}.
+   *
+   * @throws UnsupportedOperationException always
+   * @deprecated Use {@link ImmutableSortedMap#naturalOrder}, which offers better type-safety.
+   */
+  @Deprecated
+  public static <K, V> ImmutableSortedMap.Builder<K, V> builder() {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Not supported. This method exists only to hide
+   * {@link ImmutableMap#builderWithExpectedSize} from consumers of {@code ImmutableSortedMap}.
+   *
+   * @throws UnsupportedOperationException always
+   * @deprecated Not supported by {@code ImmutableSortedMap}.
+   */
+  @Deprecated
+  public static <K, V> ImmutableSortedMap.Builder<K, V> builderWithExpectedSize(int expectedSize) {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Not supported. Use {@link Builder#buildParallel} instead. This method exists only to hide
+   * {@link ImmutableMap#copyOfParallel} from consumers of {@code ImmutableSortedMap}.
+   *
+   * @throws UnsupportedOperationException always
+   * @deprecated Use {@link Builder#buildParallel}.
+   */
+  @Beta
+  @MiniGuavaSpecific
+  @Deprecated
+  public static <K, V> ImmutableSortedMap<K, V> copyOfParallel(
+      Map<? extends K, ? extends V> map, ExecutorService executor) {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * A builder for creating immutable sorted map instances, especially {@code public static final}
+   * maps ("constant maps"). Example: <pre>   {@code
+   *
+   *   static final ImmutableSortedMap<Integer, String> INT_TO_WORD =
+   *       new ImmutableSortedMap.Builder<Integer, String>(Ordering.natural())
+   *           .put(1, "one")
+   *           .put(2, "two")
+   *           .put(3, "three")
+   *           .build();}</pre>
+   *
+   * <p>Builder instances can be reused; it is safe to call {@link #build} multiple times to build
+   * multiple maps in series. Each map is a superset of the maps created before it.
+   */
+  public static final class Builder<K, V> extends ImmutableMap.Builder<K, V> {
+    private final Comparator<? super K> comparator;
+
+    /**
+     * Creates a new builder. The returned builder is equivalent to the builder generated by
+     * {@link ImmutableSortedMap#orderedBy}.
+     */
+    public Builder(Comparator<? super K> comparator) {
+      this(comparator, ImmutableCollection.Builder.DEFAULT_INITIAL_CAPACITY);
+    }
+
+    Builder(Comparator<? super K> comparator, int initialCapacity) {
+      super(initialCapacity);
+      this.comparator = checkNotNull(comparator);
+    }
+
+    /**
+     * Associates {@code key} with {@code value} in the built map. Duplicate keys, according to
+     * the comparator (which might be the keys' natural order), are not allowed, and will cause
+     * {@link #build} to fail.
+     */
+    @Override
+    public Builder<K, V> put(K key, V value) {
+      super.put(key, value);
+      return this;
+    }
+
+    /**
+     * Adds the given {@code entry} to the map, making it immutable if necessary. Duplicate keys,
+     * according to the comparator (which might be the keys' natural order), are not allowed, and
+     * will cause {@link #build} to fail.
+     */
+    @Override
+    public Builder<K, V> put(Map.Entry<? extends K, ? extends V> entry) {
+      super.put(entry);
+      return this;
+    }
+
+    /**
+     * Associates all of the given map's keys and values in the built map. Duplicate keys,
+     * according to the comparator (which might be the keys' natural order), are not allowed, and
+     * will cause {@link #build} to fail.
+     *
+     * @throws NullPointerException if any key or value in {@code map} is null
+     */
+    @Override
+    public Builder<K, V> putAll(Map<? extends K, ? extends V> map) {
+      super.putAll(map);
+      return this;
+    }
+
+    /**
+     * Adds all the given entries to the built map. Duplicate keys, according to the comparator
+     * (which might be the keys' natural order), are not allowed, and will cause {@link #build} to
+     * fail.
+     *
+     * @throws NullPointerException if any key, value, or entry is null
+     */
+    @Override
+    public Builder<K, V> putAll(Iterable<? extends Map.Entry<? extends K, ? extends V>> entries) {
+      super.putAll(entries);
+      return this;
+    }
+
+    /**
+     * Throws an {@code UnsupportedOperationException}.
+     *
+     * @deprecated Unsupported by ImmutableSortedMap.Builder.
+     */
+    @Deprecated
+    @Override
+    public Builder<K, V> orderEntriesByValue(Comparator<? super V> valueComparator) {
+      throw new UnsupportedOperationException("Not available on ImmutableSortedMap.Builder");
+    }
+
+    /**
+     * Has no effect, since sorted maps find their keys by binary search instead of hashing.
+     */
+    @Beta
+    @MiniGuavaSpecific
+    @Override
+    public Builder<K, V> optimizeFor(OptimizationGoal goal) {
+      super.optimizeFor(goal);
+      return this;
+    }
+
+    /**
+     * Returns a newly-created immutable sorted map.
+     *
+     * @throws IllegalArgumentException if any two keys are equal according to the comparator
+     *     (which might be the keys' natural order)
+     */
+    @Override
+    public ImmutableSortedMap<K, V> build() {
+      return fromEntries(comparator, size, entries);
+    }
+
+    /**
+     * Same as {@link #build()}. Sorting is not parallelized, so {@code executor} is not used.
+     *
+     * @throws IllegalArgumentException if any two keys are equal according to the comparator
+     */
+    @Override
+    public ImmutableSortedMap<K, V> buildParallel(ExecutorService executor) {
+      checkNotNull(executor);
+      return build();
+    }
+  }
+
+  private static <K, V> ImmutableSortedMap<K, V> fromEntries(
+      final Comparator<? super K> comparator, int size, Map.Entry<K, V>[] entries) {
+    if (size == 0) {
+      return emptyMap(comparator);
+    }
+    // copy, since the builder may be reused; the sort is stable, so duplicates are reported in
+    // the order they were added
+    Map.Entry<K, V>[] sorted = ObjectArrays.arraysCopyOf(entries, size);
+    Arrays.sort(sorted, new Comparator<Map.Entry<K, V>>() {
+      @Override
+      public int compare(Map.Entry<K, V> e1, Map.Entry<K, V> e2) {
+        return comparator.compare(e1.getKey(), e2.getKey());
+      }
+    });
+    Object[] keys = new Object[size];
+    Object[] values = new Object[size];
+    for (int i = 0; i < size; i++) {
+      Map.Entry<K, V> entry = sorted[i];
+      K key = entry.getKey();
+      V value = entry.getValue();
+      checkEntryNotNull(key, value);
+      if (i > 0) {
+        checkNoConflict(
+            comparator.compare(sorted[i - 1].getKey(), key) != 0, "key", sorted[i - 1], entry);
+      }
+      keys[i] = key;
+      values[i] = value;
+    }
+    return new ImmutableSortedMap<K, V>(
+        new ImmutableSortedSet<K>(comparator, keys, 0, size, null),
+        new RegularImmutableList<V>(values));
+  }
+
+  private final transient ImmutableSortedSet<K> keySet;
+  private final transient ImmutableList<V> valueList;
+
+  private ImmutableSortedMap(ImmutableSortedSet<K> keySet, ImmutableList<V> valueList) {
+    this.keySet = keySet;
+    this.valueList = valueList;
+  }
+
+  @Override
+  public int size() {
+    return valueList.size();
+  }
+
+  @Override
+  public V get(@Nullable Object key) {
+    int index = keySet.indexOf(key);
+    return (index == -1) ? null : valueList.get(index);
+  }
+
+  @Override
+  boolean isPartialView() {
+    return keySet.isPartialView() || valueList.isPartialView();
+  }
+
+  @Override
+  ImmutableSet<Entry<K, V>> createEntrySet() {
+    class EntrySet extends ImmutableMapEntrySet<K, V> {
+      @Override
+      ImmutableMap<K, V> map() {
+        return ImmutableSortedMap.this;
+      }
+
+      @Override
+      public UnmodifiableIterator<Entry<K, V>> iterator() {
+        return asList().iterator();
+      }
+
+      @Override
+      ImmutableList<Entry<K, V>> createAsList() {
+        return new ImmutableAsList<Entry<K, V>>() {
+          @Override
+          public Entry<K, V> get(int index) {
+            return entryAt(index);
+          }
+
+          @Override
+          ImmutableCollection<Entry<K, V>> delegateCollection() {
+            return EntrySet.this;
+          }
+        };
+      }
+    }
+    return isEmpty() ? ImmutableSet.<Entry<K, V>>of() : new EntrySet();
+  }
+
+  private Entry<K, V> entryAt(int index) {
+    return entryOf(keySet.get(index), valueList.get(index));
+  }
+
+  @Nullable
+  private Entry<K, V> entryAtOrNull(int index) {
+    return (index >= 0 && index < size()) ? entryAt(index) : null;
+  }
+
+  @Nullable
+  private K keyAtOrNull(int index) {
+    return (index >= 0 && index < size()) ? keySet.get(index) : null;
+  }
+
+  /**
+   * Returns an immutable sorted set of the keys in this map.
+   */
+  @Override
+  public ImmutableSortedSet<K> keySet() {
+    return keySet;
+  }
+
+  /**
+   * Returns an immutable collection of the values in this map, sorted by the ordering of the
+   * corresponding keys.
+   */
+  @Override
+  public ImmutableCollection<V> values() {
+    return valueList;
+  }
+
+  @Override
+  UnmodifiableIterator<V> valueIterator() {
+    return valueList.iterator();
+  }
+
+  @Override
+  public void forEachEntry(BiConsumer<? super K, ? super V> action) {
+    checkNotNull(action);
+    for (int i = 0, n = keySet.size(); i < n; i++) {
+      action.accept(keySet.get(i), valueList.get(i));
+    }
+  }
+
+  /**
+   * Returns the comparator that orders the keys, which is a natural ordering comparator when
+   * natural ordering is used. Note that its behavior is not consistent with {@link
+   * SortedMap#comparator()}, which returns {@code null} to indicate natural ordering.
+   */
+  @Override
+  public Comparator<? super K> comparator() {
+    return keySet.comparator();
+  }
+
+  @Override
+  public K firstKey() {
+    return keySet.first();
+  }
+
+  @Override
+  public K lastKey() {
+    return keySet.last();
+  }
+
+  @Override
+  @Nullable
+  public Entry<K, V> firstEntry() {
+    return isEmpty() ? null : entryAt(0);
+  }
+
+  @Override
+  @Nullable
+  public Entry<K, V> lastEntry() {
+    return isEmpty() ? null : entryAt(size() - 1);
+  }
+
+  @Override
+  @Nullable
+  public Entry<K, V> lowerEntry(K key) {
+    return entryAtOrNull(keySet.ceilingIndex(checkNotNull(key), true) - 1);
+  }
+
+  @Override
+  @Nullable
+  public K lowerKey(K key) {
+    return keyAtOrNull(keySet.ceilingIndex(checkNotNull(key), true) - 1);
+  }
+
+  @Override
+  @Nullable
+  public Entry<K, V> floorEntry(K key) {
+    return entryAtOrNull(keySet.ceilingIndex(checkNotNull(key), false) - 1);
+  }
+
+  @Override
+  @Nullable
+  public K floorKey(K key) {
+    return keyAtOrNull(keySet.ceilingIndex(checkNotNull(key), false) - 1);
+  }
+
+  @Override
+  @Nullable
+  public Entry<K, V> ceilingEntry(K key) {
+    return entryAtOrNull(keySet.ceilingIndex(checkNotNull(key), true));
+  }
+
+  @Override
+  @Nullable
+  public K ceilingKey(K key) {
+    return keyAtOrNull(keySet.ceilingIndex(checkNotNull(key), true));
+  }
+
+  @Override
+  @Nullable
+  public Entry<K, V> higherEntry(K key) {
+    return entryAtOrNull(keySet.ceilingIndex(checkNotNull(key), false));
+  }
+
+  @Override
+  @Nullable
+  public K higherKey(K key) {
+    return keyAtOrNull(keySet.ceilingIndex(checkNotNull(key), false));
+  }
+
+  /**
+   * Guaranteed to throw an exception and leave the map unmodified.
+   *
+   * @throws UnsupportedOperationException always
+   * @deprecated Unsupported operation.
+   */
+  @Deprecated
+  @Override
+  public final Entry<K, V> pollFirstEntry() {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Guaranteed to throw an exception and leave the map unmodified.
+   *
+   * @throws UnsupportedOperationException always
+   * @deprecated Unsupported operation.
+   */
+  @Deprecated
+  @Override
+  public final Entry<K, V> pollLastEntry() {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * This method returns a {@code ImmutableSortedMap}, consisting of the entries whose keys are
+   * less than {@code toKey}. The view shares the arrays of this map.
+   */
+  @Override
+  public ImmutableSortedMap<K, V> headMap(K toKey) {
+    return headMap(toKey, false);
+  }
+
+  @Override
+  public ImmutableSortedMap<K, V> headMap(K toKey, boolean inclusive) {
+    return getSubMap(0, keySet.ceilingIndex(checkNotNull(toKey), !inclusive));
+  }
+
+  /**
+   * This method returns a {@code ImmutableSortedMap}, consisting of the entries whose keys range
+   * from {@code fromKey}, inclusive, to {@code toKey}, exclusive. The view shares the arrays of
+   * this map.
+   *
+   * @throws IllegalArgumentException if {@code fromKey} is greater than {@code toKey}
+   */
+  @Override
+  public ImmutableSortedMap<K, V> subMap(K fromKey, K toKey) {
+    return subMap(fromKey, true, toKey, false);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @throws IllegalArgumentException if {@code fromKey} is greater than {@code toKey}
+   */
+  @Override
+  public ImmutableSortedMap<K, V> subMap(
+      K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+    checkNotNull(fromKey);
+    checkNotNull(toKey);
+    checkArgument(
+        comparator().compare(fromKey, toKey) <= 0,
+        "expected fromKey <= toKey but %s > %s",
+        fromKey,
+        toKey);
+    int from = keySet.ceilingIndex(fromKey, fromInclusive);
+    int to = keySet.ceilingIndex(toKey, !toInclusive);
+    return getSubMap(from, Math.max(from, to));
+  }
+
+  /**
+   * This method returns a {@code ImmutableSortedMap}, consisting of the entries whose keys are
+   * greater than or equals to {@code fromKey}. The view shares the arrays of this map.
+   */
+  @Override
+  public ImmutableSortedMap<K, V> tailMap(K fromKey) {
+    return tailMap(fromKey, true);
+  }
+
+  @Override
+  public ImmutableSortedMap<K, V> tailMap(K fromKey, boolean inclusive) {
+    return getSubMap(keySet.ceilingIndex(checkNotNull(fromKey), inclusive), size());
+  }
+
+  private ImmutableSortedMap<K, V> getSubMap(int fromIndex, int toIndex) {
+    if (fromIndex == 0 && toIndex == size()) {
+      return this;
+    } else if (fromIndex == toIndex) {
+      return emptyMap(comparator());
+    } else {
+      return new ImmutableSortedMap<K, V>(
+          keySet.subSetByIndex(fromIndex, toIndex), valueList.subList(fromIndex, toIndex));
+    }
+  }
+
+  @Override
+  public ImmutableSortedSet<K> navigableKeySet() {
+    return keySet;
+  }
+
+  @Override
+  public ImmutableSortedSet<K> descendingKeySet() {
+    return keySet.descendingSet();
+  }
+
+  /**
+   * Returns a map equal to this one, in reverse order. Unlike the maps returned by
+   * {@code subMap}, the returned map is a reversed copy, not a view.
+   */
+  @Override
+  public ImmutableSortedMap<K, V> descendingMap() {
+    if (isEmpty()) {
+      return emptyMap(Collections.reverseOrder(comparator()));
+    }
+    return new ImmutableSortedMap<K, V>(keySet.descendingSet(), valueList.reverse());
+  }
+
+  /**
+   * Returns a map equal to this one whose searches use an Eytzinger-ordered index of the keys.
+   * See {@link ImmutableSortedSet#eytzingerIndexed}.
+   */
+  public ImmutableSortedMap<K, V> eytzingerIndexed() {
+    return withKeySet(keySet.eytzingerIndexed());
+  }
+
+  /** Returns {@link #eytzingerIndexed}, regardless of size. */
+  ImmutableSortedMap<K, V> withEytzingerIndex() {
+    return withKeySet(keySet.withEytzingerIndex());
+  }
+
+  private ImmutableSortedMap<K, V> withKeySet(ImmutableSortedSet<K> indexedKeySet) {
+    if (indexedKeySet == keySet) {
+      return this;
+    }
+    return new ImmutableSortedMap<K, V>(indexedKeySet, valueList);
+  }
+
+  /**
+   * Serialized type for all ImmutableSortedMap instances. It captures the logical contents and
+   * they are reconstructed using public factory methods. This ensures that the implementation
+   * types remain as implementation details.
+   */
+  private static class SerializedForm extends ImmutableMap.SerializedForm {
+    private final Comparator<Object> comparator;
+
+    @SuppressWarnings("unchecked")
+    SerializedForm(ImmutableSortedMap<?, ?> sortedMap) {
+      super(sortedMap);
+      comparator = (Comparator<Object>) sortedMap.comparator();
+    }
+
+    @Override
+    Object readResolve() {
+      Builder<Object, Object> builder = new Builder<Object, Object>(comparator);
+      return createMap(builder);
+    }
+
+    private static final long serialVersionUID = 0;
+  }
+
+  @Override
+  Object writeReplace() {
+    return new SerializedForm(this);
+  }
+}
@@ -0,0 +1,908 @@
+/*
+ * Copyright (C) 2016 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ypresto.miniguava.collect.immutables;
+
+import static net.ypresto.miniguava.base.Preconditions.checkArgument;
+import static net.ypresto.miniguava.base.Preconditions.checkNotNull;
+
+import net.ypresto.miniguava.annotations.Beta;
+import net.ypresto.miniguava.annotations.MiniGuavaSpecific;
+import net.ypresto.miniguava.base.Consumer;
+import net.ypresto.miniguava.collect.UnmodifiableIterator;
+
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.concurrent.ExecutorService;
+
+import javax.annotation.Nullable;
+
+/**
+ * A {@link NavigableSet} whose contents will never change, with many other important properties
+ * detailed at {@link ImmutableCollection}. The elements are stored in a sorted array, so
+ * navigation methods such as {@link #floor} and {@link #ceiling} are binary searches, and
+ * {@link #subSet}, {@link #headSet} and {@link #tailSet} return views sharing the array in
+ * constant time.
+ *
+ * <p>For read-heavy sets of millions of elements, {@link #eytzingerIndexed} returns an equal set
+ * whose searches use a cache-friendlier layout.
+ *
+ * <p><b>Warning:</b> as with any sorted collection, you are strongly advised not to use mutable
+ * objects as elements, at least not in any way that affects their ordering.
+ *
+ * <p>This set is not a faithful copy of Guava's {@code ImmutableSortedSet}. It has no
+ * {@code ImmutableSortedSet}-specific {@code copyOf} overloads for iterables and iterators, and
+ * {@link #descendingSet} makes a reversed copy rather than a view.
+ */
+// miniguava: Reimplemented on a sorted array; Guava's ImmutableSortedSet was removed earlier.
+@Beta
+@MiniGuavaSpecific
+@SuppressWarnings("serial") // uses writeReplace(), not default serialization
+public final class ImmutableSortedSet<E> extends ImmutableSet<E> implements NavigableSet<E> {
+  /**
+   * Sets at least this large are worth indexing with {@link #eytzingerIndexed}. Smaller sets fit
+   * in a few cache lines, where plain binary search is just as fast.
+   */
+  private static final int MIN_INDEXED_SIZE = 1 << 10;
+
+  @SuppressWarnings("rawtypes") // the natural ordering comparator
+  private static final ImmutableSortedSet<Comparable> NATURAL_EMPTY_SET =
+      new ImmutableSortedSet<Comparable>(NaturalOrder.INSTANCE, new Object[0], 0, 0, null);
+
+  @SuppressWarnings("unchecked")
+  static <E> ImmutableSortedSet<E> emptySet(Comparator<? super E> comparator) {
+    if (NaturalOrder.INSTANCE.equals(comparator)) {
+      return (ImmutableSortedSet<E>) NATURAL_EMPTY_SET;
+    }
+    return new ImmutableSortedSet<E>(comparator, new Object[0], 0, 0, null);
+  }
+
+  /** Returns the comparator for the natural ordering of the elements. */
+  @SuppressWarnings("unchecked") // the natural ordering compares any Comparables
+  static <E> Comparator<? super E> naturalOrdering() {
+    return (Comparator<? super E>) (Comparator<?>) NaturalOrder.INSTANCE;
+  }
+
+  /** Returns the empty immutable sorted set, ordered by the elements' natural ordering. */
+  @SuppressWarnings("unchecked")
+  public static <E> ImmutableSortedSet<E> of() {
+    return (ImmutableSortedSet<E>) NATURAL_EMPTY_SET;
+  }
+
+  /** Returns an immutable sorted set containing a single element. */
+  public static <E extends Comparable<? super E>> ImmutableSortedSet<E> of(E element) {
+    return construct(ImmutableSortedSet.<E>naturalOrdering(), 1, element);
+  }
+
+  /**
+   * Returns an immutable sorted set containing the given elements sorted by their natural
+   * ordering. When multiple elements are equivalent according to {@link Comparable#compareTo},
+   * only the first one specified is included.
+   *
+   * @throws NullPointerException if any element is null
+   */
+  public static <E extends Comparable<? super E>> ImmutableSortedSet<E> of(E e1, E e2) {
+    return construct(ImmutableSortedSet.<E>naturalOrdering(), 2, e1, e2);
+  }
+
+  /**
+   * Returns an immutable sorted set containing the given elements sorted by their natural
+   * ordering. When multiple elements are equivalent according to {@link Comparable#compareTo},
+   * only the first one specified is included.
+   *
+   * @throws NullPointerException if any element is null
+   */
+  public static <E extends Comparable<? super E>> ImmutableSortedSet<E> of(E e1, E e2, E e3) {
+    return construct(ImmutableSortedSet.<E>naturalOrdering(), 3, e1, e2, e3);
+  }
+
+  /**
+   * Returns an immutable sorted set containing the given elements sorted by their natural
+   * ordering. When multiple elements are equivalent according to {@link Comparable#compareTo},
+   * only the first one specified is included.
+   *
+   * @throws NullPointerException if any element is null
+   */
+  public static <E extends Comparable<? super E>> ImmutableSortedSet<E> of(
+      E e1, E e2, E e3, E e4) {
+    return construct(ImmutableSortedSet.<E>naturalOrdering(), 4, e1, e2, e3, e4);
+  }
+
+  /**
+   * Returns an immutable sorted set containing the given elements sorted by their natural
+   * ordering. When multiple elements are equivalent according to {@link Comparable#compareTo},
+   * only the first one specified is included.
+   *
+   * @throws NullPointerException if any element is null
+   */
+  public static <E extends Comparable<? super E>> ImmutableSortedSet<E> of(
+      E e1, E e2, E e3, E e4, E e5) {
+    return construct(ImmutableSortedSet.<E>naturalOrdering(), 5, e1, e2, e3, e4, e5);
+  }
+
+  /**
+   * Returns an immutable sorted set containing the given elements sorted by their natural
+   * ordering. When multiple elements are equivalent according to {@link Comparable#compareTo},
+   * only the first one specified is included.
+   *
+   * @throws NullPointerException if any element is null
+   */
+  public static <E extends Comparable<? super E>> ImmutableSortedSet<E> of(
+      E e1, E e2, E e3, E e4, E e5, E e6, E... remaining) {
+    Object[] contents = new Object[6 + remaining.length];
+    contents[0] = e1;
+    contents[1] = e2;
+    contents[2] = e3;
+    contents[3] = e4;
+    contents[4] = e5;
+    contents[5] = e6;
+    System.arraycopy(remaining, 0, contents, 6, remaining.length);
+    return construct(ImmutableSortedSet.<E>naturalOrdering(), contents.length, contents);
+  }
+
+  /**
+   * Returns an immutable sorted set containing the given elements sorted by their natural
+   * ordering. When multiple elements are equivalent according to {@link Comparable#compareTo},
+   * only the first one specified is included.
+   *
+   * @throws NullPointerException if any of {@code elements} is null
+   */
+  public static <E extends Comparable<? super E>> ImmutableSortedSet<E> copyOf(E[] elements) {
+    return construct(
+        ImmutableSortedSet.<E>naturalOrdering(), elements.length, (Object[]) elements.clone());
+  }
+
+  /**
+   * Returns an immutable sorted set containing the given elements sorted by their natural
+   * ordering, like {@link #copyOf(Comparable[])}, but without copying the array first. This takes
+   * ownership of the array: it is sorted and deduplicated in place, and the set keeps it as its
+   * element storage. The caller must neither use nor modify the array afterwards.
+   *
+   * @throws NullPointerException if any of {@code elements} is null
+   */
+  @Beta
+  @MiniGuavaSpecific
+  public static <E extends Comparable<? super E>> ImmutableSortedSet<E> unsafeWrap(E[] elements) {
+    return construct(ImmutableSortedSet.<E>naturalOrdering(), elements.length, (Object[]) elements);
+  }
+
+  /**
+   * Returns an immutable sorted set containing the given elements sorted by their natural
+   * ordering. When multiple elements are equivalent according to {@code compareTo()}, only the
+   * first one specified is included. To create a copy of a {@code SortedSet} that preserves the
+   * comparator, call {@link #copyOfSorted} instead.
+   *
+   * <p>Note that if {@code s} is a {@code Set<String>}, then {@code
+   * ImmutableSortedSet.copyOf(s)} returns an {@code ImmutableSortedSet<String>} containing each of
+   * the strings in {@code s}, while {@code ImmutableSortedSet.of(s)} returns an {@code
+   * ImmutableSortedSet<Set<String>>} containing one element (the given set itself).
+   *
+   * @throws ClassCastException if the elements are not mutually comparable
+   * @throws NullPointerException if any of {@code elements} is null
+   */
+  public static <E> ImmutableSortedSet<E> copyOf(Collection<? extends E> elements) {
+    // Hack around E not being a subtype of Comparable. Unsafe: elements which are not
+    // mutually Comparable fail with ClassCastException.
+    return copyOf(ImmutableSortedSet.<E>naturalOrdering(), elements);
+  }
+
+  /**
+   * Returns an immutable sorted set containing the given elements sorted by the given {@code
+   * Comparator}. When multiple elements are equivalent according to the comparator, only the
+   * first one specified is included. This method iterates over {@code elements} at most once.
+   *
+   * @throws NullPointerException if {@code comparator} or any of {@code elements} is null
+   */
+  public static <E> ImmutableSortedSet<E> copyOf(
+      Comparator<? super E> comparator, Collection<? extends E> elements) {
+    checkNotNull(comparator);
+    if (elements instanceof ImmutableSortedSet
+        && comparator.equals(((ImmutableSortedSet<?>) elements).comparator())) {
+      @SuppressWarnings("unchecked")
+      ImmutableSortedSet<E> original = (ImmutableSortedSet<E>) elements;
+      if (!original.isPartialView()) {
+        return original;
+      }
+    }
+    Object[] array = elements.toArray();
+    return construct(comparator, array.length, array);
+  }
+
+  /**
+   * Returns an immutable sorted set containing the elements of a sorted set, sorted by the same
+   * {@code Comparator}. That behavior differs from {@link #copyOf(Collection)}, which always uses
+   * the natural ordering of the elements.
+   *
+   * @throws NullPointerException if {@code sortedSet} or any of its elements is null
+   */
+  public static <E> ImmutableSortedSet<E> copyOfSorted(SortedSet<E> sortedSet) {
+    Comparator<? super E> comparator = sortedSet.comparator();
+    if (comparator == null) {
+      comparator = naturalOrdering();
+    }
+    return copyOf(comparator, sortedSet);
+  }
+
+  /**
+   * Sorts the first {@code n} entries in {@code contents}, removes duplicates according to the
+   * comparator, and returns a set over them. {@code contents} may be modified and used by the
+   * returned set.
+   *
+   * @throws NullPointerException if any of the first {@code n} elements of {@code contents} is
+   *     null
+   */
+  static <E> ImmutableSortedSet<E> construct(
+      Comparator<? super E> comparator, int n, Object... contents) {
+    if (n == 0) {
+      return emptySet(comparator);
+    }
+    ObjectArrays.checkElementsNotNull(contents, n);
+    @SuppressWarnings("unchecked") // comparator only sees Es
+    Comparator<Object> unsafeComparator = (Comparator<Object>) comparator;
+    // stable, so the first of several equivalent elements sorts first and is kept
+    Arrays.sort(contents, 0, n, unsafeComparator);
+    int uniques = 1;
+    for (int i = 1; i < n; i++) {
+      Object cur = contents[i];
+      Object prev = contents[uniques - 1];
+      if (unsafeComparator.compare(cur, prev) != 0) {
+        contents[uniques++] = cur;
+      }
+    }
+    Arrays.fill(contents, uniques, n, null);
+    return new ImmutableSortedSet<E>(comparator, contents, 0, uniques, null);
+  }
+
+  /**
+   * Returns a builder that creates immutable sorted sets with an explicit comparator. If the
+   * comparator has a more general type than the set being generated, such as creating a {@code
+   * SortedSet<Integer>} with a {@code Comparator<Number>}, use the {@link Builder} constructor
+   * instead.
+   *
+   * @throws NullPointerException if {@code comparator} is null
+   */
+  public static <E> Builder<E> orderedBy(Comparator<E> comparator) {
+    return new Builder<E>(comparator);
+  }
+
+  /**
+   * Returns a builder that creates immutable sorted sets whose elements are ordered by their
+   * natural ordering. The sorted sets use {@code Comparable#compareTo} to order elements, not
+   * {@code equals}.
+   */
+  public static <E extends Comparable<?>> Builder<E> naturalOrder() {
+    return new Builder<E>(ImmutableSortedSet.<E>naturalOrdering());
+  }
+
+  /**
+   * Not supported. Use {@link #naturalOrder}, which offers better type-safety, or
+   * {@link #orderedBy}, instead. This method exists only to hide {@link ImmutableSet#builder}
+   * from consumers of {@code ImmutableSortedSet}.
+   *
+   * @throws UnsupportedOperationException always
+   * @deprecated Use {@link ImmutableSortedSet#naturalOrder}, which offers better type-safety.
+   */
+  @Deprecated
+  public static <E> ImmutableSortedSet.Builder<E> builder() {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Not supported. This method exists only to hide
+   * {@link ImmutableSet#builderWithExpectedSize} from consumers of {@code ImmutableSortedSet}.
+   *
+   * @throws UnsupportedOperationException always
+   * @deprecated Not supported by {@code ImmutableSortedSet}.
+   */
+  @Deprecated
+  public static <E> ImmutableSortedSet.Builder<E> builderWithExpectedSize(int expectedSize) {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Not supported. This method exists only to hide {@link ImmutableSet#concurrentBuilder} from
+   * consumers of {@code ImmutableSortedSet}.
+   *
+   * @throws UnsupportedOperationException always
+   * @deprecated Not supported by {@code ImmutableSortedSet}.
+   */
+  @Beta
+  @MiniGuavaSpecific
+  @Deprecated
+  public static <E> ImmutableSet.ConcurrentBuilder<E> concurrentBuilder() {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Not supported. Use {@link Builder#buildParallel} instead. This method exists only to hide
+   * {@link ImmutableSet#copyOfParallel} from consumers of {@code ImmutableSortedSet}.
+   *
+   * @throws UnsupportedOperationException always
+   * @deprecated Use {@link Builder#buildParallel}.
+   */
+  @Beta
+  @MiniGuavaSpecific
+  @Deprecated
+  public static <E> ImmutableSortedSet<E> copyOfParallel(
+      Collection<? extends E> elements, ExecutorService executor) {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * A builder for creating immutable sorted set instances, especially {@code public static final}
+   * sets ("constant sets"), with a given comparator. Example: <pre>   {@code
+   *
+   *   public static final ImmutableSortedSet<Number> LUCKY_NUMBERS =
+   *       new ImmutableSortedSet.Builder<Number>(ODDS_FIRST_COMPARATOR)
+   *           .addAll(SINGLE_DIGIT_PRIMES)
+   *           .add(42)
+   *           .build();}</pre>
+   *
+   * <p>Builder instances can be reused; it is safe to call {@link #build} multiple times to build
+   * multiple sets in series. Each set is a superset of the set created before it.
+   */
+  public static final class Builder<E> extends ImmutableSet.Builder<E> {
+    private final Comparator<? super E> comparator;
+
+    /**
+     * Creates a new builder. The returned builder is equivalent to the builder generated by
+     * {@link ImmutableSortedSet#orderedBy}.
+     */
+    public Builder(Comparator<? super E> comparator) {
+      this.comparator = checkNotNull(comparator);
+    }
+
+    /**
+     * Adds {@code element} to the {@code ImmutableSortedSet}. If the {@code ImmutableSortedSet}
+     * already contains {@code element}, then {@code add} has no effect. (only the previously
+     * added element is retained).
+     *
+     * @param element the element to add
+     * @return this {@code Builder} object
+     * @throws NullPointerException if {@code element} is null
+     */
+    @Override
+    public Builder<E> add(E element) {
+      super.add(element);
+      return this;
+    }
+
+    /**
+     * Adds each element of {@code elements} to the {@code ImmutableSortedSet}, ignoring duplicate
+     * elements (only the first duplicate element is added).
+     *
+     * @param elements the elements to add
+     * @return this {@code Builder} object
+     * @throws NullPointerException if {@code elements} contains a null element
+     */
+    @Override
+    public Builder<E> add(E... elements) {
+      super.add(elements);
+      return this;
+    }
+
+    /**
+     * Adds each element of {@code elements} to the {@code ImmutableSortedSet}, ignoring duplicate
+     * elements (only the first duplicate element is added).
+     *
+     * @param elements the elements to add to the {@code ImmutableSortedSet}
+     * @return this {@code Builder} object
+     * @throws NullPointerException if {@code elements} contains a null element
+     */
+    @Override
+    public Builder<E> addAll(Collection<? extends E> elements) {
+      super.addAll(elements);
+      return this;
+    }
+
+    /**
+     * Has no effect, since sorted sets find their elements by binary search instead of hashing.
+     */
+    @Beta
+    @MiniGuavaSpecific
+    @Override
+    public Builder<E> optimizeFor(OptimizationGoal goal) {
+      super.optimizeFor(goal);
+      return this;
+    }
+
+    /**
+     * Returns a newly-created {@code ImmutableSortedSet} based on the contents of the {@code
+     * Builder} and its comparator.
+     */
+    @Override
+    public ImmutableSortedSet<E> build() {
+      consolidate();
+      // miniguava: construct sorts and dedupes a copy, which the set keeps, so contents and size
+      // still hold every element added and the builder can be reused.
+      Object[] contentsArray = ObjectArrays.arraysCopyOf(contents, size);
+      return construct(comparator, size, contentsArray);
+    }
+
+    /**
+     * Same as {@link #build()}. Sorting is not parallelized, so {@code executor} is not used.
+     */
+    @Override
+    public ImmutableSortedSet<E> buildParallel(ExecutorService executor) {
+      checkNotNull(executor);
+      return build();
+    }
+  }
+
+  private final transient Comparator<? super E> comparator;
+  // sorted elements, possibly shared with other sets; this set is [offset, offset + size)
+  private final transient Object[] elements;
+  private final transient int offset;
+  private final transient int size;
+  // covers the whole elements array, or null to use binary search
+  @Nullable private final transient EytzingerIndex index;
+
+  ImmutableSortedSet(
+      Comparator<? super E> comparator,
+      Object[] elements,
+      int offset,
+      int size,
+      @Nullable EytzingerIndex index) {
+    this.comparator = comparator;
+    this.elements = elements;
+    this.offset = offset;
+    this.size = size;
+    this.index = index;
+  }
+
+  /**
+   * Returns the comparator that orders the elements, which is a natural ordering comparator when
+   * the elements' natural ordering is used. Note that its behavior is not consistent with {@link
+   * SortedSet#comparator()}, which returns {@code null} to indicate natural ordering.
+   */
+  @Override
+  public Comparator<? super E> comparator() {
+    return comparator;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @SuppressWarnings("unchecked") // only Es are stored
+  E get(int index) {
+    return (E) elements[offset + index];
+  }
+
+  @Override
+  public UnmodifiableIterator<E> iterator() {
+    @SuppressWarnings("unchecked") // only Es are stored
+    E[] array = (E[]) elements;
+    return InternalIterators.forArray(array, offset, size, 0);
+  }
+
+  @Override
+  public UnmodifiableIterator<E> descendingIterator() {
+    return new UnmodifiableIterator<E>() {
+      private int index = size;
+
+      @Override
+      public boolean hasNext() {
+        return index > 0;
+      }
+
+      @Override
+      public E next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return get(--index);
+      }
+    };
+  }
+
+  /**
+   * Returns the index within this set of the first element greater than or equal to {@code key},
+   * or greater than {@code key} if not {@code inclusive}. Returns {@link #size} if there is none.
+   */
+  int ceilingIndex(Object key, boolean inclusive) {
+    int end = offset + size;
+    int index;
+    if (this.index != null) {
+      index = this.index.ceilingIndex(key, comparator, inclusive);
+      index = Math.max(offset, Math.min(end, index));
+    } else {
+      @SuppressWarnings("unchecked") // comparator only sees Es, or throws ClassCastException
+      Comparator<Object> unsafeComparator = (Comparator<Object>) comparator;
+      int threshold = inclusive ? 0 : 1;
+      int low = offset;
+      int high = end;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (unsafeComparator.compare(elements[mid], key) < threshold) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      index = low;
+    }
+    return index - offset;
+  }
+
+  /**
+   * Returns the position of {@code target} in this set, or -1 if it is not present.
+   */
+  int indexOf(@Nullable Object target) {
+    if (target == null) {
+      return -1;
+    }
+    try {
+      int index = ceilingIndex(target, true);
+      @SuppressWarnings("unchecked") // comparator only sees Es, or throws ClassCastException
+      Comparator<Object> unsafeComparator = (Comparator<Object>) comparator;
+      return (index < size && unsafeComparator.compare(get(index), target) == 0) ? index : -1;
+    } catch (ClassCastException e) {
+      return -1;
+    }
+  }
+
+  @Override
+  public boolean contains(@Nullable Object o) {
+    return indexOf(o) >= 0;
+  }
+
+  @Override
+  public boolean containsAll(Collection<?> targets) {
+    for (Object target : targets) {
+      if (!contains(target)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Equality is determined using the {@code equals} methods, unless both sets are immutable
+   * sorted sets with equal comparators, in which case it is determined by comparing their
+   * elements in order.
+   */
+  @Override
+  public boolean equals(@Nullable Object object) {
+    if (object == this) {
+      return true;
+    }
+    if (!(object instanceof Set)) {
+      return false;
+    }
+    Set<?> that = (Set<?>) object;
+    if (size() != that.size()) {
+      return false;
+    } else if (isEmpty()) {
+      return true;
+    }
+    if (object instanceof ImmutableSortedSet
+        && comparator.equals(((ImmutableSortedSet<?>) object).comparator)) {
+      ImmutableSortedSet<?> thatSet = (ImmutableSortedSet<?>) object;
+      @SuppressWarnings("unchecked") // both sets' comparators accept Es
+      Comparator<Object> unsafeComparator = (Comparator<Object>) comparator;
+      try {
+        for (int i = 0; i < size; i++) {
+          if (unsafeComparator.compare(get(i), thatSet.get(i)) != 0) {
+            return false;
+          }
+        }
+        return true;
+      } catch (ClassCastException e) {
+        return false;
+      }
+    }
+    return containsAll(that);
+  }
+
+  @SuppressWarnings("unchecked") // only Es are stored
+  @Override
+  public void forEachElement(Consumer<? super E> action) {
+    checkNotNull(action);
+    Object[] elements = this.elements;
+    for (int i = offset, end = offset + size; i < end; i++) {
+      action.accept((E) elements[i]);
+    }
+  }
+
+  @Override
+  int copyIntoArray(Object[] dst, int offset) {
+    System.arraycopy(elements, this.offset, dst, offset, size);
+    return offset + size;
+  }
+
+  @Override
+  ImmutableList<E> createAsList() {
+    return new RegularImmutableAsList<E>(this, new RegularImmutableList<E>(elements, offset, size));
+  }
+
+  @Override
+  boolean isPartialView() {
+    return offset != 0 || size != elements.length;
+  }
+
+  @Override
+  public E first() {
+    if (isEmpty()) {
+      throw new NoSuchElementException();
+    }
+    return get(0);
+  }
+
+  @Override
+  public E last() {
+    if (isEmpty()) {
+      throw new NoSuchElementException();
+    }
+    return get(size - 1);
+  }
+
+  @Nullable
+  private E getOrNull(int index) {
+    return (index >= 0 && index < size) ? get(index) : null;
+  }
+
+  /**
+   * Returns the greatest element in this set strictly less than the given element, or {@code
+   * null} if there is no such element.
+   */
+  @Override
+  @Nullable
+  public E lower(E e) {
+    return getOrNull(ceilingIndex(checkNotNull(e), true) - 1);
+  }
+
+  /**
+   * Returns the greatest element in this set less than or equal to the given element, or {@code
+   * null} if there is no such element.
+   */
+  @Override
+  @Nullable
+  public E floor(E e) {
+    return getOrNull(ceilingIndex(checkNotNull(e), false) - 1);
+  }
+
+  /**
+   * Returns the least element in this set greater than or equal to the given element, or {@code
+   * null} if there is no such element.
+   */
+  @Override
+  @Nullable
+  public E ceiling(E e) {
+    return getOrNull(ceilingIndex(checkNotNull(e), true));
+  }
+
+  /**
+   * Returns the least element in this set strictly greater than the given element, or {@code
+   * null} if there is no such element.
+   */
+  @Override
+  @Nullable
+  public E higher(E e) {
+    return getOrNull(ceilingIndex(checkNotNull(e), false));
+  }
+
+  /**
+   * Guaranteed to throw an exception and leave the set unmodified.
+   *
+   * @throws UnsupportedOperationException always
+   * @deprecated Unsupported operation.
+   */
+  @Deprecated
+  @Override
+  public E pollFirst() {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Guaranteed to throw an exception and leave the set unmodified.
+   *
+   * @throws UnsupportedOperationException always
+   * @deprecated Unsupported operation.
+   */
+  @Deprecated
+  @Override
+  public E pollLast() {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>This method returns a serializable {@code ImmutableSortedSet}. The view shares the
+   * elements of this set.
+   */
+  @Override
+  public ImmutableSortedSet<E> headSet(E toElement) {
+    return headSet(toElement, false);
+  }
+
+  @Override
+  public ImmutableSortedSet<E> headSet(E toElement, boolean inclusive) {
+    return subSetByIndex(0, ceilingIndex(checkNotNull(toElement), !inclusive));
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>This method returns a serializable {@code ImmutableSortedSet}. The view shares the
+   * elements of this set.
+   *
+   * <p>If {@code fromElement} is greater than or equal to {@code toElement}, the returned set is
+   * empty.
+   */
+  @Override
+  public ImmutableSortedSet<E> subSet(E fromElement, E toElement) {
+    return subSet(fromElement, true, toElement, false);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @throws IllegalArgumentException if {@code fromElement} is greater than {@code toElement}
+   */
+  @Override
+  public ImmutableSortedSet<E> subSet(
+      E fromElement, boolean fromInclusive, E toElement, boolean toInclusive) {
+    checkNotNull(fromElement);
+    checkNotNull(toElement);
+    checkArgument(comparator.compare(fromElement, toElement) <= 0);
+    int from = ceilingIndex(fromElement, fromInclusive);
+    int to = ceilingIndex(toElement, !toInclusive);
+    return subSetByIndex(from, Math.max(from, to));
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>This method returns a serializable {@code ImmutableSortedSet}. The view shares the
+   * elements of this set.
+   */
+  @Override
+  public ImmutableSortedSet<E> tailSet(E fromElement) {
+    return tailSet(fromElement, true);
+  }
+
+  @Override
+  public ImmutableSortedSet<E> tailSet(E fromElement, boolean inclusive) {
+    return subSetByIndex(ceilingIndex(checkNotNull(fromElement), inclusive), size);
+  }
+
+  ImmutableSortedSet<E> subSetByIndex(int from, int to) {
+    if (from == 0 && to == size) {
+      return this;
+    } else if (from < to) {
+      return new ImmutableSortedSet<E>(comparator, elements, offset + from, to - from, index);
+    } else {
+      return emptySet(comparator);
+    }
+  }
+
+  /**
+   * Returns a set equal to this one, in reverse order. Unlike the sets returned by
+   * {@code subSet}, the returned set is a reversed copy, not a view.
+   */
+  @Override
+  public ImmutableSortedSet<E> descendingSet() {
+    Comparator<? super E> reversed = Collections.reverseOrder(comparator);
+    if (isEmpty()) {
+      return emptySet(reversed);
+    }
+    Object[] array = new Object[size];
+    for (int i = 0; i < size; i++) {
+      array[i] = elements[offset + size - 1 - i];
+    }
+    return new ImmutableSortedSet<E>(reversed, array, 0, size, null);
+  }
+
+  /**
+   * Returns a set equal to this one whose searches, which include {@link #contains}, the
+   * navigation methods and the creation of subsets, use an index with the elements in Eytzinger
+   * (breadth-first) order instead of binary search. Binary search over a large sorted array
+   * misses the cache on nearly every one of its first steps, since they jump across the whole
+   * array; searching in Eytzinger order keeps those steps within a few cache lines.
+   *
+   * <p>The index stores a second copy of the element references and an {@code int} per element,
+   * so this is only worthwhile for read-heavy sets of many thousands of elements or more. Small
+   * sets are returned as is. Subsets of the returned set share its index.
+   */
+  public ImmutableSortedSet<E> eytzingerIndexed() {
+    return (size < MIN_INDEXED_SIZE) ? this : withEytzingerIndex();
+  }
+
+  /** Returns {@link #eytzingerIndexed}, regardless of size. */
+  ImmutableSortedSet<E> withEytzingerIndex() {
+    if (index != null || isEmpty()) {
+      return this;
+    }
+    Object[] array = isPartialView()
+        ? Arrays.copyOfRange(elements, offset, offset + size)
+        : elements;
+    return new ImmutableSortedSet<E>(
+        comparator, array, 0, size, EytzingerIndex.create(array, size));
+  }
+
+  /*
+   * This class is used to serialize all ImmutableSortedSet instances, regardless of
+   * implementation type. It captures their "logical contents" only. This is necessary to ensure
+   * that the existence of a particular implementation type is an implementation detail.
+   */
+  private static class SerializedForm<E> implements Serializable {
+    final Comparator<? super E> comparator;
+    final Object[] elements;
+
+    public SerializedForm(Comparator<? super E> comparator, Object[] elements) {
+      this.comparator = comparator;
+      this.elements = elements;
+    }
+
+    @SuppressWarnings("unchecked") // only Es were serialized
+    Object readResolve() {
+      return new Builder<E>(comparator).add((E[]) elements).build();
+    }
+
+    private static final long serialVersionUID = 0;
+  }
+
+  private void readObject(ObjectInputStream stream) throws InvalidObjectException {
+    throw new InvalidObjectException("Use SerializedForm");
+  }
+
+  @Override
+  Object writeReplace() {
+    return new SerializedForm<E>(comparator, toArray());
+  }
+
+  /**
+   * The natural ordering, used when no comparator is given. Unlike {@code Ordering.natural()},
+   * which lives in another module, it is only used internally.
+   */
+  @SuppressWarnings("rawtypes") // compares Comparables of any type
+  private static final class NaturalOrder implements Comparator<Comparable>, Serializable {
+    static final NaturalOrder INSTANCE = new NaturalOrder();
+
+    @SuppressWarnings("unchecked") // throws ClassCastException for incomparable types
+    @Override
+    public int compare(Comparable left, Comparable right) {
+      checkNotNull(left);
+      checkNotNull(right);
+      return left.compareTo(right);
+    }
+
+    private Object readResolve() {
+      return INSTANCE;
+    }
+
+    @Override
+    public String toString() {
+      return "Ordering.natural()";
+    }
+
+    private static final long serialVersionUID = 0;
+  }
+}
@@ -0,0 +1,475 @@
+/*
+ * Copyright (C) 2016 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ypresto.miniguava.collect.immutables;
+
+import static net.ypresto.miniguava.base.Preconditions.checkNotNull;
+
+import net.ypresto.miniguava.annotations.Beta;
+import net.ypresto.miniguava.annotations.MiniGuavaSpecific;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import javax.annotation.Nullable;
+
+/**
+ * An immutable collection that associates an ordered pair of keys, called a row key and a column
+ * key, with a single non-null value. Row and column keys are numbered by index maps, so a lookup
+ * by row and column is two index lookups and a load from a flat array, instead of the two map
+ * lookups and two entry objects of a nested {@code ImmutableMap}.
+ *
+ * <p>Tables built by {@link Builder} are stored densely as an {@link ArrayTable} when at least
+ * half of the possible cells are present, and otherwise as a sparse flat array of cells. Either
+ * way, cells iterate grouped by row, with rows in the order their first cell was added. Within a
+ * row, a sparse table keeps the cells in the order they were added, while a dense table orders
+ * them by column, with columns in the order their first cell was added to the whole table.
+ */
+// miniguava: Reimplemented without the Table interface; Guava's tables were removed earlier.
+@Beta
+@MiniGuavaSpecific
+public abstract class ImmutableTable<R, C, V> implements Serializable {
+
+  /**
+   * A row key, a column key and a value. Two cells are equal if their row keys, column keys and
+   * values are equal, and the hash code is that of the list of the three.
+   */
+  public interface Cell<R, C, V> {
+    /** Returns the row key of this cell. */
+    R getRowKey();
+
+    /** Returns the column key of this cell. */
+    C getColumnKey();
+
+    /** Returns the value of this cell. */
+    V getValue();
+  }
+
+  /** Returns an immutable cell with the specified row key, column key and value. */
+  static <R, C, V> Cell<R, C, V> cellOf(R rowKey, C columnKey, V value) {
+    return new ImmutableCell<R, C, V>(checkNotNull(rowKey), checkNotNull(columnKey),
+        checkNotNull(value));
+  }
+
+  private static final class ImmutableCell<R, C, V> implements Cell<R, C, V>, Serializable {
+    private final R rowKey;
+    private final C columnKey;
+    private final V value;
+
+    ImmutableCell(R rowKey, C columnKey, V value) {
+      this.rowKey = rowKey;
+      this.columnKey = columnKey;
+      this.value = value;
+    }
+
+    @Override
+    public R getRowKey() {
+      return rowKey;
+    }
+
+    @Override
+    public C getColumnKey() {
+      return columnKey;
+    }
+
+    @Override
+    public V getValue() {
+      return value;
+    }
+
+    @Override
+    public boolean equals(@Nullable Object object) {
+      if (object == this) {
+        return true;
+      }
+      if (object instanceof Cell) {
+        Cell<?, ?, ?> that = (Cell<?, ?, ?>) object;
+        return rowKey.equals(that.getRowKey())
+            && columnKey.equals(that.getColumnKey())
+            && value.equals(that.getValue());
+      }
+      return false;
+    }
+
+    @Override
+    public int hashCode() {
+      return cellHashCode(rowKey, columnKey, value);
+    }
+
+    @Override
+    public String toString() {
+      return "(" + rowKey + "," + columnKey + ")=" + value;
+    }
+
+    private static final long serialVersionUID = 0;
+  }
+
+  private static int cellHashCode(Object rowKey, Object columnKey, Object value) {
+    // Arrays.hashCode(new Object[] {rowKey, columnKey, value}) without the array
+    return 31 * (31 * (31 + rowKey.hashCode()) + columnKey.hashCode()) + value.hashCode();
+  }
+
+  /** Returns the empty table. */
+  @SuppressWarnings("unchecked") // fully variant implementation (never actually produces any Vs)
+  public static <R, C, V> ImmutableTable<R, C, V> of() {
+    return (ImmutableTable<R, C, V>) SparseImmutableTable.EMPTY;
+  }
+
+  /** Returns an immutable table containing a single cell. */
+  public static <R, C, V> ImmutableTable<R, C, V> of(R rowKey, C columnKey, V value) {
+    return new Builder<R, C, V>().put(rowKey, columnKey, value).build();
+  }
+
+  /** Returns a new builder. */
+  public static <R, C, V> Builder<R, C, V> builder() {
+    return new Builder<R, C, V>();
+  }
+
+  /**
+   * A builder for creating immutable table instances. Duplicate cells, that is cells with the same
+   * row and column keys, are not allowed, and will cause {@link #build} to fail.
+   *
+   * <p>Builder instances can be reused; each built table contains the cells added before it was
+   * built.
+   */
+  public static final class Builder<R, C, V> {
+    private Object[] rowKeys;
+    private Object[] columnKeys;
+    private Object[] values;
+    private int size;
+
+    /**
+     * Creates a new builder. The returned builder is equivalent to the builder generated by
+     * {@link ImmutableTable#builder}.
+     */
+    public Builder() {
+      int capacity = ImmutableCollection.Builder.DEFAULT_INITIAL_CAPACITY;
+      this.rowKeys = new Object[capacity];
+      this.columnKeys = new Object[capacity];
+      this.values = new Object[capacity];
+    }
+
+    private void ensureCapacity(int minCapacity) {
+      if (minCapacity > values.length) {
+        int newCapacity = ImmutableCollection.Builder.expandedCapacity(values.length, minCapacity);
+        rowKeys = ObjectArrays.arraysCopyOf(rowKeys, newCapacity);
+        columnKeys = ObjectArrays.arraysCopyOf(columnKeys, newCapacity);
+        values = ObjectArrays.arraysCopyOf(values, newCapacity);
+      }
+    }
+
+    /**
+     * Associates the ({@code rowKey}, {@code columnKey}) pair with {@code value} in the built
+     * table.
+     */
+    public Builder<R, C, V> put(R rowKey, C columnKey, V value) {
+      ensureCapacity(size + 1);
+      rowKeys[size] = checkNotNull(rowKey);
+      columnKeys[size] = checkNotNull(columnKey);
+      values[size] = checkNotNull(value);
+      size++;
+      return this;
+    }
+
+    /** Adds the given {@code cell} to the table. */
+    public Builder<R, C, V> put(Cell<? extends R, ? extends C, ? extends V> cell) {
+      return put(cell.getRowKey(), cell.getColumnKey(), cell.getValue());
+    }
+
+    /** Associates all of the given table's keys and values in the built table. */
+    public Builder<R, C, V> putAll(ImmutableTable<? extends R, ? extends C, ? extends V> table) {
+      ensureCapacity(size + table.size());
+      for (Cell<? extends R, ? extends C, ? extends V> cell : table.cellSet()) {
+        put(cell);
+      }
+      return this;
+    }
+
+    /**
+     * Returns a newly-created immutable table.
+     *
+     * @throws IllegalArgumentException if duplicate key pairs were added
+     */
+    public ImmutableTable<R, C, V> build() {
+      if (size == 0) {
+        return of();
+      }
+      ImmutableMap<R, Integer> rowKeyToIndex = indexMap(rowKeys, size);
+      ImmutableMap<C, Integer> columnKeyToIndex = indexMap(columnKeys, size);
+      int[] rowIndices = new int[size];
+      int[] columnIndices = new int[size];
+      for (int i = 0; i < size; i++) {
+        rowIndices[i] = rowKeyToIndex.get(rowKeys[i]);
+        columnIndices[i] = columnKeyToIndex.get(columnKeys[i]);
+      }
+      long cellSpace = (long) rowKeyToIndex.size() * columnKeyToIndex.size();
+      if (size > cellSpace / 2) {
+        Object[] grid = new Object[(int) cellSpace];
+        int columnCount = columnKeyToIndex.size();
+        for (int i = 0; i < size; i++) {
+          int position = rowIndices[i] * columnCount + columnIndices[i];
+          if (grid[position] != null) {
+            throw duplicateCell(rowKeys[i], columnKeys[i], grid[position], values[i]);
+          }
+          grid[position] = values[i];
+        }
+        return new ArrayTable<R, C, V>(rowKeyToIndex, columnKeyToIndex, grid);
+      }
+      return SparseImmutableTable.fromCells(
+          rowKeyToIndex, columnKeyToIndex, size, rowIndices, columnIndices, values);
+    }
+
+    /** Returns the index map of the distinct keys in the first {@code size} {@code keys}. */
+    @SuppressWarnings("unchecked") // only Ks were added
+    private static <K> ImmutableMap<K, Integer> indexMap(Object[] keys, int size) {
+      return InternalUtils.indexMap(
+          (ImmutableList<K>) ImmutableSet.copyOf(Arrays.asList(keys).subList(0, size)).asList());
+    }
+  }
+
+  static IllegalArgumentException duplicateCell(
+      Object rowKey, Object columnKey, Object value1, Object value2) {
+    return new IllegalArgumentException("Duplicate key: (row=" + rowKey + ", column=" + columnKey
+        + "), values: [" + value1 + ", " + value2 + "].");
+  }
+
+  // the row and column keys, each mapped to its index in iteration order
+  final transient ImmutableMap<R, Integer> rowKeyToIndex;
+  final transient ImmutableMap<C, Integer> columnKeyToIndex;
+
+  ImmutableTable(
+      ImmutableMap<R, Integer> rowKeyToIndex, ImmutableMap<C, Integer> columnKeyToIndex) {
+    this.rowKeyToIndex = rowKeyToIndex;
+    this.columnKeyToIndex = columnKeyToIndex;
+  }
+
+  /** Returns the value of the cell in the given row and column, or null if there is none. */
+  @Nullable
+  abstract V getByIndex(int rowIndex, int columnIndex);
+
+  /** Returns the cells of this table, in iteration order. */
+  abstract ImmutableList<Cell<R, C, V>> createCellList();
+
+  final R rowKeyAt(int rowIndex) {
+    return rowKeyToIndex.keySet().asList().get(rowIndex);
+  }
+
+  final C columnKeyAt(int columnIndex) {
+    return columnKeyToIndex.keySet().asList().get(columnIndex);
+  }
+
+  /**
+   * Returns the value corresponding to the given row and column keys, or {@code null} if no such
+   * mapping exists.
+   */
+  @Nullable
+  public V get(@Nullable Object rowKey, @Nullable Object columnKey) {
+    Integer rowIndex = rowKeyToIndex.get(rowKey);
+    if (rowIndex == null) {
+      return null;
+    }
+    Integer columnIndex = columnKeyToIndex.get(columnKey);
+    return (columnIndex == null) ? null : getByIndex(rowIndex, columnIndex);
+  }
+
+  /** Returns {@code true} if the table contains a mapping with the given row and column keys. */
+  public boolean contains(@Nullable Object rowKey, @Nullable Object columnKey) {
+    return get(rowKey, columnKey) != null;
+  }
+
+  /** Returns {@code true} if the table contains a mapping with the specified row key. */
+  public boolean containsRow(@Nullable Object rowKey) {
+    return rowKeyToIndex.containsKey(rowKey);
+  }
+
+  /** Returns {@code true} if the table contains a mapping with the specified column key. */
+  public boolean containsColumn(@Nullable Object columnKey) {
+    return columnKeyToIndex.containsKey(columnKey);
+  }
+
+  /** Returns {@code true} if the table contains a mapping with the specified value. */
+  public boolean containsValue(@Nullable Object value) {
+    return values().contains(value);
+  }
+
+  /** Returns the number of cells in the table. */
+  public abstract int size();
+
+  /** Returns {@code true} if the table contains no cells. */
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  /** Returns the row keys of this table, in iteration order. */
+  public ImmutableSet<R> rowKeySet() {
+    return rowKeyToIndex.keySet();
+  }
+
+  /** Returns the column keys of this table, in the order they were first added. */
+  public ImmutableSet<C> columnKeySet() {
+    return columnKeyToIndex.keySet();
+  }
+
+  /**
+   * Returns the mappings of the given row key, from column key to value. The returned map is a
+   * copy.
+   */
+  public ImmutableMap<C, V> row(R rowKey) {
+    Integer rowIndex = rowKeyToIndex.get(checkNotNull(rowKey));
+    if (rowIndex == null) {
+      return ImmutableMap.of();
+    }
+    ImmutableMap.Builder<C, V> builder = ImmutableMap.builder();
+    for (int columnIndex = 0; columnIndex < columnKeyToIndex.size(); columnIndex++) {
+      V value = getByIndex(rowIndex, columnIndex);
+      if (value != null) {
+        builder.put(columnKeyAt(columnIndex), value);
+      }
+    }
+    return builder.build();
+  }
+
+  /**
+   * Returns the mappings of the given column key, from row key to value. The returned map is a
+   * copy.
+   */
+  public ImmutableMap<R, V> column(C columnKey) {
+    Integer columnIndex = columnKeyToIndex.get(checkNotNull(columnKey));
+    if (columnIndex == null) {
+      return ImmutableMap.of();
+    }
+    ImmutableMap.Builder<R, V> builder = ImmutableMap.builder();
+    for (int rowIndex = 0; rowIndex < rowKeyToIndex.size(); rowIndex++) {
+      V value = getByIndex(rowIndex, columnIndex);
+      if (value != null) {
+        builder.put(rowKeyAt(rowIndex), value);
+      }
+    }
+    return builder.build();
+  }
+
+  private transient ImmutableSet<Cell<R, C, V>> cellSet;
+
+  /** Returns the cells of this table, in iteration order. */
+  public ImmutableSet<Cell<R, C, V>> cellSet() {
+    ImmutableSet<Cell<R, C, V>> result = cellSet;
+    if (result == null) {
+      result = ImmutableSet.copyOf(createCellList());
+      cellSet = result;
+    }
+    return result;
+  }
+
+  /** Returns the values of this table, in the iteration order of {@link #cellSet}. */
+  public ImmutableCollection<V> values() {
+    ImmutableList<Cell<R, C, V>> cells = cellSet().asList();
+    Object[] values = new Object[cells.size()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = cells.get(i).getValue();
+    }
+    return ImmutableList.asImmutableList(values);
+  }
+
+  /**
+   * Returns {@code true} if {@code object} is a table with the same cells, in any order.
+   */
+  @Override
+  public boolean equals(@Nullable Object object) {
+    if (object == this) {
+      return true;
+    }
+    if (!(object instanceof ImmutableTable)) {
+      return false;
+    }
+    ImmutableTable<?, ?, ?> that = (ImmutableTable<?, ?, ?>) object;
+    if (size() != that.size()) {
+      return false;
+    }
+    for (Cell<R, C, V> cell : cellSet()) {
+      if (!cell.getValue().equals(that.get(cell.getRowKey(), cell.getColumnKey()))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Returns the hash code of {@link #cellSet}. */
+  @Override
+  public int hashCode() {
+    int hashCode = 0;
+    for (Cell<R, C, V> cell : cellSet()) {
+      hashCode += cellHashCode(cell.getRowKey(), cell.getColumnKey(), cell.getValue());
+    }
+    return hashCode;
+  }
+
+  /** Returns the rows of this table, for example {@code {a={x=1, y=2}, b={x=3}}}. */
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder(size() * 8).append('{');
+    boolean first = true;
+    for (R rowKey : rowKeySet()) {
+      ImmutableMap<C, V> row = row(rowKey);
+      if (!row.isEmpty()) {
+        if (!first) {
+          builder.append(", ");
+        }
+        first = false;
+        builder.append(rowKey).append('=').append(row);
+      }
+    }
+    return builder.append('}').toString();
+  }
+
+  Object writeReplace() {
+    return new SerializedForm(this);
+  }
+
+  /*
+   * Serializes the cells, which are put into a new builder on deserialization.
+   */
+  private static class SerializedForm implements Serializable {
+    private final Object[] rowKeys;
+    private final Object[] columnKeys;
+    private final Object[] values;
+
+    SerializedForm(ImmutableTable<?, ?, ?> table) {
+      int size = table.size();
+      rowKeys = new Object[size];
+      columnKeys = new Object[size];
+      values = new Object[size];
+      int i = 0;
+      for (Cell<?, ?, ?> cell : table.cellSet()) {
+        rowKeys[i] = cell.getRowKey();
+        columnKeys[i] = cell.getColumnKey();
+        values[i] = cell.getValue();
+        i++;
+      }
+    }
+
+    Object readResolve() {
+      Builder<Object, Object, Object> builder = new Builder<Object, Object, Object>();
+      for (int i = 0; i < values.length; i++) {
+        builder.put(rowKeys[i], columnKeys[i], values[i]);
+      }
+      return builder.build();
+    }
+
+    private static final long serialVersionUID = 0;
+  }
+
+  private static final long serialVersionUID = 0;
+}
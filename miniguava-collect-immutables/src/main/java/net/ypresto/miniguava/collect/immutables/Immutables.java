@@ -20,13 +20,19 @@ import static net.ypresto.miniguava.base.Preconditions.checkNotNull;
 
 import net.ypresto.miniguava.annotations.Beta;
 import net.ypresto.miniguava.annotations.MiniGuavaSpecific;
+import net.ypresto.miniguava.base.Consumer;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.EnumMap;
 import java.util.EnumSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nullable;
 
 /**
  * This is Mini Guava specific class consists of immutableXX() methods
@@ -34,9 +40,12 @@ import java.util.Map;
  */
 @MiniGuavaSpecific
 public class Immutables {
+  private static final CanonicalPool CANONICAL_POOL = new CanonicalPool();
+
   /**
    * Returns an immutable map instance containing the given entries.
-   * Internally, the returned map will be backed by an {@link EnumMap}.
+   * Internally, the returned map stores its values in an array indexed by
+   * key ordinal, so lookups take constant time.
    *
    * <p>The iteration order of the returned map follows the enum's iteration
    * order, not the order in which the elements appear in the given map.
@@ -66,7 +75,8 @@ public class Immutables {
 
   /**
    * Returns an immutable set instance containing the given enum elements.
-   * Internally, the returned set will be backed by an {@link EnumSet}.
+   * Internally, the returned set stores its elements as a bitmask indexed by
+   * ordinal.
    *
    * <p>The iteration order of the returned set follows the enum's iteration
    * order, not the order in which the elements appear in the given collection.
@@ -90,6 +100,77 @@ public class Immutables {
     }
   }
 
+  /**
+   * Returns an immutable set containing the elements of either set, in the
+   * enum's iteration order. When both sets were created by
+   * {@link #immutableEnumSet}, this is a bitwise operation on their bitmasks.
+   */
+  @Beta
+  @MiniGuavaSpecific
+  public static <E extends Enum<E>> ImmutableSet<E> enumUnion(Set<E> set1, Set<E> set2) {
+    if (isSameTypeEnumSets(set1, set2)) {
+      return ((ImmutableEnumSet<E>) set1).union((ImmutableEnumSet<E>) set2);
+    }
+    List<E> elements = new ArrayList<E>(set1);
+    elements.addAll(set2);
+    return immutableEnumSet(elements);
+  }
+
+  /**
+   * Returns an immutable set containing the elements contained by both sets,
+   * in the enum's iteration order. When both sets were created by
+   * {@link #immutableEnumSet}, this is a bitwise operation on their bitmasks.
+   */
+  @Beta
+  @MiniGuavaSpecific
+  public static <E extends Enum<E>> ImmutableSet<E> enumIntersection(Set<E> set1, Set<?> set2) {
+    if (isSameTypeEnumSets(set1, set2)) {
+      @SuppressWarnings("unchecked") // only elements of set1 can end up in the result
+      ImmutableEnumSet<E> other = (ImmutableEnumSet<E>) set2;
+      return ((ImmutableEnumSet<E>) set1).intersection(other);
+    }
+    List<E> elements = new ArrayList<E>(set1.size());
+    for (E element : set1) {
+      if (set2.contains(element)) {
+        elements.add(element);
+      }
+    }
+    return immutableEnumSet(elements);
+  }
+
+  /**
+   * Returns an immutable set containing the elements of {@code set1} not
+   * contained by {@code set2}, in the enum's iteration order. When both sets
+   * were created by {@link #immutableEnumSet}, this is a bitwise operation on
+   * their bitmasks.
+   */
+  @Beta
+  @MiniGuavaSpecific
+  public static <E extends Enum<E>> ImmutableSet<E> enumDifference(Set<E> set1, Set<?> set2) {
+    if (isSameTypeEnumSets(set1, set2)) {
+      @SuppressWarnings("unchecked") // only elements of set1 can end up in the result
+      ImmutableEnumSet<E> other = (ImmutableEnumSet<E>) set2;
+      return ((ImmutableEnumSet<E>) set1).difference(other);
+    }
+    List<E> elements = new ArrayList<E>(set1.size());
+    for (E element : set1) {
+      if (!set2.contains(element)) {
+        elements.add(element);
+      }
+    }
+    return immutableEnumSet(elements);
+  }
+
+  /**
+   * Returns whether both sets are {@link ImmutableEnumSet}s of the same enum type, so that their
+   * bitmasks can be combined.
+   */
+  private static boolean isSameTypeEnumSets(Set<?> set1, Set<?> set2) {
+    return set1 instanceof ImmutableEnumSet
+        && set2 instanceof ImmutableEnumSet
+        && ((ImmutableEnumSet<?>) set1).sameType((ImmutableEnumSet<?>) set2);
+  }
+
   /**
    * Returns an <b>immutable</b> list containing {@code elements} sorted by this
    * ordering. The input is not modified.
@@ -120,4 +201,83 @@ public class Immutables {
     Arrays.sort(array, comparator);
     return ImmutableList.asImmutableList(array);
   }
+
+  /**
+   * Returns a canonical instance of {@code collection}: a collection previously passed to this
+   * method that is still in use and interchangeable with {@code collection}, or {@code
+   * collection} itself if there is none. Holding on to the result instead of the argument lets
+   * many equal collections, such as those decoded from repetitive messages, share one instance.
+   *
+   * <p>Collections are interchangeable when they are of the same class and contain equal
+   * elements in the same iteration order; sorted collections must also have equal comparators.
+   * The pool only refers to collections weakly, so it does not keep them from being garbage
+   * collected. A partial view, such as a sublist, is pooled as is and keeps its whole backing
+   * array reachable; copy it first to avoid that. This method is safe to call from multiple
+   * threads.
+   *
+   * <p>Canonicalizing computes {@code hashCode()} of the collection, which takes linear time for
+   * lists, and compares it with pooled collections of the same hash code. It is worthwhile for
+   * long-lived collections that are likely to have many equal copies.
+   */
+  @Beta
+  @MiniGuavaSpecific
+  public static <C extends ImmutableCollection<?>> C canonicalize(C collection) {
+    return CANONICAL_POOL.canonicalize(checkNotNull(collection));
+  }
+
+  /**
+   * Returns a canonical instance of {@code map}: a map previously passed to this method that is
+   * still in use and interchangeable with {@code map}, or {@code map} itself if there is none.
+   * Maps are interchangeable when they are of the same class and contain equal entries in the same
+   * iteration order; sorted maps must also have equal comparators. See {@link
+   * #canonicalize(ImmutableCollection)}.
+   */
+  @Beta
+  @MiniGuavaSpecific
+  public static <M extends ImmutableMap<?, ?>> M canonicalize(M map) {
+    return CANONICAL_POOL.canonicalize(checkNotNull(map));
+  }
+
+  /**
+   * Returns the distribution of the elements of {@code collection} over its hash table, or {@code
+   * null} if it does not look up elements by hash, as is the case for lists, sorted sets and sets
+   * of few elements. Computing the statistics takes linear time.
+   */
+  @Beta
+  @MiniGuavaSpecific
+  @Nullable
+  public static HashStatistics hashStatistics(ImmutableCollection<?> collection) {
+    return collection.hashStatistics();
+  }
+
+  /**
+   * Returns the distribution of the keys of {@code map} over its hash table, or {@code null} if
+   * it does not look up keys by hash, as is the case for sorted maps and enum maps. Computing the
+   * statistics takes linear time.
+   */
+  @Beta
+  @MiniGuavaSpecific
+  @Nullable
+  public static HashStatistics hashStatistics(ImmutableMap<?, ?> map) {
+    return map.hashStatistics();
+  }
+
+  /**
+   * Starts passing the {@link HashStatistics} of every {@code interval}th hash table built by an
+   * immutable map or set to {@code listener}, replacing the listener set before. Passing a null
+   * listener stops sampling. The listener is called on the thread building the collection, before
+   * it is returned, and should only record the statistics, for example as metrics. Collections
+   * built by the listener itself are not sampled, and exceptions it throws are logged instead of
+   * being propagated.
+   *
+   * <p>While no listener is set, building a collection only checks that there is none.
+   *
+   * @throws IllegalArgumentException if {@code interval} is not positive
+   */
+  @Beta
+  @MiniGuavaSpecific
+  public static void sampleHashStatistics(
+      int interval, @Nullable Consumer<? super HashStatistics> listener) {
+    HashStatistics.setSampling(interval, listener);
+  }
 }
@@ -24,6 +24,7 @@ import net.ypresto.miniguava.base.Joiner.MapJoiner;
 import net.ypresto.miniguava.collect.UnmodifiableIterator;
 import net.ypresto.miniguava.collect.internal.AbstractMapEntry;
 
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.NoSuchElementException;
@@ -178,6 +179,22 @@ class InternalUtils {
     return value;
   }
 
+  /**
+   * Returns a map from the ith element of list to i.
+   *
+   * @throws IllegalArgumentException if {@code list} has duplicate elements
+   */
+  // miniguava: Unlike collect.Maps.indexMap, returns an ImmutableMap as Guava does.
+  @MiniGuavaSpecific(value = MiniGuavaSpecific.Reason.COPIED, from = "collect.Maps")
+  static <E> ImmutableMap<E, Integer> indexMap(Collection<E> list) {
+    ImmutableMap.Builder<E, Integer> builder = new ImmutableMap.Builder<E, Integer>(list.size());
+    int i = 0;
+    for (E e : list) {
+      builder.put(e, i++);
+    }
+    return builder.build();
+  }
+
   /**
    * Returns the single element contained in {@code iterable}.
    *
@@ -0,0 +1,229 @@
+/*
+ * Copyright (C) 2016 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ypresto.miniguava.collect.immutables;
+
+import static net.ypresto.miniguava.base.Preconditions.checkNotNull;
+
+import net.ypresto.miniguava.annotations.Beta;
+import net.ypresto.miniguava.annotations.MiniGuavaSpecific;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * Static methods for storing an {@link ImmutableIntArray}, {@link ImmutableLongArray} or {@link
+ * ImmutableDoubleArray} in a binary file and reopening it as a {@link MappedIntArray}, {@link
+ * MappedLongArray} or {@link MappedDoubleArray} backed by memory-mapped buffers.
+ *
+ * <p>A mapped array does not copy its values to the heap. Opening it costs one {@code mmap} call
+ * per gigabyte regardless of its size, and the page cache holds the data, so it is shared by
+ * every process mapping the file. Unlike a single {@link java.nio.MappedByteBuffer}, a mapped
+ * array may be larger than 2 GB; it holds at most {@link Integer#MAX_VALUE} values.
+ *
+ * <p>The file must not be modified or truncated while it is mapped; doing so results in undefined
+ * behavior of the returned array, including exceptions from unrelated methods.
+ */
+@Beta
+@MiniGuavaSpecific
+public final class MappedImmutableArrays {
+  private MappedImmutableArrays() {}
+
+  static final int MAGIC = 0x4D474152; // "MGAR"
+  static final int VERSION = 1;
+  // magic, version, value type, length
+  static final int HEADER_BYTES = 16;
+
+  static final int TYPE_INT = 1;
+  static final int TYPE_LONG = 2;
+  static final int TYPE_DOUBLE = 3;
+
+  /** Each mapped buffer covers {@code 1 << SEGMENT_SHIFT} bytes of values, except the last. */
+  static final int SEGMENT_SHIFT = 30;
+
+  // the size of the heap buffer through which values are written
+  private static final int WRITE_BUFFER_BYTES = 1 << 16;
+
+  /** Writes the values of {@code array} to {@code file}, replacing its contents. */
+  public static void write(ImmutableIntArray array, File file) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_BYTES);
+    FileWriter writer = new FileWriter(file, TYPE_INT, array.length(), buffer);
+    try {
+      for (int i = 0; i < array.length(); i++) {
+        buffer.putInt(array.get(i));
+        writer.flushIfFull();
+      }
+      writer.finish();
+    } finally {
+      writer.close();
+    }
+  }
+
+  /** Writes the values of {@code array} to {@code file}, replacing its contents. */
+  public static void write(ImmutableLongArray array, File file) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_BYTES);
+    FileWriter writer = new FileWriter(file, TYPE_LONG, array.length(), buffer);
+    try {
+      for (int i = 0; i < array.length(); i++) {
+        buffer.putLong(array.get(i));
+        writer.flushIfFull();
+      }
+      writer.finish();
+    } finally {
+      writer.close();
+    }
+  }
+
+  /** Writes the values of {@code array} to {@code file}, replacing its contents. */
+  public static void write(ImmutableDoubleArray array, File file) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_BYTES);
+    FileWriter writer = new FileWriter(file, TYPE_DOUBLE, array.length(), buffer);
+    try {
+      for (int i = 0; i < array.length(); i++) {
+        buffer.putDouble(array.get(i));
+        writer.flushIfFull();
+      }
+      writer.finish();
+    } finally {
+      writer.close();
+    }
+  }
+
+  /**
+   * Writes the header and then the values put into {@code buffer}. Every value size divides the
+   * buffer size, so a value never straddles a flush.
+   */
+  private static final class FileWriter {
+    private final RandomAccessFile raf;
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+
+    FileWriter(File file, int type, int length, ByteBuffer buffer) throws IOException {
+      checkNotNull(file);
+      this.raf = new RandomAccessFile(file, "rw");
+      this.channel = raf.getChannel();
+      this.buffer = buffer;
+      raf.setLength(0);
+      buffer.putInt(MAGIC).putInt(VERSION).putInt(type).putInt(length);
+    }
+
+    void flushIfFull() throws IOException {
+      if (!buffer.hasRemaining()) {
+        flush();
+      }
+    }
+
+    private void flush() throws IOException {
+      buffer.flip();
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      buffer.clear();
+    }
+
+    void finish() throws IOException {
+      flush();
+      channel.force(false);
+    }
+
+    void close() throws IOException {
+      raf.close();
+    }
+  }
+
+  /**
+   * Maps {@code file}, which must have been written by {@link #write(ImmutableIntArray, File)},
+   * and returns an immutable array view of its values. The file stays mapped until the returned
+   * array is garbage collected.
+   *
+   * @throws IOException if {@code file} cannot be read or is not in the expected format
+   */
+  public static MappedIntArray mapIntArray(File file) throws IOException {
+    return new MappedIntArray(mapSegments(file, TYPE_INT, 2, SEGMENT_SHIFT), SEGMENT_SHIFT - 2);
+  }
+
+  /**
+   * Maps {@code file}, which must have been written by {@link #write(ImmutableLongArray, File)},
+   * and returns an immutable array view of its values. The file stays mapped until the returned
+   * array is garbage collected.
+   *
+   * @throws IOException if {@code file} cannot be read or is not in the expected format
+   */
+  public static MappedLongArray mapLongArray(File file) throws IOException {
+    return new MappedLongArray(mapSegments(file, TYPE_LONG, 3, SEGMENT_SHIFT), SEGMENT_SHIFT - 3);
+  }
+
+  /**
+   * Maps {@code file}, which must have been written by {@link #write(ImmutableDoubleArray, File)},
+   * and returns an immutable array view of its values. The file stays mapped until the returned
+   * array is garbage collected.
+   *
+   * @throws IOException if {@code file} cannot be read or is not in the expected format
+   */
+  public static MappedDoubleArray mapDoubleArray(File file) throws IOException {
+    return new MappedDoubleArray(
+        mapSegments(file, TYPE_DOUBLE, 3, SEGMENT_SHIFT), SEGMENT_SHIFT - 3);
+  }
+
+  /**
+   * Maps the values in {@code file} as read-only buffers of {@code 1 << segmentShift} bytes each,
+   * except for the last one, which may be shorter. Values are {@code 1 << valueShift} bytes wide.
+   */
+  static ByteBuffer[] mapSegments(File file, int type, int valueShift, int segmentShift)
+      throws IOException {
+    RandomAccessFile raf = new RandomAccessFile(file, "r");
+    try {
+      FileChannel channel = raf.getChannel();
+      ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+      while (header.hasRemaining()) {
+        if (channel.read(header) < 0) {
+          break;
+        }
+      }
+      if (header.hasRemaining()
+          || header.getInt(0) != MAGIC
+          || header.getInt(4) != VERSION) {
+        throw new IOException("not a MappedImmutableArrays file");
+      }
+      if (header.getInt(8) != type) {
+        throw new IOException("MappedImmutableArrays file of another value type");
+      }
+      int length = header.getInt(12);
+      if (length < 0) {
+        throw new IOException("corrupt MappedImmutableArrays header");
+      }
+      long valueBytes = (long) length << valueShift;
+      if (channel.size() < HEADER_BYTES + valueBytes) {
+        throw new IOException("truncated MappedImmutableArrays file");
+      }
+      long segmentBytes = 1L << segmentShift;
+      int segmentCount = (int) ((valueBytes + segmentBytes - 1) >>> segmentShift);
+      ByteBuffer[] segments = new ByteBuffer[segmentCount];
+      for (int i = 0; i < segments.length; i++) {
+        long offset = (long) i << segmentShift;
+        segments[i] = channel.map(
+            MapMode.READ_ONLY, HEADER_BYTES + offset, Math.min(segmentBytes, valueBytes - offset));
+      }
+      return segments;
+    } finally {
+      raf.close();
+    }
+  }
+}
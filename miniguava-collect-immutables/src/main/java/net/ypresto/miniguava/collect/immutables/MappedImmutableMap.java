@@ -0,0 +1,227 @@
+/*
+ * Copyright (C) 2016 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ypresto.miniguava.collect.immutables;
+
+import static net.ypresto.miniguava.base.Preconditions.checkNotNull;
+
+import net.ypresto.miniguava.annotations.MiniGuavaSpecific;
+import net.ypresto.miniguava.base.BiConsumer;
+import net.ypresto.miniguava.collect.UnmodifiableIterator;
+import net.ypresto.miniguava.collect.immutables.ImmutableMap.IteratorBasedImmutableMap;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.NoSuchElementException;
+
+import javax.annotation.Nullable;
+
+/**
+ * Implementation of {@link ImmutableMap} which reads its entries from a buffer in the format
+ * written by {@link MappedImmutableMaps#write}. Keys and values are decoded on access.
+ *
+ * <p>Layout, all integers big-endian:
+ *
+ * <pre>
+ *   header:  int magic, int version, int size, int tableSize
+ *   table:   int[tableSize]   entry index + 1 in hashed position, 0 for an empty slot
+ *   entries: size * (int keyHash, int keyOffset, int keyLength, int valueLength)
+ *   data:    encoded key immediately followed by encoded value, for each entry
+ * </pre>
+ *
+ * <p>Entries are stored in the iteration order of the original map. The table uses open addressing
+ * with linear probing over a hash of the encoded key bytes, so lookups never depend on
+ * {@link Object#hashCode} being stable across processes.
+ */
+@MiniGuavaSpecific
+@SuppressWarnings("serial") // uses writeReplace(), not default serialization
+final class MappedImmutableMap<K, V> extends IteratorBasedImmutableMap<K, V> {
+  static final int MAGIC = 0x4D474D50; // "MGMP"
+  static final int VERSION = 1;
+  static final int HEADER_BYTES = 16;
+  static final int ENTRY_BYTES = 16;
+
+  private final transient ByteBuffer buffer;
+  private final transient BinaryCodec<K> keyCodec;
+  private final transient BinaryCodec<V> valueCodec;
+  private final transient int size;
+  private final transient int mask;
+  private final transient int entriesOffset;
+
+  MappedImmutableMap(ByteBuffer buffer, BinaryCodec<K> keyCodec, BinaryCodec<V> valueCodec)
+      throws IOException {
+    this.buffer = buffer;
+    this.keyCodec = keyCodec;
+    this.valueCodec = valueCodec;
+    if (buffer.capacity() < HEADER_BYTES
+        || buffer.getInt(0) != MAGIC
+        || buffer.getInt(4) != VERSION) {
+      throw new IOException("not a MappedImmutableMap file");
+    }
+    this.size = buffer.getInt(8);
+    int tableSize = buffer.getInt(12);
+    if (size < 0 || tableSize <= size || Integer.bitCount(tableSize) != 1) {
+      throw new IOException("corrupt MappedImmutableMap header");
+    }
+    long entriesOffset = HEADER_BYTES + (long) tableSize * 4;
+    if (entriesOffset + (long) size * ENTRY_BYTES > buffer.capacity()) {
+      throw new IOException("truncated MappedImmutableMap file");
+    }
+    this.mask = tableSize - 1;
+    this.entriesOffset = (int) entriesOffset;
+  }
+
+  /**
+   * Hashes the bytes of {@code buffer} between {@code offset} and {@code offset + length}. This is
+   * part of the file format and must never change for a given {@link #VERSION}.
+   */
+  static int hashBytes(ByteBuffer buffer, int offset, int length) {
+    int hash = 1;
+    for (int i = 0; i < length; i++) {
+      hash = 31 * hash + buffer.get(offset + i);
+    }
+    return Hashing.smear(hash);
+  }
+
+  static boolean bytesEqual(ByteBuffer a, int aOffset, ByteBuffer b, int bOffset, int length) {
+    for (int i = 0; i < length; i++) {
+      if (a.get(aOffset + i) != b.get(bOffset + i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  boolean isPartialView() {
+    return false;
+  }
+
+  /**
+   * Returns the index of the entry whose key is {@code key}, or -1 if there is none.
+   */
+  private int indexOf(@Nullable Object key) {
+    if (key == null || size == 0) {
+      return -1;
+    }
+    ByteBuffer encodedKey;
+    try {
+      @SuppressWarnings("unchecked") // a key of the wrong type fails with ClassCastException
+      K k = (K) key;
+      encodedKey = ByteBuffer.allocate(keyCodec.encodedLength(k));
+      keyCodec.encode(k, encodedKey);
+    } catch (ClassCastException e) {
+      return -1;
+    }
+    int keyLength = encodedKey.capacity();
+    int hash = hashBytes(encodedKey, 0, keyLength);
+    for (int i = hash; ; i++) {
+      int slot = buffer.getInt(HEADER_BYTES + (i & mask) * 4);
+      if (slot == 0) {
+        return -1;
+      }
+      int entry = entriesOffset + (slot - 1) * ENTRY_BYTES;
+      if (buffer.getInt(entry) == hash
+          && buffer.getInt(entry + 8) == keyLength
+          && bytesEqual(buffer, buffer.getInt(entry + 4), encodedKey, 0, keyLength)) {
+        return slot - 1;
+      }
+    }
+  }
+
+  @Override
+  public boolean containsKey(@Nullable Object key) {
+    return indexOf(key) >= 0;
+  }
+
+  @Override
+  public V get(@Nullable Object key) {
+    int index = indexOf(key);
+    return (index < 0) ? null : valueAt(index);
+  }
+
+  @Override
+  public void forEachEntry(BiConsumer<? super K, ? super V> action) {
+    checkNotNull(action);
+    for (int i = 0; i < size; i++) {
+      action.accept(keyAt(i), valueAt(i));
+    }
+  }
+
+  private K keyAt(int index) {
+    int entry = entriesOffset + index * ENTRY_BYTES;
+    int keyOffset = buffer.getInt(entry + 4);
+    return decode(keyCodec, keyOffset, buffer.getInt(entry + 8));
+  }
+
+  private V valueAt(int index) {
+    int entry = entriesOffset + index * ENTRY_BYTES;
+    int valueOffset = buffer.getInt(entry + 4) + buffer.getInt(entry + 8);
+    return decode(valueCodec, valueOffset, buffer.getInt(entry + 12));
+  }
+
+  private <T> T decode(BinaryCodec<T> codec, int offset, int length) {
+    // duplicate() keeps concurrent readers from sharing a position
+    ByteBuffer src = buffer.duplicate();
+    src.limit(offset + length);
+    src.position(offset);
+    return codec.decode(src);
+  }
+
+  @Override
+  UnmodifiableIterator<K> keyIterator() {
+    return new IndexIterator<K>() {
+      @Override
+      K get(int index) {
+        return keyAt(index);
+      }
+    };
+  }
+
+  @Override
+  UnmodifiableIterator<Entry<K, V>> entryIterator() {
+    return new IndexIterator<Entry<K, V>>() {
+      @Override
+      Entry<K, V> get(int index) {
+        return entryOf(keyAt(index), valueAt(index));
+      }
+    };
+  }
+
+  private abstract class IndexIterator<T> extends UnmodifiableIterator<T> {
+    private int index;
+
+    abstract T get(int index);
+
+    @Override
+    public boolean hasNext() {
+      return index < size;
+    }
+
+    @Override
+    public T next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      return get(index++);
+    }
+  }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2016 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ypresto.miniguava.collect.immutables;
+
+import static net.ypresto.miniguava.base.Preconditions.checkNotNull;
+import static net.ypresto.miniguava.collect.immutables.MappedImmutableMap.ENTRY_BYTES;
+import static net.ypresto.miniguava.collect.immutables.MappedImmutableMap.HEADER_BYTES;
+
+import net.ypresto.miniguava.annotations.Beta;
+import net.ypresto.miniguava.annotations.MiniGuavaSpecific;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferOverflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.Map.Entry;
+
+/**
+ * Static methods for storing an {@link ImmutableMap} in a compact binary file and reopening it as
+ * an {@code ImmutableMap} backed by a {@link MappedByteBuffer}.
+ *
+ * <p>A mapped map does not materialize its entries on the heap. Opening it costs a single
+ * {@code mmap} call regardless of its size; each lookup hashes the encoded form of the query key,
+ * compares encoded bytes, and decodes only the value it returns. Iteration decodes keys and values
+ * as it goes. The page cache holds the data, so it is shared by every process mapping the file.
+ *
+ * <p>Keys and values are converted with {@link BinaryCodec}s, which must be canonical: equal keys
+ * must encode to equal bytes. The same codecs must be used to write and to read a file. A single
+ * file holds at most {@link Integer#MAX_VALUE} bytes.
+ *
+ * <p>The file must not be modified or truncated while it is mapped; doing so results in undefined
+ * behavior of the returned map, including exceptions from unrelated methods.
+ */
+@Beta
+@MiniGuavaSpecific
+public final class MappedImmutableMaps {
+  private MappedImmutableMaps() {}
+
+  private static final double LOAD_FACTOR = 0.7;
+
+  /**
+   * Writes the entries of {@code map} to {@code file}, replacing its contents. The entries keep
+   * the iteration order of {@code map}.
+   *
+   * @throws IllegalArgumentException if two keys have the same encoded form, or if the encoded map
+   *     exceeds {@link Integer#MAX_VALUE} bytes
+   * @throws IllegalStateException if a codec writes a different number of bytes than it declares
+   */
+  public static <K, V> void write(
+      ImmutableMap<K, V> map,
+      File file,
+      BinaryCodec<? super K> keyCodec,
+      BinaryCodec<? super V> valueCodec)
+      throws IOException {
+    checkNotNull(file);
+    checkNotNull(keyCodec);
+    checkNotNull(valueCodec);
+    int size = map.size();
+    int tableSize = Hashing.closedTableSize(size, LOAD_FACTOR);
+    int[] keyLengths = new int[size];
+    int[] valueLengths = new int[size];
+    long entriesOffset = HEADER_BYTES + (long) tableSize * 4;
+    long dataOffset = entriesOffset + (long) size * ENTRY_BYTES;
+    long fileLength = dataOffset;
+    int i = 0;
+    for (Entry<K, V> entry : map.entrySet()) {
+      keyLengths[i] = keyCodec.encodedLength(entry.getKey());
+      valueLengths[i] = valueCodec.encodedLength(entry.getValue());
+      fileLength += (long) keyLengths[i] + valueLengths[i];
+      i++;
+    }
+    if (fileLength > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("map too large for a single file: " + fileLength);
+    }
+
+    RandomAccessFile raf = new RandomAccessFile(file, "rw");
+    try {
+      raf.setLength(0);
+      raf.setLength(fileLength);
+      MappedByteBuffer out = raf.getChannel().map(MapMode.READ_WRITE, 0, fileLength);
+      out.putInt(0, MappedImmutableMap.MAGIC);
+      out.putInt(4, MappedImmutableMap.VERSION);
+      out.putInt(8, size);
+      out.putInt(12, tableSize);
+
+      int[] keyOffsets = new int[size];
+      int[] hashes = new int[size];
+      int mask = tableSize - 1;
+      int position = (int) dataOffset;
+      i = 0;
+      for (Entry<K, V> entry : map.entrySet()) {
+        keyOffsets[i] = position;
+        position = encode(keyCodec, entry.getKey(), out, position, keyLengths[i]);
+        position = encode(valueCodec, entry.getValue(), out, position, valueLengths[i]);
+        int hash = MappedImmutableMap.hashBytes(out, keyOffsets[i], keyLengths[i]);
+        hashes[i] = hash;
+        for (int j = hash; ; j++) {
+          int tableOffset = HEADER_BYTES + (j & mask) * 4;
+          int slot = out.getInt(tableOffset);
+          if (slot == 0) {
+            out.putInt(tableOffset, i + 1);
+            break;
+          }
+          int other = slot - 1;
+          if (hashes[other] == hash
+              && keyLengths[other] == keyLengths[i]
+              && MappedImmutableMap.bytesEqual(
+                  out, keyOffsets[other], out, keyOffsets[i], keyLengths[i])) {
+            throw new IllegalArgumentException(
+                "Multiple keys with same encoded form: entry " + other + " and " + entry);
+          }
+        }
+
+        int entryOffset = (int) entriesOffset + i * ENTRY_BYTES;
+        out.putInt(entryOffset, hash);
+        out.putInt(entryOffset + 4, keyOffsets[i]);
+        out.putInt(entryOffset + 8, keyLengths[i]);
+        out.putInt(entryOffset + 12, valueLengths[i]);
+        i++;
+      }
+      out.force();
+    } finally {
+      raf.close();
+    }
+  }
+
+  private static <T> int encode(
+      BinaryCodec<? super T> codec, T value, MappedByteBuffer out, int position, int length) {
+    out.limit(position + length);
+    out.position(position);
+    try {
+      codec.encode(value, out);
+    } catch (BufferOverflowException e) {
+      throw new IllegalStateException(
+          "codec wrote more bytes for " + value + " than the declared " + length);
+    }
+    if (out.position() != position + length) {
+      throw new IllegalStateException(
+          "codec wrote " + (out.position() - position) + " bytes for " + value
+              + " but declared " + length);
+    }
+    out.limit(out.capacity());
+    return out.position();
+  }
+
+  /**
+   * Maps {@code file}, which must have been written by {@link #write}, and returns an immutable map
+   * view of its entries. The file stays mapped until the returned map is garbage collected.
+   *
+   * @throws IOException if {@code file} cannot be read or is not in the expected format
+   */
+  public static <K, V> ImmutableMap<K, V> map(
+      File file, BinaryCodec<K> keyCodec, BinaryCodec<V> valueCodec) throws IOException {
+    checkNotNull(keyCodec);
+    checkNotNull(valueCodec);
+    RandomAccessFile raf = new RandomAccessFile(file, "r");
+    try {
+      FileChannel channel = raf.getChannel();
+      MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+      return new MappedImmutableMap<K, V>(buffer, keyCodec, valueCodec);
+    } finally {
+      raf.close();
+    }
+  }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2016 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ypresto.miniguava.collect.immutables;
+
+import static net.ypresto.miniguava.base.Preconditions.checkElementIndex;
+
+import net.ypresto.miniguava.annotations.Beta;
+import net.ypresto.miniguava.annotations.MiniGuavaSpecific;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+
+import javax.annotation.Nullable;
+
+/**
+ * An immutable array of {@code long} values stored in a memory-mapped file, with an API
+ * resembling {@link ImmutableLongArray}. Instances are obtained from {@link
+ * MappedImmutableArrays#mapLongArray}.
+ *
+ * <p>Reading a value may block while the operating system loads its page from the file. Use
+ * {@link #asList} for a view which is an {@code ImmutableList<Long>}, or {@link #toArray} to
+ * copy the values to the heap.
+ */
+@Beta
+@MiniGuavaSpecific
+public final class MappedLongArray {
+  // all full except the last one; only absolute get methods are used, so they may be shared
+  private final LongBuffer[] segments;
+  private final int segmentShift;
+  private final int segmentMask;
+  private final int length;
+
+  MappedLongArray(ByteBuffer[] segments, int segmentShift) {
+    this.segments = new LongBuffer[segments.length];
+    long length = 0;
+    for (int i = 0; i < segments.length; i++) {
+      this.segments[i] = segments[i].asLongBuffer();
+      length += this.segments[i].capacity();
+    }
+    this.segmentShift = segmentShift;
+    this.segmentMask = (1 << segmentShift) - 1;
+    this.length = (int) length;
+  }
+
+  /** Returns the number of values in this array. */
+  public int length() {
+    return length;
+  }
+
+  /** Returns {@code true} if there are no values in this array ({@link #length} is zero). */
+  public boolean isEmpty() {
+    return length == 0;
+  }
+
+  /**
+   * Returns the {@code long} value present at the given index.
+   *
+   * @throws IndexOutOfBoundsException if {@code index} is negative, or greater than or equal to
+   *     {@link #length}
+   */
+  public long get(int index) {
+    checkElementIndex(index, length);
+    return segments[index >>> segmentShift].get(index & segmentMask);
+  }
+
+  /**
+   * Returns the smallest index for which {@link #get} returns {@code target}, or {@code -1} if no
+   * such index exists. This reads the values up to that index.
+   */
+  public int indexOf(long target) {
+    for (int i = 0; i < length; i++) {
+      if (get(i) == target) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Returns {@code true} if {@code target} is present at any index in this array. This reads the
+   * values up to that index.
+   */
+  public boolean contains(long target) {
+    return indexOf(target) >= 0;
+  }
+
+  /**
+   * Searches this array for {@code key} by binary search, reading {@code O(log n)} values. The
+   * array must be sorted in ascending order; otherwise the result is undefined.
+   *
+   * @return the index of {@code key} as {@link java.util.Arrays#binarySearch(long[], long)} would
+   *     return it: if {@code key} is not present, {@code (-(insertion point) - 1)}
+   */
+  public int binarySearch(long key) {
+    int low = 0;
+    int high = length - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      long midValue = get(mid);
+      if (midValue < key) {
+        low = mid + 1;
+      } else if (midValue > key) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -(low + 1);
+  }
+
+  /** Returns a new, mutable copy of this array's values, as a primitive {@code long[]}. */
+  public long[] toArray() {
+    long[] array = new long[length];
+    int position = 0;
+    for (LongBuffer segment : segments) {
+      // duplicate() since bulk get changes the position
+      LongBuffer source = segment.duplicate();
+      source.clear();
+      int count = source.remaining();
+      source.get(array, position, count);
+      position += count;
+    }
+    return array;
+  }
+
+  /**
+   * Returns an immutable <i>view</i> of this array's values as an {@code ImmutableList<Long>};
+   * note that {@code long} values are boxed into {@link Long} instances on demand. Since the view
+   * is not a partial view of a larger array, {@link ImmutableList#copyOf(java.util.Collection)}
+   * returns it without copying.
+   */
+  public ImmutableList<Long> asList() {
+    return isEmpty() ? ImmutableList.<Long>of() : new AsList(this);
+  }
+
+  @SuppressWarnings("serial") // uses writeReplace(), not default serialization
+  private static final class AsList extends ImmutableList<Long> {
+    private final transient MappedLongArray parent;
+
+    private AsList(MappedLongArray parent) {
+      this.parent = parent;
+    }
+
+    @Override
+    public int size() {
+      return parent.length();
+    }
+
+    @Override
+    public Long get(int index) {
+      return parent.get(index);
+    }
+
+    @Override
+    public boolean contains(@Nullable Object target) {
+      return indexOf(target) >= 0;
+    }
+
+    @Override
+    public int indexOf(@Nullable Object target) {
+      return target instanceof Long ? parent.indexOf((Long) target) : -1;
+    }
+
+    @Override
+    boolean isPartialView() {
+      return false;
+    }
+  }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2016 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ypresto.miniguava.collect.immutables;
+
+import net.ypresto.miniguava.annotations.Beta;
+import net.ypresto.miniguava.annotations.MiniGuavaSpecific;
+
+/**
+ * How a builder sizes the hash table of the immutable map or set it builds, as passed to {@link
+ * ImmutableMap.Builder#optimizeFor} and {@link ImmutableSet.Builder#optimizeFor}. A larger table
+ * makes collisions rarer, so lookups, and especially lookups of absent keys, examine fewer
+ * entries, at the cost of more memory per key. The built collections behave identically, with the
+ * same iteration order, whatever the goal.
+ *
+ * <p>Tables are sized in powers of two, so the actual load factor of a table may be up to half of
+ * the maximum listed for each goal.
+ */
+@Beta
+@MiniGuavaSpecific
+public enum OptimizationGoal {
+  /**
+   * Packs the table tightly, for memory-constrained environments: up to two keys per bucket in a
+   * map and a load factor of up to 0.85 in a set.
+   */
+  MEMORY(2.0, 0.85),
+
+  /**
+   * The default: up to 1.2 keys per bucket in a map and a load factor of up to 0.7 in a set.
+   */
+  BALANCED(RegularImmutableMap.MAX_LOAD_FACTOR, ImmutableSet.DESIRED_LOAD_FACTOR),
+
+  /**
+   * Keeps the table sparse, for latency-critical lookups: up to 0.75 keys per bucket in a map and
+   * a load factor of up to 0.5 in a set.
+   */
+  LOOKUP_SPEED(0.75, 0.5);
+
+  // the maximum number of entries per bucket of a table with separate chaining
+  final double chainedLoadFactor;
+  // the maximum fraction of occupied slots of a table with open addressing
+  final double openAddressingLoadFactor;
+
+  OptimizationGoal(double chainedLoadFactor, double openAddressingLoadFactor) {
+    this.chainedLoadFactor = chainedLoadFactor;
+    this.openAddressingLoadFactor = openAddressingLoadFactor;
+  }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright (C) 2016 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ypresto.miniguava.collect.immutables;
+
+import net.ypresto.miniguava.annotations.MiniGuavaSpecific;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import javax.annotation.Nullable;
+
+/**
+ * Helpers for building large hash-based immutable collections on several threads. They run the
+ * expensive part of a build, calling {@code hashCode()} and {@code equals()} on every element, in
+ * parallel, so that the caller only has to place elements whose hashes are known and which are
+ * known to be distinct. The caller places them sequentially in the same order as the sequential
+ * build, so the resulting collection is identical.
+ *
+ * <p>Duplicates are found by partitioning the elements by the high bits of their smeared hash.
+ * Equal elements have equal hashes, so each partition can be searched for duplicates
+ * independently.
+ */
+@MiniGuavaSpecific
+final class ParallelHashing {
+  private ParallelHashing() {}
+
+  /** Below this size, the cost of scheduling tasks outweighs the parallel speedup. */
+  static final int MIN_PARALLEL_SIZE = 1 << 14;
+
+  private static final int PARTITION_BITS = 6;
+  private static final int PARTITIONS = 1 << PARTITION_BITS;
+
+  /**
+   * Returns the hash codes of the first {@code n} elements of {@code objects}, or null if one of
+   * them is null or the current thread is interrupted. In either case the caller should fall back
+   * to the sequential build, which reports null elements the usual way.
+   */
+  @Nullable
+  static int[] hashCodes(final Object[] objects, int n, ExecutorService executor) {
+    final int[] hashes = new int[n];
+    int chunkSize = (n + PARTITIONS - 1) / PARTITIONS;
+    List<Callable<Boolean>> tasks = new ArrayList<Callable<Boolean>>(PARTITIONS);
+    for (int start = 0; start < n; start += chunkSize) {
+      final int from = start;
+      final int to = Math.min(n, start + chunkSize);
+      tasks.add(new Callable<Boolean>() {
+        @Override
+        public Boolean call() {
+          for (int i = from; i < to; i++) {
+            Object object = objects[i];
+            if (object == null) {
+              return false;
+            }
+            hashes[i] = object.hashCode();
+          }
+          return true;
+        }
+      });
+    }
+    return invokeAll(executor, tasks) ? hashes : null;
+  }
+
+  /**
+   * Finds the elements among the first {@code n} of {@code objects} which are equal to an earlier
+   * element. If {@code duplicate} is non-null, sets {@code duplicate[i]} for each of them.
+   *
+   * @return the number of duplicates, or -1 if the current thread is interrupted
+   */
+  static int markDuplicates(
+      final Object[] objects,
+      int n,
+      final int[] hashes,
+      @Nullable final boolean[] duplicate,
+      ExecutorService executor) {
+    // Counting sort of the indices by partition keeps each partition in encounter order, so the
+    // first of several equal elements is the one that is kept.
+    final int[] partitionStart = new int[PARTITIONS + 1];
+    for (int i = 0; i < n; i++) {
+      partitionStart[partitionOf(hashes[i]) + 1]++;
+    }
+    for (int p = 0; p < PARTITIONS; p++) {
+      partitionStart[p + 1] += partitionStart[p];
+    }
+    final int[] indices = new int[n];
+    int[] next = partitionStart.clone();
+    for (int i = 0; i < n; i++) {
+      indices[next[partitionOf(hashes[i])]++] = i;
+    }
+
+    final int[] duplicateCounts = new int[PARTITIONS];
+    List<Callable<Boolean>> tasks = new ArrayList<Callable<Boolean>>(PARTITIONS);
+    for (int p = 0; p < PARTITIONS; p++) {
+      final int partition = p;
+      tasks.add(new Callable<Boolean>() {
+        @Override
+        public Boolean call() {
+          duplicateCounts[partition] = markDuplicatesInPartition(
+              objects,
+              hashes,
+              indices,
+              partitionStart[partition],
+              partitionStart[partition + 1],
+              duplicate);
+          return true;
+        }
+      });
+    }
+    if (!invokeAll(executor, tasks)) {
+      return -1;
+    }
+    int duplicates = 0;
+    for (int count : duplicateCounts) {
+      duplicates += count;
+    }
+    return duplicates;
+  }
+
+  private static int markDuplicatesInPartition(
+      Object[] objects,
+      int[] hashes,
+      int[] indices,
+      int from,
+      int to,
+      @Nullable boolean[] duplicate) {
+    int count = to - from;
+    if (count < 2) {
+      return 0;
+    }
+    // open addressing over element index + 1; the smeared hash's low bits pick the slot, since
+    // its high bits are the same for the whole partition
+    int tableSize = Integer.highestOneBit(count - 1) << 2;
+    int mask = tableSize - 1;
+    int[] table = new int[tableSize];
+    int duplicates = 0;
+    for (int k = from; k < to; k++) {
+      int index = indices[k];
+      int hash = hashes[index];
+      for (int j = Hashing.smear(hash); ; j++) {
+        int slot = j & mask;
+        int other = table[slot] - 1;
+        if (other < 0) {
+          table[slot] = index + 1;
+          break;
+        } else if (hashes[other] == hash && objects[other].equals(objects[index])) {
+          if (duplicate != null) {
+            duplicate[index] = true;
+          }
+          duplicates++;
+          break;
+        }
+      }
+    }
+    return duplicates;
+  }
+
+  private static int partitionOf(int hash) {
+    return Hashing.smear(hash) >>> (Integer.SIZE - PARTITION_BITS);
+  }
+
+  /**
+   * Runs {@code tasks} and returns whether all of them returned true. Exceptions thrown by a task
+   * are rethrown. Returns false if the current thread is interrupted, leaving it interrupted.
+   */
+  private static boolean invokeAll(ExecutorService executor, List<Callable<Boolean>> tasks) {
+    List<Future<Boolean>> futures;
+    try {
+      futures = executor.invokeAll(tasks);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+    boolean result = true;
+    for (Future<Boolean> future : futures) {
+      try {
+        result &= future.get();
+      } catch (InterruptedException e) {
+        // invokeAll has already waited for every task
+        throw new AssertionError(e);
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException) {
+          throw (RuntimeException) cause;
+        } else if (cause instanceof Error) {
+          throw (Error) cause;
+        }
+        throw new AssertionError(cause);
+      }
+    }
+    return result;
+  }
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright (C) 2016 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ypresto.miniguava.collect.immutables;
+
+import static net.ypresto.miniguava.base.Preconditions.checkElementIndex;
+import static net.ypresto.miniguava.base.Preconditions.checkNotNull;
+
+import net.ypresto.miniguava.annotations.MiniGuavaSpecific;
+import net.ypresto.miniguava.base.Consumer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Implementation of {@link ImmutableList} as a persistent vector: a 32-way trie of leaf arrays plus
+ * a separate tail buffer holding the last (up to) 32 elements. {@link #plus} and {@link #with}
+ * copy only the path from the root to the affected leaf, so the result shares all other nodes with
+ * this list.
+ */
+@MiniGuavaSpecific
+@SuppressWarnings("serial") // uses writeReplace(), not default serialization
+final class PersistentImmutableList<E> extends ImmutableList<E> {
+  private static final int BITS = 5;
+  private static final int WIDTH = 1 << BITS;
+  private static final int MASK = WIDTH - 1;
+
+  private static final Object[] EMPTY_NODE = new Object[WIDTH];
+
+  private final transient int size;
+  // number of bits to shift an index by at the root level; always at least BITS
+  private final transient int shift;
+  // interior nodes and leaves are Object[WIDTH]; leaves hold elements
+  private final transient Object[] root;
+  // the last 1 to WIDTH elements, sized exactly
+  private final transient Object[] tail;
+
+  private PersistentImmutableList(int size, int shift, Object[] root, Object[] tail) {
+    this.size = size;
+    this.shift = shift;
+    this.root = root;
+    this.tail = tail;
+  }
+
+  /**
+   * Copies the elements of a non-empty {@code list} into a new persistent vector.
+   */
+  static <E> PersistentImmutableList<E> copyOf(ImmutableList<E> list) {
+    Object[] elements = list.toArray();
+    int size = elements.length;
+    int tailOffset = tailOffset(size);
+    Object[] tail = new Object[size - tailOffset];
+    System.arraycopy(elements, tailOffset, tail, 0, tail.length);
+
+    List<Object[]> nodes = new ArrayList<Object[]>(tailOffset >>> BITS);
+    for (int i = 0; i < tailOffset; i += WIDTH) {
+      Object[] leaf = new Object[WIDTH];
+      System.arraycopy(elements, i, leaf, 0, WIDTH);
+      nodes.add(leaf);
+    }
+    if (nodes.isEmpty()) {
+      return new PersistentImmutableList<E>(size, BITS, EMPTY_NODE, tail);
+    }
+    int shift = BITS;
+    while (true) {
+      List<Object[]> parents = new ArrayList<Object[]>((nodes.size() + MASK) >>> BITS);
+      for (int i = 0; i < nodes.size(); i += WIDTH) {
+        Object[] parent = new Object[WIDTH];
+        for (int j = 0; j < WIDTH && i + j < nodes.size(); j++) {
+          parent[j] = nodes.get(i + j);
+        }
+        parents.add(parent);
+      }
+      if (parents.size() == 1) {
+        return new PersistentImmutableList<E>(size, shift, parents.get(0), tail);
+      }
+      nodes = parents;
+      shift += BITS;
+    }
+  }
+
+  private static int tailOffset(int size) {
+    return (size - 1) & ~MASK;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  boolean isPartialView() {
+    return false;
+  }
+
+  /**
+   * Returns the leaf array which holds the element at {@code index}.
+   */
+  private Object[] leafFor(int index) {
+    if (index >= tailOffset(size)) {
+      return tail;
+    }
+    Object[] node = root;
+    for (int level = shift; level > 0; level -= BITS) {
+      node = (Object[]) node[(index >>> level) & MASK];
+    }
+    return node;
+  }
+
+  // The fake cast to E is safe because the creation methods only allow E's
+  @SuppressWarnings("unchecked")
+  @Override
+  public E get(int index) {
+    checkElementIndex(index, size);
+    return (E) leafFor(index)[index & MASK];
+  }
+
+  @Override
+  int copyIntoArray(Object[] dst, int offset) {
+    int tailOffset = tailOffset(size);
+    for (int i = 0; i < tailOffset; i += WIDTH) {
+      System.arraycopy(leafFor(i), 0, dst, offset + i, WIDTH);
+    }
+    System.arraycopy(tail, 0, dst, offset + tailOffset, tail.length);
+    return offset + size;
+  }
+
+  @Override
+  public void forEachElement(Consumer<? super E> action) {
+    checkNotNull(action);
+    forEachInNode(shift, root, action);
+    forEachInNode(0, tail, action);
+  }
+
+  /**
+   * Passes the elements under {@code node}, which is a leaf if {@code level} is 0, to {@code
+   * action}, visiting each leaf array once instead of descending from the root for each element.
+   */
+  // The fake cast to E is safe because the creation methods only allow E's
+  @SuppressWarnings("unchecked")
+  private static <E> void forEachInNode(int level, Object[] node, Consumer<? super E> action) {
+    if (level == 0) {
+      for (Object element : node) {
+        action.accept((E) element);
+      }
+      return;
+    }
+    // children are filled from the left; the rest of the slots are null
+    for (Object child : node) {
+      if (child == null) {
+        break;
+      }
+      forEachInNode(level - BITS, (Object[]) child, action);
+    }
+  }
+
+  @Override
+  public ImmutableList<E> plus(E element) {
+    checkNotNull(element);
+    int tailOffset = tailOffset(size);
+    if (size - tailOffset < WIDTH) {
+      Object[] newTail = ObjectArrays.arraysCopyOf(tail, tail.length + 1);
+      newTail[tail.length] = element;
+      return new PersistentImmutableList<E>(size + 1, shift, root, newTail);
+    }
+    // The tail is full; push it into the trie and start a new one.
+    Object[] newRoot;
+    int newShift = shift;
+    if ((size >>> BITS) > (1 << shift)) {
+      // The trie is full at this depth; grow it by one level.
+      newRoot = new Object[WIDTH];
+      newRoot[0] = root;
+      newRoot[1] = newPath(shift, tail);
+      newShift += BITS;
+    } else {
+      newRoot = pushTail(shift, root, tail);
+    }
+    return new PersistentImmutableList<E>(size + 1, newShift, newRoot, new Object[] {element});
+  }
+
+  private Object[] pushTail(int level, Object[] parent, Object[] tailNode) {
+    int subIndex = ((size - 1) >>> level) & MASK;
+    Object[] result = parent.clone();
+    Object[] nodeToInsert;
+    if (level == BITS) {
+      nodeToInsert = tailNode;
+    } else {
+      Object[] child = (Object[]) parent[subIndex];
+      nodeToInsert =
+          (child != null) ? pushTail(level - BITS, child, tailNode) : newPath(level - BITS, tailNode);
+    }
+    result[subIndex] = nodeToInsert;
+    return result;
+  }
+
+  private static Object[] newPath(int level, Object[] node) {
+    if (level == 0) {
+      return node;
+    }
+    Object[] result = new Object[WIDTH];
+    result[0] = newPath(level - BITS, node);
+    return result;
+  }
+
+  @Override
+  public ImmutableList<E> with(int index, E element) {
+    checkNotNull(element);
+    checkElementIndex(index, size);
+    if (index >= tailOffset(size)) {
+      Object[] newTail = tail.clone();
+      newTail[index & MASK] = element;
+      return new PersistentImmutableList<E>(size, shift, root, newTail);
+    }
+    return new PersistentImmutableList<E>(size, shift, assoc(shift, root, index, element), tail);
+  }
+
+  private static Object[] assoc(int level, Object[] node, int index, Object element) {
+    Object[] result = node.clone();
+    if (level == 0) {
+      result[index & MASK] = element;
+    } else {
+      int subIndex = (index >>> level) & MASK;
+      result[subIndex] = assoc(level - BITS, (Object[]) node[subIndex], index, element);
+    }
+    return result;
+  }
+}
@@ -16,6 +16,7 @@
 
 package net.ypresto.miniguava.collect.immutables;
 
+import net.ypresto.miniguava.base.Consumer;
 import net.ypresto.miniguava.collect.UnmodifiableListIterator;
 
 /**
@@ -53,6 +54,11 @@ class RegularImmutableAsList<E> extends ImmutableAsList<E> {
     return (UnmodifiableListIterator<E>) delegateList.listIterator(index);
   }
 
+  @Override
+  public void forEachElement(Consumer<? super E> action) {
+    delegateList.forEachElement(action);
+  }
+
   @Override
   int copyIntoArray(Object[] dst, int offset) {
     return delegateList.copyIntoArray(dst, offset);
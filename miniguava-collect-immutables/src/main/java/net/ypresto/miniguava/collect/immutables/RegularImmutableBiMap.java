@@ -0,0 +1,337 @@
+/*
+ * Copyright (C) 2016 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ypresto.miniguava.collect.immutables;
+
+import static net.ypresto.miniguava.base.Preconditions.checkNotNull;
+import static net.ypresto.miniguava.base.Preconditions.checkPositionIndex;
+import static net.ypresto.miniguava.collect.immutables.ImmutableMapEntry.createEntryArray;
+import static net.ypresto.miniguava.collect.immutables.InternalUtils.checkEntryNotNull;
+
+import net.ypresto.miniguava.annotations.MiniGuavaSpecific;
+import net.ypresto.miniguava.base.BiConsumer;
+import net.ypresto.miniguava.collect.UnmodifiableIterator;
+import net.ypresto.miniguava.collect.immutables.ImmutableMapEntry.NonTerminalImmutableBiMapEntry;
+
+import java.io.Serializable;
+
+import javax.annotation.Nullable;
+
+/**
+ * Bimap with zero or more mappings.
+ *
+ * @author Louis Wasserman
+ */
+@SuppressWarnings("serial") // uses writeReplace(), not default serialization
+final class RegularImmutableBiMap<K, V> extends ImmutableBiMap<K, V> {
+  @SuppressWarnings("unchecked") // the empty entry array holds no entries of any type
+  static final RegularImmutableBiMap<Object, Object> EMPTY =
+      fromEntryArray(0, (Entry<Object, Object>[]) EMPTY_ENTRY_ARRAY);
+
+  private static final double MAX_LOAD_FACTOR = 1.2;
+
+  private final transient ImmutableMapEntry<K, V>[] keyTable;
+  private final transient ImmutableMapEntry<K, V>[] valueTable;
+  private final transient Entry<K, V>[] entries;
+  private final transient int mask;
+  private final transient int hashCode;
+
+  static <K, V> RegularImmutableBiMap<K, V> fromEntries(Entry<K, V>... entries) {
+    return fromEntryArray(entries.length, entries);
+  }
+
+  /**
+   * Creates a RegularImmutableBiMap from the first n entries in entryArray, hashing each entry
+   * into both the key table and the value table in a single pass. Like
+   * {@link RegularImmutableMap#fromEntryArray}, this may replace the entries in entryArray with
+   * its own entry objects and may take ownership of entryArray.
+   */
+  static <K, V> RegularImmutableBiMap<K, V> fromEntryArray(int n, Entry<K, V>[] entryArray) {
+    return fromEntryArray(n, entryArray, MAX_LOAD_FACTOR);
+  }
+
+  /**
+   * Like {@link #fromEntryArray(int, Entry[])}, with hash tables of up to {@code loadFactor}
+   * entries per bucket.
+   */
+  @MiniGuavaSpecific
+  static <K, V> RegularImmutableBiMap<K, V> fromEntryArray(
+      int n, Entry<K, V>[] entryArray, double loadFactor) {
+    checkPositionIndex(n, entryArray.length);
+    int tableSize = Hashing.closedTableSize(n, loadFactor);
+    int mask = tableSize - 1;
+    ImmutableMapEntry<K, V>[] keyTable = createEntryArray(tableSize);
+    ImmutableMapEntry<K, V>[] valueTable = createEntryArray(tableSize);
+    Entry<K, V>[] entries;
+    if (n == entryArray.length) {
+      entries = entryArray;
+    } else {
+      entries = createEntryArray(n);
+    }
+    int hashCode = 0;
+
+    for (int i = 0; i < n; i++) {
+      Entry<K, V> entry = entryArray[i];
+      K key = entry.getKey();
+      V value = entry.getValue();
+      checkEntryNotNull(key, value);
+      int keyHash = key.hashCode();
+      int valueHash = value.hashCode();
+      int keyBucket = Hashing.smear(keyHash) & mask;
+      int valueBucket = Hashing.smear(valueHash) & mask;
+
+      ImmutableMapEntry<K, V> nextInKeyBucket = keyTable[keyBucket];
+      RegularImmutableMap.checkNoConflictInKeyBucket(key, entry, nextInKeyBucket);
+      ImmutableMapEntry<K, V> nextInValueBucket = valueTable[valueBucket];
+      checkNoConflictInValueBucket(value, entry, nextInValueBucket);
+      ImmutableMapEntry<K, V> newEntry;
+      if (nextInValueBucket == null && nextInKeyBucket == null) {
+        boolean reusable =
+            entry instanceof ImmutableMapEntry && ((ImmutableMapEntry<K, V>) entry).isReusable();
+        newEntry =
+            reusable ? (ImmutableMapEntry<K, V>) entry : new ImmutableMapEntry<K, V>(key, value);
+      } else {
+        newEntry = new NonTerminalImmutableBiMapEntry<K, V>(
+            key, value, nextInKeyBucket, nextInValueBucket);
+      }
+      keyTable[keyBucket] = newEntry;
+      valueTable[valueBucket] = newEntry;
+      entries[i] = newEntry;
+      hashCode += keyHash ^ valueHash;
+    }
+    return new RegularImmutableBiMap<K, V>(keyTable, valueTable, entries, mask, hashCode);
+  }
+
+  private RegularImmutableBiMap(
+      ImmutableMapEntry<K, V>[] keyTable,
+      ImmutableMapEntry<K, V>[] valueTable,
+      Entry<K, V>[] entries,
+      int mask,
+      int hashCode) {
+    this.keyTable = keyTable;
+    this.valueTable = valueTable;
+    this.entries = entries;
+    this.mask = mask;
+    this.hashCode = hashCode;
+    if (entries.length > 0) {
+      HashStatistics.sampleChains(keyTable);
+    }
+  }
+
+  private static void checkNoConflictInValueBucket(
+      Object value, Entry<?, ?> entry, @Nullable ImmutableMapEntry<?, ?> valueBucketHead) {
+    for (; valueBucketHead != null; valueBucketHead = valueBucketHead.getNextInValueBucket()) {
+      checkNoConflict(!value.equals(valueBucketHead.getValue()), "value", entry, valueBucketHead);
+    }
+  }
+
+  @Override
+  @Nullable
+  public V get(@Nullable Object key) {
+    return RegularImmutableMap.get(key, keyTable, mask);
+  }
+
+  @Override
+  HashStatistics hashStatistics() {
+    return HashStatistics.ofChains(keyTable);
+  }
+
+  @Override
+  ImmutableSet<Entry<K, V>> createEntrySet() {
+    return isEmpty()
+        ? ImmutableSet.<Entry<K, V>>of()
+        : new ImmutableMapEntrySet.RegularEntrySet<K, V>(this, entries);
+  }
+
+  @Override
+  public void forEachEntry(BiConsumer<? super K, ? super V> action) {
+    checkNotNull(action);
+    for (Entry<K, V> entry : entries) {
+      action.accept(entry.getKey(), entry.getValue());
+    }
+  }
+
+  @Override
+  boolean isHashCodeFast() {
+    return true;
+  }
+
+  @Override
+  public int hashCode() {
+    return hashCode;
+  }
+
+  @Override
+  boolean isPartialView() {
+    return false;
+  }
+
+  @Override
+  public int size() {
+    return entries.length;
+  }
+
+  @Override
+  int copyKeysIntoArray(Object[] dst, int offset) {
+    for (Entry<K, V> entry : entries) {
+      dst[offset++] = entry.getKey();
+    }
+    return offset;
+  }
+
+  @Override
+  int copyValuesIntoArray(Object[] dst, int offset) {
+    for (Entry<K, V> entry : entries) {
+      dst[offset++] = entry.getValue();
+    }
+    return offset;
+  }
+
+  private transient ImmutableBiMap<V, K> inverse;
+
+  @Override
+  public ImmutableBiMap<V, K> inverse() {
+    if (isEmpty()) {
+      return ImmutableBiMap.of();
+    }
+    ImmutableBiMap<V, K> result = inverse;
+    return (result == null) ? inverse = new Inverse() : result;
+  }
+
+  private final class Inverse extends ImmutableBiMap<V, K> {
+
+    @Override
+    public int size() {
+      return entries.length;
+    }
+
+    @Override
+    int copyKeysIntoArray(Object[] dst, int offset) {
+      return RegularImmutableBiMap.this.copyValuesIntoArray(dst, offset);
+    }
+
+    @Override
+    int copyValuesIntoArray(Object[] dst, int offset) {
+      return RegularImmutableBiMap.this.copyKeysIntoArray(dst, offset);
+    }
+
+    @Override
+    public ImmutableBiMap<K, V> inverse() {
+      return RegularImmutableBiMap.this;
+    }
+
+    @Override
+    public K get(@Nullable Object value) {
+      if (value == null) {
+        return null;
+      }
+      int bucket = Hashing.smear(value.hashCode()) & mask;
+      for (ImmutableMapEntry<K, V> entry = valueTable[bucket];
+          entry != null;
+          entry = entry.getNextInValueBucket()) {
+        if (value.equals(entry.getValue())) {
+          return entry.getKey();
+        }
+      }
+      return null;
+    }
+
+    @Override
+    ImmutableSet<Entry<V, K>> createEntrySet() {
+      return new InverseEntrySet();
+    }
+
+    @Override
+    public void forEachEntry(BiConsumer<? super V, ? super K> action) {
+      checkNotNull(action);
+      for (Entry<K, V> entry : entries) {
+        action.accept(entry.getValue(), entry.getKey());
+      }
+    }
+
+    final class InverseEntrySet extends ImmutableMapEntrySet<V, K> {
+      @Override
+      ImmutableMap<V, K> map() {
+        return Inverse.this;
+      }
+
+      @Override
+      boolean isHashCodeFast() {
+        return true;
+      }
+
+      @Override
+      public int hashCode() {
+        return RegularImmutableBiMap.this.hashCode;
+      }
+
+      @Override
+      public UnmodifiableIterator<Entry<V, K>> iterator() {
+        return asList().iterator();
+      }
+
+      @Override
+      ImmutableList<Entry<V, K>> createAsList() {
+        return new ImmutableAsList<Entry<V, K>>() {
+          @Override
+          public Entry<V, K> get(int index) {
+            Entry<K, V> entry = entries[index];
+            return entryOf(entry.getValue(), entry.getKey());
+          }
+
+          @Override
+          ImmutableCollection<Entry<V, K>> delegateCollection() {
+            return InverseEntrySet.this;
+          }
+        };
+      }
+    }
+
+    @Override
+    boolean isHashCodeFast() {
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      return RegularImmutableBiMap.this.hashCode;
+    }
+
+    @Override
+    boolean isPartialView() {
+      return false;
+    }
+
+    @Override
+    Object writeReplace() {
+      return new InverseSerializedForm<K, V>(RegularImmutableBiMap.this);
+    }
+  }
+
+  private static class InverseSerializedForm<K, V> implements Serializable {
+    private final ImmutableBiMap<K, V> forward;
+
+    InverseSerializedForm(ImmutableBiMap<K, V> forward) {
+      this.forward = forward;
+    }
+
+    Object readResolve() {
+      return forward.inverse();
+    }
+
+    private static final long serialVersionUID = 1;
+  }
+}
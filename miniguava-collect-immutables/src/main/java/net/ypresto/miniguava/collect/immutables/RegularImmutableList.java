@@ -16,6 +16,7 @@
 
 package net.ypresto.miniguava.collect.immutables;
 
+import net.ypresto.miniguava.base.Consumer;
 import net.ypresto.miniguava.base.Preconditions;
 import net.ypresto.miniguava.collect.UnmodifiableListIterator;
 
@@ -53,6 +54,16 @@ class RegularImmutableList<E> extends ImmutableList<E> {
     return size != array.length;
   }
 
+  @SuppressWarnings("unchecked") // all elements are E's
+  @Override
+  public void forEachElement(Consumer<? super E> action) {
+    Preconditions.checkNotNull(action);
+    Object[] array = this.array;
+    for (int i = offset, end = offset + size; i < end; i++) {
+      action.accept((E) array[i]);
+    }
+  }
+
   @Override
   int copyIntoArray(Object[] dst, int dstOff) {
     System.arraycopy(array, offset, dst, dstOff, size);
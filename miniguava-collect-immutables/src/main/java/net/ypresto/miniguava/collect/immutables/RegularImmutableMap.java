@@ -16,11 +16,16 @@
 
 package net.ypresto.miniguava.collect.immutables;
 
+import static net.ypresto.miniguava.base.Preconditions.checkNotNull;
 import static net.ypresto.miniguava.base.Preconditions.checkPositionIndex;
 import static net.ypresto.miniguava.collect.immutables.ImmutableMapEntry.createEntryArray;
 
+import net.ypresto.miniguava.annotations.MiniGuavaSpecific;
+import net.ypresto.miniguava.base.BiConsumer;
 import net.ypresto.miniguava.collect.immutables.ImmutableMapEntry.NonTerminalImmutableMapEntry;
 
+import java.util.concurrent.ExecutorService;
+
 import javax.annotation.Nullable;
 
 /**
@@ -49,6 +54,16 @@ final class RegularImmutableMap<K, V> extends ImmutableMap<K, V> {
    * same key/value contents), and may take ownership of entryArray.
    */
   static <K, V> RegularImmutableMap<K, V> fromEntryArray(int n, Entry<K, V>[] entryArray) {
+    return fromEntryArray(n, entryArray, MAX_LOAD_FACTOR);
+  }
+
+  /**
+   * Like {@link #fromEntryArray(int, Entry[])}, with a hash table of up to {@code loadFactor}
+   * entries per bucket.
+   */
+  @MiniGuavaSpecific
+  static <K, V> RegularImmutableMap<K, V> fromEntryArray(
+      int n, Entry<K, V>[] entryArray, double loadFactor) {
     checkPositionIndex(n, entryArray.length);
     Entry<K, V>[] entries;
     if (n == entryArray.length) {
@@ -56,7 +71,7 @@ final class RegularImmutableMap<K, V> extends ImmutableMap<K, V> {
     } else {
       entries = createEntryArray(n);
     }
-    int tableSize = Hashing.closedTableSize(n, MAX_LOAD_FACTOR);
+    int tableSize = Hashing.closedTableSize(n, loadFactor);
     ImmutableMapEntry<K, V>[] table = createEntryArray(tableSize);
     int mask = tableSize - 1;
     for (int entryIndex = 0; entryIndex < n; entryIndex++) {
@@ -83,10 +98,79 @@ final class RegularImmutableMap<K, V> extends ImmutableMap<K, V> {
     return new RegularImmutableMap<K, V>(entries, table, mask);
   }
 
+  /**
+   * Like {@link #fromEntryArray}, but calls {@code hashCode()} and {@code equals()} on the keys on
+   * the threads of {@code executor} when {@code n} is large. The result is identical. Null keys,
+   * values or entries and duplicate keys are reported by falling back to {@code fromEntryArray},
+   * so the exceptions are identical too.
+   */
+  @MiniGuavaSpecific
+  static <K, V> RegularImmutableMap<K, V> fromEntryArrayParallel(
+      int n, Entry<K, V>[] entryArray, ExecutorService executor) {
+    return fromEntryArrayParallel(n, entryArray, MAX_LOAD_FACTOR, executor);
+  }
+
+  /**
+   * Like {@link #fromEntryArrayParallel(int, Entry[], ExecutorService)}, with a hash table of up to
+   * {@code loadFactor} entries per bucket.
+   */
+  @MiniGuavaSpecific
+  static <K, V> RegularImmutableMap<K, V> fromEntryArrayParallel(
+      int n, Entry<K, V>[] entryArray, double loadFactor, ExecutorService executor) {
+    checkPositionIndex(n, entryArray.length);
+    if (n < ParallelHashing.MIN_PARALLEL_SIZE) {
+      return fromEntryArray(n, entryArray, loadFactor);
+    }
+    Object[] keys = new Object[n];
+    for (int i = 0; i < n; i++) {
+      Entry<K, V> entry = entryArray[i];
+      if (entry == null || entry.getValue() == null) {
+        return fromEntryArray(n, entryArray, loadFactor);
+      }
+      keys[i] = entry.getKey();
+    }
+    int[] hashes = ParallelHashing.hashCodes(keys, n, executor);
+    if (hashes == null || ParallelHashing.markDuplicates(keys, n, hashes, null, executor) != 0) {
+      return fromEntryArray(n, entryArray, loadFactor);
+    }
+
+    Entry<K, V>[] entries;
+    if (n == entryArray.length) {
+      entries = entryArray;
+    } else {
+      entries = createEntryArray(n);
+    }
+    int tableSize = Hashing.closedTableSize(n, loadFactor);
+    ImmutableMapEntry<K, V>[] table = createEntryArray(tableSize);
+    int mask = tableSize - 1;
+    for (int entryIndex = 0; entryIndex < n; entryIndex++) {
+      Entry<K, V> entry = entryArray[entryIndex];
+      @SuppressWarnings("unchecked") // keys[i] is entryArray[i].getKey()
+      K key = (K) keys[entryIndex];
+      V value = entry.getValue();
+      int tableIndex = Hashing.smear(hashes[entryIndex]) & mask;
+      @Nullable ImmutableMapEntry<K, V> existing = table[tableIndex];
+      // the keys are known to be distinct, so no conflict check is needed
+      ImmutableMapEntry<K, V> newEntry;
+      if (existing == null) {
+        boolean reusable =
+            entry instanceof ImmutableMapEntry && ((ImmutableMapEntry<K, V>) entry).isReusable();
+        newEntry =
+            reusable ? (ImmutableMapEntry<K, V>) entry : new ImmutableMapEntry<K, V>(key, value);
+      } else {
+        newEntry = new NonTerminalImmutableMapEntry<K, V>(key, value, existing);
+      }
+      table[tableIndex] = newEntry;
+      entries[entryIndex] = newEntry;
+    }
+    return new RegularImmutableMap<K, V>(entries, table, mask);
+  }
+
   private RegularImmutableMap(Entry<K, V>[] entries, ImmutableMapEntry<K, V>[] table, int mask) {
     this.entries = entries;
     this.table = table;
     this.mask = mask;
+    HashStatistics.sampleChains(table);
   }
 
   static void checkNoConflictInKeyBucket(
@@ -101,13 +185,18 @@ final class RegularImmutableMap<K, V> extends ImmutableMap<K, V> {
    * Being conservative here ensures that the table is still likely to be
    * relatively sparse (hence it misses fast) while saving space.
    */
-  private static final double MAX_LOAD_FACTOR = 1.2;
+  static final double MAX_LOAD_FACTOR = 1.2;
 
   @Override
   public V get(@Nullable Object key) {
     return get(key, table, mask);
   }
 
+  @Override
+  HashStatistics hashStatistics() {
+    return HashStatistics.ofChains(table);
+  }
+
   @Nullable
   static <V> V get(@Nullable Object key, ImmutableMapEntry<?, V>[] keyTable, int mask) {
     if (key == null) {
@@ -132,11 +221,35 @@ final class RegularImmutableMap<K, V> extends ImmutableMap<K, V> {
     return null;
   }
 
+  @Override
+  public void forEachEntry(BiConsumer<? super K, ? super V> action) {
+    checkNotNull(action);
+    for (Entry<K, V> entry : entries) {
+      action.accept(entry.getKey(), entry.getValue());
+    }
+  }
+
   @Override
   public int size() {
     return entries.length;
   }
 
+  @Override
+  int copyKeysIntoArray(Object[] dst, int offset) {
+    for (Entry<K, V> entry : entries) {
+      dst[offset++] = entry.getKey();
+    }
+    return offset;
+  }
+
+  @Override
+  int copyValuesIntoArray(Object[] dst, int offset) {
+    for (Entry<K, V> entry : entries) {
+      dst[offset++] = entry.getValue();
+    }
+    return offset;
+  }
+
   @Override
   boolean isPartialView() {
     return false;
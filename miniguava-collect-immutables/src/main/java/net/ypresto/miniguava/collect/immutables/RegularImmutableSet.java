@@ -16,7 +16,11 @@
 
 package net.ypresto.miniguava.collect.immutables;
 
+import static net.ypresto.miniguava.base.Preconditions.checkNotNull;
+
+import net.ypresto.miniguava.annotations.MiniGuavaSpecific;
 import net.ypresto.miniguava.annotations.VisibleForTesting;
+import net.ypresto.miniguava.base.Consumer;
 import net.ypresto.miniguava.collect.UnmodifiableIterator;
 
 import javax.annotation.Nullable;
@@ -29,34 +33,54 @@ import javax.annotation.Nullable;
 @SuppressWarnings("serial") // uses writeReplace(), not default serialization
 final class RegularImmutableSet<E> extends ImmutableSet<E> {
   static final RegularImmutableSet<Object> EMPTY =
-      new RegularImmutableSet<Object>(ObjectArrays.EMPTY_ARRAY, 0, null, 0);
+      new RegularImmutableSet<Object>(ObjectArrays.EMPTY_ARRAY, 0, null, null, 0);
 
   private final transient Object[] elements;
   // the same elements in hashed positions (plus nulls)
   @VisibleForTesting final transient Object[] table;
+  // miniguava: Swiss table style control bytes, parallel to table. 0 marks an empty slot; otherwise
+  // the high bit is set and the low 7 bits are a fingerprint of the element's hash, so most probes
+  // that cannot match are rejected without touching the element.
+  private final transient byte[] control;
   // 'and' with an int to get a valid table index.
   private final transient int mask;
   private final transient int hashCode;
 
-  RegularImmutableSet(Object[] elements, int hashCode, Object[] table, int mask) {
+  RegularImmutableSet(
+      Object[] elements, int hashCode, Object[] table, byte[] control, int mask) {
     this.elements = elements;
     this.table = table;
+    this.control = control;
     this.mask = mask;
     this.hashCode = hashCode;
+    if (table != null) {
+      HashStatistics.sampleLinearProbing(table, mask);
+    }
+  }
+
+  /**
+   * Returns the control byte for an element with the given smeared hash. The fingerprint is taken
+   * from the high bits, since the low bits already select the slot.
+   */
+  @MiniGuavaSpecific
+  static byte fingerprint(int smearedHash) {
+    return (byte) (0x80 | (smearedHash >>> 25));
   }
 
   @Override
   public boolean contains(@Nullable Object target) {
-    Object[] table = this.table;
-    if (target == null || table == null) {
+    byte[] control = this.control;
+    if (target == null || control == null) {
       return false;
     }
-    for (int i = Hashing.smearedHash(target); ; i++) {
+    int smeared = Hashing.smearedHash(target);
+    byte fingerprint = fingerprint(smeared);
+    for (int i = smeared; ; i++) {
       i &= mask;
-      Object candidate = table[i];
-      if (candidate == null) {
+      byte slotControl = control[i];
+      if (slotControl == 0) {
         return false;
-      } else if (candidate.equals(target)) {
+      } else if (slotControl == fingerprint && table[i].equals(target)) {
         return true;
       }
     }
@@ -67,12 +91,27 @@ final class RegularImmutableSet<E> extends ImmutableSet<E> {
     return elements.length;
   }
 
+  @Override
+  @Nullable
+  HashStatistics hashStatistics() {
+    return (table == null) ? null : HashStatistics.ofLinearProbing(table, mask);
+  }
+
   @SuppressWarnings("unchecked") // all elements are E's
   @Override
   public UnmodifiableIterator<E> iterator() {
     return (UnmodifiableIterator<E>) InternalIterators.forArray(elements);
   }
 
+  @SuppressWarnings("unchecked") // all elements are E's
+  @Override
+  public void forEachElement(Consumer<? super E> action) {
+    checkNotNull(action);
+    for (Object element : elements) {
+      action.accept((E) element);
+    }
+  }
+
   @Override
   int copyIntoArray(Object[] dst, int offset) {
     System.arraycopy(elements, 0, dst, offset, elements.length);
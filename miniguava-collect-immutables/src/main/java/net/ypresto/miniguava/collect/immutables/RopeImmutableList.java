@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2016 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ypresto.miniguava.collect.immutables;
+
+import static net.ypresto.miniguava.base.Preconditions.checkElementIndex;
+import static net.ypresto.miniguava.base.Preconditions.checkNotNull;
+
+import net.ypresto.miniguava.annotations.MiniGuavaSpecific;
+import net.ypresto.miniguava.base.Consumer;
+import net.ypresto.miniguava.collect.UnmodifiableIterator;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Implementation of {@link ImmutableList} as a rope: a binary tree whose leaves are the
+ * concatenated lists, which are not copied. The tree is kept balanced like an AVL tree, so that
+ * {@link #get} takes {@code O(log k)} steps for {@code k} leaves, and concatenating two ropes
+ * creates only {@code O(log k)} nodes.
+ */
+@MiniGuavaSpecific
+@SuppressWarnings("serial") // uses writeReplace(), not default serialization
+final class RopeImmutableList<E> extends ImmutableList<E> {
+  private final transient ImmutableList<E> left;
+  private final transient ImmutableList<E> right;
+  private final transient int size;
+  // the number of ropes on the longest path to a leaf, including this one
+  private final transient int depth;
+
+  private RopeImmutableList(ImmutableList<E> left, ImmutableList<E> right) {
+    this.left = left;
+    this.right = right;
+    int size = left.size() + right.size();
+    if (size < 0) {
+      throw new IllegalArgumentException("cannot store more than MAX_VALUE elements");
+    }
+    this.size = size;
+    this.depth = Math.max(depth(left), depth(right)) + 1;
+  }
+
+  /**
+   * Returns a list containing the elements of {@code left} followed by those of {@code right},
+   * sharing both lists instead of copying them.
+   */
+  static <E> ImmutableList<E> concat(ImmutableList<E> left, ImmutableList<E> right) {
+    if (left.isEmpty()) {
+      return right;
+    } else if (right.isEmpty()) {
+      return left;
+    }
+    return join(left, right);
+  }
+
+  /** Returns the depth of {@code list}'s tree, which is 0 if it is not a rope. */
+  static int depth(ImmutableList<?> list) {
+    return (list instanceof RopeImmutableList) ? ((RopeImmutableList<?>) list).depth : 0;
+  }
+
+  /**
+   * Joins two balanced trees, descending along the inner edge of the deeper one until the depths
+   * differ by at most one, and rebalancing on the way back up.
+   */
+  private static <E> ImmutableList<E> join(ImmutableList<E> left, ImmutableList<E> right) {
+    int leftDepth = depth(left);
+    int rightDepth = depth(right);
+    if (leftDepth > rightDepth + 1) {
+      RopeImmutableList<E> rope = (RopeImmutableList<E>) left;
+      return balance(rope.left, join(rope.right, right));
+    } else if (rightDepth > leftDepth + 1) {
+      RopeImmutableList<E> rope = (RopeImmutableList<E>) right;
+      return balance(join(left, rope.left), rope.right);
+    }
+    return new RopeImmutableList<E>(left, right);
+  }
+
+  /**
+   * Returns a rope of {@code left} and {@code right}, which are balanced and whose depths differ
+   * by at most two, rotating it if they differ by two.
+   */
+  private static <E> RopeImmutableList<E> balance(ImmutableList<E> left, ImmutableList<E> right) {
+    int leftDepth = depth(left);
+    int rightDepth = depth(right);
+    if (rightDepth > leftDepth + 1) {
+      RopeImmutableList<E> rope = (RopeImmutableList<E>) right;
+      if (depth(rope.left) > depth(rope.right)) {
+        RopeImmutableList<E> inner = (RopeImmutableList<E>) rope.left;
+        return new RopeImmutableList<E>(
+            new RopeImmutableList<E>(left, inner.left),
+            new RopeImmutableList<E>(inner.right, rope.right));
+      }
+      return new RopeImmutableList<E>(new RopeImmutableList<E>(left, rope.left), rope.right);
+    } else if (leftDepth > rightDepth + 1) {
+      RopeImmutableList<E> rope = (RopeImmutableList<E>) left;
+      if (depth(rope.right) > depth(rope.left)) {
+        RopeImmutableList<E> inner = (RopeImmutableList<E>) rope.right;
+        return new RopeImmutableList<E>(
+            new RopeImmutableList<E>(rope.left, inner.left),
+            new RopeImmutableList<E>(inner.right, right));
+      }
+      return new RopeImmutableList<E>(rope.left, new RopeImmutableList<E>(rope.right, right));
+    }
+    return new RopeImmutableList<E>(left, right);
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns true, so that {@link ImmutableList#copyOf(java.util.Collection)} flattens the rope
+   * into a single array.
+   */
+  @Override
+  boolean isPartialView() {
+    return true;
+  }
+
+  @Override
+  public E get(int index) {
+    checkElementIndex(index, size);
+    ImmutableList<E> node = this;
+    while (node instanceof RopeImmutableList) {
+      RopeImmutableList<E> rope = (RopeImmutableList<E>) node;
+      int leftSize = rope.left.size();
+      if (index < leftSize) {
+        node = rope.left;
+      } else {
+        index -= leftSize;
+        node = rope.right;
+      }
+    }
+    return node.get(index);
+  }
+
+  @Override
+  int copyIntoArray(Object[] dst, int offset) {
+    return right.copyIntoArray(dst, left.copyIntoArray(dst, offset));
+  }
+
+  @Override
+  public void forEachElement(Consumer<? super E> action) {
+    checkNotNull(action);
+    left.forEachElement(action);
+    right.forEachElement(action);
+  }
+
+  @Override
+  public UnmodifiableIterator<E> iterator() {
+    return new UnmodifiableIterator<E>() {
+      // the right children still to visit, the next one last
+      private final List<ImmutableList<E>> pending = new ArrayList<ImmutableList<E>>(depth);
+      private Iterator<E> leafIterator = descend(RopeImmutableList.this);
+
+      private Iterator<E> descend(ImmutableList<E> node) {
+        while (node instanceof RopeImmutableList) {
+          RopeImmutableList<E> rope = (RopeImmutableList<E>) node;
+          pending.add(rope.right);
+          node = rope.left;
+        }
+        return node.iterator();
+      }
+
+      @Override
+      public boolean hasNext() {
+        while (!leafIterator.hasNext() && !pending.isEmpty()) {
+          leafIterator = descend(pending.remove(pending.size() - 1));
+        }
+        return leafIterator.hasNext();
+      }
+
+      @Override
+      public E next() {
+        hasNext();
+        return leafIterator.next();
+      }
+    };
+  }
+}
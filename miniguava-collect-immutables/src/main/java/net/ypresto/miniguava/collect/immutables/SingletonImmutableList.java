@@ -18,6 +18,7 @@ package net.ypresto.miniguava.collect.immutables;
 
 import static net.ypresto.miniguava.base.Preconditions.checkNotNull;
 
+import net.ypresto.miniguava.base.Consumer;
 import net.ypresto.miniguava.base.Preconditions;
 import net.ypresto.miniguava.collect.UnmodifiableIterator;
 
@@ -41,6 +42,12 @@ final class SingletonImmutableList<E> extends ImmutableList<E> {
     return element;
   }
 
+  @Override
+  public void forEachElement(Consumer<? super E> action) {
+    Preconditions.checkNotNull(action);
+    action.accept(element);
+  }
+
   @Override
   public UnmodifiableIterator<E> iterator() {
     return InternalIterators.singletonIterator(element);
@@ -16,6 +16,7 @@
 
 package net.ypresto.miniguava.collect.immutables;
 
+import net.ypresto.miniguava.base.Consumer;
 import net.ypresto.miniguava.base.Preconditions;
 import net.ypresto.miniguava.collect.UnmodifiableIterator;
 
@@ -63,6 +64,12 @@ final class SingletonImmutableSet<E> extends ImmutableSet<E> {
     return InternalIterators.singletonIterator(element);
   }
 
+  @Override
+  public void forEachElement(Consumer<? super E> action) {
+    Preconditions.checkNotNull(action);
+    action.accept(element);
+  }
+
   @Override
   boolean isPartialView() {
     return false;
@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2016 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ypresto.miniguava.collect.immutables;
+
+import static net.ypresto.miniguava.base.Preconditions.checkNotNull;
+
+import net.ypresto.miniguava.annotations.MiniGuavaSpecific;
+import net.ypresto.miniguava.base.Consumer;
+import net.ypresto.miniguava.collect.UnmodifiableIterator;
+
+import javax.annotation.Nullable;
+
+/**
+ * Implementation of {@link ImmutableSet} with two to {@link ImmutableSet#SMALL_SET_MAX_SIZE}
+ * elements. It stores no hash table; {@link #contains} scans the elements, which for so few
+ * elements is cheaper than hashing the target and saves the table's memory.
+ */
+@MiniGuavaSpecific
+@SuppressWarnings("serial") // uses writeReplace(), not default serialization
+final class SmallImmutableSet<E> extends ImmutableSet<E> {
+  private final transient Object[] elements;
+  private final transient int hashCode;
+
+  SmallImmutableSet(Object[] elements, int hashCode) {
+    this.elements = elements;
+    this.hashCode = hashCode;
+  }
+
+  @Override
+  public boolean contains(@Nullable Object target) {
+    if (target == null) {
+      return false;
+    }
+    for (Object element : elements) {
+      if (element == target || element.equals(target)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public int size() {
+    return elements.length;
+  }
+
+  @SuppressWarnings("unchecked") // all elements are E's
+  @Override
+  public UnmodifiableIterator<E> iterator() {
+    return (UnmodifiableIterator<E>) InternalIterators.forArray(elements);
+  }
+
+  @SuppressWarnings("unchecked") // all elements are E's
+  @Override
+  public void forEachElement(Consumer<? super E> action) {
+    checkNotNull(action);
+    for (Object element : elements) {
+      action.accept((E) element);
+    }
+  }
+
+  @Override
+  int copyIntoArray(Object[] dst, int offset) {
+    System.arraycopy(elements, 0, dst, offset, elements.length);
+    return offset + elements.length;
+  }
+
+  @Override
+  ImmutableList<E> createAsList() {
+    return new RegularImmutableAsList<E>(this, elements);
+  }
+
+  @Override
+  boolean isPartialView() {
+    return false;
+  }
+
+  @Override
+  public int hashCode() {
+    return hashCode;
+  }
+
+  @Override
+  boolean isHashCodeFast() {
+    return true;
+  }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2016 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ypresto.miniguava.collect.immutables;
+
+import static net.ypresto.miniguava.base.Preconditions.checkNotNull;
+
+import net.ypresto.miniguava.annotations.MiniGuavaSpecific;
+
+import javax.annotation.Nullable;
+
+/**
+ * An {@link ImmutableTable} storing only its cells, grouped by row in flat arrays, with a hash
+ * index over (row index, column index) pairs.
+ */
+@MiniGuavaSpecific
+@SuppressWarnings("serial") // uses writeReplace(), not default serialization
+final class SparseImmutableTable<R, C, V> extends ImmutableTable<R, C, V> {
+  private static final double LOAD_FACTOR = 0.7;
+
+  static final SparseImmutableTable<Object, Object, Object> EMPTY =
+      new SparseImmutableTable<Object, Object, Object>(ImmutableMap.<Object, Integer>of(),
+          ImmutableMap.<Object, Integer>of(), new int[1], new int[0], ObjectArrays.EMPTY_ARRAY,
+          new int[1]);
+
+  // the cells of row i are at positions rowOffsets[i] to rowOffsets[i + 1] - 1
+  private final transient int[] rowOffsets;
+  private final transient int[] cellColumns;
+  private final transient Object[] cellValues;
+  // position + 1 of the cell in hashed position of its row and column index, 0 for an empty slot
+  private final transient int[] cellTable;
+
+  private SparseImmutableTable(ImmutableMap<R, Integer> rowKeyToIndex,
+      ImmutableMap<C, Integer> columnKeyToIndex, int[] rowOffsets, int[] cellColumns,
+      Object[] cellValues, int[] cellTable) {
+    super(rowKeyToIndex, columnKeyToIndex);
+    this.rowOffsets = rowOffsets;
+    this.cellColumns = cellColumns;
+    this.cellValues = cellValues;
+    this.cellTable = cellTable;
+  }
+
+  /**
+   * Creates a table from the first {@code n} cells given by their row index, column index and
+   * value, in the order they were added.
+   *
+   * @throws IllegalArgumentException if two cells have the same row and column
+   */
+  static <R, C, V> SparseImmutableTable<R, C, V> fromCells(ImmutableMap<R, Integer> rowKeyToIndex,
+      ImmutableMap<C, Integer> columnKeyToIndex, int n, int[] rowIndices, int[] columnIndices,
+      Object[] values) {
+    int rowCount = rowKeyToIndex.size();
+    // rowOffsets[i + 1] counts the cells of row i first, and becomes its end offset below
+    int[] rowOffsets = new int[rowCount + 1];
+    for (int i = 0; i < n; i++) {
+      rowOffsets[rowIndices[i] + 1]++;
+    }
+    for (int i = 0; i < rowCount; i++) {
+      rowOffsets[i + 1] += rowOffsets[i];
+    }
+    int[] cursors = new int[rowCount];
+    System.arraycopy(rowOffsets, 0, cursors, 0, rowCount);
+    int[] cellRows = new int[n];
+    int[] cellColumns = new int[n];
+    Object[] cellValues = new Object[n];
+    for (int i = 0; i < n; i++) {
+      int position = cursors[rowIndices[i]]++;
+      cellRows[position] = rowIndices[i];
+      cellColumns[position] = columnIndices[i];
+      cellValues[position] = checkNotNull(values[i]);
+    }
+
+    int mask = Hashing.closedTableSize(n, LOAD_FACTOR) - 1;
+    int[] cellTable = new int[mask + 1];
+    for (int position = 0; position < n; position++) {
+      int rowIndex = cellRows[position];
+      int columnIndex = cellColumns[position];
+      for (int j = cellHash(rowIndex, columnIndex); ; j++) {
+        int slot = j & mask;
+        int existing = cellTable[slot] - 1;
+        if (existing < 0) {
+          cellTable[slot] = position + 1;
+          break;
+        } else if (cellRows[existing] == rowIndex && cellColumns[existing] == columnIndex) {
+          // cells of a row keep their order, so the existing cell was added first
+          throw duplicateCell(rowKeyToIndex.keySet().asList().get(rowIndex),
+              columnKeyToIndex.keySet().asList().get(columnIndex), cellValues[existing],
+              cellValues[position]);
+        }
+      }
+    }
+    return new SparseImmutableTable<R, C, V>(
+        rowKeyToIndex, columnKeyToIndex, rowOffsets, cellColumns, cellValues, cellTable);
+  }
+
+  private static int cellHash(int rowIndex, int columnIndex) {
+    return Hashing.smear(31 * rowIndex + columnIndex);
+  }
+
+  @SuppressWarnings("unchecked") // only Vs are stored
+  @Override
+  @Nullable
+  V getByIndex(int rowIndex, int columnIndex) {
+    int from = rowOffsets[rowIndex];
+    int to = rowOffsets[rowIndex + 1];
+    int mask = cellTable.length - 1;
+    for (int i = cellHash(rowIndex, columnIndex); ; i++) {
+      int position = cellTable[i & mask] - 1;
+      if (position < 0) {
+        return null;
+      } else if (position >= from && position < to && cellColumns[position] == columnIndex) {
+        return (V) cellValues[position];
+      }
+    }
+  }
+
+  @Override
+  public int size() {
+    return cellValues.length;
+  }
+
+  @SuppressWarnings("unchecked") // only Vs are stored
+  @Override
+  public ImmutableMap<C, V> row(R rowKey) {
+    Integer rowIndex = rowKeyToIndex.get(checkNotNull(rowKey));
+    if (rowIndex == null) {
+      return ImmutableMap.of();
+    }
+    int from = rowOffsets[rowIndex];
+    int to = rowOffsets[rowIndex + 1];
+    ImmutableMap.Builder<C, V> builder = new ImmutableMap.Builder<C, V>(to - from);
+    for (int position = from; position < to; position++) {
+      builder.put(columnKeyAt(cellColumns[position]), (V) cellValues[position]);
+    }
+    return builder.build();
+  }
+
+  @SuppressWarnings("unchecked") // only Vs are stored
+  @Override
+  public ImmutableMap<R, V> column(C columnKey) {
+    Integer columnIndex = columnKeyToIndex.get(checkNotNull(columnKey));
+    if (columnIndex == null) {
+      return ImmutableMap.of();
+    }
+    ImmutableMap.Builder<R, V> builder = ImmutableMap.builder();
+    for (int rowIndex = 0; rowIndex < rowOffsets.length - 1; rowIndex++) {
+      for (int position = rowOffsets[rowIndex]; position < rowOffsets[rowIndex + 1]; position++) {
+        if (cellColumns[position] == columnIndex) {
+          builder.put(rowKeyAt(rowIndex), (V) cellValues[position]);
+        }
+      }
+    }
+    return builder.build();
+  }
+
+  @Override
+  public ImmutableCollection<V> values() {
+    return ImmutableList.asImmutableList(cellValues);
+  }
+
+  @SuppressWarnings("unchecked") // only Vs are stored
+  @Override
+  ImmutableList<Cell<R, C, V>> createCellList() {
+    Object[] cells = new Object[cellValues.length];
+    for (int rowIndex = 0; rowIndex < rowOffsets.length - 1; rowIndex++) {
+      R rowKey = rowKeyAt(rowIndex);
+      for (int position = rowOffsets[rowIndex]; position < rowOffsets[rowIndex + 1]; position++) {
+        cells[position] =
+            cellOf(rowKey, columnKeyAt(cellColumns[position]), (V) cellValues[position]);
+      }
+    }
+    return ImmutableList.asImmutableList(cells);
+  }
+}
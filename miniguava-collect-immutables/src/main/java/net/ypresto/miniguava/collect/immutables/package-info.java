@@ -30,11 +30,26 @@
  * <h3>of {@link java.util.Set}</h3>
  * <ul>
  * <li>{@link net.ypresto.miniguava.collect.immutables.ImmutableSet}
+ * <li>{@link net.ypresto.miniguava.collect.immutables.ImmutableSortedSet}
  * </ul>
  *
  * <h3>of {@link java.util.Map}</h3>
  * <ul>
+ * <li>{@link net.ypresto.miniguava.collect.immutables.ImmutableBiMap}
  * <li>{@link net.ypresto.miniguava.collect.immutables.ImmutableMap}
+ * <li>{@link net.ypresto.miniguava.collect.immutables.ImmutableSortedMap}
+ * </ul>
+ *
+ * <h3>of multimaps</h3>
+ * <ul>
+ * <li>{@link net.ypresto.miniguava.collect.immutables.ImmutableListMultimap}
+ * <li>{@link net.ypresto.miniguava.collect.immutables.ImmutableSetMultimap}
+ * </ul>
+ *
+ * <h3>of tables</h3>
+ * <ul>
+ * <li>{@link net.ypresto.miniguava.collect.immutables.ArrayTable}
+ * <li>{@link net.ypresto.miniguava.collect.immutables.ImmutableTable}
  * </ul>
  *
  *
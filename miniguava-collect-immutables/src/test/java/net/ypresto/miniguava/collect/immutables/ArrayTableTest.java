@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2016 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ypresto.miniguava.collect.immutables;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.testing.SerializableTester;
+
+import junit.framework.TestCase;
+
+import net.ypresto.miniguava.annotations.MiniGuavaSpecific;
+
+/**
+ * Tests for {@link ArrayTable}.
+ */
+@MiniGuavaSpecific
+public class ArrayTableTest extends TestCase {
+
+  public void testBuilder() {
+    ArrayTable<String, Integer, Character> table = createTable();
+    assertEquals(3, table.size());
+    assertThat(table.rowKeyList()).containsExactly("b", "a").inOrder();
+    assertThat(table.columnKeyList()).containsExactly(1, 2, 3).inOrder();
+    assertEquals((Character) 'z', table.get("b", 1));
+    assertEquals((Character) 'z', table.at(0, 0));
+    assertEquals((Character) 'y', table.at(1, 2));
+    assertNull(table.at(0, 1));
+    assertNull(table.get("c", 1));
+    assertThat(table.values()).containsExactly('z', 'x', 'y').inOrder();
+    assertEquals("{b={1=z, 3=x}, a={3=y}}", table.toString());
+  }
+
+  public void testBuilder_reuse() {
+    ArrayTable.Builder<String, Integer, Character> builder =
+        ArrayTable.builder(ImmutableList.of("a"), ImmutableList.of(1));
+    ArrayTable<String, Integer, Character> first = builder.put("a", 1, 'x').build();
+    ArrayTable<String, Integer, Character> second = builder.put("a", 1, 'y').build();
+    assertEquals((Character) 'x', first.get("a", 1));
+    assertEquals((Character) 'y', second.get("a", 1));
+  }
+
+  public void testBuilder_invalid() {
+    try {
+      ArrayTable.builder(ImmutableList.of("a", "a"), ImmutableList.of(1));
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+    ArrayTable.Builder<String, Integer, Character> builder =
+        ArrayTable.builder(ImmutableList.of("a"), ImmutableList.of(1));
+    try {
+      builder.put("b", 1, 'x');
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+    try {
+      builder.put("a", 2, 'x');
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+    try {
+      builder.put("a", 1, null);
+      fail();
+    } catch (NullPointerException expected) {
+    }
+    try {
+      builder.set(1, 0, 'x');
+      fail();
+    } catch (IndexOutOfBoundsException expected) {
+    }
+  }
+
+  public void testAt_outOfBounds() {
+    ArrayTable<String, Integer, Character> table = createTable();
+    try {
+      table.at(2, 0);
+      fail();
+    } catch (IndexOutOfBoundsException expected) {
+    }
+    try {
+      table.at(0, -1);
+      fail();
+    } catch (IndexOutOfBoundsException expected) {
+    }
+  }
+
+  public void testCopyOf() {
+    ArrayTable<String, Integer, Character> table = createTable();
+    assertSame(table, ArrayTable.copyOf(table));
+    ImmutableTable<String, Integer, Character> sparse =
+        ImmutableTable.<String, Integer, Character>builder()
+            .put("a", 1, 'x')
+            .put("b", 2, 'y')
+            .put("c", 3, 'z')
+            .build();
+    ArrayTable<String, Integer, Character> copy = ArrayTable.copyOf(sparse);
+    assertEquals(sparse, copy);
+    assertEquals((Character) 'y', copy.at(1, 1));
+    assertNull(copy.at(1, 2));
+  }
+
+  public void testSerialization_keepsKeys() {
+    ArrayTable<String, Integer, Character> table =
+        ArrayTable.<String, Integer, Character>builder(
+            ImmutableList.of("a", "b"), ImmutableList.of(1, 2)).put("b", 2, 'x').build();
+    ArrayTable<String, Integer, Character> reserialized =
+        SerializableTester.reserializeAndAssert(table);
+    assertEquals(table.rowKeyList(), reserialized.rowKeyList());
+    assertEquals(table.columnKeyList(), reserialized.columnKeyList());
+    assertEquals((Character) 'x', reserialized.at(1, 1));
+  }
+
+  private static ArrayTable<String, Integer, Character> createTable() {
+    return ArrayTable.<String, Integer, Character>builder(
+            ImmutableList.of("b", "a"), ImmutableList.of(1, 2, 3))
+        .put("b", 3, 'x')
+        .put("a", 3, 'y')
+        .set(0, 0, 'z')
+        .build();
+  }
+}
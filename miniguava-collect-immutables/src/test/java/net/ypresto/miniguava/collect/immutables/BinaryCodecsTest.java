@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2016 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ypresto.miniguava.collect.immutables;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.testing.NullPointerTester;
+
+import junit.framework.TestCase;
+
+import net.ypresto.miniguava.annotations.MiniGuavaSpecific;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Unit test for {@link BinaryCodecs}.
+ */
+@MiniGuavaSpecific
+public class BinaryCodecsTest extends TestCase {
+
+  public void testNullPointerExceptions() {
+    NullPointerTester tester = new NullPointerTester();
+    tester.testAllPublicStaticMethods(BinaryCodecs.class);
+  }
+
+  public void testUtf8Length() {
+    assertEquals(0, BinaryCodecs.utf8Length(""));
+    assertEquals(3, BinaryCodecs.utf8Length("abc"));
+    assertEquals(2, BinaryCodecs.utf8Length("\u00e9"));
+    assertEquals(3, BinaryCodecs.utf8Length("\u4e2d"));
+    assertEquals(4, BinaryCodecs.utf8Length("\ud83d\ude00"));
+    assertEquals(1, BinaryCodecs.utf8Length("\ud83d"));
+  }
+
+  public void testStringCodec() {
+    for (String value : new String[] {"", "abc", "\u00e9\u4e2d\ud83d\ude00"}) {
+      assertEquals(value, roundTrip(BinaryCodecs.stringCodec(), value));
+    }
+    assertEquals("?", roundTrip(BinaryCodecs.stringCodec(), "\ud83d"));
+  }
+
+  public void testIntegerCodec() {
+    assertEquals(Integer.valueOf(Integer.MIN_VALUE),
+        roundTrip(BinaryCodecs.integerCodec(), Integer.MIN_VALUE));
+    assertEquals(Integer.valueOf(42), roundTrip(BinaryCodecs.integerCodec(), 42));
+  }
+
+  public void testLongCodec() {
+    assertEquals(Long.valueOf(Long.MAX_VALUE),
+        roundTrip(BinaryCodecs.longCodec(), Long.MAX_VALUE));
+  }
+
+  public void testListCodec() {
+    BinaryCodec<ImmutableList<String>> codec = BinaryCodecs.listCodec(BinaryCodecs.stringCodec());
+    assertThat(roundTrip(codec, ImmutableList.<String>of())).isEmpty();
+    assertThat(roundTrip(codec, ImmutableList.of("a", "", "b", "a")))
+        .containsExactly("a", "", "b", "a")
+        .inOrder();
+  }
+
+  public void testListCodec_nested() {
+    BinaryCodec<ImmutableList<ImmutableList<Integer>>> codec =
+        BinaryCodecs.listCodec(BinaryCodecs.listCodec(BinaryCodecs.integerCodec()));
+    ImmutableList<ImmutableList<Integer>> value =
+        ImmutableList.of(ImmutableList.of(1, 2), ImmutableList.<Integer>of(), ImmutableList.of(3));
+    assertEquals(value, roundTrip(codec, value));
+  }
+
+  public void testSetCodec() {
+    BinaryCodec<ImmutableSet<String>> codec = BinaryCodecs.setCodec(BinaryCodecs.stringCodec());
+    assertThat(roundTrip(codec, ImmutableSet.<String>of())).isEmpty();
+    assertThat(roundTrip(codec, ImmutableSet.of("c", "a", "b")))
+        .containsExactly("c", "a", "b")
+        .inOrder();
+  }
+
+  public void testMapCodec() {
+    BinaryCodec<ImmutableMap<String, Long>> codec =
+        BinaryCodecs.mapCodec(BinaryCodecs.stringCodec(), BinaryCodecs.longCodec());
+    assertEquals(ImmutableMap.of(), roundTrip(codec, ImmutableMap.<String, Long>of()));
+    ImmutableMap<String, Long> value = ImmutableMap.of("one", 1L, "two", 2L, "three", 3L);
+    ImmutableMap<String, Long> decoded = roundTrip(codec, value);
+    assertEquals(value, decoded);
+    assertThat(decoded.keySet()).containsExactly("one", "two", "three").inOrder();
+  }
+
+  public void testListCodec_corrupt() {
+    BinaryCodec<ImmutableList<Integer>> codec =
+        BinaryCodecs.listCodec(BinaryCodecs.integerCodec());
+    ByteBuffer buffer = ByteBuffer.allocate(8);
+    buffer.putInt(Integer.MAX_VALUE).putInt(4);
+    buffer.flip();
+    try {
+      codec.decode(buffer);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testListCodec_trailingBytes() {
+    BinaryCodec<ImmutableList<Integer>> codec =
+        BinaryCodecs.listCodec(BinaryCodecs.integerCodec());
+    ByteBuffer buffer = ByteBuffer.allocate(codec.encodedLength(ImmutableList.of(1)) + 1);
+    codec.encode(ImmutableList.of(1), buffer);
+    buffer.rewind();
+    try {
+      codec.decode(buffer);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testEncode_directBuffer() {
+    BinaryCodec<ImmutableList<String>> codec = BinaryCodecs.listCodec(BinaryCodecs.stringCodec());
+    ImmutableList<String> value = ImmutableList.of("x", "yz");
+    ByteBuffer buffer = ByteBuffer.allocateDirect(codec.encodedLength(value));
+    codec.encode(value, buffer);
+    assertFalse(buffer.hasRemaining());
+    buffer.flip();
+    assertEquals(value, codec.decode(buffer));
+  }
+
+  private static <T> T roundTrip(BinaryCodec<T> codec, T value) {
+    ByteBuffer buffer = ByteBuffer.allocate(codec.encodedLength(value));
+    codec.encode(value, buffer);
+    assertFalse(buffer.hasRemaining());
+    buffer.flip();
+    return codec.decode(buffer);
+  }
+}
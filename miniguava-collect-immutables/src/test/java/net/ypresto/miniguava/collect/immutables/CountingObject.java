@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2016 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ypresto.miniguava.collect.immutables;
+
+import net.ypresto.miniguava.annotations.MiniGuavaSpecific;
+
+import javax.annotation.Nullable;
+
+/**
+ * An object equal to the other instances with the same value, which counts the calls to its
+ * {@code hashCode()} and {@code equals()} methods.
+ */
+@MiniGuavaSpecific
+final class CountingObject {
+  final int value;
+  int hashCodeCalls;
+  int equalsCalls;
+
+  CountingObject(int value) {
+    this.value = value;
+  }
+
+  @Override
+  public int hashCode() {
+    hashCodeCalls++;
+    return value;
+  }
+
+  @Override
+  public boolean equals(@Nullable Object object) {
+    equalsCalls++;
+    return object instanceof CountingObject && ((CountingObject) object).value == value;
+  }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright (C) 2016 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ypresto.miniguava.collect.immutables;
+
+import junit.framework.TestCase;
+
+import net.ypresto.miniguava.annotations.MiniGuavaSpecific;
+import net.ypresto.miniguava.base.Consumer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+/**
+ * Tests for {@link HashStatistics}.
+ */
+@MiniGuavaSpecific
+public class HashStatisticsTest extends TestCase {
+
+  @Override
+  protected void tearDown() {
+    Immutables.sampleHashStatistics(1, null);
+  }
+
+  public void testNotHashed() {
+    assertNull(Immutables.hashStatistics(ImmutableSet.of()));
+    assertNull(Immutables.hashStatistics(ImmutableSet.of(1)));
+    assertNull(Immutables.hashStatistics(ImmutableList.of(1, 2)));
+    assertNull(Immutables.hashStatistics(ImmutableSortedMap.of(1, 2)));
+    assertEquals(0, Immutables.hashStatistics(ImmutableMap.of()).size());
+  }
+
+  public void testMap_collidingKeys() {
+    ImmutableMap.Builder<Object, Integer> builder = ImmutableMap.builder();
+    for (int i = 0; i < 10; i++) {
+      builder.put(new CollidingKey(i), i);
+    }
+    builder.put("a", 10);
+    ImmutableMap<Object, Integer> map = builder.build();
+    HashStatistics statistics = Immutables.hashStatistics(map);
+    assertEquals(11, statistics.size());
+    assertEquals(map.size() / statistics.loadFactor(), statistics.tableSize(), 1e-9);
+    assertEquals(10, statistics.maxProbeLength());
+    assertEquals(ImmutableIntArray.of(2, 1, 1, 1, 1, 1, 1, 1, 1, 1),
+        statistics.probeLengthHistogram());
+    assertEquals(56 / 11.0, statistics.meanProbeLength(), 1e-9);
+    assertEquals(CollidingKey.class, statistics.worstKeyClass());
+    assertEquals(statistics.toString(),
+        Immutables.hashStatistics(map.keySet()).toString());
+  }
+
+  public void testSet_collidingElements() {
+    List<Object> elements = new ArrayList<Object>();
+    for (int i = 0; i < 10; i++) {
+      elements.add(new CollidingKey(i));
+    }
+    HashStatistics statistics = Immutables.hashStatistics(ImmutableSet.copyOf(elements));
+    assertEquals(10, statistics.size());
+    assertEquals(10, statistics.maxProbeLength());
+    assertEquals(ImmutableIntArray.of(1, 1, 1, 1, 1, 1, 1, 1, 1, 1),
+        statistics.probeLengthHistogram());
+    assertEquals(5.5, statistics.meanProbeLength(), 1e-9);
+  }
+
+  public void testSet_wellDistributed() {
+    ImmutableSet.Builder<Integer> builder = ImmutableSet.builder();
+    for (int i = 0; i < 1000; i++) {
+      builder.add(i);
+    }
+    HashStatistics statistics = Immutables.hashStatistics(builder.build());
+    assertEquals(1000, statistics.size());
+    assertTrue(statistics.loadFactor() <= 0.7);
+    assertEquals(Integer.class, statistics.worstKeyClass());
+    ImmutableIntArray histogram = statistics.probeLengthHistogram();
+    assertEquals(statistics.maxProbeLength(), histogram.length());
+    int count = 0;
+    long totalProbeLength = 0;
+    for (int i = 0; i < histogram.length(); i++) {
+      count += histogram.get(i);
+      totalProbeLength += (i + 1) * histogram.get(i);
+    }
+    assertEquals(1000, count);
+    assertEquals(totalProbeLength / 1000.0, statistics.meanProbeLength(), 1e-9);
+  }
+
+  public void testBiMap() {
+    ImmutableBiMap<CollidingKey, Integer> biMap =
+        ImmutableBiMap.of(new CollidingKey(1), 1, new CollidingKey(2), 2);
+    HashStatistics statistics = Immutables.hashStatistics(biMap);
+    assertEquals(2, statistics.maxProbeLength());
+  }
+
+  public void testSampling() {
+    final List<HashStatistics> sampled = new ArrayList<HashStatistics>();
+    Consumer<HashStatistics> listener = new Consumer<HashStatistics>() {
+      @Override
+      public void accept(HashStatistics statistics) {
+        sampled.add(statistics);
+      }
+    };
+    Immutables.sampleHashStatistics(2, listener);
+    ImmutableMap.of(1, 1, 2, 2);
+    ImmutableList.of(1, 2);
+    ImmutableMap.of(1, 1, 2, 2, 3, 3);
+    ImmutableMap.of(1, 1, 2, 2, 3, 3, 4, 4);
+    assertEquals(2, sampled.size());
+    assertEquals(2, sampled.get(0).size());
+    assertEquals(4, sampled.get(1).size());
+
+    Immutables.sampleHashStatistics(1, listener);
+    ImmutableSet.Builder<Integer> builder = ImmutableSet.builder();
+    for (int i = 0; i < 100; i++) {
+      builder.add(i);
+    }
+    builder.build();
+    assertEquals(3, sampled.size());
+    assertEquals(100, sampled.get(2).size());
+
+    Immutables.sampleHashStatistics(1, null);
+    ImmutableMap.of(1, 1, 2, 2);
+    assertEquals(3, sampled.size());
+  }
+
+  public void testSampling_listenerBuildsMap() {
+    final List<HashStatistics> sampled = new ArrayList<HashStatistics>();
+    Immutables.sampleHashStatistics(1, new Consumer<HashStatistics>() {
+      @Override
+      public void accept(HashStatistics statistics) {
+        sampled.add(statistics);
+        ImmutableMap.of(1, 1, 2, 2, 3, 3);
+      }
+    });
+    ImmutableMap.of(1, 1, 2, 2);
+    ImmutableMap.of(1, 1, 2, 2, 3, 3, 4, 4);
+    assertEquals(2, sampled.size());
+    assertEquals(2, sampled.get(0).size());
+    assertEquals(4, sampled.get(1).size());
+  }
+
+  public void testSampling_listenerThrows() {
+    final List<HashStatistics> sampled = new ArrayList<HashStatistics>();
+    Immutables.sampleHashStatistics(1, new Consumer<HashStatistics>() {
+      @Override
+      public void accept(HashStatistics statistics) {
+        sampled.add(statistics);
+        throw new IllegalStateException();
+      }
+    });
+    assertEquals(2, ImmutableMap.of(1, 1, 2, 2).size());
+    assertEquals(2, ImmutableMap.of(1, 1, 2, 2).size());
+    assertEquals(2, sampled.size());
+  }
+
+  public void testSampling_invalidInterval() {
+    try {
+      Immutables.sampleHashStatistics(0, null);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  /**
+   * Returns the statistics of a map of the integers from 0 to {@code size - 1} to themselves,
+   * built for {@code goal}.
+   */
+  static HashStatistics statisticsOfMap(int size, OptimizationGoal goal) {
+    ImmutableMap.Builder<Integer, Integer> builder =
+        ImmutableMap.<Integer, Integer>builder().optimizeFor(goal);
+    for (int i = 0; i < size; i++) {
+      builder.put(i, i);
+    }
+    return Immutables.hashStatistics(builder.build());
+  }
+
+  /**
+   * Returns the statistics of a set of the integers from 0 to {@code size - 1}, built for {@code
+   * goal}.
+   */
+  static HashStatistics statisticsOfSet(int size, OptimizationGoal goal) {
+    ImmutableSet.Builder<Integer> builder = ImmutableSet.<Integer>builder().optimizeFor(goal);
+    for (int i = 0; i < size; i++) {
+      builder.add(i);
+    }
+    return Immutables.hashStatistics(builder.build());
+  }
+
+  private static final class CollidingKey {
+    private final int value;
+
+    CollidingKey(int value) {
+      this.value = value;
+    }
+
+    @Override
+    public boolean equals(@Nullable Object object) {
+      return object instanceof CollidingKey && ((CollidingKey) object).value == value;
+    }
+
+    @Override
+    public int hashCode() {
+      return 0;
+    }
+  }
+}
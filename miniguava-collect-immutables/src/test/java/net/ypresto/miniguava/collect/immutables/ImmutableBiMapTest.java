@@ -0,0 +1,207 @@
+/*
+ * Copyright (C) 2016 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ypresto.miniguava.collect.immutables;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.testing.MapTestSuiteBuilder;
+import com.google.common.collect.testing.TestStringMapGenerator;
+import com.google.common.collect.testing.features.CollectionFeature;
+import com.google.common.collect.testing.features.CollectionSize;
+import com.google.common.collect.testing.features.MapFeature;
+import com.google.common.testing.SerializableTester;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import net.ypresto.miniguava.annotations.MiniGuavaSpecific;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Tests for {@link ImmutableBiMap}.
+ */
+@MiniGuavaSpecific
+public class ImmutableBiMapTest extends TestCase {
+
+  public static Test suite() {
+    TestSuite suite = new TestSuite();
+    suite.addTestSuite(ImmutableBiMapTest.class);
+    suite.addTest(MapTestSuiteBuilder.using(new ImmutableBiMapGenerator())
+        .named("ImmutableBiMap")
+        .withFeatures(
+            CollectionSize.ANY,
+            CollectionFeature.SERIALIZABLE,
+            CollectionFeature.KNOWN_ORDER,
+            MapFeature.REJECTS_DUPLICATES_AT_CREATION,
+            MapFeature.ALLOWS_ANY_NULL_QUERIES)
+        .createTestSuite());
+    suite.addTest(MapTestSuiteBuilder.using(new ImmutableBiMapInverseGenerator())
+        .named("ImmutableBiMap, inverse")
+        .withFeatures(
+            CollectionSize.ANY,
+            CollectionFeature.SERIALIZABLE,
+            CollectionFeature.KNOWN_ORDER,
+            MapFeature.REJECTS_DUPLICATES_AT_CREATION,
+            MapFeature.ALLOWS_ANY_NULL_QUERIES)
+        .createTestSuite());
+    return suite;
+  }
+
+  public void testOf() {
+    assertTrue(ImmutableBiMap.of().isEmpty());
+    assertSame(ImmutableBiMap.of(), ImmutableBiMap.of().inverse());
+    ImmutableBiMap<String, Integer> bimap = ImmutableBiMap.of("one", 1, "two", 2, "three", 3);
+    assertThat(bimap.keySet()).containsExactly("one", "two", "three").inOrder();
+    assertThat(bimap.values()).containsExactly(1, 2, 3).inOrder();
+    assertEquals(ImmutableMap.of("one", 1, "two", 2, "three", 3), bimap);
+    assertEquals(ImmutableMap.of("one", 1, "two", 2, "three", 3).hashCode(), bimap.hashCode());
+  }
+
+  public void testOf_duplicateValues() {
+    try {
+      ImmutableBiMap.of("one", 1, "two", 2, "uno", 1);
+      fail();
+    } catch (IllegalArgumentException expected) {
+      assertEquals("Multiple entries with same value: uno=1 and one=1", expected.getMessage());
+    }
+  }
+
+  public void testOf_duplicateKeys() {
+    try {
+      ImmutableBiMap.of("one", 1, "one", 2);
+      fail();
+    } catch (IllegalArgumentException expected) {
+      assertEquals("Multiple entries with same key: one=2 and one=1", expected.getMessage());
+    }
+  }
+
+  public void testInverse() {
+    ImmutableBiMap<String, Integer> bimap = ImmutableBiMap.of("one", 1, "two", 2, "three", 3);
+    ImmutableBiMap<Integer, String> inverse = bimap.inverse();
+    assertEquals("two", inverse.get(2));
+    assertNull(inverse.get(4));
+    assertNull(inverse.get("two"));
+    assertNull(inverse.get(null));
+    assertThat(inverse.keySet()).containsExactly(1, 2, 3).inOrder();
+    assertThat(inverse.values()).containsExactly("one", "two", "three").inOrder();
+    assertEquals(ImmutableMap.of(1, "one", 2, "two", 3, "three"), inverse);
+    assertEquals(ImmutableMap.of(1, "one", 2, "two", 3, "three").hashCode(), inverse.hashCode());
+    assertSame(inverse, bimap.inverse());
+    assertSame(bimap, inverse.inverse());
+    assertTrue(bimap.containsValue(3));
+    assertFalse(bimap.containsValue(4));
+  }
+
+  public void testInverse_collidingHashes() {
+    ImmutableBiMap.Builder<Integer, String> builder = ImmutableBiMap.builder();
+    for (int i = 0; i < 1000; i++) {
+      // "Aa" and "BB" have the same hash code, so the value buckets chain
+      builder.put(i, (i % 2 == 0 ? "Aa" : "BB") + i / 2);
+    }
+    ImmutableBiMap<Integer, String> bimap = builder.build();
+    for (int i = 0; i < 1000; i++) {
+      assertEquals((Integer) i, bimap.inverse().get((i % 2 == 0 ? "Aa" : "BB") + i / 2));
+    }
+    assertNull(bimap.inverse().get("Aa500"));
+  }
+
+  public void testBuilder() {
+    ImmutableBiMap<String, Integer> bimap = ImmutableBiMap.<String, Integer>builder()
+        .put("one", 1)
+        .put(ImmutableMap.of("two", 2).entrySet().iterator().next())
+        .putAll(ImmutableMap.of("three", 3, "four", 4))
+        .build();
+    assertThat(bimap.keySet()).containsExactly("one", "two", "three", "four").inOrder();
+    assertEquals("three", bimap.inverse().get(3));
+  }
+
+  public void testBuilder_orderEntriesByValue() {
+    ImmutableBiMap<String, Integer> bimap = ImmutableBiMap.<String, Integer>builder()
+        .orderEntriesByValue(Collections.<Integer>reverseOrder())
+        .put("one", 1)
+        .put("three", 3)
+        .put("two", 2)
+        .build();
+    assertThat(bimap.keySet()).containsExactly("three", "two", "one").inOrder();
+    assertEquals("two", bimap.inverse().get(2));
+  }
+
+  public void testBuilder_reuse() {
+    ImmutableBiMap.Builder<String, Integer> builder =
+        ImmutableBiMap.<String, Integer>builderWithExpectedSize(2).put("one", 1).put("two", 2);
+    ImmutableBiMap<String, Integer> first = builder.build();
+    ImmutableBiMap<String, Integer> second = builder.put("three", 3).build();
+    assertEquals(ImmutableBiMap.of("one", 1, "two", 2), first);
+    assertEquals("one", first.inverse().get(1));
+    assertEquals("three", second.inverse().get(3));
+  }
+
+  public void testCopyOf() {
+    Map<String, Integer> source = new LinkedHashMap<String, Integer>();
+    source.put("one", 1);
+    source.put("two", 2);
+    ImmutableBiMap<String, Integer> bimap = ImmutableBiMap.copyOf(source);
+    assertEquals(source, bimap);
+    assertEquals("two", bimap.inverse().get(2));
+    assertSame(bimap, ImmutableBiMap.copyOf(bimap));
+    assertSame(bimap.inverse(), ImmutableBiMap.copyOf(bimap.inverse()));
+    assertSame(bimap, ImmutableMap.copyOf(bimap));
+    source.put("uno", 1);
+    try {
+      ImmutableBiMap.copyOf(source);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testSerialization() {
+    ImmutableBiMap<String, Integer> bimap = ImmutableBiMap.of("one", 1, "two", 2);
+    ImmutableBiMap<String, Integer> reserialized = SerializableTester.reserializeAndAssert(bimap);
+    assertEquals("two", reserialized.inverse().get(2));
+    ImmutableBiMap<Integer, String> inverse =
+        SerializableTester.reserializeAndAssert(bimap.inverse());
+    assertEquals((Integer) 1, inverse.inverse().get("one"));
+    assertSame(ImmutableBiMap.of(), SerializableTester.reserialize(ImmutableBiMap.of()));
+  }
+
+  public static class ImmutableBiMapGenerator extends TestStringMapGenerator {
+    @Override
+    protected Map<String, String> create(Entry<String, String>[] entries) {
+      ImmutableBiMap.Builder<String, String> builder = ImmutableBiMap.builder();
+      for (Entry<String, String> entry : entries) {
+        builder.put(entry.getKey(), entry.getValue());
+      }
+      return builder.build();
+    }
+  }
+
+  public static class ImmutableBiMapInverseGenerator extends TestStringMapGenerator {
+    @Override
+    protected Map<String, String> create(Entry<String, String>[] entries) {
+      ImmutableBiMap.Builder<String, String> builder = ImmutableBiMap.builder();
+      for (Entry<String, String> entry : entries) {
+        builder.put(entry.getValue(), entry.getKey());
+      }
+      return builder.build().inverse();
+    }
+  }
+}
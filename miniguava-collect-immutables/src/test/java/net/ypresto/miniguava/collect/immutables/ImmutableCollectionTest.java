@@ -16,8 +16,20 @@
 
 package net.ypresto.miniguava.collect.immutables;
 
+import com.google.common.collect.testing.AnEnum;
+
 import junit.framework.TestCase;
 
+import net.ypresto.miniguava.annotations.MiniGuavaSpecific;
+import net.ypresto.miniguava.base.BiConsumer;
+import net.ypresto.miniguava.base.Consumer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map.Entry;
+
 /**
  * Tests for {@code ImmutableCollection}.
  *
@@ -37,4 +49,95 @@ public class ImmutableCollectionTest extends TestCase {
 
     assertEquals(13, ImmutableCollection.Builder.expandedCapacity(8, 9));
   }
+
+  @MiniGuavaSpecific
+  public void testForEachElement() {
+    List<Integer> ints = new ArrayList<Integer>();
+    for (int i = 0; i < 100; i++) {
+      ints.add(i * 7 % 100);
+    }
+    // two levels of the persistent list's trie
+    ImmutableList<Integer> persistent = ImmutableList.of();
+    for (int i = 0; i < 2000; i++) {
+      persistent = persistent.plus(i);
+    }
+    ImmutableMap<String, Integer> map = ImmutableMap.of("a", 1, "b", 2, "c", 3);
+    List<ImmutableCollection<?>> collections = Arrays.<ImmutableCollection<?>>asList(
+        ImmutableList.of(),
+        ImmutableList.of("a"),
+        ImmutableList.copyOf(ints),
+        ImmutableList.copyOf(ints).subList(10, 20),
+        ImmutableList.copyOf(ints).reverse(),
+        ImmutableList.of(1, 2).plus(3),
+        persistent,
+        persistent.with(1500, -1),
+        ImmutableSet.of("a"),
+        ImmutableSet.of("b", "a", "c"),
+        ImmutableSet.copyOf(ints),
+        ImmutableSet.copyOf(ints).asList(),
+        ImmutableSortedSet.copyOf(ints).subSet(10, 20),
+        Immutables.immutableEnumSet(Arrays.asList(AnEnum.E, AnEnum.B)),
+        map.keySet(),
+        map.values(),
+        map.entrySet(),
+        ImmutableSortedMap.copyOf(map).entrySet());
+    for (ImmutableCollection<?> collection : collections) {
+      assertEquals(new ArrayList<Object>(collection), forEachElement(collection));
+    }
+  }
+
+  private static List<Object> forEachElement(ImmutableCollection<?> collection) {
+    final List<Object> visited = new ArrayList<Object>();
+    collection.forEachElement(new Consumer<Object>() {
+      @Override
+      public void accept(Object input) {
+        visited.add(input);
+      }
+    });
+    return visited;
+  }
+
+  @MiniGuavaSpecific
+  public void testForEachEntry() {
+    EnumMap<AnEnum, String> enumMap = new EnumMap<AnEnum, String>(AnEnum.class);
+    enumMap.put(AnEnum.D, "d");
+    enumMap.put(AnEnum.A, "a");
+    List<ImmutableMap<?, ?>> maps = Arrays.<ImmutableMap<?, ?>>asList(
+        ImmutableMap.of(),
+        ImmutableMap.of("a", 1),
+        ImmutableMap.of("b", 2, "a", 1, "c", 3),
+        ImmutableSortedMap.of("b", 2, "a", 1, "c", 3).tailMap("b"),
+        Immutables.immutableEnumMap(enumMap),
+        ImmutableIntObjectMap.of(3, "c", 1, "a").asMap(),
+        ImmutableLongObjectMap.of(3L, "c", 1L, "a").asMap());
+    for (ImmutableMap<?, ?> map : maps) {
+      final List<Entry<?, ?>> visited = new ArrayList<Entry<?, ?>>();
+      map.forEachEntry(new BiConsumer<Object, Object>() {
+        @Override
+        public void accept(Object key, Object value) {
+          visited.add(ImmutableMap.entryOf(key, value));
+        }
+      });
+      assertEquals(new ArrayList<Entry<?, ?>>(map.entrySet()), visited);
+    }
+  }
+
+  @MiniGuavaSpecific
+  public void testForEach_nullAction() {
+    try {
+      ImmutableList.of(1, 2).forEachElement(null);
+      fail();
+    } catch (NullPointerException expected) {
+    }
+    try {
+      ImmutableMap.of(1, 2).forEachEntry(null);
+      fail();
+    } catch (NullPointerException expected) {
+    }
+    try {
+      ImmutableMap.of().forEachEntry(null);
+      fail();
+    } catch (NullPointerException expected) {
+    }
+  }
 }
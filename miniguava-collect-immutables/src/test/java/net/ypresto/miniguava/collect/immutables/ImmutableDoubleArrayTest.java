@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2017 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ypresto.miniguava.collect.immutables;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.testing.EqualsTester;
+import com.google.common.testing.SerializableTester;
+
+import junit.framework.TestCase;
+
+import net.ypresto.miniguava.annotations.MiniGuavaSpecific;
+
+import java.util.Arrays;
+
+/**
+ * Tests for {@link ImmutableDoubleArray}.
+ */
+// miniguava: Backported from Guava 22, with fewer tests.
+@MiniGuavaSpecific
+public class ImmutableDoubleArrayTest extends TestCase {
+
+  public void testOf() {
+    assertThat(ImmutableDoubleArray.of().asList()).isEmpty();
+    assertThat(ImmutableDoubleArray.of(0.5, 1.0, Double.NaN).asList())
+        .containsExactly(0.5, 1.0, Double.NaN).inOrder();
+    assertSame(ImmutableDoubleArray.of(), ImmutableDoubleArray.copyOf(new double[0]));
+  }
+
+  public void testBuilder() {
+    ImmutableDoubleArray.Builder builder = ImmutableDoubleArray.builder();
+    for (int i = 0; i < 20; i++) {
+      builder.add(i / 2.0);
+    }
+    builder.addAll(ImmutableDoubleArray.of(-1.0, -2.0));
+    ImmutableDoubleArray built = builder.build();
+    assertEquals(22, built.length());
+    assertEquals(9.5, built.get(19));
+    assertEquals(-2.0, built.get(21));
+  }
+
+  public void testIndexOf_usesDoubleEquals() {
+    ImmutableDoubleArray ida = ImmutableDoubleArray.of(0.0, Double.NaN, 1.5, -0.0);
+    assertEquals(1, ida.indexOf(Double.NaN));
+    assertEquals(0, ida.indexOf(0.0));
+    assertEquals(3, ida.indexOf(-0.0));
+    assertTrue(ida.contains(1.5));
+    assertFalse(ida.contains(2.5));
+    assertEquals(1, ida.asList().indexOf(Double.NaN));
+    assertEquals(-1, ida.asList().indexOf(1.5f));
+    assertTrue(Arrays.equals(new double[] {Double.NaN, 1.5}, ida.subArray(1, 3).toArray()));
+  }
+
+  public void testEqualsAndHashCode() {
+    new EqualsTester()
+        .addEqualityGroup(ImmutableDoubleArray.of())
+        .addEqualityGroup(
+            ImmutableDoubleArray.of(Double.NaN),
+            ImmutableDoubleArray.of(0.0, Double.NaN).subArray(1, 2))
+        .addEqualityGroup(ImmutableDoubleArray.of(0.0))
+        .addEqualityGroup(ImmutableDoubleArray.of(-0.0))
+        .testEquals();
+    ImmutableDoubleArray ida = ImmutableDoubleArray.of(-1.5, 0.25, Double.NaN);
+    assertEquals(Arrays.asList(-1.5, 0.25, Double.NaN).hashCode(), ida.hashCode());
+    assertEquals(ida.hashCode(), ida.asList().hashCode());
+    assertEquals("[-1.5, 0.25, NaN]", ida.toString());
+  }
+
+  public void testSerialization() {
+    ImmutableDoubleArray ida = ImmutableDoubleArray.of(0.0, 1.0, 3.0).subArray(1, 3);
+    assertEquals(ida, SerializableTester.reserialize(ida));
+  }
+}
@@ -77,4 +77,34 @@ public class ImmutableEnumMapTest extends TestCase {
         Helpers.mapEntry(AnEnum.C, "c"),
         Helpers.mapEntry(AnEnum.E, "e")).inOrder();
   }
+
+  private enum OtherEnum { A, B, C, D, E, F }
+
+  public void testGet_otherEnumType() {
+    ImmutableMap<AnEnum, String> map = Immutables.immutableEnumMap(
+        ImmutableMap.of(AnEnum.A, "a", AnEnum.B, "b"));
+    assertNull(map.get(OtherEnum.A));
+    assertFalse(map.containsKey(OtherEnum.B));
+    assertNull(map.get(AnEnum.C));
+    assertEquals("b", map.get(AnEnum.B));
+  }
+
+  public void testValues() {
+    ImmutableMap<AnEnum, String> map = Immutables.immutableEnumMap(
+        ImmutableMap.of(AnEnum.E, "e", AnEnum.B, "b", AnEnum.D, "d"));
+    assertThat(map.values()).containsExactly("b", "d", "e").inOrder();
+    assertThat(map.keySet()).containsExactly(AnEnum.B, AnEnum.D, AnEnum.E).inOrder();
+  }
+
+  public void testEquals() {
+    ImmutableMap<AnEnum, String> map = Immutables.immutableEnumMap(
+        ImmutableMap.of(AnEnum.A, "a", AnEnum.B, "b"));
+    assertEquals(map, Immutables.immutableEnumMap(ImmutableMap.of(AnEnum.B, "b", AnEnum.A, "a")));
+    assertFalse(map.equals(
+        Immutables.immutableEnumMap(ImmutableMap.of(AnEnum.A, "a", AnEnum.B, "c"))));
+    assertFalse(map.equals(
+        Immutables.immutableEnumMap(ImmutableMap.of(OtherEnum.A, "a", OtherEnum.B, "b"))));
+    assertEquals(ImmutableMap.of(AnEnum.A, "a", AnEnum.B, "b"), map);
+    assertEquals(ImmutableMap.of(AnEnum.A, "a", AnEnum.B, "b").hashCode(), map.hashCode());
+  }
 }
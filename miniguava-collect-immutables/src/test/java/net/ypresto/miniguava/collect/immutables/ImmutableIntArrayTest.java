@@ -0,0 +1,267 @@
+/*
+ * Copyright (C) 2017 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ypresto.miniguava.collect.immutables;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.testing.ListTestSuiteBuilder;
+import com.google.common.collect.testing.SampleElements;
+import com.google.common.collect.testing.TestListGenerator;
+import com.google.common.collect.testing.features.CollectionFeature;
+import com.google.common.collect.testing.features.CollectionSize;
+import com.google.common.testing.EqualsTester;
+import com.google.common.testing.SerializableTester;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import net.ypresto.miniguava.annotations.MiniGuavaSpecific;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests for {@link ImmutableIntArray}.
+ */
+// miniguava: Backported from Guava 22, with fewer tests.
+@MiniGuavaSpecific
+public class ImmutableIntArrayTest extends TestCase {
+
+  public static Test suite() {
+    TestSuite suite = new TestSuite();
+    suite.addTestSuite(ImmutableIntArrayTest.class);
+    for (TestListGenerator<Integer> generator : new TestListGenerator[] {
+        new ImmutableIntArrayAsListGenerator(),
+        new ImmutableIntArrayHeadSubListAsListGenerator(),
+        new ImmutableIntArrayMiddleSubListAsListGenerator()}) {
+      suite.addTest(ListTestSuiteBuilder.using(generator)
+          .named(generator.getClass().getSimpleName())
+          .withFeatures(
+              CollectionSize.ANY,
+              CollectionFeature.SERIALIZABLE,
+              CollectionFeature.RESTRICTS_ELEMENTS,
+              CollectionFeature.KNOWN_ORDER)
+          .createTestSuite());
+    }
+    return suite;
+  }
+
+  public void testOf() {
+    assertThat(ImmutableIntArray.of().asList()).isEmpty();
+    assertThat(ImmutableIntArray.of(0).asList()).containsExactly(0);
+    assertThat(ImmutableIntArray.of(0, 1).asList()).containsExactly(0, 1).inOrder();
+    assertThat(ImmutableIntArray.of(0, 1, 2).asList()).containsExactly(0, 1, 2).inOrder();
+    assertThat(ImmutableIntArray.of(0, 1, 2, 3, 4).asList())
+        .containsExactly(0, 1, 2, 3, 4).inOrder();
+    assertSame(ImmutableIntArray.of(), ImmutableIntArray.copyOf(new int[0]));
+  }
+
+  public void testCopyOf_array_isCopy() {
+    int[] array = {0, 1, 3};
+    ImmutableIntArray iia = ImmutableIntArray.copyOf(array);
+    array[2] = 2;
+    assertThat(iia.asList()).containsExactly(0, 1, 3).inOrder();
+  }
+
+  public void testCopyOf_collection() {
+    assertSame(ImmutableIntArray.of(), ImmutableIntArray.copyOf(Arrays.<Integer>asList()));
+    assertEquals(ImmutableIntArray.of(0, 1, 3), ImmutableIntArray.copyOf(Arrays.asList(0, 1, 3)));
+  }
+
+  public void testBuilder() {
+    ImmutableIntArray.Builder builder = ImmutableIntArray.builder(2);
+    for (int i = 0; i < 50; i++) {
+      builder.add(i);
+    }
+    builder.addAll(new int[] {50, 51}).addAll(Arrays.asList(52, 53));
+    builder.addAll(ImmutableIntArray.of(53, 54, 55).subArray(1, 3));
+    ImmutableIntArray built = builder.build();
+    assertEquals(56, built.length());
+    for (int i = 0; i < 56; i++) {
+      assertEquals(i, built.get(i));
+    }
+  }
+
+  public void testBuilder_reuseAfterBuild() {
+    ImmutableIntArray.Builder builder = ImmutableIntArray.builder(10).add(1).add(2);
+    ImmutableIntArray first = builder.build();
+    ImmutableIntArray second = builder.add(3).build();
+    assertEquals(ImmutableIntArray.of(1, 2), first);
+    assertEquals(ImmutableIntArray.of(1, 2, 3), second);
+  }
+
+  public void testGet_outOfBounds() {
+    ImmutableIntArray iia = ImmutableIntArray.of(0, 1, 2).subArray(1, 2);
+    try {
+      iia.get(-1);
+      fail();
+    } catch (IndexOutOfBoundsException expected) {
+    }
+    try {
+      iia.get(1);
+      fail();
+    } catch (IndexOutOfBoundsException expected) {
+    }
+  }
+
+  public void testIndexOf() {
+    ImmutableIntArray iia = ImmutableIntArray.of(1, 1, 2, 3, 5, 8);
+    assertEquals(-1, iia.indexOf(4));
+    assertEquals(0, iia.indexOf(1));
+    assertEquals(5, iia.indexOf(8));
+    assertEquals(1, iia.lastIndexOf(1));
+    assertTrue(iia.contains(3));
+    assertFalse(iia.contains(4));
+
+    ImmutableIntArray sub = iia.subArray(1, 4);
+    assertEquals(0, sub.indexOf(1));
+    assertEquals(-1, sub.indexOf(5));
+    assertEquals(1, sub.asList().indexOf(2));
+    assertEquals(-1, sub.asList().indexOf(2L));
+  }
+
+  public void testSubArray() {
+    ImmutableIntArray iia = ImmutableIntArray.of(0, 1, 2, 3, 4, 5);
+    assertSame(ImmutableIntArray.of(), iia.subArray(3, 3));
+    assertEquals(ImmutableIntArray.of(1, 2, 3), iia.subArray(1, 4));
+    assertEquals(ImmutableIntArray.of(2), iia.subArray(1, 4).subArray(1, 2));
+    try {
+      iia.subArray(4, 3);
+      fail();
+    } catch (IndexOutOfBoundsException expected) {
+    }
+  }
+
+  public void testTrimmed() {
+    ImmutableIntArray iia = ImmutableIntArray.of(0, 1, 3);
+    assertSame(iia, iia.trimmed());
+    assertEquals(ImmutableIntArray.of(1, 3), iia.subArray(1, 3).trimmed());
+    ImmutableIntArray full = iia.subArray(0, 3);
+    assertSame(full, full.trimmed());
+  }
+
+  public void testToArray() {
+    int[] array = ImmutableIntArray.of(0, 1, 3, 4).subArray(1, 3).toArray();
+    assertTrue(Arrays.equals(new int[] {1, 3}, array));
+  }
+
+  public void testEquals() {
+    new EqualsTester()
+        .addEqualityGroup(ImmutableIntArray.of())
+        .addEqualityGroup(
+            ImmutableIntArray.of(1, 2),
+            ImmutableIntArray.builder().add(1).add(2).build(),
+            ImmutableIntArray.of(0, 1, 2, 3).subArray(1, 3))
+        .addEqualityGroup(ImmutableIntArray.of(1))
+        .addEqualityGroup(ImmutableIntArray.of(2, 1))
+        .testEquals();
+  }
+
+  public void testHashCode_matchesList() {
+    ImmutableIntArray iia = ImmutableIntArray.of(-5, 0, 7, Integer.MAX_VALUE);
+    assertEquals(Arrays.asList(-5, 0, 7, Integer.MAX_VALUE).hashCode(), iia.hashCode());
+    assertEquals(iia.hashCode(), iia.asList().hashCode());
+  }
+
+  public void testToString() {
+    assertEquals("[]", ImmutableIntArray.of().toString());
+    assertEquals("[7]", ImmutableIntArray.of(7).toString());
+    assertEquals("[2, -1]", ImmutableIntArray.of(0, 2, -1, 5).subArray(1, 3).toString());
+  }
+
+  public void testSerialization() {
+    assertSame(ImmutableIntArray.of(), SerializableTester.reserialize(ImmutableIntArray.of()));
+    ImmutableIntArray iia = ImmutableIntArray.of(0, 1, 3, 6).subArray(1, 3);
+    ImmutableIntArray reserialized = SerializableTester.reserializeAndAssert(iia);
+    assertEquals(iia, reserialized);
+    assertEquals(2, reserialized.length());
+  }
+
+  public void testAsList_copyOfShares() {
+    ImmutableList<Integer> list = ImmutableIntArray.of(0, 1, 2).asList();
+    assertSame(list, ImmutableList.copyOf(list));
+    ImmutableList<Integer> subList = ImmutableIntArray.of(0, 1, 2).subArray(0, 2).asList();
+    assertNotSame(subList, ImmutableList.copyOf(subList));
+  }
+
+  public abstract static class TestIntegerListGenerator implements TestListGenerator<Integer> {
+    @Override
+    public SampleElements<Integer> samples() {
+      return new SampleElements.Ints();
+    }
+
+    @Override
+    public List<Integer> create(Object... elements) {
+      Integer[] array = new Integer[elements.length];
+      int i = 0;
+      for (Object e : elements) {
+        array[i++] = (Integer) e;
+      }
+      return create(array);
+    }
+
+    protected abstract List<Integer> create(Integer[] elements);
+
+    @Override
+    public Integer[] createArray(int length) {
+      return new Integer[length];
+    }
+
+    @Override
+    public List<Integer> order(List<Integer> insertionOrder) {
+      return insertionOrder;
+    }
+  }
+
+  public static final class ImmutableIntArrayAsListGenerator extends TestIntegerListGenerator {
+    @Override
+    protected List<Integer> create(Integer[] elements) {
+      return makeArray(elements).asList();
+    }
+  }
+
+  public static final class ImmutableIntArrayHeadSubListAsListGenerator
+      extends TestIntegerListGenerator {
+    @Override
+    protected List<Integer> create(Integer[] elements) {
+      Integer[] all = concat(elements, new Integer[] {Integer.MIN_VALUE, Integer.MAX_VALUE});
+      return makeArray(all).subArray(0, elements.length).asList();
+    }
+  }
+
+  public static final class ImmutableIntArrayMiddleSubListAsListGenerator
+      extends TestIntegerListGenerator {
+    @Override
+    protected List<Integer> create(Integer[] elements) {
+      Integer[] prefix = {Integer.MIN_VALUE, Integer.MAX_VALUE};
+      Integer[] suffix = {86, 99};
+      Integer[] all = concat(concat(prefix, elements), suffix);
+      return makeArray(all).subArray(2, elements.length + 2).asList();
+    }
+  }
+
+  private static ImmutableIntArray makeArray(Integer[] values) {
+    return ImmutableIntArray.copyOf(Arrays.asList(values));
+  }
+
+  private static Integer[] concat(Integer[] a, Integer[] b) {
+    Integer[] result = Arrays.copyOf(a, a.length + b.length);
+    System.arraycopy(b, 0, result, a.length, b.length);
+    return result;
+  }
+}
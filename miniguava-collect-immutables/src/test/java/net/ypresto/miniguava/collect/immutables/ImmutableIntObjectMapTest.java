@@ -0,0 +1,234 @@
+/*
+ * Copyright (C) 2016 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ypresto.miniguava.collect.immutables;
+
+import static com.google.common.collect.testing.features.CollectionFeature.ALLOWS_NULL_QUERIES;
+import static com.google.common.collect.testing.features.CollectionFeature.SERIALIZABLE;
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.testing.Helpers;
+import com.google.common.collect.testing.MapTestSuiteBuilder;
+import com.google.common.collect.testing.SampleElements;
+import com.google.common.collect.testing.TestMapGenerator;
+import com.google.common.collect.testing.features.CollectionFeature;
+import com.google.common.collect.testing.features.CollectionSize;
+import com.google.common.collect.testing.features.MapFeature;
+import com.google.common.testing.EqualsTester;
+import com.google.common.testing.SerializableTester;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import net.ypresto.miniguava.annotations.MiniGuavaSpecific;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Tests for {@link ImmutableIntObjectMap}.
+ */
+@MiniGuavaSpecific
+public class ImmutableIntObjectMapTest extends TestCase {
+
+  public static Test suite() {
+    TestSuite suite = new TestSuite();
+    suite.addTestSuite(ImmutableIntObjectMapTest.class);
+    suite.addTest(MapTestSuiteBuilder.using(new ImmutableIntObjectMapAsMapGenerator())
+        .named("ImmutableIntObjectMap.asMap")
+        .withFeatures(
+            CollectionSize.ANY,
+            SERIALIZABLE,
+            ALLOWS_NULL_QUERIES,
+            MapFeature.REJECTS_DUPLICATES_AT_CREATION,
+            CollectionFeature.KNOWN_ORDER)
+        .createTestSuite());
+    return suite;
+  }
+
+  public void testOf() {
+    assertTrue(ImmutableIntObjectMap.of().isEmpty());
+    assertEquals("{1=a}", ImmutableIntObjectMap.of(1, "a").toString());
+    assertEquals("{2=b, 1=a}", ImmutableIntObjectMap.of(2, "b", 1, "a").toString());
+    assertEquals(
+        "{-3=c, 2=b, 1=a}", ImmutableIntObjectMap.of(-3, "c", 2, "b", 1, "a").toString());
+  }
+
+  public void testGet() {
+    ImmutableIntObjectMap.Builder<String> builder = ImmutableIntObjectMap.builder();
+    for (int i = 0; i < 1000; i++) {
+      builder.put(i * 64, "v" + i);
+    }
+    ImmutableIntObjectMap<String> map = builder.build();
+    assertEquals(1000, map.size());
+    for (int i = 0; i < 1000; i++) {
+      assertEquals("v" + i, map.get(i * 64));
+      assertTrue(map.containsKey(i * 64));
+      assertFalse(map.containsKey(i * 64 + 1));
+      assertEquals(i * 64, map.keyAt(i));
+      assertEquals("v" + i, map.valueAt(i));
+    }
+    assertNull(map.get(-1));
+    assertEquals("x", map.getOrDefault(-1, "x"));
+    assertEquals("v0", map.getOrDefault(0, "x"));
+  }
+
+  public void testGet_extremeKeys() {
+    ImmutableIntObjectMap<String> map =
+        ImmutableIntObjectMap.of(Integer.MIN_VALUE, "min", 0, "zero", Integer.MAX_VALUE, "max");
+    assertEquals("min", map.get(Integer.MIN_VALUE));
+    assertEquals("zero", map.get(0));
+    assertEquals("max", map.get(Integer.MAX_VALUE));
+    assertNull(ImmutableIntObjectMap.of().get(0));
+    assertFalse(ImmutableIntObjectMap.of().containsKey(0));
+  }
+
+  public void testKeyAt_outOfBounds() {
+    try {
+      ImmutableIntObjectMap.of(1, "a").keyAt(1);
+      fail();
+    } catch (IndexOutOfBoundsException expected) {
+    }
+  }
+
+  public void testBuilder_duplicateKeys() {
+    ImmutableIntObjectMap.Builder<String> builder =
+        ImmutableIntObjectMap.<String>builder().put(1, "a").put(2, "b").put(1, "c");
+    try {
+      builder.build();
+      fail();
+    } catch (IllegalArgumentException expected) {
+      assertEquals("Multiple entries with same key: 1=a and 1=c", expected.getMessage());
+    }
+  }
+
+  public void testBuilder_nullValue() {
+    try {
+      ImmutableIntObjectMap.<String>builder().put(1, null);
+      fail();
+    } catch (NullPointerException expected) {
+      assertEquals("null value in entry: 1=null", expected.getMessage());
+    }
+  }
+
+  public void testBuilder_putAll() {
+    Map<Integer, String> source = new LinkedHashMap<Integer, String>();
+    source.put(3, "c");
+    source.put(1, "a");
+    ImmutableIntObjectMap<String> map = ImmutableIntObjectMap.<String>builder(1)
+        .putAll(source)
+        .putAll(ImmutableIntObjectMap.of(2, "b"))
+        .build();
+    assertEquals("{3=c, 1=a, 2=b}", map.toString());
+    assertEquals(ImmutableIntArray.of(3, 1, 2), map.keys());
+    assertThat(map.values()).containsExactly("c", "a", "b").inOrder();
+    assertEquals(ImmutableIntObjectMap.of(1, "a", 3, "c"), ImmutableIntObjectMap.copyOf(source));
+  }
+
+  public void testCopyOf_nullKey() {
+    Map<Integer, String> source = new LinkedHashMap<Integer, String>();
+    source.put(null, "a");
+    try {
+      ImmutableIntObjectMap.copyOf(source);
+      fail();
+    } catch (NullPointerException expected) {
+    }
+  }
+
+  public void testEquals() {
+    new EqualsTester()
+        .addEqualityGroup(ImmutableIntObjectMap.of(), ImmutableIntObjectMap.builder().build())
+        .addEqualityGroup(
+            ImmutableIntObjectMap.of(1, "a", 2, "b"), ImmutableIntObjectMap.of(2, "b", 1, "a"))
+        .addEqualityGroup(ImmutableIntObjectMap.of(1, "a", 2, "c"))
+        .addEqualityGroup(ImmutableIntObjectMap.of(1, "a", 3, "b"))
+        .addEqualityGroup(ImmutableIntObjectMap.of(1, "a"))
+        .testEquals();
+  }
+
+  public void testHashCode_matchesAsMap() {
+    ImmutableIntObjectMap<String> map = ImmutableIntObjectMap.of(-7, "a", 0, "b", 42, "c");
+    assertEquals(ImmutableMap.of(-7, "a", 0, "b", 42, "c").hashCode(), map.hashCode());
+    assertEquals(ImmutableMap.of(-7, "a", 0, "b", 42, "c"), map.asMap());
+  }
+
+  public void testAsMap() {
+    ImmutableMap<Integer, String> asMap = ImmutableIntObjectMap.of(5, "a", 1, "b").asMap();
+    assertEquals("a", asMap.get(5));
+    assertNull(asMap.get(5L));
+    assertNull(asMap.get("5"));
+    assertFalse(asMap.containsKey(2));
+    assertThat(asMap.keySet()).containsExactly(5, 1).inOrder();
+    assertTrue(ImmutableIntObjectMap.of().asMap().isEmpty());
+  }
+
+  public void testSerialization() {
+    assertSame(
+        ImmutableIntObjectMap.of(), SerializableTester.reserialize(ImmutableIntObjectMap.of()));
+    ImmutableIntObjectMap<String> map = ImmutableIntObjectMap.of(3, "c", 1, "a");
+    ImmutableIntObjectMap<String> reserialized = SerializableTester.reserializeAndAssert(map);
+    assertEquals("{3=c, 1=a}", reserialized.toString());
+    assertEquals("a", reserialized.get(1));
+  }
+
+  public static final class ImmutableIntObjectMapAsMapGenerator
+      implements TestMapGenerator<Integer, String> {
+    @Override
+    public SampleElements<Entry<Integer, String>> samples() {
+      return new SampleElements<Entry<Integer, String>>(
+          Helpers.mapEntry(1, "one"),
+          Helpers.mapEntry(-2, "two"),
+          Helpers.mapEntry(Integer.MAX_VALUE, "three"),
+          Helpers.mapEntry(Integer.MIN_VALUE, "four"),
+          Helpers.mapEntry(0, "five"));
+    }
+
+    @Override
+    public Map<Integer, String> create(Object... entries) {
+      ImmutableIntObjectMap.Builder<String> builder = ImmutableIntObjectMap.builder();
+      for (Object o : entries) {
+        @SuppressWarnings("unchecked")
+        Entry<Integer, String> entry = (Entry<Integer, String>) o;
+        builder.put(entry.getKey(), entry.getValue());
+      }
+      return builder.build().asMap();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Entry<Integer, String>[] createArray(int length) {
+      return new Entry[length];
+    }
+
+    @Override
+    public Iterable<Entry<Integer, String>> order(List<Entry<Integer, String>> insertionOrder) {
+      return insertionOrder;
+    }
+
+    @Override
+    public Integer[] createKeyArray(int length) {
+      return new Integer[length];
+    }
+
+    @Override
+    public String[] createValueArray(int length) {
+      return new String[length];
+    }
+  }
+}
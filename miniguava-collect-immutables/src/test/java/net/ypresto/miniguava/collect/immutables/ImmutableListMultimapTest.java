@@ -0,0 +1,222 @@
+/*
+ * Copyright (C) 2016 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ypresto.miniguava.collect.immutables;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.testing.ListTestSuiteBuilder;
+import com.google.common.collect.testing.TestStringListGenerator;
+import com.google.common.collect.testing.features.CollectionFeature;
+import com.google.common.collect.testing.features.CollectionSize;
+import com.google.common.testing.EqualsTester;
+import com.google.common.testing.SerializableTester;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import net.ypresto.miniguava.annotations.MiniGuavaSpecific;
+import net.ypresto.miniguava.base.BiConsumer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests for {@link ImmutableListMultimap}.
+ */
+@MiniGuavaSpecific
+public class ImmutableListMultimapTest extends TestCase {
+
+  public static Test suite() {
+    TestSuite suite = new TestSuite();
+    suite.addTestSuite(ImmutableListMultimapTest.class);
+    suite.addTest(ListTestSuiteBuilder.using(new ImmutableListMultimapGetGenerator())
+        .named("ImmutableListMultimap.get")
+        .withFeatures(
+            CollectionSize.ANY,
+            CollectionFeature.SERIALIZABLE,
+            CollectionFeature.ALLOWS_NULL_QUERIES)
+        .createTestSuite());
+    return suite;
+  }
+
+  public void testOf() {
+    assertTrue(ImmutableListMultimap.of().isEmpty());
+    ImmutableListMultimap<String, Integer> multimap =
+        ImmutableListMultimap.of("a", 1, "b", 2, "a", 1);
+    assertEquals(3, multimap.size());
+    assertThat(multimap.get("a")).containsExactly(1, 1).inOrder();
+    assertThat(multimap.get("b")).containsExactly(2);
+    assertTrue(multimap.get("c").isEmpty());
+    assertTrue(multimap.get(null).isEmpty());
+  }
+
+  public void testBuilder_groupsByKey() {
+    ImmutableListMultimap<String, Integer> multimap =
+        ImmutableListMultimap.<String, Integer>builder()
+        .put("b", 1)
+        .put("a", 2)
+        .putAll("b", 3, 4)
+        .putAll("c", Arrays.asList(5))
+        .put("a", 6)
+        .build();
+    assertThat(multimap.keySet()).containsExactly("b", "a", "c").inOrder();
+    assertThat(multimap.values()).containsExactly(1, 3, 4, 2, 6, 5).inOrder();
+    assertThat(multimap.get("b")).containsExactly(1, 3, 4).inOrder();
+    assertThat(multimap.get("a")).containsExactly(2, 6).inOrder();
+    assertEquals("{b=[1, 3, 4], a=[2, 6], c=[5]}", multimap.toString());
+  }
+
+  public void testBuilder_nulls() {
+    ImmutableListMultimap.Builder<String, Integer> builder = ImmutableListMultimap.builder();
+    try {
+      builder.put(null, 1);
+      fail();
+    } catch (NullPointerException expected) {
+    }
+    try {
+      builder.put("a", null);
+      fail();
+    } catch (NullPointerException expected) {
+    }
+  }
+
+  public void testBuilder_reuse() {
+    ImmutableListMultimap.Builder<String, Integer> builder =
+        ImmutableListMultimap.<String, Integer>builderWithExpectedSize(1).put("a", 1);
+    ImmutableListMultimap<String, Integer> first = builder.build();
+    ImmutableListMultimap<String, Integer> second = builder.put("a", 2).build();
+    assertThat(first.get("a")).containsExactly(1);
+    assertThat(second.get("a")).containsExactly(1, 2).inOrder();
+  }
+
+  public void testGet_sharesStorage() {
+    ImmutableListMultimap<String, Integer> multimap =
+        ImmutableListMultimap.of("a", 1, "b", 2, "a", 3);
+    ImmutableList<Integer> a = multimap.get("a");
+    assertTrue(a.isPartialView());
+    assertEquals(ImmutableList.of(1, 3), a);
+    assertEquals(ImmutableList.of(3), a.subList(1, 2));
+    assertEquals(1, a.indexOf(3));
+  }
+
+  public void testContains() {
+    ImmutableListMultimap<String, Integer> multimap =
+        ImmutableListMultimap.of("a", 1, "b", 2, "a", 3);
+    assertTrue(multimap.containsKey("b"));
+    assertFalse(multimap.containsKey("c"));
+    assertFalse(multimap.containsKey(null));
+    assertTrue(multimap.containsValue(3));
+    assertFalse(multimap.containsValue(4));
+    assertFalse(multimap.containsValue(null));
+    assertTrue(multimap.containsEntry("a", 3));
+    assertFalse(multimap.containsEntry("b", 3));
+    assertFalse(multimap.containsEntry(null, null));
+  }
+
+  public void testManyKeys() {
+    ImmutableListMultimap.Builder<Integer, Integer> builder = ImmutableListMultimap.builder();
+    for (int i = 0; i < 10000; i++) {
+      builder.put(i % 1000, i);
+    }
+    ImmutableListMultimap<Integer, Integer> multimap = builder.build();
+    assertEquals(10000, multimap.size());
+    assertEquals(1000, multimap.keySet().size());
+    for (int key = 0; key < 1000; key++) {
+      ImmutableList<Integer> values = multimap.get(key);
+      assertEquals(10, values.size());
+      for (int j = 0; j < 10; j++) {
+        assertEquals((Integer) (key + 1000 * j), values.get(j));
+      }
+    }
+    assertTrue(multimap.get(1000).isEmpty());
+  }
+
+  public void testAsMap() {
+    ImmutableListMultimap<String, Integer> multimap =
+        ImmutableListMultimap.of("a", 1, "b", 2, "a", 3);
+    ImmutableMap<String, ImmutableList<Integer>> asMap = multimap.asMap();
+    assertEquals(ImmutableMap.of("a", ImmutableList.of(1, 3), "b", ImmutableList.of(2)), asMap);
+    assertEquals(asMap.hashCode(), multimap.hashCode());
+    assertNull(asMap.get("c"));
+    assertEquals(asMap, SerializableTester.reserialize(asMap));
+    assertEquals(multimap, ImmutableListMultimap.copyOf(asMap));
+    assertTrue(ImmutableListMultimap.of().asMap().isEmpty());
+  }
+
+  public void testCopyOf() {
+    ImmutableListMultimap<String, Integer> multimap = ImmutableListMultimap.of("a", 1, "a", 1);
+    assertSame(multimap, ImmutableListMultimap.copyOf(multimap));
+    Map<String, List<Integer>> map = new LinkedHashMap<String, List<Integer>>();
+    map.put("b", Arrays.asList(2, 2));
+    map.put("c", new ArrayList<Integer>());
+    ImmutableListMultimap<String, Integer> copy = ImmutableListMultimap.copyOf(map);
+    assertThat(copy.get("b")).containsExactly(2, 2);
+    assertFalse(copy.containsKey("c"));
+    assertThat(ImmutableSetMultimap.copyOf(multimap).get("a")).containsExactly(1);
+  }
+
+  public void testForEachEntry() {
+    ImmutableListMultimap<String, Integer> multimap =
+        ImmutableListMultimap.of("a", 1, "b", 2, "a", 3);
+    final StringBuilder builder = new StringBuilder();
+    multimap.forEachEntry(new BiConsumer<String, Integer>() {
+      @Override
+      public void accept(String key, Integer value) {
+        builder.append(key).append(value);
+      }
+    });
+    assertEquals("a1a3b2", builder.toString());
+  }
+
+  public void testEquals() {
+    new EqualsTester()
+        .addEqualityGroup(
+            ImmutableListMultimap.of("a", 1, "b", 2, "a", 3),
+            ImmutableListMultimap.of("b", 2, "a", 1, "a", 3))
+        .addEqualityGroup(ImmutableListMultimap.of("a", 3, "a", 1, "b", 2))
+        .addEqualityGroup(ImmutableSetMultimap.of("a", 1, "b", 2, "a", 3))
+        .addEqualityGroup(ImmutableListMultimap.of("a", 1))
+        .testEquals();
+  }
+
+  public void testSerialization() {
+    ImmutableListMultimap<String, Integer> multimap =
+        ImmutableListMultimap.of("a", 1, "b", 2, "a", 1);
+    ImmutableListMultimap<String, Integer> reserialized =
+        SerializableTester.reserializeAndAssert(multimap);
+    assertThat(reserialized.get("a")).containsExactly(1, 1);
+    assertSame(ImmutableListMultimap.of(),
+        SerializableTester.reserialize(ImmutableListMultimap.of()));
+  }
+
+  public static class ImmutableListMultimapGetGenerator extends TestStringListGenerator {
+    @Override
+    protected List<String> create(String[] elements) {
+      ImmutableListMultimap.Builder<Integer, String> builder = ImmutableListMultimap.builder();
+      builder.put(0, "before");
+      for (String element : elements) {
+        builder.put(1, element);
+        builder.put(2, "between");
+      }
+      return builder.build().get(1);
+    }
+  }
+}
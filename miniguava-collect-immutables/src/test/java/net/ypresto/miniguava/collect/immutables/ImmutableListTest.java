@@ -27,6 +27,7 @@ import com.google.common.collect.testing.ListTestSuiteBuilder;
 import com.google.common.collect.testing.MinimalCollection;
 import com.google.common.collect.testing.features.CollectionSize;
 import com.google.common.collect.testing.testers.ListHashCodeTester;
+import com.google.common.testing.GcFinalization;
 import com.google.common.testing.NullPointerTester;
 import com.google.common.testing.SerializableTester;
 
@@ -37,12 +38,16 @@ import junit.framework.TestSuite;
 import net.ypresto.miniguava.annotations.MiniGuavaSpecific;
 import net.ypresto.miniguava.collect.immutables.ListGenerators.BuilderAddAllListGenerator;
 import net.ypresto.miniguava.collect.immutables.ListGenerators.BuilderReversedListGenerator;
+import net.ypresto.miniguava.collect.immutables.ListGenerators.ImmutableListConcatGenerator;
 import net.ypresto.miniguava.collect.immutables.ListGenerators.ImmutableListHeadSubListGenerator;
 import net.ypresto.miniguava.collect.immutables.ListGenerators.ImmutableListMiddleSubListGenerator;
 import net.ypresto.miniguava.collect.immutables.ListGenerators.ImmutableListOfGenerator;
+import net.ypresto.miniguava.collect.immutables.ListGenerators.ImmutableListPlusGenerator;
 import net.ypresto.miniguava.collect.immutables.ListGenerators.ImmutableListTailSubListGenerator;
+import net.ypresto.miniguava.collect.immutables.ListGenerators.ImmutableListWithGenerator;
 import net.ypresto.miniguava.collect.immutables.ListGenerators.UnhashableElementsImmutableListGenerator;
 
+import java.lang.ref.WeakReference;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
@@ -54,6 +59,9 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Unit test for {@link ImmutableList}.
@@ -90,6 +98,24 @@ public class ImmutableListTest extends TestCase {
             SERIALIZABLE,
             ALLOWS_NULL_QUERIES)
         .createTestSuite());
+    suite.addTest(ListTestSuiteBuilder.using(new ImmutableListPlusGenerator())
+        .named("ImmutableList, built with plus")
+        .withFeatures(CollectionSize.ANY,
+            SERIALIZABLE,
+            ALLOWS_NULL_QUERIES)
+        .createTestSuite());
+    suite.addTest(ListTestSuiteBuilder.using(new ImmutableListConcatGenerator())
+        .named("ImmutableList, built with concat")
+        .withFeatures(CollectionSize.ANY,
+            SERIALIZABLE,
+            ALLOWS_NULL_QUERIES)
+        .createTestSuite());
+    suite.addTest(ListTestSuiteBuilder.using(new ImmutableListWithGenerator())
+        .named("ImmutableList, built with with")
+        .withFeatures(CollectionSize.ANY,
+            SERIALIZABLE,
+            ALLOWS_NULL_QUERIES)
+        .createTestSuite());
     suite.addTest(ListTestSuiteBuilder.using(
         new ImmutableListHeadSubListGenerator())
         .named("ImmutableList, head subList")
@@ -740,5 +766,284 @@ public class ImmutableListTest extends TestCase {
       ImmutableList<String> list = ImmutableList.of("a", "b");
       assertSame(list, list.asList());
     }
+
+    @MiniGuavaSpecific
+    public void testPlus() {
+      ImmutableList<String> list = ImmutableList.of("a", "b");
+      ImmutableList<String> plus = list.plus("c");
+      assertEquals(asList("a", "b"), list);
+      assertEquals(asList("a", "b", "c"), plus);
+      assertEquals(asList("a", "b", "c", "d"), plus.plus("d"));
+      assertEquals(asList("a", "b", "c", "e"), plus.plus("e"));
+      assertEquals(asList("a", "b", "c"), plus);
+      try {
+        plus.plus(null);
+        fail("expected NullPointerException");
+      } catch (NullPointerException expected) {
+      }
+    }
+
+    @MiniGuavaSpecific
+    public void testWith() {
+      ImmutableList<String> list = ImmutableList.of("a", "b", "c");
+      ImmutableList<String> with = list.with(1, "x");
+      assertEquals(asList("a", "b", "c"), list);
+      assertEquals(asList("a", "x", "c"), with);
+      assertEquals(asList("y", "x", "c"), with.with(0, "y"));
+      assertEquals(asList("a", "x", "c"), with);
+      try {
+        with.with(3, "z");
+        fail("expected IndexOutOfBoundsException");
+      } catch (IndexOutOfBoundsException expected) {
+      }
+      try {
+        with.with(0, null);
+        fail("expected NullPointerException");
+      } catch (NullPointerException expected) {
+      }
+    }
+
+    @MiniGuavaSpecific
+    public void testConcat() {
+      ImmutableList<String> ab = ImmutableList.of("a", "b");
+      assertSame(ab, ImmutableList.concat(ImmutableList.<String>of(), ab));
+      assertSame(ImmutableList.of(), ImmutableList.<String>concat());
+      ImmutableList<Object> concat = ImmutableList.<Object>concat(ab, ImmutableList.of(1));
+      assertEquals(asList("a", "b", 1), concat);
+      assertEquals(asList("a", "b", 1), ImmutableList.copyOf(concat));
+      assertTrue(ImmutableList.copyOf(concat) instanceof RegularImmutableList);
+      try {
+        ImmutableList.concat(ab, null);
+        fail();
+      } catch (NullPointerException expected) {
+      }
+    }
+
+    @MiniGuavaSpecific
+    public void testConcat_repeated() {
+      // appends one page at a time, as pagination would
+      List<Integer> expected = new ArrayList<Integer>();
+      ImmutableList<Integer> list = ImmutableList.of();
+      for (int page = 0; page < 5000; page++) {
+        ImmutableList<Integer> elements = ImmutableList.of(2 * page, 2 * page + 1);
+        expected.addAll(elements);
+        list = (page % 2 == 0)
+            ? ImmutableList.concat(list, elements)
+            : ImmutableList.concat(list, ImmutableList.concat(elements));
+      }
+      assertEquals(expected, list);
+      for (int i = 0; i < expected.size(); i += 97) {
+        assertEquals(expected.get(i), list.get(i));
+      }
+      List<Integer> iterated = new ArrayList<Integer>();
+      for (Integer element : list) {
+        iterated.add(element);
+      }
+      assertEquals(expected, iterated);
+      // an AVL tree of 5000 leaves is at most 1.44 * log2(5000) < 18 levels deep
+      assertTrue(RopeImmutableList.depth(list) < 18);
+
+      // ropes concatenated with ropes of very different depths stay balanced
+      ImmutableList<Integer> both = ImmutableList.concat(list, ImmutableList.of(-1), list);
+      assertEquals(2 * expected.size() + 1, both.size());
+      assertEquals((Integer) (-1), both.get(expected.size()));
+      assertEquals(expected, both.subList(expected.size() + 1, both.size()));
+      assertTrue(RopeImmutableList.depth(both) < 20);
+    }
+
+    @MiniGuavaSpecific
+    public void testPlusAndWith_large() {
+      // crosses the leaf, second-level and third-level boundaries of the trie
+      int size = 32 * 32 * 32 + 100;
+      List<Integer> expected = new ArrayList<Integer>();
+      ImmutableList<Integer> list = ImmutableList.of();
+      for (int i = 0; i < size; i++) {
+        expected.add(i);
+        list = list.plus(i);
+      }
+      assertEquals(expected, list);
+      assertEquals(expected, ImmutableList.copyOf(list));
+      assertEquals(expected.subList(0, 1061),
+          ImmutableList.copyOf(list.subList(0, 1056)).plus(-1).with(1056, 1056)
+              .plus(1057).plus(1058).with(0, 0).plus(1059).plus(1060));
+
+      ImmutableList<Integer> with = list;
+      for (int i = 0; i < size; i += 97) {
+        with = with.with(i, -i);
+        expected.set(i, -i);
+      }
+      assertEquals(expected, with);
+      assertEquals(Integer.valueOf(1), list.get(1));
+      assertEquals(Integer.valueOf(size - 1), list.get(size - 1));
+    }
+
+    @MiniGuavaSpecific
+    public void testHashCodeCachedAndUsedByEquals() {
+      CountingObject a = new CountingObject(1);
+      CountingObject b = new CountingObject(2);
+      ImmutableList<CountingObject> list = ImmutableList.of(a, b);
+      int expected = asList(a, b).hashCode();
+      a.hashCodeCalls = 0;
+      assertEquals(expected, list.hashCode());
+      assertEquals(expected, list.hashCode());
+      assertEquals(1, a.hashCodeCalls);
+
+      ImmutableList<CountingObject> other = ImmutableList.of(a, new CountingObject(3));
+      other.hashCode();
+      a.equalsCalls = 0;
+      assertFalse(list.equals(other));
+      assertEquals(0, a.equalsCalls);
+      assertTrue(list.equals(ImmutableList.of(new CountingObject(1), b)));
+      assertEquals(1, a.equalsCalls);
+    }
+
+    @MiniGuavaSpecific
+    public void testUnsafeWrap() {
+      String[] array = {"a", "b", "c"};
+      ImmutableList<String> list = ImmutableList.unsafeWrap(array);
+      assertEquals(asList("a", "b", "c"), list);
+      // shares the array rather than copying it
+      array[1] = "x";
+      assertEquals("x", list.get(1));
+      assertEquals(asList("a"), ImmutableList.unsafeWrap(new String[] {"a"}));
+      assertTrue(ImmutableList.unsafeWrap(new String[0]).isEmpty());
+      try {
+        ImmutableList.unsafeWrap(new String[] {"a", null});
+        fail();
+      } catch (NullPointerException expected) {
+      }
+    }
+
+    @MiniGuavaSpecific
+    public void testBuilderWithExpectedSize() {
+      assertEquals(asList("a", "b", "c"),
+          ImmutableList.<String>builderWithExpectedSize(0).add("a", "b").add("c").build());
+      assertEquals(asList("a"), ImmutableList.<String>builderWithExpectedSize(10).add("a").build());
+      try {
+        ImmutableList.builderWithExpectedSize(-1);
+        fail();
+      } catch (IllegalArgumentException expected) {
+      }
+    }
+
+    @MiniGuavaSpecific
+    public void testBuilder_chunked() {
+      int chunkSize = ImmutableCollection.ArrayBasedBuilder.MAX_GROWN_CAPACITY;
+      List<Integer> expected = new ArrayList<Integer>();
+      ImmutableList.Builder<Integer> builder = ImmutableList.builder();
+      for (int i = 0; i < chunkSize + 3; i++) {
+        expected.add(i);
+        builder.add(i);
+      }
+      ImmutableList<Integer> first = builder.build();
+      assertEquals(expected, first);
+
+      // varargs spanning several chunks, then single elements after the previous build
+      Integer[] many = new Integer[2 * chunkSize + 5];
+      for (int i = 0; i < many.length; i++) {
+        many[i] = -i;
+      }
+      builder.add(many).add(7).addAll(asList(8, 9));
+      expected.addAll(asList(many));
+      expected.addAll(asList(7, 8, 9));
+      ImmutableList<Integer> second = builder.build();
+      assertEquals(expected, second);
+      assertEquals(chunkSize + 3, first.size());
+      assertEquals(Integer.valueOf(chunkSize + 2), first.get(chunkSize + 2));
+
+      builder.add(10);
+      expected.add(10);
+      assertEquals(expected, builder.build());
+      assertEquals(expected.size() - 1, second.size());
+
+      ImmutableList.Builder<Integer> presized = ImmutableList.builderWithExpectedSize(3);
+      presized.add(many);
+      assertEquals(asList(many), presized.build());
+    }
+
+    @MiniGuavaSpecific
+    public void testConcurrentBuilder() throws InterruptedException {
+      final ImmutableList.ConcurrentBuilder<Integer> builder = ImmutableList.concurrentBuilder();
+      assertEquals(ImmutableList.of(), builder.build());
+      final int threadCount = 4;
+      final int perThread = 20000;
+      final CountDownLatch start = new CountDownLatch(1);
+      Thread[] threads = new Thread[threadCount];
+      for (int t = 0; t < threadCount; t++) {
+        final int first = t * perThread;
+        threads[t] = new Thread() {
+          @Override
+          public void run() {
+            try {
+              start.await();
+            } catch (InterruptedException e) {
+              throw new AssertionError(e);
+            }
+            for (int i = first; i < first + perThread; i += 4) {
+              builder.add(i).add(i + 1, i + 2).addAll(asList(i + 3));
+            }
+          }
+        };
+        threads[t].start();
+      }
+      start.countDown();
+      for (Thread thread : threads) {
+        thread.join();
+      }
+
+      ImmutableList<Integer> list = builder.build();
+      assertEquals(threadCount * perThread, list.size());
+      // each thread's elements are contiguous and in the order it added them
+      for (int i = 0; i < list.size(); i += perThread) {
+        int first = list.get(i);
+        assertEquals(0, first % perThread);
+        for (int j = 1; j < perThread; j++) {
+          assertEquals((Integer) (first + j), list.get(i + j));
+        }
+      }
+      assertEquals(threadCount * perThread, new HashSet<Integer>(list).size());
+
+      builder.add(-1);
+      ImmutableList<Integer> reused = builder.build();
+      assertEquals(list, reused.subList(0, list.size()));
+      assertEquals((Integer) (-1), reused.get(list.size()));
+      try {
+        builder.add((Integer) null);
+        fail();
+      } catch (NullPointerException expected) {
+      }
+      try {
+        builder.addAll(asList(1, null));
+        fail();
+      } catch (NullPointerException expected) {
+      }
+      assertEquals(reused, builder.build());
+    }
+
+    @MiniGuavaSpecific
+    public void testConcurrentBuilder_releasedWithBuilder() throws Exception {
+      ExecutorService executor = Executors.newSingleThreadExecutor();
+      try {
+        WeakReference<Object> element = addFromThread(executor);
+        // the pool thread is still alive, but no longer holds the builder's buffer
+        GcFinalization.awaitClear(element);
+      } finally {
+        executor.shutdown();
+      }
+    }
+
+    private static WeakReference<Object> addFromThread(ExecutorService executor)
+        throws Exception {
+      final ImmutableList.ConcurrentBuilder<Object> builder = ImmutableList.concurrentBuilder();
+      final Object element = new Object();
+      executor.submit(new Runnable() {
+        @Override
+        public void run() {
+          builder.add(element);
+        }
+      }).get();
+      assertEquals(ImmutableList.of(element), builder.build());
+      return new WeakReference<Object>(element);
+    }
   }
 }
@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2017 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ypresto.miniguava.collect.immutables;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.testing.EqualsTester;
+import com.google.common.testing.SerializableTester;
+
+import junit.framework.TestCase;
+
+import net.ypresto.miniguava.annotations.MiniGuavaSpecific;
+
+import java.util.Arrays;
+
+/**
+ * Tests for {@link ImmutableLongArray}.
+ */
+// miniguava: Backported from Guava 22, with fewer tests.
+@MiniGuavaSpecific
+public class ImmutableLongArrayTest extends TestCase {
+
+  public void testOf() {
+    assertThat(ImmutableLongArray.of().asList()).isEmpty();
+    assertThat(ImmutableLongArray.of(0L, 1L, 2L, Long.MAX_VALUE).asList())
+        .containsExactly(0L, 1L, 2L, Long.MAX_VALUE).inOrder();
+    assertSame(ImmutableLongArray.of(), ImmutableLongArray.copyOf(new long[0]));
+  }
+
+  public void testBuilder() {
+    ImmutableLongArray.Builder builder = ImmutableLongArray.builder(1);
+    for (long i = 0; i < 20; i++) {
+      builder.add(i << 32);
+    }
+    builder.addAll(Arrays.asList(1L, 2L)).addAll(new long[] {3L});
+    ImmutableLongArray built = builder.build();
+    assertEquals(23, built.length());
+    assertEquals(19L << 32, built.get(19));
+    assertEquals(3L, built.get(22));
+  }
+
+  public void testIndexOfAndSubArray() {
+    ImmutableLongArray ila = ImmutableLongArray.of(5L, 1L << 40, 7L, 1L << 40, 9L);
+    assertEquals(1, ila.indexOf(1L << 40));
+    assertEquals(3, ila.lastIndexOf(1L << 40));
+    assertFalse(ila.contains(0L));
+    ImmutableLongArray sub = ila.subArray(2, 5);
+    assertEquals(ImmutableLongArray.of(7L, 1L << 40, 9L), sub);
+    assertEquals(1, sub.asList().indexOf(1L << 40));
+    assertEquals(-1, sub.asList().indexOf(7));
+    assertTrue(Arrays.equals(new long[] {7L, 1L << 40, 9L}, sub.toArray()));
+  }
+
+  public void testEqualsAndHashCode() {
+    new EqualsTester()
+        .addEqualityGroup(ImmutableLongArray.of())
+        .addEqualityGroup(
+            ImmutableLongArray.of(1L, 2L), ImmutableLongArray.of(0L, 1L, 2L).subArray(1, 3))
+        .addEqualityGroup(ImmutableLongArray.of(2L, 1L))
+        .testEquals();
+    ImmutableLongArray ila = ImmutableLongArray.of(-1L, 1L << 33, 0L);
+    assertEquals(Arrays.asList(-1L, 1L << 33, 0L).hashCode(), ila.hashCode());
+    assertEquals(ila.hashCode(), ila.asList().hashCode());
+    assertEquals("[-1, 8589934592, 0]", ila.toString());
+  }
+
+  public void testSerialization() {
+    ImmutableLongArray ila = ImmutableLongArray.of(0L, 1L, 3L, 6L).subArray(1, 3);
+    assertEquals(ila, SerializableTester.reserialize(ila));
+    assertEquals(ImmutableList.of(1L, 3L), SerializableTester.reserialize(ila.asList()));
+  }
+}
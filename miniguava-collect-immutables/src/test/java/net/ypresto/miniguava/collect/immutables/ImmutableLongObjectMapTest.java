@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2016 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ypresto.miniguava.collect.immutables;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.testing.EqualsTester;
+import com.google.common.testing.SerializableTester;
+
+import junit.framework.TestCase;
+
+import net.ypresto.miniguava.annotations.MiniGuavaSpecific;
+
+/**
+ * Tests for {@link ImmutableLongObjectMap}. The shared implementation is covered more fully by
+ * {@link ImmutableIntObjectMapTest}.
+ */
+@MiniGuavaSpecific
+public class ImmutableLongObjectMapTest extends TestCase {
+
+  public void testGet() {
+    ImmutableLongObjectMap.Builder<String> builder = ImmutableLongObjectMap.builder();
+    for (int i = 0; i < 1000; i++) {
+      // keys differing only in their high bits
+      builder.put((long) i << 32, "v" + i);
+    }
+    ImmutableLongObjectMap<String> map = builder.build();
+    assertEquals(1000, map.size());
+    for (int i = 0; i < 1000; i++) {
+      assertEquals("v" + i, map.get((long) i << 32));
+      assertFalse(map.containsKey(((long) i << 32) + 1));
+    }
+    assertNull(map.get(Long.MAX_VALUE));
+  }
+
+  public void testBuilder_duplicateKeys() {
+    try {
+      ImmutableLongObjectMap.of(1L << 40, "a", 1L << 40, "b");
+      fail();
+    } catch (IllegalArgumentException expected) {
+      assertEquals(
+          "Multiple entries with same key: 1099511627776=a and 1099511627776=b",
+          expected.getMessage());
+    }
+  }
+
+  public void testKeysAndValues() {
+    ImmutableLongObjectMap<String> map =
+        ImmutableLongObjectMap.of(Long.MIN_VALUE, "a", 0L, "b", Long.MAX_VALUE, "c");
+    assertEquals(ImmutableLongArray.of(Long.MIN_VALUE, 0L, Long.MAX_VALUE), map.keys());
+    assertThat(map.values()).containsExactly("a", "b", "c").inOrder();
+  }
+
+  public void testEquals() {
+    new EqualsTester()
+        .addEqualityGroup(ImmutableLongObjectMap.of(), ImmutableLongObjectMap.builder().build())
+        .addEqualityGroup(
+            ImmutableLongObjectMap.of(1L, "a", 2L, "b"),
+            ImmutableLongObjectMap.of(2L, "b", 1L, "a"))
+        .addEqualityGroup(ImmutableLongObjectMap.of(1L, "a"))
+        .testEquals();
+  }
+
+  public void testAsMap() {
+    ImmutableLongObjectMap<String> map = ImmutableLongObjectMap.of(-1L << 33, "a", 7L, "b");
+    ImmutableMap<Long, String> asMap = map.asMap();
+    assertEquals(ImmutableMap.of(-1L << 33, "a", 7L, "b"), asMap);
+    assertEquals(ImmutableMap.of(-1L << 33, "a", 7L, "b").hashCode(), map.hashCode());
+    assertEquals("b", asMap.get(7L));
+    assertNull(asMap.get(7));
+    assertEquals(map, ImmutableLongObjectMap.copyOf(asMap));
+  }
+
+  public void testSerialization() {
+    ImmutableLongObjectMap<String> map = ImmutableLongObjectMap.of(3L, "c", 1L << 50, "a");
+    assertEquals(
+        "{3=c, 1125899906842624=a}", SerializableTester.reserializeAndAssert(map).toString());
+  }
+}
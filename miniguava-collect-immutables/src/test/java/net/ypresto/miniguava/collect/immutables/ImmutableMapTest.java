@@ -17,6 +17,7 @@
 package net.ypresto.miniguava.collect.immutables;
 
 import static com.google.common.testing.SerializableTester.reserialize;
+import static net.ypresto.miniguava.collect.immutables.HashStatisticsTest.statisticsOfMap;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
@@ -48,18 +49,23 @@ import junit.framework.Test;
 import junit.framework.TestCase;
 import junit.framework.TestSuite;
 
+import net.ypresto.miniguava.annotations.MiniGuavaSpecific;
 import net.ypresto.miniguava.base.Joiner;
 import net.ypresto.miniguava.collect.immutables.ImmutableMap.Builder;
 import net.ypresto.miniguava.collect.internal.AbstractMapEntry;
 
 import java.io.Serializable;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Tests for {@link ImmutableMap}.
@@ -406,6 +412,39 @@ public class ImmutableMapTest extends TestCase {
       assertMapEquals(mapTwo, "one", 1, "two", 2, "three", 3, "four", 4);
     }
 
+    @MiniGuavaSpecific
+    public void testHashCodeCachedAndUsedByEquals() {
+      CountingObject value = new CountingObject(1);
+      ImmutableMap<String, Object> map = ImmutableMap.<String, Object>of("a", value, "b", 2);
+      int expected = new HashMap<String, Object>(map).hashCode();
+      value.hashCodeCalls = 0;
+      assertEquals(expected, map.hashCode());
+      assertEquals(expected, map.hashCode());
+      assertEquals(1, value.hashCodeCalls);
+
+      ImmutableMap<String, Object> other = ImmutableMap.<String, Object>of("a", value, "b", 3);
+      other.hashCode();
+      value.equalsCalls = 0;
+      assertFalse(map.equals(other));
+      assertFalse(map.equals(ImmutableMap.of("a", value)));
+      assertEquals(0, value.equalsCalls);
+      assertTrue(map.equals(ImmutableMap.<String, Object>of("b", 2, "a", value)));
+    }
+
+    @MiniGuavaSpecific
+    public void testBuilderWithExpectedSize() {
+      ImmutableMap<String, Integer> map = ImmutableMap.<String, Integer>builderWithExpectedSize(0)
+          .put("one", 1)
+          .put("two", 2)
+          .build();
+      assertMapEquals(map, "one", 1, "two", 2);
+      try {
+        ImmutableMap.builderWithExpectedSize(-1);
+        fail();
+      } catch (IllegalArgumentException expected) {
+      }
+    }
+
     public void testBuilderPutNullKeyFailsAtomically() {
       Builder<String, Integer> builder = new Builder<String, Integer>();
       try {
@@ -505,6 +544,81 @@ public class ImmutableMapTest extends TestCase {
       }
     }
 
+    @MiniGuavaSpecific
+    public void testBuildParallel() {
+      ExecutorService executor = Executors.newFixedThreadPool(4);
+      try {
+        Builder<Long, String> builder = ImmutableMap.builder();
+        Map<Long, String> source = new LinkedHashMap<Long, String>();
+        for (long i = 0; i < 50000; i++) {
+          // i and i << 32 have equal hash codes
+          long key = (i % 2 == 0) ? i / 2 : (i / 2 + 1) << 32;
+          builder.put(key, "v" + i);
+          source.put(key, "v" + i);
+        }
+        ImmutableMap<Long, String> sequential = ImmutableMap.copyOf(source);
+        ImmutableMap<Long, String> parallel = ImmutableMap.copyOfParallel(source, executor);
+        assertEquals(sequential, parallel);
+        assertEquals(sequential.entrySet().asList(), parallel.entrySet().asList());
+        assertEquals(sequential, builder.buildParallel(executor));
+        assertEquals(
+            sequential.keySet().asList(), builder.buildParallel(executor).keySet().asList());
+        assertEquals("v3", parallel.get(2L << 32));
+      } finally {
+        executor.shutdown();
+      }
+    }
+
+    @MiniGuavaSpecific
+    public void testBuildParallel_duplicateKeys() {
+      ExecutorService executor = Executors.newFixedThreadPool(4);
+      try {
+        Builder<Integer, Integer> builder = ImmutableMap.builder();
+        for (int i = 0; i < 50000; i++) {
+          builder.put(i, i);
+        }
+        builder.put(12345, 0);
+        try {
+          builder.buildParallel(executor);
+          fail();
+        } catch (IllegalArgumentException expected) {
+        }
+      } finally {
+        executor.shutdown();
+      }
+    }
+
+    @MiniGuavaSpecific
+    public void testBuilder_optimizeFor() {
+      assertEquals(64, statisticsOfMap(100, OptimizationGoal.MEMORY).tableSize());
+      assertEquals(128, statisticsOfMap(100, OptimizationGoal.BALANCED).tableSize());
+      assertEquals(256, statisticsOfMap(100, OptimizationGoal.LOOKUP_SPEED).tableSize());
+
+      ImmutableMap<Integer, Integer> map = ImmutableMap.<Integer, Integer>builder()
+          .optimizeFor(OptimizationGoal.MEMORY)
+          .put(3, 30)
+          .put(1, 10)
+          .put(2, 20)
+          .build();
+      assertEquals(ImmutableMap.of(3, 30, 1, 10, 2, 20), map);
+      assertEquals(ImmutableList.of(3, 1, 2), map.keySet().asList());
+
+      ImmutableBiMap<Integer, String> biMap = ImmutableBiMap.<Integer, String>builder()
+          .optimizeFor(OptimizationGoal.LOOKUP_SPEED)
+          .put(1, "one")
+          .put(2, "two")
+          .build();
+      assertEquals((Integer) 2, biMap.inverse().get("two"));
+
+      ImmutableSortedMap<Integer, Integer> sortedMap =
+          ImmutableSortedMap.<Integer, Integer>naturalOrder()
+              .optimizeFor(OptimizationGoal.MEMORY)
+              .put(2, 20)
+              .put(1, 10)
+              .build();
+      assertEquals(ImmutableList.of(1, 2), sortedMap.keySet().asList());
+    }
+
     public void testOf() {
       assertMapEquals(
           ImmutableMap.of("one", 1),
@@ -650,6 +764,37 @@ public class ImmutableMapTest extends TestCase {
     assertTrue(ImmutableMap.copyOf(map) instanceof ImmutableEnumMap);
   }
 
+  @MiniGuavaSpecific
+  public void testViewsToArray() {
+    ImmutableMap<String, Integer> map = ImmutableMap.of("one", 1, "two", 2, "three", 3);
+    assertEquals(Arrays.asList("one", "two", "three"), Arrays.asList(map.keySet().toArray()));
+    assertEquals(Arrays.asList(1, 2, 3), Arrays.asList(map.values().toArray(new Integer[0])));
+    assertEquals(map.entrySet().asList(), Arrays.asList(map.entrySet().toArray()));
+    assertEquals(ImmutableList.of(1, 2, 3), ImmutableList.copyOf(map.values()));
+    assertEquals(ImmutableList.of("one", "two", "three"), ImmutableList.copyOf(map.keySet()));
+
+    ImmutableBiMap<String, Integer> biMap = ImmutableBiMap.of("one", 1, "two", 2);
+    assertEquals(Arrays.asList(1, 2), Arrays.asList(biMap.values().toArray()));
+    assertEquals(Arrays.asList("one", "two"), Arrays.asList(biMap.inverse().values().toArray()));
+
+    EnumMap<AnEnum, String> enumMap = new EnumMap<AnEnum, String>(AnEnum.class);
+    enumMap.put(AnEnum.C, "c");
+    enumMap.put(AnEnum.A, "a");
+    ImmutableMap<AnEnum, String> immutableEnumMap = Immutables.immutableEnumMap(enumMap);
+    assertEquals(Arrays.asList(AnEnum.A, AnEnum.C),
+        Arrays.asList(immutableEnumMap.keySet().toArray()));
+    assertEquals(Arrays.asList("a", "c"), Arrays.asList(immutableEnumMap.values().toArray()));
+
+    ImmutableListMultimap<String, Integer> multimap =
+        ImmutableListMultimap.of("a", 1, "b", 2, "a", 3);
+    assertEquals(Arrays.asList("a", "b"), Arrays.asList(multimap.keySet().toArray()));
+    assertEquals(Arrays.asList("a", "b"), Arrays.asList(multimap.keySet().asList().toArray()));
+    ImmutableSet<Integer> values = ImmutableSetMultimap.of("a", 1, "b", 2, "a", 3).get("a");
+    Object[] array = {0, 0, 0};
+    assertSame(array, values.toArray(array));
+    assertEquals(Arrays.asList(1, 3, null), Arrays.asList(array));
+  }
+
   public void testViewSerialization() {
     Map<String, Integer> map = ImmutableMap.of("one", 1, "two", 2, "three", 3);
     LenientSerializableTester.reserializeAndAssertLenient(map.entrySet());
@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2016 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ypresto.miniguava.collect.immutables;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.testing.SetTestSuiteBuilder;
+import com.google.common.collect.testing.TestStringSetGenerator;
+import com.google.common.collect.testing.features.CollectionFeature;
+import com.google.common.collect.testing.features.CollectionSize;
+import com.google.common.testing.SerializableTester;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import net.ypresto.miniguava.annotations.MiniGuavaSpecific;
+
+import java.util.Set;
+
+/**
+ * Tests for {@link ImmutableSetMultimap}.
+ */
+@MiniGuavaSpecific
+public class ImmutableSetMultimapTest extends TestCase {
+
+  public static Test suite() {
+    TestSuite suite = new TestSuite();
+    suite.addTestSuite(ImmutableSetMultimapTest.class);
+    suite.addTest(SetTestSuiteBuilder.using(new ImmutableSetMultimapGetGenerator())
+        .named("ImmutableSetMultimap.get")
+        .withFeatures(
+            CollectionSize.ANY,
+            CollectionFeature.KNOWN_ORDER,
+            CollectionFeature.SERIALIZABLE,
+            CollectionFeature.ALLOWS_NULL_QUERIES)
+        .createTestSuite());
+    return suite;
+  }
+
+  public void testOf_ignoresRepeatedEntries() {
+    assertTrue(ImmutableSetMultimap.of().isEmpty());
+    ImmutableSetMultimap<String, Integer> multimap =
+        ImmutableSetMultimap.of("a", 1, "b", 1, "a", 1);
+    assertEquals(2, multimap.size());
+    assertThat(multimap.get("a")).containsExactly(1);
+    assertThat(multimap.get("b")).containsExactly(1);
+    assertThat(multimap.values()).containsExactly(1, 1);
+  }
+
+  public void testBuilder() {
+    ImmutableSetMultimap<String, Integer> multimap = ImmutableSetMultimap.<String, Integer>builder()
+        .putAll("a", 3, 1, 3, 2)
+        .put("b", 1)
+        .put("a", 1)
+        .build();
+    assertThat(multimap.keySet()).containsExactly("a", "b").inOrder();
+    assertThat(multimap.get("a")).containsExactly(3, 1, 2).inOrder();
+    assertEquals(4, multimap.size());
+    assertEquals("{a=[3, 1, 2], b=[1]}", multimap.toString());
+  }
+
+  public void testContainsEntry() {
+    ImmutableSetMultimap.Builder<Integer, Integer> builder = ImmutableSetMultimap.builder();
+    for (int i = 0; i < 5000; i++) {
+      builder.put(i % 50, i);
+      builder.put(i % 50, i);
+    }
+    ImmutableSetMultimap<Integer, Integer> multimap = builder.build();
+    assertEquals(5000, multimap.size());
+    for (int i = 0; i < 5000; i++) {
+      assertTrue(multimap.containsEntry(i % 50, i));
+      assertFalse(multimap.containsEntry((i + 1) % 50, i));
+      assertTrue(multimap.get(i % 50).contains(i));
+    }
+    assertFalse(multimap.containsEntry(0, null));
+    assertFalse(multimap.containsEntry(50, 50));
+    assertFalse(multimap.get(0).contains("0"));
+  }
+
+  public void testGet_equalsSet() {
+    ImmutableSetMultimap<String, Integer> multimap =
+        ImmutableSetMultimap.of("a", 1, "b", 2, "a", 3);
+    ImmutableSet<Integer> a = multimap.get("a");
+    assertEquals(ImmutableSet.of(3, 1), a);
+    assertEquals(ImmutableSet.of(1, 3).hashCode(), a.hashCode());
+    assertThat(a.asList()).containsExactly(1, 3).inOrder();
+  }
+
+  public void testAsMap() {
+    ImmutableSetMultimap<String, Integer> multimap =
+        ImmutableSetMultimap.of("a", 1, "b", 2, "a", 3);
+    ImmutableMap<String, ImmutableSet<Integer>> asMap = multimap.asMap();
+    assertEquals(ImmutableMap.of("a", ImmutableSet.of(1, 3), "b", ImmutableSet.of(2)), asMap);
+    assertEquals(asMap.hashCode(), multimap.hashCode());
+    assertEquals(multimap, ImmutableSetMultimap.copyOf(asMap));
+  }
+
+  public void testSerialization() {
+    ImmutableSetMultimap<String, Integer> multimap =
+        ImmutableSetMultimap.of("a", 1, "b", 2, "a", 3);
+    ImmutableSetMultimap<String, Integer> reserialized =
+        SerializableTester.reserializeAndAssert(multimap);
+    assertTrue(reserialized.containsEntry("a", 3));
+    assertSame(ImmutableSetMultimap.of(),
+        SerializableTester.reserialize(ImmutableSetMultimap.of()));
+  }
+
+  public static class ImmutableSetMultimapGetGenerator extends TestStringSetGenerator {
+    @Override
+    protected Set<String> create(String[] elements) {
+      ImmutableSetMultimap.Builder<Integer, String> builder = ImmutableSetMultimap.builder();
+      builder.put(0, "before");
+      for (String element : elements) {
+        builder.put(1, element);
+        builder.put(2, element);
+      }
+      return builder.build().get(1);
+    }
+  }
+}
@@ -17,6 +17,7 @@
 package net.ypresto.miniguava.collect.immutables;
 
 import static com.google.common.truth.Truth.assertThat;
+import static net.ypresto.miniguava.collect.immutables.HashStatisticsTest.statisticsOfSet;
 
 import com.google.common.collect.testing.ListTestSuiteBuilder;
 import com.google.common.collect.testing.SetTestSuiteBuilder;
@@ -31,13 +32,18 @@ import com.google.common.testing.EqualsTester;
 import junit.framework.Test;
 import junit.framework.TestSuite;
 
+import net.ypresto.miniguava.annotations.MiniGuavaSpecific;
 import net.ypresto.miniguava.collect.immutables.ImmutableSet.Builder;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Unit test for {@link ImmutableSet}.
@@ -172,8 +178,8 @@ public class ImmutableSetTest extends AbstractImmutableSetTest {
   }
 
   public void testResizeTable() {
-    verifyTableSize(100, 2, 4);
-    verifyTableSize(100, 5, 8);
+    // miniguava: Sets of up to SMALL_SET_MAX_SIZE elements have no table.
+    verifyTableSize(100, 9, 16);
     verifyTableSize(100, 33, 64);
     verifyTableSize(17, 17, 32);
     verifyTableSize(17, 16, 32);
@@ -191,6 +197,235 @@ public class ImmutableSetTest extends AbstractImmutableSetTest {
         tableSize, ((RegularImmutableSet<Integer>) set).table.length);
   }
 
+  @MiniGuavaSpecific
+  public void testSmallSet() {
+    verifySmallSet(100, 2);
+    verifySmallSet(100, 5);
+    verifySmallSet(8, 8);
+    verifySmallSet(9, 8);
+
+    ImmutableSet<String> set = ImmutableSet.of("a", "b", "a", "c");
+    assertTrue(set instanceof SmallImmutableSet);
+    assertThat(set).containsExactly("a", "b", "c").inOrder();
+    assertTrue(set.contains(new String("b")));
+    assertFalse(set.contains("d"));
+    assertFalse(set.contains(null));
+    assertEquals(ImmutableSet.of("c", "b", "a"), set);
+    assertEquals("a".hashCode() + "b".hashCode() + "c".hashCode(), set.hashCode());
+  }
+
+  @MiniGuavaSpecific
+  public void testContains_fingerprints() {
+    Builder<Integer> builder = ImmutableSet.builder();
+    for (int i = 0; i < 1000; i += 2) {
+      builder.add(i);
+    }
+    ImmutableSet<Integer> evens = builder.build();
+    assertTrue(evens instanceof RegularImmutableSet);
+    for (int i = 0; i < 1000; i++) {
+      assertEquals(i % 2 == 0, evens.contains(i));
+    }
+    assertFalse(evens.contains(-2));
+    assertFalse(evens.contains("0"));
+
+    // equal hash codes give equal fingerprints, so equals() decides
+    ImmutableSet<String> colliding =
+        ImmutableSet.of("Aa", "BB", "C#", "D", "E", "F", "G", "H", "I");
+    assertEquals("Aa".hashCode(), "BB".hashCode());
+    assertTrue(colliding.contains("BB"));
+    assertTrue(colliding.contains("Aa"));
+    assertFalse(colliding.contains("C$"));
+  }
+
+  @MiniGuavaSpecific
+  public void testCopyOfParallel() {
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Long> elements = new ArrayList<Long>();
+      for (long i = 0; i < 60000; i++) {
+        // i and i << 32 have equal hash codes; every tenth element is a duplicate
+        elements.add((i % 10 == 0) ? i / 3 : ((i % 2 == 0) ? i : i << 32));
+      }
+      ImmutableSet<Long> sequential = ImmutableSet.copyOf(elements);
+      ImmutableSet<Long> parallel = ImmutableSet.copyOfParallel(elements, executor);
+      assertEquals(sequential.asList(), parallel.asList());
+      assertEquals(sequential.hashCode(), parallel.hashCode());
+      assertTrue(Arrays.equals(
+          ((RegularImmutableSet<Long>) sequential).table,
+          ((RegularImmutableSet<Long>) parallel).table));
+
+      Builder<Long> builder = ImmutableSet.builder();
+      builder.addAll(elements);
+      assertEquals(sequential.asList(), builder.buildParallel(executor).asList());
+
+      // collapses to a small set
+      List<Integer> repeated = Collections.nCopies(30000, 7);
+      assertEquals(ImmutableSet.of(7), ImmutableSet.copyOfParallel(repeated, executor));
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @MiniGuavaSpecific
+  public void testCopyOfParallel_nullElement() {
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Integer> elements = new ArrayList<Integer>();
+      for (int i = 0; i < 30000; i++) {
+        elements.add(i == 20000 ? null : i);
+      }
+      try {
+        ImmutableSet.copyOfParallel(elements, executor);
+        fail();
+      } catch (NullPointerException expected) {
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @MiniGuavaSpecific
+  public void testBuilder_chunked() {
+    int chunkSize = ImmutableCollection.ArrayBasedBuilder.MAX_GROWN_CAPACITY;
+    List<Integer> expected = new ArrayList<Integer>();
+    Builder<Integer> builder = ImmutableSet.builderWithExpectedSize(10);
+    for (int i = 0; i < 3 * chunkSize; i++) {
+      builder.add(i / 2);
+      if (i % 2 == 0) {
+        expected.add(i / 2);
+      }
+    }
+    ImmutableSet<Integer> first = builder.build();
+    assertEquals(expected, first.asList());
+
+    builder.add(-1).add(0);
+    for (int i = 0; i < chunkSize; i++) {
+      builder.add(-2 - i);
+    }
+    expected.add(-1);
+    for (int i = 0; i < chunkSize; i++) {
+      expected.add(-2 - i);
+    }
+    assertEquals(expected, builder.build().asList());
+    assertEquals(3 * chunkSize / 2, first.size());
+  }
+
+  @MiniGuavaSpecific
+  public void testConcurrentBuilder() throws Exception {
+    final ImmutableSet.ConcurrentBuilder<Integer> builder = ImmutableSet.concurrentBuilder();
+    assertEquals(ImmutableSet.of(), builder.build());
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> futures = new ArrayList<Future<?>>();
+      for (int t = 0; t < 8; t++) {
+        futures.add(executor.submit(new Runnable() {
+          @Override
+          public void run() {
+            // every task adds the same elements, each of them twice
+            for (int i = 0; i < 5000; i++) {
+              builder.add(i).add(i);
+            }
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    ImmutableSet<Integer> set = builder.build();
+    assertEquals(5000, set.size());
+    // the first thread to add added every element first, in order
+    for (int i = 0; i < 5000; i++) {
+      assertEquals((Integer) i, set.asList().get(i));
+    }
+    assertTrue(set instanceof RegularImmutableSet);
+
+    assertEquals(ImmutableSet.of(1, 2),
+        ImmutableSet.<Integer>concurrentBuilder().add(1, 2, 1).addAll(Arrays.asList(2)).build());
+    try {
+      builder.add((Integer) null);
+      fail();
+    } catch (NullPointerException expected) {
+    }
+    assertEquals(set, builder.build());
+  }
+
+  @MiniGuavaSpecific
+  public void testUnsafeWrap() {
+    assertTrue(ImmutableSet.unsafeWrap(new String[0]).isEmpty());
+    assertEquals(ImmutableSet.of("a"), ImmutableSet.unsafeWrap(new String[] {"a", "a"}));
+    assertEquals(Arrays.asList("b", "a", "c"),
+        ImmutableSet.unsafeWrap(new String[] {"b", "a", "b", "c", "a"}).asList());
+    Integer[] large = new Integer[100];
+    for (int i = 0; i < large.length; i++) {
+      large[i] = i % 60;
+    }
+    ImmutableSet<Integer> set = ImmutableSet.unsafeWrap(large);
+    assertEquals(60, set.size());
+    assertTrue(set.contains(59));
+    assertEquals(Integer.valueOf(0), set.asList().get(0));
+    try {
+      ImmutableSet.unsafeWrap(new String[] {"a", null});
+      fail();
+    } catch (NullPointerException expected) {
+    }
+  }
+
+  @MiniGuavaSpecific
+  public void testBuilderWithExpectedSize() {
+    assertEquals(ImmutableSet.of("a", "b"),
+        ImmutableSet.<String>builderWithExpectedSize(0).add("a", "b", "a").build());
+    try {
+      ImmutableSet.builderWithExpectedSize(-1);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  @MiniGuavaSpecific
+  public void testBuilder_optimizeFor() {
+    assertEquals(128, statisticsOfSet(100, OptimizationGoal.MEMORY).tableSize());
+    assertEquals(256, statisticsOfSet(100, OptimizationGoal.BALANCED).tableSize());
+    assertEquals(256, statisticsOfSet(150, OptimizationGoal.BALANCED).tableSize());
+    assertEquals(512, statisticsOfSet(150, OptimizationGoal.LOOKUP_SPEED).tableSize());
+
+    Builder<Integer> builder = ImmutableSet.<Integer>builder().optimizeFor(OptimizationGoal.MEMORY);
+    for (int i = 99; i >= 0; i--) {
+      builder.add(i, i);
+    }
+    ImmutableSet<Integer> set = builder.build();
+    assertEquals(100, set.size());
+    assertEquals((Integer) 99, set.iterator().next());
+    for (int i = 0; i < 100; i++) {
+      assertTrue(set.contains(i));
+    }
+    assertFalse(set.contains(100));
+    try {
+      builder.optimizeFor(null);
+      fail();
+    } catch (NullPointerException expected) {
+    }
+
+    ImmutableSortedSet<Integer> sortedSet = ImmutableSortedSet.<Integer>naturalOrder()
+        .optimizeFor(OptimizationGoal.LOOKUP_SPEED)
+        .add(2, 1)
+        .build();
+    assertThat(sortedSet).containsExactly(1, 2).inOrder();
+  }
+
+  private void verifySmallSet(int inputSize, int setSize) {
+    Builder<Integer> builder = ImmutableSet.builder();
+    for (int i = 0; i < inputSize; i++) {
+      builder.add(i % setSize);
+    }
+    ImmutableSet<Integer> set = builder.build();
+    assertTrue(set instanceof SmallImmutableSet);
+    assertEquals(setSize, set.size());
+  }
+
   public void testCopyOf_threadSafe() {
     verifyThreadSafe();
   }
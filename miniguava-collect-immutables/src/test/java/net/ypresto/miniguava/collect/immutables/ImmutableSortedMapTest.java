@@ -0,0 +1,216 @@
+/*
+ * Copyright (C) 2016 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ypresto.miniguava.collect.immutables;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.testing.Helpers;
+import com.google.common.collect.testing.NavigableMapTestSuiteBuilder;
+import com.google.common.collect.testing.TestStringSortedMapGenerator;
+import com.google.common.collect.testing.features.CollectionFeature;
+import com.google.common.collect.testing.features.CollectionSize;
+import com.google.common.collect.testing.features.MapFeature;
+import com.google.common.testing.SerializableTester;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import net.ypresto.miniguava.annotations.MiniGuavaSpecific;
+
+import java.util.Collections;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Tests for {@link ImmutableSortedMap}.
+ */
+@MiniGuavaSpecific
+public class ImmutableSortedMapTest extends TestCase {
+
+  public static Test suite() {
+    TestSuite suite = new TestSuite();
+    suite.addTestSuite(ImmutableSortedMapTest.class);
+    suite.addTest(NavigableMapTestSuiteBuilder.using(new ImmutableSortedMapGenerator())
+        .named("ImmutableSortedMap")
+        .withFeatures(
+            CollectionSize.ANY,
+            CollectionFeature.SERIALIZABLE_INCLUDING_VIEWS,
+            CollectionFeature.KNOWN_ORDER,
+            MapFeature.REJECTS_DUPLICATES_AT_CREATION,
+            MapFeature.ALLOWS_ANY_NULL_QUERIES)
+        .createTestSuite());
+    suite.addTest(NavigableMapTestSuiteBuilder.using(new ImmutableSortedMapIndexedGenerator())
+        .named("ImmutableSortedMap, Eytzinger indexed")
+        .withFeatures(
+            CollectionSize.ANY,
+            CollectionFeature.SERIALIZABLE_INCLUDING_VIEWS,
+            CollectionFeature.KNOWN_ORDER,
+            MapFeature.REJECTS_DUPLICATES_AT_CREATION,
+            MapFeature.ALLOWS_ANY_NULL_QUERIES)
+        .createTestSuite());
+    return suite;
+  }
+
+  public void testOf() {
+    assertTrue(ImmutableSortedMap.of().isEmpty());
+    ImmutableSortedMap<String, Integer> map =
+        ImmutableSortedMap.of("c", 3, "a", 1, "e", 5, "b", 2, "d", 4);
+    assertThat(map.keySet()).containsExactly("a", "b", "c", "d", "e").inOrder();
+    assertThat(map.values()).containsExactly(1, 2, 3, 4, 5).inOrder();
+  }
+
+  public void testOf_duplicateKeys() {
+    try {
+      ImmutableSortedMap.of("a", 1, "b", 2, "a", 3);
+      fail();
+    } catch (IllegalArgumentException expected) {
+      assertEquals("Multiple entries with same key: a=1 and a=3", expected.getMessage());
+    }
+  }
+
+  public void testBuilder_orderEntriesByValueUnsupported() {
+    try {
+      ImmutableSortedMap.<String, Integer>naturalOrder()
+          .orderEntriesByValue(Collections.<Integer>reverseOrder());
+      fail();
+    } catch (UnsupportedOperationException expected) {
+    }
+  }
+
+  @SuppressWarnings("deprecation")
+  public void testCopyOfParallel_unsupported() {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      ImmutableSortedMap.copyOfParallel(Collections.singletonMap("a", 1), executor);
+      fail();
+    } catch (UnsupportedOperationException expected) {
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  public void testBuilder_reuse() {
+    ImmutableSortedMap.Builder<String, Integer> builder =
+        ImmutableSortedMap.<String, Integer>naturalOrder().put("b", 2);
+    ImmutableSortedMap<String, Integer> first = builder.build();
+    ImmutableSortedMap<String, Integer> second = builder.put("a", 1).build();
+    assertEquals(ImmutableSortedMap.of("b", 2), first);
+    assertThat(second.keySet()).containsExactly("a", "b").inOrder();
+  }
+
+  public void testCopyOf() {
+    TreeMap<String, Integer> source = new TreeMap<String, Integer>(Collections.reverseOrder());
+    source.put("a", 1);
+    source.put("b", 2);
+    assertThat(ImmutableSortedMap.copyOf(source).keySet()).containsExactly("a", "b").inOrder();
+    ImmutableSortedMap<String, Integer> sorted = ImmutableSortedMap.copyOfSorted(source);
+    assertThat(sorted.keySet()).containsExactly("b", "a").inOrder();
+    assertSame(sorted, ImmutableSortedMap.copyOf(sorted, sorted.comparator()));
+    assertThat(ImmutableSortedMap.copyOf(source.entrySet()).keySet())
+        .containsExactly("a", "b").inOrder();
+  }
+
+  public void testNavigation() {
+    ImmutableSortedMap<Integer, String> map =
+        ImmutableSortedMap.of(10, "a", 20, "b", 30, "c", 40, "d");
+    assertEquals((Integer) 20, map.floorKey(25));
+    assertEquals(Helpers.mapEntry(20, "b"), map.floorEntry(20));
+    assertEquals((Integer) 10, map.lowerKey(20));
+    assertEquals(Helpers.mapEntry(30, "c"), map.ceilingEntry(21));
+    assertEquals((Integer) 40, map.higherKey(30));
+    assertNull(map.lowerEntry(10));
+    assertNull(map.higherKey(40));
+    assertEquals("c", map.get(30));
+    assertNull(map.get(31));
+    assertNull(map.get("30"));
+  }
+
+  public void testRanges() {
+    ImmutableSortedMap<Integer, String> map =
+        ImmutableSortedMap.of(10, "a", 20, "b", 30, "c", 40, "d");
+    ImmutableSortedMap<Integer, String> subMap = map.subMap(15, 40);
+    assertThat(subMap.entrySet())
+        .containsExactly(Helpers.mapEntry(20, "b"), Helpers.mapEntry(30, "c")).inOrder();
+    assertEquals("b", subMap.get(20));
+    assertNull(subMap.get(10));
+    assertEquals(ImmutableSortedMap.of(30, "c"), subMap.tailMap(20, false));
+    assertEquals(ImmutableSortedMap.of(10, "a"), map.headMap(20));
+    assertTrue(map.subMap(11, 19).isEmpty());
+    assertSame(map, map.headMap(40, true));
+  }
+
+  public void testDescendingMap() {
+    ImmutableSortedMap<Integer, String> map = ImmutableSortedMap.of(1, "a", 2, "b", 3, "c");
+    ImmutableSortedMap<Integer, String> descending = map.descendingMap();
+    assertThat(descending.keySet()).containsExactly(3, 2, 1).inOrder();
+    assertThat(descending.values()).containsExactly("c", "b", "a").inOrder();
+    assertEquals("b", descending.get(2));
+    assertEquals((Integer) 2, descending.floorKey(2));
+    assertEquals((Integer) 1, descending.higherKey(2));
+  }
+
+  public void testEytzingerIndexed() {
+    ImmutableSortedMap.Builder<Integer, Integer> builder = ImmutableSortedMap.naturalOrder();
+    for (int i = 0; i < 4000; i++) {
+      builder.put(i * 3, i);
+    }
+    ImmutableSortedMap<Integer, Integer> map = builder.build();
+    ImmutableSortedMap<Integer, Integer> indexed = map.eytzingerIndexed();
+    assertNotSame(map, indexed);
+    assertEquals(map, indexed);
+    for (int key = -1; key < 12002; key++) {
+      assertEquals(map.get(key), indexed.get(key));
+      assertEquals(map.floorEntry(key), indexed.floorEntry(key));
+    }
+    ImmutableSortedMap<Integer, Integer> small = ImmutableSortedMap.of(1, 1);
+    assertSame(small, small.eytzingerIndexed());
+  }
+
+  public void testSerialization() {
+    ImmutableSortedMap<String, Integer> map = ImmutableSortedMap.copyOf(
+        ImmutableMap.of("b", 2, "A", 1), String.CASE_INSENSITIVE_ORDER);
+    ImmutableSortedMap<String, Integer> reserialized = SerializableTester.reserializeAndAssert(map);
+    assertEquals(String.CASE_INSENSITIVE_ORDER, reserialized.comparator());
+    assertEquals((Integer) 1, reserialized.get("a"));
+  }
+
+  public static class ImmutableSortedMapGenerator extends TestStringSortedMapGenerator {
+    @Override
+    protected SortedMap<String, String> create(Entry<String, String>[] entries) {
+      ImmutableSortedMap.Builder<String, String> builder = ImmutableSortedMap.naturalOrder();
+      for (Entry<String, String> entry : entries) {
+        builder.put(entry.getKey(), entry.getValue());
+      }
+      return builder.build();
+    }
+  }
+
+  public static class ImmutableSortedMapIndexedGenerator extends TestStringSortedMapGenerator {
+    @Override
+    protected SortedMap<String, String> create(Entry<String, String>[] entries) {
+      ImmutableSortedMap.Builder<String, String> builder = ImmutableSortedMap.naturalOrder();
+      for (Entry<String, String> entry : entries) {
+        builder.put(entry.getKey(), entry.getValue());
+      }
+      return builder.build().withEytzingerIndex();
+    }
+  }
+}
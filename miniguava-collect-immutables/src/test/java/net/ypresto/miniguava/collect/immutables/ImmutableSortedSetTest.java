@@ -0,0 +1,287 @@
+/*
+ * Copyright (C) 2016 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ypresto.miniguava.collect.immutables;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.testing.NavigableSetTestSuiteBuilder;
+import com.google.common.collect.testing.TestStringSortedSetGenerator;
+import com.google.common.collect.testing.features.CollectionFeature;
+import com.google.common.collect.testing.features.CollectionSize;
+import com.google.common.testing.SerializableTester;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import net.ypresto.miniguava.annotations.MiniGuavaSpecific;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Tests for {@link ImmutableSortedSet}.
+ */
+@MiniGuavaSpecific
+public class ImmutableSortedSetTest extends TestCase {
+
+  public static Test suite() {
+    TestSuite suite = new TestSuite();
+    suite.addTestSuite(ImmutableSortedSetTest.class);
+    suite.addTest(NavigableSetTestSuiteBuilder.using(new ImmutableSortedSetCopyOfGenerator())
+        .named("ImmutableSortedSet, copyOf")
+        .withFeatures(
+            CollectionSize.ANY,
+            CollectionFeature.KNOWN_ORDER,
+            CollectionFeature.SERIALIZABLE,
+            CollectionFeature.ALLOWS_NULL_QUERIES)
+        .createTestSuite());
+    suite.addTest(NavigableSetTestSuiteBuilder.using(new ImmutableSortedSetIndexedGenerator())
+        .named("ImmutableSortedSet, Eytzinger indexed")
+        .withFeatures(
+            CollectionSize.ANY,
+            CollectionFeature.KNOWN_ORDER,
+            CollectionFeature.SERIALIZABLE,
+            CollectionFeature.ALLOWS_NULL_QUERIES)
+        .createTestSuite());
+    return suite;
+  }
+
+  public void testOf() {
+    assertTrue(ImmutableSortedSet.of().isEmpty());
+    assertThat(ImmutableSortedSet.of("b", "a", "c", "a")).containsExactly("a", "b", "c").inOrder();
+    assertThat(ImmutableSortedSet.of(7, 2, 9, 4, 1, 8, 3)).containsExactly(1, 2, 3, 4, 7, 8, 9)
+        .inOrder();
+  }
+
+  public void testOf_nullElement() {
+    try {
+      ImmutableSortedSet.of("a", null);
+      fail();
+    } catch (NullPointerException expected) {
+    }
+  }
+
+  public void testCopyOf_keepsFirstOfEquivalent() {
+    Comparator<String> caseInsensitive = String.CASE_INSENSITIVE_ORDER;
+    ImmutableSortedSet<String> set =
+        ImmutableSortedSet.copyOf(caseInsensitive, Arrays.asList("b", "A", "a", "B"));
+    assertThat(set).containsExactly("A", "b").inOrder();
+    assertSame(caseInsensitive, set.comparator());
+  }
+
+  public void testCopyOf_sharesImmutableSortedSet() {
+    ImmutableSortedSet<String> set = ImmutableSortedSet.of("a", "b", "c");
+    assertSame(set, ImmutableSortedSet.copyOf(set));
+    ImmutableSortedSet<String> subSet = set.headSet("c");
+    assertNotSame(subSet, ImmutableSortedSet.copyOf(subSet));
+  }
+
+  public void testUnsafeWrap() {
+    Integer[] array = {3, 1, 2, 1};
+    ImmutableSortedSet<Integer> set = ImmutableSortedSet.unsafeWrap(array);
+    assertThat(set).containsExactly(1, 2, 3).inOrder();
+    assertTrue(ImmutableSortedSet.unsafeWrap(new String[0]).isEmpty());
+    try {
+      ImmutableSortedSet.unsafeWrap(new String[] {"a", null});
+      fail();
+    } catch (NullPointerException expected) {
+    }
+  }
+
+  public void testCopyOfSorted() {
+    SortedSet<String> source = new TreeSet<String>(Collections.<String>reverseOrder());
+    source.addAll(Arrays.asList("a", "c", "b"));
+    ImmutableSortedSet<String> set = ImmutableSortedSet.copyOfSorted(source);
+    assertThat(set).containsExactly("c", "b", "a").inOrder();
+    assertEquals(source.comparator(), set.comparator());
+  }
+
+  public void testBuilder() {
+    ImmutableSortedSet<Integer> set = ImmutableSortedSet.<Integer>naturalOrder()
+        .add(5, 1)
+        .add(3)
+        .addAll(Arrays.asList(4, 1, 2))
+        .build();
+    assertThat(set).containsExactly(1, 2, 3, 4, 5).inOrder();
+  }
+
+  public void testBuilder_reuse() {
+    ImmutableSortedSet.Builder<String> builder =
+        ImmutableSortedSet.<String>naturalOrder().add("a", "a", "b");
+    ImmutableSortedSet<String> first = builder.build();
+    assertThat(first).containsExactly("a", "b").inOrder();
+    assertThat(builder.build()).containsExactly("a", "b").inOrder();
+    assertThat(builder.add("c").build()).containsExactly("a", "b", "c").inOrder();
+    assertThat(first).containsExactly("a", "b").inOrder();
+  }
+
+  @SuppressWarnings("deprecation")
+  public void testBuilder_unsupported() {
+    try {
+      ImmutableSortedSet.builder();
+      fail();
+    } catch (UnsupportedOperationException expected) {
+    }
+    try {
+      ImmutableSortedSet.builderWithExpectedSize(1);
+      fail();
+    } catch (UnsupportedOperationException expected) {
+    }
+    try {
+      ImmutableSortedSet.concurrentBuilder();
+      fail();
+    } catch (UnsupportedOperationException expected) {
+    }
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      ImmutableSortedSet.copyOfParallel(Arrays.asList(1, 2), executor);
+      fail();
+    } catch (UnsupportedOperationException expected) {
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  public void testNavigation() {
+    ImmutableSortedSet<Integer> set = ImmutableSortedSet.of(10, 20, 30, 40);
+    assertEquals((Integer) 20, set.floor(25));
+    assertEquals((Integer) 20, set.floor(20));
+    assertEquals((Integer) 10, set.lower(20));
+    assertEquals((Integer) 30, set.ceiling(25));
+    assertEquals((Integer) 20, set.ceiling(20));
+    assertEquals((Integer) 30, set.higher(20));
+    assertNull(set.floor(5));
+    assertNull(set.higher(40));
+  }
+
+  public void testRanges_shareElements() {
+    ImmutableSortedSet<Integer> set = ImmutableSortedSet.of(10, 20, 30, 40, 50);
+    ImmutableSortedSet<Integer> subSet = set.subSet(15, true, 40, true);
+    assertThat(subSet).containsExactly(20, 30, 40).inOrder();
+    assertThat(subSet.asList()).containsExactly(20, 30, 40).inOrder();
+    assertThat(subSet.tailSet(30, false)).containsExactly(40);
+    assertThat(subSet.headSet(30)).containsExactly(20);
+    assertEquals((Integer) 20, subSet.ceiling(0));
+    assertNull(subSet.floor(15));
+    assertTrue(subSet.subSet(21, 29).isEmpty());
+    assertSame(set, set.tailSet(10));
+  }
+
+  public void testSubSet_reversedBounds() {
+    try {
+      ImmutableSortedSet.of(1, 2, 3).subSet(3, 1);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testContains_incomparable() {
+    @SuppressWarnings("unchecked")
+    SortedSet<Object> set = (SortedSet<Object>) (SortedSet<?>) ImmutableSortedSet.of("a", "b");
+    assertFalse(set.contains(1));
+    assertFalse(set.contains(null));
+  }
+
+  public void testEytzingerIndex_matchesTreeSet() {
+    Random random = new Random(0);
+    for (int size = 0; size < 70; size++) {
+      checkAgainstTreeSet(random, size);
+    }
+    checkAgainstTreeSet(random, 5000);
+  }
+
+  private static void checkAgainstTreeSet(Random random, int size) {
+    TreeSet<Integer> expected = new TreeSet<Integer>();
+    while (expected.size() < size) {
+      expected.add(random.nextInt(4 * size) * 2);
+    }
+    ImmutableSortedSet<Integer> plain = ImmutableSortedSet.copyOf(expected);
+    ImmutableSortedSet<Integer> indexed = plain.withEytzingerIndex();
+    assertEquals(plain, indexed);
+    for (int key = -1; key <= 8 * size + 1; key++) {
+      assertEquals(expected.floor(key), indexed.floor(key));
+      assertEquals(expected.ceiling(key), indexed.ceiling(key));
+      assertEquals(expected.lower(key), indexed.lower(key));
+      assertEquals(expected.higher(key), indexed.higher(key));
+      assertEquals(expected.contains(key), indexed.contains(key));
+    }
+    if (size > 2) {
+      int from = indexed.asList().get(1);
+      int to = indexed.last();
+      assertEquals(expected.subSet(from, to), indexed.subSet(from, to));
+      assertEquals(
+          expected.subSet(from, true, to, false).floor(to), indexed.subSet(from, to).floor(to));
+      assertEquals(
+          expected.subSet(from, true, to, false).ceiling(Integer.MIN_VALUE),
+          indexed.subSet(from, to).ceiling(Integer.MIN_VALUE));
+    }
+  }
+
+  public void testEytzingerIndexed() {
+    ImmutableSortedSet<Integer> small = ImmutableSortedSet.of(1, 2, 3);
+    assertSame(small, small.eytzingerIndexed());
+    ImmutableSortedSet.Builder<Integer> builder = ImmutableSortedSet.naturalOrder();
+    for (int i = 0; i < 5000; i++) {
+      builder.add(i);
+    }
+    ImmutableSortedSet<Integer> tailSet = builder.build().tailSet(1000);
+    ImmutableSortedSet<Integer> indexed = tailSet.eytzingerIndexed();
+    assertNotSame(tailSet, indexed);
+    assertEquals(tailSet, indexed);
+    assertSame(indexed, indexed.eytzingerIndexed());
+    assertEquals(4000, indexed.size());
+    assertEquals((Integer) 1000, indexed.ceiling(0));
+    assertEquals((Integer) 4999, indexed.floor(Integer.MAX_VALUE));
+  }
+
+  public void testDescendingSet() {
+    ImmutableSortedSet<String> set = ImmutableSortedSet.of("a", "b", "c");
+    assertThat(set.descendingSet()).containsExactly("c", "b", "a").inOrder();
+    assertEquals(set, set.descendingSet().descendingSet());
+    assertThat(set.descendingSet().headSet("b")).containsExactly("c");
+  }
+
+  public void testSerialization() {
+    ImmutableSortedSet<String> set =
+        ImmutableSortedSet.copyOf(String.CASE_INSENSITIVE_ORDER, Arrays.asList("b", "a", "C"));
+    ImmutableSortedSet<String> reserialized = SerializableTester.reserializeAndAssert(set);
+    assertThat(reserialized).containsExactly("a", "b", "C").inOrder();
+    assertEquals(String.CASE_INSENSITIVE_ORDER, reserialized.comparator());
+    assertSame(ImmutableSortedSet.of(), SerializableTester.reserialize(ImmutableSortedSet.of()));
+  }
+
+  public static class ImmutableSortedSetCopyOfGenerator extends TestStringSortedSetGenerator {
+    @Override
+    protected SortedSet<String> create(String[] elements) {
+      return ImmutableSortedSet.copyOf(Arrays.asList(elements));
+    }
+  }
+
+  public static class ImmutableSortedSetIndexedGenerator extends TestStringSortedSetGenerator {
+    @Override
+    protected SortedSet<String> create(String[] elements) {
+      return ImmutableSortedSet.copyOf(Arrays.asList(elements)).withEytzingerIndex();
+    }
+  }
+}
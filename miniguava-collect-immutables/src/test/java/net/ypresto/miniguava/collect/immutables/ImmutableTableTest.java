@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2016 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ypresto.miniguava.collect.immutables;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.testing.EqualsTester;
+import com.google.common.testing.SerializableTester;
+
+import junit.framework.TestCase;
+
+import net.ypresto.miniguava.annotations.MiniGuavaSpecific;
+
+/**
+ * Tests for {@link ImmutableTable}.
+ */
+@MiniGuavaSpecific
+public class ImmutableTableTest extends TestCase {
+
+  public void testOf() {
+    ImmutableTable<String, Integer, Character> empty = ImmutableTable.of();
+    assertTrue(empty.isEmpty());
+    assertNull(empty.get("a", 1));
+    assertTrue(empty.cellSet().isEmpty());
+    ImmutableTable<String, Integer, Character> table = ImmutableTable.of("a", 1, 'x');
+    assertEquals(1, table.size());
+    assertEquals((Character) 'x', table.get("a", 1));
+    assertNull(table.get("a", 2));
+    assertNull(table.get(null, null));
+  }
+
+  public void testBuilder_sparse() {
+    ImmutableTable<String, Integer, Character> table = sparseTable();
+    assertFalse(table instanceof ArrayTable);
+    assertEquals(4, table.size());
+    assertEquals((Character) 'c', table.get("b", 3));
+    assertNull(table.get("b", 1));
+    assertTrue(table.contains("a", 1));
+    assertFalse(table.contains("c", 3));
+    assertTrue(table.containsRow("c"));
+    assertFalse(table.containsRow("d"));
+    assertTrue(table.containsColumn(4));
+    assertFalse(table.containsColumn(5));
+    assertTrue(table.containsValue('d'));
+    assertFalse(table.containsValue('e'));
+    assertThat(table.rowKeySet()).containsExactly("b", "a", "c").inOrder();
+    assertThat(table.columnKeySet()).containsExactly(3, 1, 2, 4).inOrder();
+    assertThat(table.values()).containsExactly('c', 'b', 'a', 'd').inOrder();
+    assertEquals("{b={3=c, 2=b}, a={1=a}, c={4=d}}", table.toString());
+  }
+
+  public void testBuilder_dense() {
+    ImmutableTable<String, Integer, Character> table =
+        ImmutableTable.<String, Integer, Character>builder()
+            .put("a", 1, 'a')
+            .put("a", 2, 'b')
+            .put("b", 1, 'c')
+            .build();
+    assertTrue(table instanceof ArrayTable);
+    assertEquals(3, table.size());
+    assertEquals((Character) 'c', table.get("b", 1));
+    assertNull(table.get("b", 2));
+    assertEquals("{a={1=a, 2=b}, b={1=c}}", table.toString());
+  }
+
+  public void testBuilder_denseOrdersCellsOfRowByColumn() {
+    ImmutableTable<String, Integer, Character> table =
+        ImmutableTable.<String, Integer, Character>builder()
+            .put("a", 1, 'a')
+            .put("b", 2, 'b')
+            .put("b", 1, 'c')
+            .put("a", 2, 'd')
+            .build();
+    assertTrue(table instanceof ArrayTable);
+    // columns in the order of their first cell in the whole table, not of the row
+    assertEquals("{a={1=a, 2=d}, b={1=c, 2=b}}", table.toString());
+  }
+
+  public void testBuilder_duplicates() {
+    ImmutableTable.Builder<String, Integer, Character> builder = ImmutableTable.builder();
+    builder.put("a", 1, 'a').put("b", 2, 'b').put("c", 3, 'c').put("a", 1, 'd');
+    try {
+      builder.build();
+      fail();
+    } catch (IllegalArgumentException expected) {
+      assertEquals("Duplicate key: (row=a, column=1), values: [a, d].", expected.getMessage());
+    }
+    builder = ImmutableTable.builder();
+    builder.put("a", 1, 'a').put("a", 1, 'b');
+    try {
+      builder.build();
+      fail();
+    } catch (IllegalArgumentException expected) {
+      assertEquals("Duplicate key: (row=a, column=1), values: [a, b].", expected.getMessage());
+    }
+  }
+
+  public void testBuilder_nulls() {
+    ImmutableTable.Builder<String, Integer, Character> builder = ImmutableTable.builder();
+    try {
+      builder.put(null, 1, 'a');
+      fail();
+    } catch (NullPointerException expected) {
+    }
+    try {
+      builder.put("a", null, 'a');
+      fail();
+    } catch (NullPointerException expected) {
+    }
+    try {
+      builder.put("a", 1, null);
+      fail();
+    } catch (NullPointerException expected) {
+    }
+  }
+
+  public void testRowAndColumn() {
+    ImmutableTable<String, Integer, Character> table = sparseTable();
+    assertEquals(ImmutableMap.of(3, 'c', 2, 'b'), table.row("b"));
+    assertThat(table.row("b").keySet()).containsExactly(3, 2).inOrder();
+    assertTrue(table.row("d").isEmpty());
+    assertEquals(ImmutableMap.of("b", 'c'), table.column(3));
+    assertTrue(table.column(5).isEmpty());
+    ImmutableTable<String, Integer, Character> dense = ArrayTable.copyOf(table);
+    assertEquals(table.row("b"), dense.row("b"));
+    assertEquals(table.column(3), dense.column(3));
+  }
+
+  public void testCellSet() {
+    ImmutableTable<String, Integer, Character> table = sparseTable();
+    ImmutableSet<ImmutableTable.Cell<String, Integer, Character>> cells = table.cellSet();
+    assertSame(cells, table.cellSet());
+    assertEquals(4, cells.size());
+    ImmutableTable.Cell<String, Integer, Character> first = cells.iterator().next();
+    assertEquals("b", first.getRowKey());
+    assertEquals((Integer) 3, first.getColumnKey());
+    assertEquals((Character) 'c', first.getValue());
+    assertEquals(ImmutableList.of("b", 3, 'c').hashCode(), first.hashCode());
+    assertTrue(cells.contains(ImmutableTable.cellOf("a", 1, 'a')));
+    assertFalse(cells.contains(ImmutableTable.cellOf("a", 1, 'b')));
+  }
+
+  public void testManyCells() {
+    ImmutableTable.Builder<Integer, Integer, Integer> builder = ImmutableTable.builder();
+    for (int i = 0; i < 10000; i++) {
+      builder.put(i % 1000, i, i);
+    }
+    ImmutableTable<Integer, Integer, Integer> table = builder.build();
+    assertFalse(table instanceof ArrayTable);
+    assertEquals(10000, table.size());
+    for (int i = 0; i < 10000; i++) {
+      assertEquals((Integer) i, table.get(i % 1000, i));
+      assertNull(table.get((i + 1) % 1000, i));
+    }
+    assertEquals(10, table.row(7).size());
+    assertEquals(ImmutableMap.of(7, 1007), table.column(1007));
+  }
+
+  public void testEquals() {
+    ImmutableTable<String, Integer, Character> table = sparseTable();
+    new EqualsTester()
+        .addEqualityGroup(table, ArrayTable.copyOf(table), ImmutableTable.builder()
+            .put("c", 4, 'd').put("a", 1, 'a').put("b", 2, 'b').put("b", 3, 'c').build())
+        .addEqualityGroup(ImmutableTable.of("a", 1, 'a'), ImmutableTable.of("a", 1, 'a'))
+        .addEqualityGroup(ImmutableTable.of("a", 1, 'b'))
+        .addEqualityGroup(ImmutableTable.of(),
+            ArrayTable.builder(ImmutableList.of("a"), ImmutableList.of(1)).build())
+        .testEquals();
+    assertEquals(table.cellSet().hashCode(), table.hashCode());
+  }
+
+  public void testSerialization() {
+    ImmutableTable<String, Integer, Character> table = sparseTable();
+    ImmutableTable<String, Integer, Character> reserialized =
+        SerializableTester.reserializeAndAssert(table);
+    assertEquals(table.toString(), reserialized.toString());
+    assertSame(ImmutableTable.of(), SerializableTester.reserialize(ImmutableTable.of()));
+    SerializableTester.reserializeAndAssert(table.cellSet());
+  }
+
+  private static ImmutableTable<String, Integer, Character> sparseTable() {
+    return ImmutableTable.<String, Integer, Character>builder()
+        .put("b", 3, 'c')
+        .put("a", 1, 'a')
+        .put("b", 2, 'b')
+        .put("c", 4, 'd')
+        .build();
+  }
+}
@@ -26,6 +26,7 @@ import com.google.common.collect.testing.SetTestSuiteBuilder;
 import com.google.common.collect.testing.TestEnumSetGenerator;
 import com.google.common.collect.testing.features.CollectionFeature;
 import com.google.common.collect.testing.features.CollectionSize;
+import com.google.common.testing.GcFinalization;
 import com.google.common.testing.SerializableTester;
 
 import junit.framework.Test;
@@ -109,6 +110,70 @@ public class ImmutablesTest extends TestCase {
     assertTrue(deserialized.contains(SomeEnum.A));
   }
 
+  private enum OtherEnum { A, B, C, D }
+
+  public void testImmutableEnumSet_contains() {
+    Set<SomeEnum> units = Immutables.immutableEnumSet(Arrays.asList(SomeEnum.D, SomeEnum.B));
+    assertTrue(units.contains(SomeEnum.B));
+    assertFalse(units.contains(SomeEnum.A));
+    assertFalse(units.contains(OtherEnum.B));
+    assertFalse(units.contains("B"));
+  }
+
+  public void testImmutableEnumSet_containsAllAndEquals() {
+    Set<SomeEnum> abc = Immutables.immutableEnumSet(
+        Arrays.asList(SomeEnum.A, SomeEnum.B, SomeEnum.C));
+    Set<SomeEnum> ab = Immutables.immutableEnumSet(Arrays.asList(SomeEnum.B, SomeEnum.A));
+    assertTrue(abc.containsAll(ab));
+    assertFalse(ab.containsAll(abc));
+    assertFalse(abc.containsAll(
+        Immutables.immutableEnumSet(Arrays.asList(OtherEnum.A, OtherEnum.B))));
+    assertEquals(ab, Immutables.immutableEnumSet(Arrays.asList(SomeEnum.A, SomeEnum.B)));
+    assertEquals(ab, EnumSet.of(SomeEnum.A, SomeEnum.B));
+    assertEquals(EnumSet.of(SomeEnum.A, SomeEnum.B).hashCode(), ab.hashCode());
+    assertFalse(ab.equals(Immutables.immutableEnumSet(Arrays.asList(OtherEnum.A, OtherEnum.B))));
+  }
+
+  public void testEnumSetAlgebra() {
+    Set<SomeEnum> abc = Immutables.immutableEnumSet(
+        Arrays.asList(SomeEnum.A, SomeEnum.B, SomeEnum.C));
+    Set<SomeEnum> cd = Immutables.immutableEnumSet(Arrays.asList(SomeEnum.C, SomeEnum.D));
+    assertThat(Immutables.enumUnion(cd, abc))
+        .containsExactly(SomeEnum.A, SomeEnum.B, SomeEnum.C, SomeEnum.D).inOrder();
+    assertThat(Immutables.enumIntersection(abc, cd)).containsExactly(SomeEnum.C);
+    assertThat(Immutables.enumDifference(abc, cd))
+        .containsExactly(SomeEnum.A, SomeEnum.B).inOrder();
+    assertThat(Immutables.enumDifference(cd, cd)).isEmpty();
+
+    // mixed with other set implementations
+    Set<SomeEnum> cdEnumSet = EnumSet.of(SomeEnum.C, SomeEnum.D);
+    assertThat(Immutables.enumUnion(cdEnumSet, abc))
+        .containsExactly(SomeEnum.A, SomeEnum.B, SomeEnum.C, SomeEnum.D).inOrder();
+    assertThat(Immutables.enumIntersection(abc, cdEnumSet)).containsExactly(SomeEnum.C);
+    assertThat(Immutables.enumDifference(cdEnumSet, abc)).containsExactly(SomeEnum.D);
+    assertThat(Immutables.enumUnion(
+        EnumSet.noneOf(SomeEnum.class), EnumSet.noneOf(SomeEnum.class))).isEmpty();
+  }
+
+  public void testEnumSetAlgebra_otherEnumType() {
+    Set<SomeEnum> ab = Immutables.immutableEnumSet(Arrays.asList(SomeEnum.A, SomeEnum.B));
+    // same ordinals, different enum
+    Set<OtherEnum> otherAb = Immutables.immutableEnumSet(Arrays.asList(OtherEnum.A, OtherEnum.B));
+    assertThat(Immutables.enumIntersection(ab, otherAb)).isEmpty();
+    assertThat(Immutables.enumDifference(ab, otherAb))
+        .containsExactly(SomeEnum.A, SomeEnum.B).inOrder();
+  }
+
+  public void testImmutableEnumMap_keySet() {
+    ImmutableMap<SomeEnum, String> map = Immutables.immutableEnumMap(
+        ImmutableMap.of(SomeEnum.C, "c", SomeEnum.A, "a"));
+    Set<SomeEnum> keySet = map.keySet();
+    assertTrue(keySet instanceof ImmutableEnumSet);
+    assertEquals(Immutables.immutableEnumSet(Arrays.asList(SomeEnum.A, SomeEnum.C)), keySet);
+    assertThat(Immutables.enumIntersection(keySet, EnumSet.of(SomeEnum.C)))
+        .containsExactly(SomeEnum.C);
+  }
+
   private static byte[] serializeWithBackReference(
       Object original, int handleOffset) throws IOException {
     ByteArrayOutputStream bos = new ByteArrayOutputStream();
@@ -164,4 +229,49 @@ public class ImmutablesTest extends TestCase {
     } catch (NullPointerException expected) {
     }
   }
+
+  public void testCanonicalize_list() {
+    ImmutableList<String> first = ImmutableList.copyOf(Arrays.asList("a", "b", "c"));
+    ImmutableList<String> second = ImmutableList.copyOf(Arrays.asList("a", "b", "c"));
+    assertNotSame(first, second);
+    assertSame(first, Immutables.canonicalize(first));
+    assertSame(first, Immutables.canonicalize(second));
+    assertNotSame(first, Immutables.canonicalize(ImmutableList.of("c", "b", "a")));
+  }
+
+  public void testCanonicalize_requiresSameOrderAndComparator() {
+    ImmutableSet<String> abc = Immutables.canonicalize(ImmutableSet.of("a", "b", "c"));
+    ImmutableSet<String> cba = Immutables.canonicalize(ImmutableSet.of("c", "b", "a"));
+    assertEquals(abc, cba);
+    assertNotSame(abc, cba);
+    assertThat(cba).containsExactly("c", "b", "a").inOrder();
+
+    ImmutableSortedSet<String> natural = Immutables.canonicalize(ImmutableSortedSet.of("a", "b"));
+    ImmutableSortedSet<String> reversed = Immutables.canonicalize(
+        ImmutableSortedSet.copyOf(Collections.<String>reverseOrder(), Arrays.asList("a", "b")));
+    assertNotSame(natural, reversed);
+    assertSame(natural, Immutables.canonicalize(ImmutableSortedSet.of("b", "a")));
+  }
+
+  public void testCanonicalize_map() {
+    ImmutableMap<String, Integer> map = ImmutableMap.of("a", 1, "b", 2);
+    assertSame(map, Immutables.canonicalize(map));
+    assertSame(map, Immutables.canonicalize(ImmutableMap.of("a", 1, "b", 2)));
+    assertNotSame(map, Immutables.canonicalize(ImmutableMap.of("b", 2, "a", 1)));
+  }
+
+  public void testCanonicalPool_releasesUnusedInstances() {
+    CanonicalPool pool = new CanonicalPool();
+    ImmutableList<Integer> kept = pool.canonicalize(ImmutableList.of(-1, -2));
+    for (int i = 0; i < 1000; i++) {
+      assertSame(kept, pool.canonicalize(ImmutableList.of(-1, -2)));
+      pool.canonicalize(ImmutableList.of(i, i + 1));
+    }
+    assertTrue(pool.size() <= 1001);
+    for (int i = 0; i < 1000 && pool.size() > 1; i++) {
+      GcFinalization.awaitFullGc();
+    }
+    assertEquals(1, pool.size());
+    assertSame(kept, pool.canonicalize(ImmutableList.of(-1, -2)));
+  }
 }
@@ -25,6 +25,7 @@ import com.google.common.collect.testing.UnhashableObject;
 
 import net.ypresto.miniguava.annotations.MiniGuavaSpecific;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
@@ -63,6 +64,45 @@ final class ListGenerators {
     }
   }
 
+  public static class ImmutableListPlusGenerator extends TestStringListGenerator {
+    @Override protected List<String> create(String[] elements) {
+      ImmutableList<String> list = ImmutableList.of();
+      for (String element : elements) {
+        list = list.plus(element);
+      }
+      return list;
+    }
+  }
+
+  public static class ImmutableListConcatGenerator extends TestStringListGenerator {
+    @Override protected List<String> create(String[] elements) {
+      // splits the elements into lists of 1, 2, 3, 0, 1, 2, 3, 0... elements
+      List<ImmutableList<String>> lists = new ArrayList<ImmutableList<String>>();
+      int i = 0;
+      for (int length = 1; i < elements.length; length = (length + 1) % 4) {
+        int end = Math.min(elements.length, i + length);
+        lists.add(ImmutableList.copyOf(asList(elements).subList(i, end)));
+        i = end;
+      }
+      @SuppressWarnings("unchecked") // generic array creation
+      ImmutableList<String>[] array = lists.toArray(new ImmutableList[lists.size()]);
+      return ImmutableList.concat(array);
+    }
+  }
+
+  public static class ImmutableListWithGenerator extends TestStringListGenerator {
+    @Override protected List<String> create(String[] elements) {
+      if (elements.length == 0) {
+        return ImmutableList.of();
+      }
+      ImmutableList<String> list = ImmutableList.copyOf(elements).reverse();
+      for (int i = 0; i < elements.length; i++) {
+        list = list.with(i, elements[i]);
+      }
+      return list;
+    }
+  }
+
   public static class BuilderReversedListGenerator
       extends TestStringListGenerator {
     @Override protected List<String> create(String[] elements) {
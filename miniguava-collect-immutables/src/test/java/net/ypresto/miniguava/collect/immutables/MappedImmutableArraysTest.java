@@ -0,0 +1,224 @@
+/*
+ * Copyright (C) 2016 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ypresto.miniguava.collect.immutables;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.testing.ListTestSuiteBuilder;
+import com.google.common.collect.testing.SampleElements;
+import com.google.common.collect.testing.TestListGenerator;
+import com.google.common.collect.testing.features.CollectionFeature;
+import com.google.common.collect.testing.features.CollectionSize;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import net.ypresto.miniguava.annotations.MiniGuavaSpecific;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests for {@link MappedImmutableArrays}.
+ */
+@MiniGuavaSpecific
+public class MappedImmutableArraysTest extends TestCase {
+
+  public static Test suite() {
+    TestSuite suite = new TestSuite();
+    suite.addTestSuite(MappedImmutableArraysTest.class);
+
+    suite.addTest(ListTestSuiteBuilder.using(new MappedLongArrayAsListGenerator())
+        .withFeatures(
+            CollectionSize.ANY,
+            CollectionFeature.SERIALIZABLE,
+            CollectionFeature.ALLOWS_NULL_QUERIES)
+        .named("MappedLongArray.asList")
+        .createTestSuite());
+
+    return suite;
+  }
+
+  public static class MappedLongArrayAsListGenerator implements TestListGenerator<Long> {
+    @Override
+    public SampleElements<Long> samples() {
+      return new SampleElements<Long>(-1L, 1L << 40, 0L, Long.MAX_VALUE, Long.MIN_VALUE);
+    }
+
+    @Override
+    public List<Long> create(Object... elements) {
+      long[] values = new long[elements.length];
+      for (int i = 0; i < elements.length; i++) {
+        values[i] = (Long) elements[i];
+      }
+      try {
+        return MappedImmutableArrays.mapLongArray(write(ImmutableLongArray.copyOf(values)))
+            .asList();
+      } catch (IOException e) {
+        throw new AssertionError(e);
+      }
+    }
+
+    @Override
+    public Long[] createArray(int length) {
+      return new Long[length];
+    }
+
+    @Override
+    public Iterable<Long> order(List<Long> insertionOrder) {
+      return insertionOrder;
+    }
+  }
+
+  private static File write(ImmutableLongArray array) throws IOException {
+    File file = createTempFile();
+    MappedImmutableArrays.write(array, file);
+    return file;
+  }
+
+  private static File createTempFile() throws IOException {
+    File file = File.createTempFile("mapped", ".array");
+    file.deleteOnExit();
+    return file;
+  }
+
+  public void testLongArray() throws IOException {
+    ImmutableLongArray.Builder builder = ImmutableLongArray.builder();
+    for (long i = 0; i < 20000; i++) {
+      builder.add(i * i * 3 - 100);
+    }
+    ImmutableLongArray original = builder.build();
+    MappedLongArray mapped = MappedImmutableArrays.mapLongArray(write(original));
+    assertEquals(original.length(), mapped.length());
+    assertFalse(mapped.isEmpty());
+    assertEquals(original.get(12345), mapped.get(12345));
+    assertTrue(Arrays.equals(original.toArray(), mapped.toArray()));
+    assertEquals(original.asList(), mapped.asList());
+    assertEquals(original.asList().hashCode(), mapped.asList().hashCode());
+    assertEquals(7, mapped.indexOf(7 * 7 * 3 - 100));
+    assertFalse(mapped.contains(0));
+    try {
+      mapped.get(20000);
+      fail();
+    } catch (IndexOutOfBoundsException expected) {
+    }
+
+    long[] sorted = original.toArray();
+    for (long key = -200; key < 1000; key++) {
+      assertEquals(Arrays.binarySearch(sorted, key), mapped.binarySearch(key));
+    }
+    assertEquals(19999, mapped.binarySearch(sorted[19999]));
+    assertEquals(-20001, mapped.binarySearch(Long.MAX_VALUE));
+  }
+
+  public void testIntArray() throws IOException {
+    ImmutableIntArray original = ImmutableIntArray.of(-5, 0, 3, 3, Integer.MAX_VALUE);
+    File file = createTempFile();
+    MappedImmutableArrays.write(original, file);
+    MappedIntArray mapped = MappedImmutableArrays.mapIntArray(file);
+    assertEquals(original.asList(), mapped.asList());
+    assertTrue(Arrays.equals(original.toArray(), mapped.toArray()));
+    assertEquals(2, mapped.indexOf(3));
+    assertEquals(-3, mapped.binarySearch(1));
+    assertEquals(4, mapped.binarySearch(Integer.MAX_VALUE));
+    assertEquals(-1, mapped.asList().indexOf(3L));
+  }
+
+  public void testDoubleArray() throws IOException {
+    ImmutableDoubleArray original =
+        ImmutableDoubleArray.of(Double.NEGATIVE_INFINITY, -0.0, 0.0, 1.5, Double.NaN);
+    File file = createTempFile();
+    MappedImmutableArrays.write(original, file);
+    MappedDoubleArray mapped = MappedImmutableArrays.mapDoubleArray(file);
+    assertEquals(original.asList(), mapped.asList());
+    assertEquals(1, mapped.indexOf(-0.0));
+    assertEquals(2, mapped.indexOf(0.0));
+    assertEquals(4, mapped.indexOf(Double.NaN));
+    assertEquals(4, mapped.binarySearch(Double.NaN));
+    assertEquals(2, mapped.binarySearch(0.0));
+    assertEquals(-4, mapped.binarySearch(1.0));
+  }
+
+  public void testEmpty() throws IOException {
+    MappedLongArray mapped = MappedImmutableArrays.mapLongArray(write(ImmutableLongArray.of()));
+    assertTrue(mapped.isEmpty());
+    assertEquals(0, mapped.toArray().length);
+    assertSame(ImmutableList.of(), mapped.asList());
+    assertEquals(-1, mapped.binarySearch(5));
+  }
+
+  public void testSegments() throws IOException {
+    // 64-byte segments, so that 8 longs or 16 ints fill each one
+    long[] values = new long[100];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = i * 10L;
+    }
+    File file = write(ImmutableLongArray.copyOf(values));
+    MappedLongArray mapped = new MappedLongArray(
+        MappedImmutableArrays.mapSegments(file, MappedImmutableArrays.TYPE_LONG, 3, 6), 3);
+    assertEquals(100, mapped.length());
+    for (int i = 0; i < values.length; i++) {
+      assertEquals(values[i], mapped.get(i));
+      assertEquals(i, mapped.binarySearch(values[i]));
+    }
+    assertTrue(Arrays.equals(values, mapped.toArray()));
+
+    int[] ints = new int[33];
+    for (int i = 0; i < ints.length; i++) {
+      ints[i] = -i;
+    }
+    File intFile = createTempFile();
+    MappedImmutableArrays.write(ImmutableIntArray.copyOf(ints), intFile);
+    MappedIntArray mappedInts = new MappedIntArray(
+        MappedImmutableArrays.mapSegments(intFile, MappedImmutableArrays.TYPE_INT, 2, 6), 4);
+    assertTrue(Arrays.equals(ints, mappedInts.toArray()));
+    assertEquals(-32, mappedInts.get(32));
+  }
+
+  public void testMap_wrongFormat() throws IOException {
+    File file = write(ImmutableLongArray.of(1L, 2L));
+    try {
+      MappedImmutableArrays.mapIntArray(file);
+      fail();
+    } catch (IOException expected) {
+    }
+
+    RandomAccessFile raf = new RandomAccessFile(file, "rw");
+    try {
+      raf.setLength(raf.length() - 1);
+    } finally {
+      raf.close();
+    }
+    try {
+      MappedImmutableArrays.mapLongArray(file);
+      fail();
+    } catch (IOException expected) {
+      assertThat(expected.getMessage()).contains("truncated");
+    }
+
+    File empty = createTempFile();
+    try {
+      MappedImmutableArrays.mapLongArray(empty);
+      fail();
+    } catch (IOException expected) {
+    }
+  }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2016 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ypresto.miniguava.collect.immutables;
+
+import com.google.common.collect.testing.MapTestSuiteBuilder;
+import com.google.common.collect.testing.TestStringMapGenerator;
+import com.google.common.collect.testing.features.CollectionFeature;
+import com.google.common.collect.testing.features.CollectionSize;
+import com.google.common.collect.testing.features.MapFeature;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import net.ypresto.miniguava.annotations.MiniGuavaSpecific;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Tests for {@link MappedImmutableMaps}.
+ */
+@MiniGuavaSpecific
+public class MappedImmutableMapsTest extends TestCase {
+
+  public static Test suite() {
+    TestSuite suite = new TestSuite();
+    suite.addTestSuite(MappedImmutableMapsTest.class);
+
+    suite.addTest(MapTestSuiteBuilder.using(new MappedImmutableMapGenerator())
+        .withFeatures(
+            CollectionSize.ANY,
+            CollectionFeature.KNOWN_ORDER,
+            MapFeature.REJECTS_DUPLICATES_AT_CREATION,
+            CollectionFeature.ALLOWS_NULL_QUERIES)
+        .named("MappedImmutableMaps")
+        .createTestSuite());
+
+    return suite;
+  }
+
+  public static class MappedImmutableMapGenerator extends TestStringMapGenerator {
+    @Override
+    protected Map<String, String> create(Entry<String, String>[] entries) {
+      ImmutableMap.Builder<String, String> builder = ImmutableMap.builder();
+      for (Entry<String, String> entry : entries) {
+        builder.put(entry.getKey(), entry.getValue());
+      }
+      try {
+        return writeAndMap(
+            builder.build(), BinaryCodecs.stringCodec(), BinaryCodecs.stringCodec());
+      } catch (IOException e) {
+        throw new AssertionError(e);
+      }
+    }
+  }
+
+  private static <K, V> ImmutableMap<K, V> writeAndMap(
+      ImmutableMap<K, V> map, BinaryCodec<K> keyCodec, BinaryCodec<V> valueCodec)
+      throws IOException {
+    File file = File.createTempFile("mapped", ".map");
+    file.deleteOnExit();
+    MappedImmutableMaps.write(map, file, keyCodec, valueCodec);
+    return MappedImmutableMaps.map(file, keyCodec, valueCodec);
+  }
+
+  public void testLargeMap() throws IOException {
+    ImmutableMap.Builder<Integer, String> builder = ImmutableMap.builder();
+    for (int i = 0; i < 10000; i++) {
+      builder.put(i * 7, "valueé中" + i);
+    }
+    ImmutableMap<Integer, String> original = builder.build();
+    ImmutableMap<Integer, String> mapped =
+        writeAndMap(original, BinaryCodecs.integerCodec(), BinaryCodecs.stringCodec());
+    assertEquals(original, mapped);
+    assertEquals(original.keySet().asList(), mapped.keySet().asList());
+    assertEquals("valueé中5", mapped.get(35));
+    assertNull(mapped.get(36));
+    assertTrue(mapped.containsKey(7 * 9999));
+    assertFalse(mapped.containsKey(7 * 10000));
+  }
+
+  public void testGet_wrongKeyType() throws IOException {
+    ImmutableMap<String, Long> mapped = writeAndMap(
+        ImmutableMap.of("a", 1L, "b", 2L), BinaryCodecs.stringCodec(), BinaryCodecs.longCodec());
+    assertEquals(Long.valueOf(2L), mapped.get("b"));
+    assertNull(mapped.get(1L));
+    assertFalse(mapped.containsKey(1L));
+  }
+
+  public void testWrite_nonCanonicalCodec() throws IOException {
+    BinaryCodec<String> firstCharCodec = new BinaryCodec<String>() {
+      @Override
+      public int encodedLength(String value) {
+        return 2;
+      }
+
+      @Override
+      public void encode(String value, ByteBuffer dst) {
+        dst.putChar(value.charAt(0));
+      }
+
+      @Override
+      public String decode(ByteBuffer src) {
+        return String.valueOf(src.getChar());
+      }
+    };
+    File file = File.createTempFile("mapped", ".map");
+    file.deleteOnExit();
+    try {
+      MappedImmutableMaps.write(
+          ImmutableMap.of("ab", "1", "ac", "2"), file, firstCharCodec, BinaryCodecs.stringCodec());
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testWrite_codecLengthMismatch() throws IOException {
+    BinaryCodec<String> lyingCodec = new BinaryCodec<String>() {
+      @Override
+      public int encodedLength(String value) {
+        return 1;
+      }
+
+      @Override
+      public void encode(String value, ByteBuffer dst) {
+        dst.putInt(value.length());
+      }
+
+      @Override
+      public String decode(ByteBuffer src) {
+        throw new AssertionError();
+      }
+    };
+    File file = File.createTempFile("mapped", ".map");
+    file.deleteOnExit();
+    try {
+      MappedImmutableMaps.write(
+          ImmutableMap.of("ab", "1"), file, lyingCodec, BinaryCodecs.stringCodec());
+      fail();
+    } catch (IllegalStateException expected) {
+    }
+  }
+
+  public void testMap_notAMapFile() throws IOException {
+    File file = File.createTempFile("mapped", ".map");
+    file.deleteOnExit();
+    FileOutputStream out = new FileOutputStream(file);
+    try {
+      out.write(new byte[64]);
+    } finally {
+      out.close();
+    }
+    try {
+      MappedImmutableMaps.map(file, BinaryCodecs.stringCodec(), BinaryCodecs.stringCodec());
+      fail();
+    } catch (IOException expected) {
+    }
+  }
+}